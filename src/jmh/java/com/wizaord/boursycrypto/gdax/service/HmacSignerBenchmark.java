@@ -0,0 +1,64 @@
+package com.wizaord.boursycrypto.gdax.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per request cost of the CB-ACCESS-SIGN generation.
+ *  - legacySign : previous implementation (decode the secret, Mac.getInstance and string prehash on every call)
+ *  - hmacSigner : {@link HmacSigner} with the pre-decoded key and the thread confined Mac
+ *
+ * Run with : gradle jmh (use -prof gc to see the allocations per operation)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HmacSignerBenchmark {
+
+  private static final String SECRET = Base64.getEncoder().encodeToString("benchmark-secret-key-0123456789".getBytes(StandardCharsets.UTF_8));
+  private static final String TIMESTAMP = "1520000000";
+  private static final String METHOD = "POST";
+  private static final String PATH = "/orders";
+
+  private byte[] body;
+  private HmacSigner signer;
+
+  @Setup
+  public void setUp() {
+    this.body = "{\"type\":\"market\",\"side\":\"sell\",\"product_id\":\"BTC-EUR\",\"size\":\"0.01\",\"price\":\"8000.12\",\"stop\":\"loss\",\"stop_price\":\"8000.12\"}"
+            .getBytes(StandardCharsets.UTF_8);
+    this.signer = new HmacSigner(SECRET);
+  }
+
+  @Benchmark
+  public String legacySign() throws Exception {
+    final String prehash = TIMESTAMP + METHOD.toUpperCase() + PATH + new String(this.body, "UTF-8");
+    final byte[] secretDecoded = Base64.getDecoder().decode(SECRET);
+    final SecretKeySpec keyspec = new SecretKeySpec(secretDecoded, "HmacSHA256");
+    final Mac sha256 = Mac.getInstance("HmacSHA256");
+    sha256.init(keyspec);
+    return Base64.getEncoder().encodeToString(sha256.doFinal(prehash.getBytes("UTF-8")));
+  }
+
+  @Benchmark
+  public String hmacSigner() {
+    return this.signer.sign(TIMESTAMP, METHOD, PATH, this.body);
+  }
+}
@@ -1,11 +1,12 @@
 package com.wizaord.boursycrypto.gdax;
 
 import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.domain.snapshot.TradingSnapshot;
 import com.wizaord.boursycrypto.gdax.listener.weksocket.FeedListener;
-import com.wizaord.boursycrypto.gdax.service.AccountService;
-import com.wizaord.boursycrypto.gdax.service.gdax.OrderService;
+import com.wizaord.boursycrypto.gdax.service.ipc.TickSubscriber;
 import com.wizaord.boursycrypto.gdax.service.notify.SlackService;
-import com.wizaord.boursycrypto.gdax.service.trade.TradeService;
+import com.wizaord.boursycrypto.gdax.service.shard.ProductShard;
+import com.wizaord.boursycrypto.gdax.service.shard.ShardManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,6 +15,8 @@ import org.springframework.boot.ApplicationRunner;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
+import java.util.Optional;
+
 @Component
 @Profile({"PROD", "SANDBOX"})
 public class GDaxApplicationRunner implements ApplicationRunner {
@@ -23,46 +26,67 @@ public class GDaxApplicationRunner implements ApplicationRunner {
     @Autowired
     private SlackService slackService;
     @Autowired
-    private AccountService accountService;
-    @Autowired
     private ApplicationProperties applicationProperties;
     @Autowired
-    private OrderService orderService;
-    @Autowired
     private FeedListener webSocketHandler;
     @Autowired
-    private TradeService tradeService;
+    private ShardManager shardManager;
+    @Autowired
+    private TickSubscriber tickSubscriber;
 
     @Override
     public void run(final ApplicationArguments args) {
         LOG.info("Starting GDaxApplication Runner !!!!");
-        slackService.postCustomMessage("Starting GDaxApplication for " + this.applicationProperties.getProduct().getName());
 
-        //refresh account
-        refreshAccount();
+        // one shard per product
+        shardManager.startShards();
+        slackService.postCustomMessage("Starting GDaxApplication for " + String.join(", ", shardManager.getProductNames()));
 
-        // clean current order if option is activated
-        if (applicationProperties.getTrader().getVente().getStart().getCleanCurrentOrder()) {
-            removeLastCurrentOrder();
-        }
+        shardManager.getShards().forEach(this::initShard);
 
-        // if order is placed => sell MODE
-        // if BTC exists => sell MODE
-        // else => BUY MODE
-        initTradeMode();
+        // reading the ticks of the publisher process if IPC subscriber mode
+        tickSubscriber.start();
 
         // starting the webSocket
         startWebSocket();
     }
 
-    private void refreshAccount() {
+    private void initShard(final ProductShard shard) {
+        LOG.info("Initializing product {}", shard.getProductName());
+
+        //refresh account
+        refreshAccount(shard);
+
+        // trend history and trading state of the previous run
+        final Optional<TradingSnapshot> snapshot = shard.getSnapshotService().restore();
+        // minutes missing in the trend history
+        shard.getBackfillService().backfill();
+
+        // clean current order if option is activated
+        final boolean cleanCurrentOrder = applicationProperties.getTrader().getVente().getStart().getCleanCurrentOrder();
+        if (cleanCurrentOrder) {
+            removeLastCurrentOrder(shard);
+        }
+
+        if (snapshot.isPresent() && !cleanCurrentOrder) {
+            // only check what may have changed since the snapshot
+            shard.getTradeService().reconcile(snapshot.get());
+        } else {
+            // if order is placed => sell MODE
+            // if BTC exists => sell MODE
+            // else => BUY MODE
+            initTradeMode(shard);
+        }
+    }
+
+    private void refreshAccount(final ProductShard shard) {
         // loading account
-        accountService.refreshBalance();
+        shard.getAccountService().refreshBalance();
     }
 
-    private void removeLastCurrentOrder() {
+    private void removeLastCurrentOrder(final ProductShard shard) {
         //load last orders
-        orderService.cancelOrders();
+        shard.getOrderService().cancelOrders();
     }
 
     /**
@@ -71,8 +95,8 @@ public class GDaxApplicationRunner implements ApplicationRunner {
      // if BTC exists => sell MODE
      // else => BUY MODE
      */
-    private void initTradeMode() {
-        this.tradeService.determineTradeMode();
+    private void initTradeMode(final ProductShard shard) {
+        shard.getTradeService().determineTradeMode();
     }
 
     private void startWebSocket() {
@@ -0,0 +1,65 @@
+package com.wizaord.boursycrypto.gdax;
+
+import com.wizaord.boursycrypto.gdax.service.export.HistoryExporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command line export of the recorded history of a product, without starting the trading context.
+ *
+ * gradle exportHistory -PexportArgs="--product=BTC-EUR --from=2018-03-01T00:00:00Z --to=2018-03-02T00:00:00Z"
+ *
+ * Options : --product (mandatory), --store (./store), --output (./export), --from (24 hours ago), --to (now)
+ */
+public class GdaxExport {
+  private static final Logger LOG = LoggerFactory.getLogger(GdaxExport.class);
+
+  public static void main(String[] args) {
+    final Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      final int separator = arg.indexOf('=');
+      if (!arg.startsWith("--") || separator < 0) {
+        usage("Invalid argument " + arg);
+        return;
+      }
+      options.put(arg.substring(2, separator), arg.substring(separator + 1));
+    }
+
+    final String product = options.get("product");
+    if (product == null) {
+      usage("The product is mandatory");
+      return;
+    }
+    final Instant to;
+    final Instant from;
+    try {
+      to = options.containsKey("to") ? Instant.parse(options.get("to")) : Instant.now();
+      from = options.containsKey("from") ? Instant.parse(options.get("from")) : to.minus(1, ChronoUnit.DAYS);
+    } catch (DateTimeParseException e) {
+      usage("Invalid date " + e.getParsedString());
+      return;
+    }
+
+    final File output = new File(options.getOrDefault("output", "./export"));
+    try (HistoryExporter exporter = new HistoryExporter(new File(options.getOrDefault("store", "./store")), product)) {
+      LOG.info("Exporting {} from {} to {} in {}", product, from, to, output);
+      exporter.exportAll(from, to, output).forEach(line -> LOG.info("   {} rows", line));
+    } catch (Exception e) {
+      LOG.error("Export failed", e);
+      System.exit(1);
+    }
+  }
+
+  private static void usage(final String error) {
+    LOG.error(error);
+    LOG.error("Usage : GdaxExport --product=BTC-EUR [--store=./store] [--output=./export] [--from=2018-03-01T00:00:00Z] [--to=2018-03-02T00:00:00Z]");
+    System.exit(1);
+  }
+}
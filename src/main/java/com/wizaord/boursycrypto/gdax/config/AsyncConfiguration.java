@@ -1,7 +1,11 @@
 package com.wizaord.boursycrypto.gdax.config;
 
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.domain.E_SchedulerLane;
+import com.wizaord.boursycrypto.gdax.service.metrics.MonitoredTaskScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
@@ -23,4 +27,33 @@ public class AsyncConfiguration {
         LOG.info("PostConstruct : Configuration Async: successfully loaded");
     }
 
+    /**
+     * Scheduler of the @Scheduled methods, TRADING lane of the main product. It is named taskScheduler so that it is
+     * preferred to the SockJS scheduler registered by the websocket configuration. One thread, as the default scheduler.
+     * The methods annotated with @RunOn another lane are handed to the scheduler of that lane.
+     */
+    @Bean
+    public MonitoredTaskScheduler taskScheduler(final ApplicationProperties applicationProperties) {
+        final MonitoredTaskScheduler taskScheduler = MonitoredTaskScheduler.forLane(E_SchedulerLane.TRADING, "trading-", applicationProperties.getSchedulers());
+        taskScheduler.route(E_SchedulerLane.MARKET_DATA, this.marketDataScheduler(applicationProperties));
+        taskScheduler.route(E_SchedulerLane.HOUSEKEEPING, this.housekeepingScheduler(applicationProperties));
+        return taskScheduler;
+    }
+
+    /**
+     * MARKET_DATA lane : candle aggregation of all the products, on one thread
+     */
+    @Bean
+    public MonitoredTaskScheduler marketDataScheduler(final ApplicationProperties applicationProperties) {
+        return MonitoredTaskScheduler.forLane(E_SchedulerLane.MARKET_DATA, "market-data-", applicationProperties.getSchedulers());
+    }
+
+    /**
+     * HOUSEKEEPING lane : reports, balance reconciliations, clock synchronization
+     */
+    @Bean
+    public MonitoredTaskScheduler housekeepingScheduler(final ApplicationProperties applicationProperties) {
+        return MonitoredTaskScheduler.forLane(E_SchedulerLane.HOUSEKEEPING, "housekeeping-", applicationProperties.getSchedulers());
+    }
+
 }
@@ -0,0 +1,37 @@
+package com.wizaord.boursycrypto.gdax.config;
+
+import com.wizaord.boursycrypto.gdax.service.notify.WebSocketSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Local WebSocket endpoint used by the {@link WebSocketSink} notification sink
+ */
+@Configuration
+@EnableWebSocket
+public class NotificationWebSocketConfiguration implements WebSocketConfigurer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NotificationWebSocketConfiguration.class);
+
+    @Autowired
+    private WebSocketSink webSocketSink;
+
+    @PostConstruct
+    public void log() {
+        LOG.info("NotificationWebSocketConfiguration: Successfully loaded");
+    }
+
+    @Override
+    public void registerWebSocketHandlers(final WebSocketHandlerRegistry registry) {
+        if (this.webSocketSink.isEnabled()) {
+            registry.addHandler(this.webSocketSink, "/notifications");
+        }
+    }
+}
@@ -1,13 +1,14 @@
 package com.wizaord.boursycrypto.gdax.config;
 
 import com.wizaord.boursycrypto.gdax.interceptor.GDaxAuthInterceptor;
+import com.wizaord.boursycrypto.gdax.interceptor.RestMetricsInterceptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RootUriTemplateHandler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.BufferingClientHttpRequestFactory;
+import org.springframework.context.annotation.Primary;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
@@ -37,13 +38,23 @@ public class RestConfiguration {
     }
 
     @Bean
-    public RestTemplate restTemplate(ClientHttpRequestInterceptor gdaxAuthInterceptor) {
-        RestTemplate restTemplate = new RestTemplate(new BufferingClientHttpRequestFactory(new SimpleClientHttpRequestFactory()));
+    @Primary
+    public RestTemplate restTemplate(ClientHttpRequestInterceptor gdaxAuthInterceptor, RestMetricsInterceptor restMetricsInterceptor) {
+        RestTemplate restTemplate = new RestTemplate(new SimpleClientHttpRequestFactory());
         RootUriTemplateHandler.addTo(restTemplate, GDAX_URI);
+        restTemplate.getInterceptors().add(restMetricsInterceptor);
         restTemplate.getInterceptors().add(gdaxAuthInterceptor);
         return restTemplate;
     }
 
+    /**
+     * Client dedicated to the notification sinks (Slack, webhook) : no GDAX root uri and no GDAX signature
+     */
+    @Bean
+    public RestTemplate notificationRestTemplate() {
+        return new RestTemplate(new SimpleClientHttpRequestFactory());
+    }
+
     @Bean
     public CommonsRequestLoggingFilter requestLoggingFilter() {
         CommonsRequestLoggingFilter loggingFilter = new CommonsRequestLoggingFilter();
@@ -8,4 +8,6 @@ public class Achat {
     private Integer maxBuyAmount;
     private Float pourcentageChuteCoursStopOrder;
     private Float pourcentageChuteCancelCount;
+    private Float reboundPourcent;
+    private Integer trailingTimeout;
 }
@@ -4,6 +4,9 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
 @Validated
 @Data
@@ -11,8 +14,54 @@ public class ApplicationProperties {
     private Configuration configuration;
     private Auth auth;
     private Product product;
+    private List<Product> products = new ArrayList<>();
     private Trader trader;
     private Historique historique;
     private Slack slack;
+    private Notify notify;
+    private Balance balance;
+    private Ipc ipc;
+    private Snapshot snapshot;
+    private Backfill backfill;
+    private Store store;
+    private Strategies strategies;
+    private Detector detector;
+    private Paper paper;
+    private Execution execution;
+    private Schedulers schedulers;
+
+    /**
+     * Copy of the properties for another product. The other sections are shared.
+     * @param otherProduct
+     * @return the properties of the product shard
+     */
+    public ApplicationProperties forProduct(final Product otherProduct) {
+        final ApplicationProperties shardProperties = new ApplicationProperties();
+        shardProperties.setConfiguration(this.getConfiguration());
+        shardProperties.setAuth(this.getAuth());
+        shardProperties.setProduct(otherProduct);
+        shardProperties.setTrader(this.getTrader());
+        shardProperties.setHistorique(this.getHistorique());
+        shardProperties.setSlack(this.getSlack());
+        shardProperties.setNotify(this.getNotify());
+        shardProperties.setBalance(this.getBalance());
+        shardProperties.setIpc(this.getIpc());
+        shardProperties.setSnapshot(this.getSnapshot());
+        shardProperties.setBackfill(this.getBackfill());
+        shardProperties.setStore(this.getStore());
+        shardProperties.setStrategies(this.getStrategies());
+        shardProperties.setDetector(this.getDetector());
+        shardProperties.setPaper(this.getPaper());
+        shardProperties.setExecution(this.getExecution());
+        shardProperties.setSchedulers(this.getSchedulers());
+        return shardProperties;
+    }
+
+    /**
+     * @return true if the orders are simulated against the live feed instead of being sent to GDAX
+     */
+    public boolean isPaperTrading() {
+        return this.paper != null && Boolean.TRUE.equals(this.paper.getActivate());
+    }
 }
 
@@ -0,0 +1,11 @@
+package com.wizaord.boursycrypto.gdax.config.properties;
+
+import lombok.Data;
+
+@Data
+public class Backfill {
+  private Boolean activate;
+  private Integer minutes;
+  private Integer concurrency;
+  private Integer requestsPerSecond;
+}
@@ -0,0 +1,8 @@
+package com.wizaord.boursycrypto.gdax.config.properties;
+
+import lombok.Data;
+
+@Data
+public class Balance {
+  private Integer reconcileDelay;
+}
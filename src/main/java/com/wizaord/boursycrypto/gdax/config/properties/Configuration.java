@@ -6,4 +6,6 @@ import lombok.Data;
 public class Configuration {
     private String restapi;
     private String feedurl;
+    private Integer wireTraceSampleRate;
+    private Integer wireTraceMaxBody;
 }
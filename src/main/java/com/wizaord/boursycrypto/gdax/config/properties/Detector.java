@@ -0,0 +1,12 @@
+package com.wizaord.boursycrypto.gdax.config.properties;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class Detector {
+  private Boolean activate;
+  private List<DetectorHorizon> horizons = new ArrayList<>();
+}
@@ -0,0 +1,10 @@
+package com.wizaord.boursycrypto.gdax.config.properties;
+
+import lombok.Data;
+
+@Data
+public class DetectorHorizon {
+  private Integer duration;   // millis
+  private Float drop;         // pourcent, negative
+  private Float rebound;      // pourcent
+}
@@ -0,0 +1,15 @@
+package com.wizaord.boursycrypto.gdax.config.properties;
+
+import lombok.Data;
+
+@Data
+public class Execution {
+  private String algo;          // MARKET, TWAP, ICEBERG or LADDER
+  private Integer duration;     // millis, the remaining size is then sold at market
+  private Integer interval;     // millis between two checks of the children (new slices, re-pricing)
+  private Integer slices;       // TWAP
+  private Float visibleSize;    // ICEBERG, coins
+  private Integer levels;       // LADDER
+  private Float levelStep;      // LADDER, pourcent between two levels
+  private Integer childTimeout; // millis, a child not filled in time is canceled and placed again (none if empty)
+}
@@ -0,0 +1,11 @@
+package com.wizaord.boursycrypto.gdax.config.properties;
+
+import com.wizaord.boursycrypto.gdax.domain.E_IpcMode;
+import lombok.Data;
+
+@Data
+public class Ipc {
+  private E_IpcMode mode;
+  private String directory;
+  private Integer capacity;
+}
@@ -0,0 +1,14 @@
+package com.wizaord.boursycrypto.gdax.config.properties;
+
+import lombok.Data;
+
+@Data
+public class Notify {
+  private Integer queueCapacity;
+  private Integer coalesceWindow;
+  private Integer workers;
+  private Integer maxRetries;
+  private String webhookUrl;
+  private String filePath;
+  private Boolean websocket;
+}
@@ -0,0 +1,13 @@
+package com.wizaord.boursycrypto.gdax.config.properties;
+
+import lombok.Data;
+
+@Data
+public class Paper {
+  private Boolean activate;
+  private Float money;          // starting balance, EUR
+  private Float coin;           // starting balance, coins of the product
+  private Float takerFeeRate;
+  private Float makerFeeRate;
+  private Integer ackDelay;     // simulated REST round trip, millis
+}
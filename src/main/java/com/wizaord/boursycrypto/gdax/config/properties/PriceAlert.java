@@ -0,0 +1,9 @@
+package com.wizaord.boursycrypto.gdax.config.properties;
+
+import lombok.Data;
+
+@Data
+public class PriceAlert {
+  private Float price;
+  private String channel;     // slack channel, the personal account channel if not set
+}
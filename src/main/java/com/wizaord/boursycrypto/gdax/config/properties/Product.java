@@ -2,8 +2,12 @@ package com.wizaord.boursycrypto.gdax.config.properties;
 
 import lombok.Data;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Data
 public class Product {
   private String name;
   private String type;
+  private List<PriceAlert> alerts = new ArrayList<>();
 }
@@ -0,0 +1,10 @@
+package com.wizaord.boursycrypto.gdax.config.properties;
+
+import lombok.Data;
+
+@Data
+public class SchedulerLane {
+  private Integer priority;   // thread priority, 1 to 10
+  private Integer poolSize;   // HOUSEKEEPING only : the other lanes have one thread (single writer)
+  private String cpus;        // cpu affinity hint (taskset list, ex 2-3), logged with the thread names
+}
@@ -0,0 +1,10 @@
+package com.wizaord.boursycrypto.gdax.config.properties;
+
+import lombok.Data;
+
+@Data
+public class Schedulers {
+  private SchedulerLane marketData;
+  private SchedulerLane trading;
+  private SchedulerLane housekeeping;
+}
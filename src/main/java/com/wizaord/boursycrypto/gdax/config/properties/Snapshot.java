@@ -0,0 +1,11 @@
+package com.wizaord.boursycrypto.gdax.config.properties;
+
+import lombok.Data;
+
+@Data
+public class Snapshot {
+  private Boolean activate;
+  private String directory;
+  private Integer interval;
+  private Integer maxAge;
+}
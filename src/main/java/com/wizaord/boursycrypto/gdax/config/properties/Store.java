@@ -0,0 +1,10 @@
+package com.wizaord.boursycrypto.gdax.config.properties;
+
+import lombok.Data;
+
+@Data
+public class Store {
+  private Boolean activate;
+  private String directory;
+  private Integer chunkSize;
+}
@@ -0,0 +1,11 @@
+package com.wizaord.boursycrypto.gdax.config.properties;
+
+import lombok.Data;
+
+@Data
+public class Strategies {
+  private Integer workers;
+  private Integer timeout;
+  private String directory;
+  private Integer reloadDelay;
+}
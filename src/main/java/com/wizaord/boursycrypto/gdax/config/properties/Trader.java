@@ -6,6 +6,7 @@ import lombok.Data;
 public class Trader {
   private String delay;
   private Boolean modeVisualisation;
+  private Integer maxFeedLag;
   private Vente vente;
   private Achat achat;
 }
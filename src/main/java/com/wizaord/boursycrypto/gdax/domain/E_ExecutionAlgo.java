@@ -0,0 +1,11 @@
+package com.wizaord.boursycrypto.gdax.domain;
+
+/**
+ * Execution of the sale of a lot when its stop price is reached
+ */
+public enum E_ExecutionAlgo {
+  MARKET,   // a GDAX stop order : the whole lot is sold at market
+  TWAP,     // slices released regularly over application.execution.duration
+  ICEBERG,  // one child of visibleSize at a time
+  LADDER    // children spread over several price levels
+}
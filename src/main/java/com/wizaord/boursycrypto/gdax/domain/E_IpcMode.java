@@ -0,0 +1,13 @@
+package com.wizaord.boursycrypto.gdax.domain;
+
+/**
+ * Sharing of the ticker feed between the BoursyCrypto processes of a host
+ */
+public enum E_IpcMode {
+  /** the ticker channel is received from the WebSocket */
+  NONE,
+  /** the ticker channel is received from the WebSocket and the decoded ticks are published in the IPC files */
+  PUBLISHER,
+  /** the ticks are read from the IPC files ; only the user channel is received from the WebSocket */
+  SUBSCRIBER
+}
@@ -0,0 +1,25 @@
+package com.wizaord.boursycrypto.gdax.domain;
+
+/**
+ * The stages of the tick-to-trade path
+ */
+public enum E_LatencyStage {
+  /** socket receive to decoded feed message */
+  DECODE,
+  /** decoded feed message to dispatched in the services */
+  DISPATCH,
+  /** tick written in the IPC ring by the publisher process to tick read by this process */
+  IPC_HANDOFF,
+  /** tick received to TradeService decision */
+  TICK_TO_DECISION,
+  /** TradeService decision to REST order sent (includes the cancel of the previous stop) */
+  DECISION_TO_SEND,
+  /** REST order sent to REST acknowledgement */
+  REST_ACK,
+  /** REST acknowledgement to the confirming user channel event */
+  ACK_TO_CONFIRM,
+  /** end-to-end : tick received to REST acknowledgement */
+  TICK_TO_ACK,
+  /** end-to-end : tick received to the confirming user channel event */
+  TICK_TO_CONFIRM
+}
@@ -0,0 +1,7 @@
+package com.wizaord.boursycrypto.gdax.domain;
+
+public enum E_NotificationPriority {
+  HIGH,
+  NORMAL,
+  LOW
+}
@@ -0,0 +1,10 @@
+package com.wizaord.boursycrypto.gdax.domain;
+
+/**
+ * Kind of order requested by a strategy
+ */
+public enum E_OrderIntent {
+  STOP_SELL,  // place (or move) the stop sell order of a lot
+  BUY_ALERT,  // a buy opportunity, notified to the users
+  BUY_TRAIL   // arm a trailing stop-buy from the price : the buy is placed on the rebound
+}
@@ -0,0 +1,9 @@
+package com.wizaord.boursycrypto.gdax.domain;
+
+/**
+ * Event of the streaming price detector
+ */
+public enum E_PriceEvent {
+  DROP,     // the price has fallen of the drop pourcent below the maximum of the horizon
+  REBOUND   // the price has risen of the rebound pourcent above the minimum of the horizon
+}
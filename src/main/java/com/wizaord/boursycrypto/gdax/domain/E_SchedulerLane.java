@@ -0,0 +1,22 @@
+package com.wizaord.boursycrypto.gdax.domain;
+
+/**
+ * The executors of the scheduled work, by decreasing priority
+ */
+public enum E_SchedulerLane {
+  /** candle aggregation of the tickers, historized tics snapshot */
+  MARKET_DATA(Thread.MAX_PRIORITY),
+  /** feed messages, trading decisions and order timeouts of a product shard */
+  TRADING(Thread.NORM_PRIORITY + 2),
+  /** reports, reconciliations, clock synchronization */
+  HOUSEKEEPING(Thread.MIN_PRIORITY + 2);
+
+  /**
+   * The default thread priority of the lane
+   */
+  public final int defaultPriority;
+
+  E_SchedulerLane(final int defaultPriority) {
+    this.defaultPriority = defaultPriority;
+  }
+}
@@ -0,0 +1,9 @@
+package com.wizaord.boursycrypto.gdax.domain;
+
+/**
+ * Side of a price trigger of the TriggerIndex
+ */
+public enum E_TriggerSide {
+  ABOVE,    // fired when the price reaches or goes over the level
+  BELOW     // fired when the price reaches or goes under the level
+}
@@ -1,10 +1,14 @@
 package com.wizaord.boursycrypto.gdax.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class GenericFeedMessage {
   private String type;
+  // Long.MIN_VALUE until the message is received from the socket (System.nanoTime can be 0 or negative)
+  @JsonIgnore
+  private long receivedNanos = Long.MIN_VALUE;
 
   /**
    * getter for type parameter
@@ -21,4 +25,22 @@ public class GenericFeedMessage {
   public void setType(final String type) {
     this.type = type;
   }
+
+  /**
+   * getter for the local reception time of the message (System.nanoTime)
+   * @return
+   */
+  @JsonIgnore
+  public long getReceivedNanos() {
+    return receivedNanos;
+  }
+
+  /**
+   * Setter for the local reception time of the message (System.nanoTime)
+   * @param receivedNanos
+   */
+  @JsonIgnore
+  public void setReceivedNanos(final long receivedNanos) {
+    this.receivedNanos = receivedNanos;
+  }
 }
@@ -0,0 +1,105 @@
+package com.wizaord.boursycrypto.gdax.domain.account;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * Immutable view of the account balances.
+ * A new snapshot is created for every fill, hold or reconciliation so that readers never see a partial update.
+ *  - money / moneyHold : the EUR funds and the part reserved by open buy orders
+ *  - coin / coinHold   : the crypto funds and the part reserved by open sell orders
+ */
+@Value
+@Builder(toBuilder = true)
+public class BalanceSnapshot {
+
+  public static final BalanceSnapshot EMPTY = BalanceSnapshot.builder().build();
+
+  @Builder.Default
+  private BigDecimal money = BigDecimal.ZERO;
+  @Builder.Default
+  private BigDecimal moneyHold = BigDecimal.ZERO;
+  @Builder.Default
+  private BigDecimal coin = BigDecimal.ZERO;
+  @Builder.Default
+  private BigDecimal coinHold = BigDecimal.ZERO;
+  private long version;
+
+  /**
+   * Apply a fill on the balances.
+   * @param buy true if we have bought coins
+   * @param size number of coins exchanged
+   * @param price unit price
+   * @param fee fee paid in money
+   * @return the new snapshot
+   */
+  public BalanceSnapshot applyFill(final boolean buy, final BigDecimal size, final BigDecimal price, final BigDecimal fee) {
+    return this.applyMoneyFill(buy, size, price, fee).applyCoinFill(buy, size).toBuilder().version(this.version + 1).build();
+  }
+
+  /**
+   * Apply the money side of a fill (the money is shared by the products)
+   * @param buy true if we have bought coins
+   * @param size number of coins exchanged
+   * @param price unit price
+   * @param fee fee paid in money
+   * @return the new snapshot
+   */
+  public BalanceSnapshot applyMoneyFill(final boolean buy, final BigDecimal size, final BigDecimal price, final BigDecimal fee) {
+    final BigDecimal funds = size.multiply(price);
+    if (buy) {
+      return this.toBuilder()
+              .money(this.money.subtract(funds).subtract(fee))
+              .moneyHold(positive(this.moneyHold.subtract(funds)))
+              .version(this.version + 1)
+              .build();
+    }
+    return this.toBuilder()
+            .money(this.money.add(funds).subtract(fee))
+            .version(this.version + 1)
+            .build();
+  }
+
+  /**
+   * Apply the coin side of a fill
+   * @param buy true if we have bought coins
+   * @param size number of coins exchanged
+   * @return the new snapshot
+   */
+  public BalanceSnapshot applyCoinFill(final boolean buy, final BigDecimal size) {
+    if (buy) {
+      return this.toBuilder().coin(this.coin.add(size)).version(this.version + 1).build();
+    }
+    return this.toBuilder()
+            .coin(positive(this.coin.subtract(size)))
+            .coinHold(positive(this.coinHold.subtract(size)))
+            .version(this.version + 1)
+            .build();
+  }
+
+  /**
+   * Reserve (positive amount) or release (negative amount) funds for an order.
+   * @param buy true for a buy order (money is held), false for a sell order (coins are held)
+   * @param amount money for a buy order, coins for a sell order
+   * @return the new snapshot
+   */
+  public BalanceSnapshot applyHold(final boolean buy, final BigDecimal amount) {
+    if (buy) {
+      return this.toBuilder().moneyHold(positive(this.moneyHold.add(amount))).version(this.version + 1).build();
+    }
+    return this.toBuilder().coinHold(positive(this.coinHold.add(amount))).version(this.version + 1).build();
+  }
+
+  /**
+   * @return the money which can be used for a new order
+   */
+  public BigDecimal getAvailableMoney() {
+    return positive(this.money.subtract(this.moneyHold));
+  }
+
+  private static BigDecimal positive(final BigDecimal value) {
+    return value.signum() < 0 ? BigDecimal.ZERO : value;
+  }
+}
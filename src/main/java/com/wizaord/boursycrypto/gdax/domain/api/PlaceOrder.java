@@ -15,6 +15,7 @@ public class PlaceOrder {
   private String productId;
   private String size;
   private String price;
+  private String funds;       // market order : amount of money to spend, instead of the size
   private String stop;
   @JsonProperty("stop_price")
   private String stopPrice;   // Only if stop is defined. Sets trigger price for stop order.
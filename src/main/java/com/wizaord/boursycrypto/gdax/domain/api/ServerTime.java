@@ -0,0 +1,18 @@
+package com.wizaord.boursycrypto.gdax.domain.api;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * Response of the /time endpoint
+ * {
+ *   "iso": "2015-01-07T23:47:25.201Z",
+ *   "epoch": 1420674445.201
+ * }
+ */
+@Data
+public class ServerTime {
+  private String iso;
+  private BigDecimal epoch;   // seconds since the epoch, millisecond precision
+}
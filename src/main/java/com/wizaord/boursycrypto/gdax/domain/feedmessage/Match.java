@@ -5,6 +5,7 @@ import com.wizaord.boursycrypto.gdax.domain.GenericFeedMessage;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
+import java.math.BigDecimal;
 import java.util.Date;
 
 /**
@@ -41,4 +42,44 @@ public class Match extends GenericFeedMessage {
     private String profile_id;
     private String sequence;
     private Date time;
+    @JsonProperty("taker_fee_rate")
+    private BigDecimal takerFeeRate;
+    @JsonProperty("maker_fee_rate")
+    private BigDecimal makerFeeRate;
+
+    /**
+     * On the user channel, the side of a match is the side of the maker order.
+     * When we are the taker, we are on the other side.
+     * @return true if this match has bought coins for the current user
+     */
+    public boolean isUserBuy() {
+        return this.isUserTaker() ? "sell".equals(this.side) : "buy".equals(this.side);
+    }
+
+    /**
+     * @return true if the order of the current user is the taker of this match
+     */
+    public boolean isUserTaker() {
+        return this.takerUserId != null && this.takerUserId.equals(this.userId);
+    }
+
+    /**
+     * @return the id of the order of the current user
+     */
+    public String getUserOrderId() {
+        return this.isUserTaker() ? this.takerOrderId : this.makerOrderId;
+    }
+
+    /**
+     * @param defaultTakerFeeRate fee rate used when the match has no taker fee rate
+     * @return the fee paid by the current user for this match, in money
+     */
+    public BigDecimal getUserFee(final BigDecimal defaultTakerFeeRate) {
+        final boolean isTaker = this.isUserTaker();
+        BigDecimal feeRate = isTaker ? this.takerFeeRate : this.makerFeeRate;
+        if (feeRate == null) {
+            feeRate = isTaker ? defaultTakerFeeRate : BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(this.size).multiply(BigDecimal.valueOf(this.price)).multiply(feeRate);
+    }
 }
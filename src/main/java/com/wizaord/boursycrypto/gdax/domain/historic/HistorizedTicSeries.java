@@ -0,0 +1,222 @@
+package com.wizaord.boursycrypto.gdax.domain.historic;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Chronological series of historized tics stored off-heap.
+ * The tics are fixed-size records in a direct buffer used as a ring : adding a tic or removing the oldest one does
+ * not allocate, and the heap does not grow with the retention. The trend computations read the fields by index
+ * (getTime, getAveragePrice...) without creating objects ; {@link #get(int)} and the iterator create a
+ * {@link HistorizedTic} copy and are kept for the cold paths.
+ *
+ * Record (64 bytes, big endian, the layout of the snapshot history) :
+ *   generatedDate long (epoch second of the local date time read as UTC), nbTic long,
+ *   averagePrice, volumeEchange, minPrice, maxPrice doubles, nbBuy, nbSell longs
+ *
+ * The tics must be added in chronological order. Not thread safe : the series is used by the thread of its product.
+ */
+public class HistorizedTicSeries extends AbstractCollection<HistorizedTic> {
+
+  public static final int RECORD_LENGTH = 64;
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final int NB_TIC = 8;
+  private static final int AVERAGE_PRICE = 16;
+  private static final int VOLUME_ECHANGE = 24;
+  private static final int MIN_PRICE = 32;
+  private static final int MAX_PRICE = 40;
+  private static final int NB_BUY = 48;
+  private static final int NB_SELL = 56;
+
+  private ByteBuffer buffer;
+  private int capacity;
+  private int head;
+  private int size;
+
+  public HistorizedTicSeries() {
+    this(INITIAL_CAPACITY);
+  }
+
+  public HistorizedTicSeries(final int initialCapacity) {
+    this.capacity = Math.max(1, initialCapacity);
+    this.buffer = ByteBuffer.allocateDirect(this.capacity * RECORD_LENGTH);
+  }
+
+  /**
+   * Add a tic after the last one. The tic is copied, it can be modified afterwards.
+   */
+  @Override
+  public boolean add(final HistorizedTic tic) {
+    if (this.size == this.capacity) {
+      this.grow();
+    }
+    final int offset = this.offset(this.size);
+    this.buffer.putLong(offset, toTime(tic.getGeneratedDate()));
+    this.buffer.putLong(offset + NB_TIC, tic.getNbTic());
+    this.buffer.putDouble(offset + AVERAGE_PRICE, tic.getAveragePrice());
+    this.buffer.putDouble(offset + VOLUME_ECHANGE, tic.getVolumeEchange());
+    this.buffer.putDouble(offset + MIN_PRICE, tic.getMinPrice());
+    this.buffer.putDouble(offset + MAX_PRICE, tic.getMaxPrice());
+    this.buffer.putLong(offset + NB_BUY, tic.getNbBuy());
+    this.buffer.putLong(offset + NB_SELL, tic.getNbSell());
+    this.size++;
+    return true;
+  }
+
+  /**
+   * Remove the oldest tic
+   */
+  public void removeFirst() {
+    if (this.size == 0) {
+      throw new NoSuchElementException();
+    }
+    this.head = (this.head + 1) % this.capacity;
+    this.size--;
+  }
+
+  @Override
+  public void clear() {
+    this.head = 0;
+    this.size = 0;
+  }
+
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * @return a copy of the oldest tic
+   */
+  public HistorizedTic getFirst() {
+    return this.get(0);
+  }
+
+  /**
+   * @return a copy of the most recent tic
+   */
+  public HistorizedTic getLast() {
+    return this.get(this.size - 1);
+  }
+
+  /**
+   * @param index 0 for the oldest tic
+   * @return a copy of the tic
+   */
+  public HistorizedTic get(final int index) {
+    final int offset = this.checkedOffset(index);
+    return HistorizedTic.builder()
+            .generatedDate(toDate(this.buffer.getLong(offset)))
+            .nbTic(this.buffer.getLong(offset + NB_TIC))
+            .averagePrice(this.buffer.getDouble(offset + AVERAGE_PRICE))
+            .volumeEchange(this.buffer.getDouble(offset + VOLUME_ECHANGE))
+            .minPrice(this.buffer.getDouble(offset + MIN_PRICE))
+            .maxPrice(this.buffer.getDouble(offset + MAX_PRICE))
+            .nbBuy(this.buffer.getLong(offset + NB_BUY))
+            .nbSell(this.buffer.getLong(offset + NB_SELL))
+            .build();
+  }
+
+  /**
+   * @return the date of the tic, encoded by {@link #toTime(LocalDateTime)}
+   */
+  public long getTime(final int index) {
+    return this.buffer.getLong(this.checkedOffset(index));
+  }
+
+  public LocalDateTime getGeneratedDate(final int index) {
+    return toDate(this.getTime(index));
+  }
+
+  public double getAveragePrice(final int index) {
+    return this.buffer.getDouble(this.checkedOffset(index) + AVERAGE_PRICE);
+  }
+
+  public double getVolumeEchange(final int index) {
+    return this.buffer.getDouble(this.checkedOffset(index) + VOLUME_ECHANGE);
+  }
+
+  /**
+   * @param time encoded by {@link #toTime(LocalDateTime)}
+   * @return the index of the first tic at or after the time, size() if there is none
+   */
+  public int indexOf(final long time) {
+    int low = 0;
+    int high = this.size - 1;
+    while (low <= high) {
+      final int middle = (low + high) >>> 1;
+      if (this.buffer.getLong(this.offset(middle)) < time) {
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Copy the records, the oldest first, at the position of the target
+   * @param target must have size() * RECORD_LENGTH bytes remaining
+   */
+  public void writeTo(final ByteBuffer target) {
+    final ByteBuffer source = this.buffer.duplicate();
+    final int firstPart = Math.min(this.size, this.capacity - this.head);
+    source.limit((this.head + firstPart) * RECORD_LENGTH).position(this.head * RECORD_LENGTH);
+    target.put(source);
+    if (firstPart < this.size) {
+      source.limit((this.size - firstPart) * RECORD_LENGTH).position(0);
+      target.put(source);
+    }
+  }
+
+  @Override
+  public Iterator<HistorizedTic> iterator() {
+    return new Iterator<HistorizedTic>() {
+      private int index;
+
+      @Override
+      public boolean hasNext() {
+        return this.index < HistorizedTicSeries.this.size;
+      }
+
+      @Override
+      public HistorizedTic next() {
+        if (!this.hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return HistorizedTicSeries.this.get(this.index++);
+      }
+    };
+  }
+
+  public static long toTime(final LocalDateTime date) {
+    return date.toEpochSecond(ZoneOffset.UTC);
+  }
+
+  public static LocalDateTime toDate(final long time) {
+    return LocalDateTime.ofEpochSecond(time, 0, ZoneOffset.UTC);
+  }
+
+  private void grow() {
+    final ByteBuffer grown = ByteBuffer.allocateDirect(this.capacity * 2 * RECORD_LENGTH);
+    this.writeTo(grown);
+    this.buffer = grown;
+    this.capacity *= 2;
+    this.head = 0;
+  }
+
+  private int checkedOffset(final int index) {
+    if (index < 0 || index >= this.size) {
+      throw new IndexOutOfBoundsException("Index " + index + ", size " + this.size);
+    }
+    return this.offset(index);
+  }
+
+  private int offset(final int index) {
+    return ((this.head + index) % this.capacity) * RECORD_LENGTH;
+  }
+}
@@ -0,0 +1,22 @@
+package com.wizaord.boursycrypto.gdax.domain.market;
+
+import com.wizaord.boursycrypto.gdax.domain.E_PriceEvent;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Threshold crossed by the price on one horizon of the detector.
+ *  - referencePrice : the maximum (DROP) or the minimum (REBOUND) of the prices of the horizon
+ *  - evolution      : evolution of the price from the reference, in pourcent
+ *  - time           : epoch millis of the ticker
+ */
+@Value
+@Builder
+public class PriceEvent {
+  private E_PriceEvent type;
+  private long horizon;
+  private double referencePrice;
+  private double price;
+  private double evolution;
+  private long time;
+}
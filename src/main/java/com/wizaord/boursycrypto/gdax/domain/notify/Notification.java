@@ -0,0 +1,27 @@
+package com.wizaord.boursycrypto.gdax.domain.notify;
+
+import com.wizaord.boursycrypto.gdax.domain.E_NotificationPriority;
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * A message published to the notification sinks.
+ *  - channels : the Slack channels of the message
+ *  - coalesceKey : if present, the messages with the same key sent within the coalesce window are merged
+ *  - productName, productType : the product of the shard which sent the message (the sinks are shared)
+ */
+@Value
+@Builder(toBuilder = true)
+public class Notification {
+  private String text;
+  @Singular
+  private List<String> channels;
+  @Builder.Default
+  private E_NotificationPriority priority = E_NotificationPriority.NORMAL;
+  private String coalesceKey;
+  private String productName;
+  private String productType;
+}
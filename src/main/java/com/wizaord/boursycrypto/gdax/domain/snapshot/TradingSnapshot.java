@@ -0,0 +1,25 @@
+package com.wizaord.boursycrypto.gdax.domain.snapshot;
+
+import com.wizaord.boursycrypto.gdax.domain.E_TradingMode;
+import com.wizaord.boursycrypto.gdax.domain.historic.HistorizedTic;
+import com.wizaord.boursycrypto.gdax.domain.trade.PositionLot;
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * State of the trader of a product, saved periodically to restart without waiting for a new history
+ */
+@Value
+@Builder
+public class TradingSnapshot {
+  private long writtenAt;             // epoch millis
+  private String productName;
+  private E_TradingMode tradingMode;
+  @Singular
+  private List<PositionLot> lots;     // the open lots with their stop order, oldest first
+  @Singular
+  private List<HistorizedTic> historizedTics;
+}
@@ -0,0 +1,26 @@
+package com.wizaord.boursycrypto.gdax.domain.strategy;
+
+import com.wizaord.boursycrypto.gdax.domain.market.PriceEvent;
+import com.wizaord.boursycrypto.gdax.domain.trade.TradingState;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Market state given to the strategies for one evaluation. It is built once and read by all the strategies
+ * in parallel : it must not be modified.
+ *  - price / priceReceivedNanos : the last ticker price and its reception time (System.nanoTime)
+ *  - priceEvents                : the drops and rebounds which triggered the evaluation, empty for the periodic one
+ *  - tradingState               : the trading mode and the open lots
+ */
+@Value
+@Builder
+public class MarketView {
+
+  private String productName;
+  private double price;
+  private long priceReceivedNanos;
+  private List<PriceEvent> priceEvents;
+  private TradingState tradingState;
+}
@@ -0,0 +1,20 @@
+package com.wizaord.boursycrypto.gdax.domain.strategy;
+
+import com.wizaord.boursycrypto.gdax.domain.E_OrderIntent;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Order requested by a strategy. The intents are executed by the trader, on the thread of the product shard.
+ *  - STOP_SELL : lotId and price of the new stop order
+ *  - BUY_ALERT : price and message notified
+ */
+@Value
+@Builder
+public class OrderIntent {
+  private String strategy;
+  private E_OrderIntent type;
+  private String lotId;
+  private double price;
+  private String message;
+}
@@ -0,0 +1,170 @@
+package com.wizaord.boursycrypto.gdax.domain.trade;
+
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.OrderOpen;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Immutable book of the open lots, oldest first.
+ * Every fill creates or updates one lot ; a change copies the list of lots, which stays small (dozens of lots),
+ * and the evaluation of the book is a walk of its lots.
+ */
+public final class PositionBook {
+
+  public static final PositionBook EMPTY = new PositionBook(Collections.emptyList());
+
+  private final List<PositionLot> lots;
+
+  private PositionBook(final List<PositionLot> lots) {
+    this.lots = lots;
+  }
+
+  /**
+   * @param lots the lots, oldest first
+   * @return a book with these lots (the closed ones are ignored)
+   */
+  public static PositionBook of(final List<PositionLot> lots) {
+    final List<PositionLot> open = new ArrayList<>(lots.size());
+    lots.stream().filter(lot -> !lot.isClosed()).forEach(open::add);
+    return open.isEmpty() ? EMPTY : new PositionBook(Collections.unmodifiableList(open));
+  }
+
+  /**
+   * @return the open lots, oldest first
+   */
+  public List<PositionLot> getLots() {
+    return this.lots;
+  }
+
+  public boolean isEmpty() {
+    return this.lots.isEmpty();
+  }
+
+  public int size() {
+    return this.lots.size();
+  }
+
+  /**
+   * @return the number of coins of all the lots
+   */
+  public BigDecimal getTotalSize() {
+    BigDecimal total = BigDecimal.ZERO;
+    for (PositionLot lot : this.lots) {
+      total = total.add(lot.getSize());
+    }
+    return total;
+  }
+
+  /**
+   * @return the lot of this buy order, null if none
+   */
+  public PositionLot getLot(final String lotId) {
+    for (PositionLot lot : this.lots) {
+      if (lot.getLotId().equals(lotId)) {
+        return lot;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the lot sold by this stop order, null if none
+   */
+  public PositionLot findByStopOrder(final String orderId) {
+    for (PositionLot lot : this.lots) {
+      if (lot.isStopOrder(orderId)) {
+        return lot;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Add a lot, or replace the lot of the same buy order (its stop order is kept)
+   */
+  public PositionBook open(final PositionLot lot) {
+    final PositionLot existing = this.getLot(lot.getLotId());
+    if (existing == null) {
+      final List<PositionLot> newLots = new ArrayList<>(this.lots.size() + 1);
+      newLots.addAll(this.lots);
+      newLots.add(lot);
+      return of(newLots);
+    }
+    return this.update(lot.getLotId(), current -> lot.toBuilder().stopOrder(current.getStopOrder()).build());
+  }
+
+  /**
+   * A fill of a buy order : its lot is created or its entry price averaged
+   */
+  public PositionBook addFill(final PositionLot newLot, final BigDecimal price, final BigDecimal size, final BigDecimal fee) {
+    if (this.getLot(newLot.getLotId()) == null) {
+      return this.open(newLot.addFill(price, size, fee));
+    }
+    return this.update(newLot.getLotId(), lot -> lot.addFill(price, size, fee));
+  }
+
+  public PositionBook stopOrderPlaced(final String lotId, final OrderOpen order) {
+    return this.update(lotId, lot -> lot.toBuilder().stopOrder(order).build());
+  }
+
+  public PositionBook stopOrderRemoved(final String lotId) {
+    return this.update(lotId, lot -> lot.getStopOrder() == null ? lot : lot.toBuilder().stopOrder(null).build());
+  }
+
+  /**
+   * A sell order is open : it updates the stop order of its lot, or becomes the stop order of the oldest lot
+   * without one (sell orders found at startup)
+   * @return this book if no lot can take the order
+   */
+  public PositionBook sellOrderOpen(final OrderOpen order) {
+    final PositionLot owner = this.findByStopOrder(order.getOrderId());
+    if (owner != null) {
+      return this.stopOrderPlaced(owner.getLotId(), order);
+    }
+    for (PositionLot lot : this.lots) {
+      if (lot.getStopOrder() == null) {
+        return this.stopOrderPlaced(lot.getLotId(), order);
+      }
+    }
+    return this;
+  }
+
+  /**
+   * A sell order has been canceled : the lot has no more stop order
+   */
+  public PositionBook orderCanceled(final String orderId) {
+    final PositionLot owner = this.findByStopOrder(orderId);
+    return (owner == null) ? this : this.stopOrderRemoved(owner.getLotId());
+  }
+
+  /**
+   * Coins of a lot have been sold. The lot is removed when all its coins are sold.
+   */
+  public PositionBook sold(final String lotId, final BigDecimal size) {
+    return this.update(lotId, lot -> lot.reduce(size));
+  }
+
+  private PositionBook update(final String lotId, final UnaryOperator<PositionLot> change) {
+    final List<PositionLot> newLots = new ArrayList<>(this.lots.size());
+    boolean changed = false;
+    for (PositionLot lot : this.lots) {
+      if (lot.getLotId().equals(lotId)) {
+        final PositionLot updated = change.apply(lot);
+        changed = (updated != lot);
+        newLots.add(updated);
+      } else {
+        newLots.add(lot);
+      }
+    }
+    return changed ? of(newLots) : this;
+  }
+
+  @Override
+  public String toString() {
+    return "PositionBook" + this.lots;
+  }
+}
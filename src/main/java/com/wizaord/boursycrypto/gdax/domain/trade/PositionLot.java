@@ -0,0 +1,101 @@
+package com.wizaord.boursycrypto.gdax.domain.trade;
+
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.OrderOpen;
+import com.wizaord.boursycrypto.gdax.utils.MathUtils;
+import lombok.Builder;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Date;
+
+/**
+ * Coins bought by one buy order, sold independently of the other lots.
+ *  - lotId              : id of the buy order
+ *  - entryPrice         : average price of the fills of the order
+ *  - size / fee         : coins still owned and the part of the buy fee they carry
+ *  - takeProfitPourcent : evolution above the entry price from which the stop follows the price
+ *  - stopOrder          : the stop sell order of the lot (null if none)
+ */
+@Value
+@Builder(toBuilder = true)
+public class PositionLot {
+
+  private static final int SCALE = 16;
+
+  private String lotId;
+  private Date openedAt;
+  @Builder.Default
+  private BigDecimal entryPrice = BigDecimal.ZERO;
+  @Builder.Default
+  private BigDecimal size = BigDecimal.ZERO;
+  @Builder.Default
+  private BigDecimal fee = BigDecimal.ZERO;
+  private double takeProfitPourcent;
+  private OrderOpen stopOrder;
+
+  /**
+   * A new fill of the buy order : the entry price becomes the average price of the fills
+   * @return the new lot
+   */
+  public PositionLot addFill(final BigDecimal price, final BigDecimal fillSize, final BigDecimal fillFee) {
+    final BigDecimal newSize = this.size.add(fillSize);
+    final BigDecimal funds = this.entryPrice.multiply(this.size).add(price.multiply(fillSize));
+    return this.toBuilder()
+            .entryPrice(newSize.signum() == 0 ? price : funds.divide(newSize, SCALE, RoundingMode.HALF_EVEN))
+            .size(newSize)
+            .fee(this.fee.add(fillFee))
+            .build();
+  }
+
+  /**
+   * Coins of the lot have been sold : the buy fee is reduced in proportion
+   * @return the new lot, with a size of zero if everything is sold
+   */
+  public PositionLot reduce(final BigDecimal soldSize) {
+    if (soldSize.compareTo(this.size) >= 0) {
+      return this.toBuilder().size(BigDecimal.ZERO).fee(BigDecimal.ZERO).build();
+    }
+    final BigDecimal newSize = this.size.subtract(soldSize);
+    return this.toBuilder()
+            .size(newSize)
+            .fee(this.fee.multiply(newSize).divide(this.size, SCALE, RoundingMode.HALF_EVEN))
+            .build();
+  }
+
+  public boolean isClosed() {
+    return this.size.signum() <= 0;
+  }
+
+  /**
+   * @return the price from which the lot is in BENEFICE
+   */
+  public double getTakeProfitPrice() {
+    return MathUtils.calculateAddPourcent(this.entryPrice.doubleValue(), this.takeProfitPourcent);
+  }
+
+  /**
+   * @return what was paid for the coins still owned, fee included
+   */
+  public double getCostBasis() {
+    return this.entryPrice.doubleValue() * this.size.doubleValue() + this.fee.doubleValue();
+  }
+
+  /**
+   * @param price sell price
+   * @param quantity coins sold
+   * @param sellFeeRate fee rate of the sell
+   * @return the gain (or loss if negative) of selling quantity coins of the lot at this price
+   */
+  public double getBalance(final double price, final double quantity, final double sellFeeRate) {
+    final double lotSize = this.size.doubleValue();
+    final double feeAchat = (lotSize == 0) ? 0 : this.fee.doubleValue() * quantity / lotSize;
+    final double prixVente = quantity * price * (1 - sellFeeRate);
+    final double coutAchat = quantity * this.entryPrice.doubleValue() + feeAchat;
+    return prixVente - coutAchat;
+  }
+
+  public boolean isStopOrder(final String orderId) {
+    return this.stopOrder != null && this.stopOrder.getOrderId().equals(orderId);
+  }
+}
@@ -0,0 +1,155 @@
+package com.wizaord.boursycrypto.gdax.domain.trade;
+
+import com.wizaord.boursycrypto.gdax.domain.E_TradingMode;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.OrderOpen;
+import lombok.Builder;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Immutable state of the trader of a product.
+ *  - mode      : ACHAT, VENTE or NOORDER before the state is known
+ *  - positions : the lots owned, each with its cost basis and its stop order
+ *  - buyTrail  : the trailing stop-buy in progress (null if none)
+ * Every change is one of the transitions below, which return a new state ; the current state is swapped by CAS
+ * (see TradingMode) so that a reader always sees a consistent mode and position book.
+ */
+@Value
+@Builder(toBuilder = true)
+public class TradingState {
+
+  public static final TradingState INITIAL = TradingState.builder().build();
+
+  @Builder.Default
+  private E_TradingMode mode = E_TradingMode.NOORDER;
+  @Builder.Default
+  private PositionBook positions = PositionBook.EMPTY;
+  private TrailingBuy buyTrail;
+  private long version;
+
+  /**
+   * A buy order is filled : its lot is opened (or replaced by the consolidated fills) and is to be sold
+   */
+  public TradingState buyFilled(final PositionLot lot) {
+    final boolean trailFilled = this.buyTrail != null && lot.getLotId().equals(this.buyTrail.getOrderId());
+    return this.next()
+            .positions(this.positions.open(lot))
+            .buyTrail(trailFilled ? null : this.buyTrail)
+            .mode(E_TradingMode.VENTE)
+            .build();
+  }
+
+  /**
+   * A fill of a buy order has been received : the lot of the order is updated
+   * @param lot the lot to open if the order has no lot yet
+   */
+  public TradingState buyMatched(final PositionLot lot, final BigDecimal price, final BigDecimal size, final BigDecimal fee) {
+    return this.next().positions(this.positions.addFill(lot, price, size, fee)).mode(E_TradingMode.VENTE).build();
+  }
+
+  /**
+   * A stop sell order has been placed for a lot
+   */
+  public TradingState stopOrderPlaced(final String lotId, final OrderOpen order) {
+    return this.withPositions(this.positions.stopOrderPlaced(lotId, order));
+  }
+
+  /**
+   * A sell order is open in the order book
+   */
+  public TradingState sellOrderOpen(final OrderOpen order) {
+    return this.withPositions(this.positions.sellOrderOpen(order));
+  }
+
+  /**
+   * The stop order of a lot has been removed by the trader (before placing a new one)
+   */
+  public TradingState stopOrderRemoved(final String lotId) {
+    return this.withPositions(this.positions.stopOrderRemoved(lotId));
+  }
+
+  /**
+   * An order has been canceled : it is forgotten if it is a stop order
+   */
+  public TradingState orderCanceled(final String orderId) {
+    return this.withPositions(this.positions.orderCanceled(orderId));
+  }
+
+  /**
+   * Coins of a lot have been sold
+   * @param remainingCoins true if coins are still to be sold
+   */
+  public TradingState sold(final String lotId, final BigDecimal size, final boolean remainingCoins) {
+    return this.next()
+            .positions(this.positions.sold(lotId, size))
+            .mode(remainingCoins ? E_TradingMode.VENTE : E_TradingMode.ACHAT)
+            .build();
+  }
+
+  /**
+   * Nothing to sell : waiting for a buy
+   */
+  public TradingState buying() {
+    return (this.mode == E_TradingMode.ACHAT) ? this : this.next().mode(E_TradingMode.ACHAT).build();
+  }
+
+  /**
+   * Coins to sell
+   */
+  public TradingState selling() {
+    return (this.mode == E_TradingMode.VENTE) ? this : this.next().mode(E_TradingMode.VENTE).build();
+  }
+
+  /**
+   * The lots restored from a snapshot
+   */
+  public TradingState restored(final List<PositionLot> lots) {
+    return this.next().positions(PositionBook.of(lots)).build();
+  }
+
+  /**
+   * A drop has been detected : the price is followed down to buy on the rebound
+   */
+  public TradingState buyTrailArmed(final TrailingBuy trail) {
+    return this.next().buyTrail(trail).build();
+  }
+
+  /**
+   * A new price for the trailing stop-buy
+   */
+  public TradingState buyTrailFollowed(final double price) {
+    if (this.buyTrail == null) {
+      return this;
+    }
+    final TrailingBuy followed = this.buyTrail.follow(price);
+    return (followed == this.buyTrail) ? this : this.next().buyTrail(followed).build();
+  }
+
+  /**
+   * The buy order of the trailing stop-buy has been placed
+   */
+  public TradingState buySubmitted(final String orderId) {
+    return (this.buyTrail == null) ? this : this.next().buyTrail(this.buyTrail.toBuilder().orderId(orderId).build()).build();
+  }
+
+  /**
+   * The trailing stop-buy is over (expired, canceled or not placed)
+   */
+  public TradingState buyTrailEnded() {
+    return (this.buyTrail == null) ? this : this.next().buyTrail(null).build();
+  }
+
+  public boolean isStopOrder(final String orderId) {
+    return this.positions.findByStopOrder(orderId) != null;
+  }
+
+  private TradingState withPositions(final PositionBook newPositions) {
+    return (newPositions == this.positions) ? this : this.next().positions(newPositions).build();
+  }
+
+  private TradingStateBuilder next() {
+    return this.toBuilder().version(this.version + 1);
+  }
+}
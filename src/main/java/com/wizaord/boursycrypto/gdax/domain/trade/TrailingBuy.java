@@ -0,0 +1,40 @@
+package com.wizaord.boursycrypto.gdax.domain.trade;
+
+import com.wizaord.boursycrypto.gdax.utils.MathUtils;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Stop-buy followed locally : the lowest price is followed down on each ticker and the buy order is placed as soon
+ * as the price rebounds of reboundPourcent above it.
+ *  - startedAt : epoch millis of the detection of the drop
+ *  - funds     : money to spend, already capped by application.trader.achat.maxBuyAmount
+ *  - orderId   : the buy order once placed, null before
+ */
+@Value
+@Builder(toBuilder = true)
+public class TrailingBuy {
+  private long startedAt;
+  private double lowestPrice;
+  private double reboundPourcent;
+  private double funds;
+  private String orderId;
+
+  /**
+   * @return the price from which the buy order is placed
+   */
+  public double getTriggerPrice() {
+    return MathUtils.calculateAddPourcent(this.lowestPrice, this.reboundPourcent);
+  }
+
+  public boolean isSubmitted() {
+    return this.orderId != null;
+  }
+
+  /**
+   * @return the trailing buy following this price (unchanged if the price is not lower)
+   */
+  public TrailingBuy follow(final double price) {
+    return (price < this.lowestPrice) ? this.toBuilder().lowestPrice(price).build() : this;
+  }
+}
@@ -0,0 +1,86 @@
+package com.wizaord.boursycrypto.gdax.interceptor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the GDAX REST calls, by method and endpoint.
+ * The ids in the path are replaced by {id} (/orders/{id}) so that the number of timers stays bounded.
+ * The timers are cached : a call only looks up its timer and records the duration.
+ */
+@Component
+public class RestMetricsInterceptor implements ClientHttpRequestInterceptor, MeterBinder {
+
+  public static final String METRIC_NAME = "gdax.rest.requests";
+
+  private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+  private volatile MeterRegistry registry;
+
+  @Override
+  public void bindTo(final MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override
+  public ClientHttpResponse intercept(
+          final HttpRequest request, final byte[] body, final ClientHttpRequestExecution execution) throws IOException {
+    final long start = System.nanoTime();
+    try {
+      return execution.execute(request, body);
+    } finally {
+      this.record(request.getMethod().name(), request.getURI().getPath(), System.nanoTime() - start);
+    }
+  }
+
+  private void record(final String method, final String path, final long durationNanos) {
+    final MeterRegistry meterRegistry = this.registry;
+    if (meterRegistry == null) {
+      return;
+    }
+    final String endpoint = normalize(path);
+    this.timers.computeIfAbsent(method + " " + endpoint, key -> Timer.builder(METRIC_NAME)
+            .tag("method", method)
+            .tag("endpoint", endpoint)
+            .register(meterRegistry))
+            .record(durationNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Replace the path segments containing a digit (order ids, trade ids...) by {id}
+   * @param path
+   * @return the normalized path
+   */
+  static String normalize(final String path) {
+    if (path == null || path.isEmpty()) {
+      return "/";
+    }
+    final StringBuilder normalized = new StringBuilder(path.length());
+    for (String segment : path.split("/")) {
+      if (segment.isEmpty()) {
+        continue;
+      }
+      normalized.append('/').append(containsDigit(segment) ? "{id}" : segment);
+    }
+    return (normalized.length() == 0) ? "/" : normalized.toString();
+  }
+
+  private static boolean containsDigit(final String segment) {
+    for (int i = 0; i < segment.length(); i++) {
+      if (Character.isDigit(segment.charAt(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
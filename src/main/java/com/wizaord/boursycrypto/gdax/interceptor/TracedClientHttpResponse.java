@@ -0,0 +1,59 @@
+package com.wizaord.boursycrypto.gdax.interceptor;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Response whose body has been read once for the wire trace.
+ * Only the sampled responses are wrapped : the other ones are streamed to the deserializer.
+ */
+final class TracedClientHttpResponse implements ClientHttpResponse {
+
+  private final ClientHttpResponse response;
+  private final byte[] body;
+
+  TracedClientHttpResponse(final ClientHttpResponse response) throws IOException {
+    this.response = response;
+    this.body = StreamUtils.copyToByteArray(response.getBody());
+  }
+
+  byte[] getBodyBytes() {
+    return this.body;
+  }
+
+  @Override
+  public HttpStatus getStatusCode() throws IOException {
+    return this.response.getStatusCode();
+  }
+
+  @Override
+  public int getRawStatusCode() throws IOException {
+    return this.response.getRawStatusCode();
+  }
+
+  @Override
+  public String getStatusText() throws IOException {
+    return this.response.getStatusText();
+  }
+
+  @Override
+  public HttpHeaders getHeaders() {
+    return this.response.getHeaders();
+  }
+
+  @Override
+  public InputStream getBody() {
+    return new ByteArrayInputStream(this.body);
+  }
+
+  @Override
+  public void close() {
+    this.response.close();
+  }
+}
@@ -0,0 +1,130 @@
+package com.wizaord.boursycrypto.gdax.interceptor;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wire trace of the GDAX REST calls, kept off the hot path.
+ * A request is captured only if it is selected by the sampling (one request every wireTraceSampleRate, every
+ * DEBUG_SAMPLE_RATE requests when no rate is set and DEBUG is enabled on the interceptor logger) : the responses of
+ * the other requests are never buffered. The captured exchanges go in a bounded buffer and are logged by a
+ * background thread ; when the buffer is full, the trace is dropped.
+ * The CB-ACCESS-* headers (key, signature, passphrase, timestamp) are removed from the trace.
+ */
+@Component
+public class WireTraceService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(GDaxAuthInterceptor.class);
+  private static final int BUFFER_CAPACITY = 64;
+  private static final int DEFAULT_MAX_BODY = 4096;
+  private static final int DEBUG_SAMPLE_RATE = 10;
+  private static final String AUTH_HEADER_PREFIX = "CB-ACCESS-";
+
+  @Autowired
+  private ApplicationProperties applicationProperties;
+
+  private final BlockingQueue<String> traces = new ArrayBlockingQueue<>(BUFFER_CAPACITY);
+  private final AtomicLong requestCounter = new AtomicLong();
+  private final AtomicLong droppedTraces = new AtomicLong();
+  private int sampleRate;
+  private int maxBody;
+  private Thread writer;
+
+  @PostConstruct
+  public void startWriter() {
+    final Integer configuredRate = this.applicationProperties.getConfiguration() == null ? null : this.applicationProperties.getConfiguration().getWireTraceSampleRate();
+    final Integer configuredMaxBody = this.applicationProperties.getConfiguration() == null ? null : this.applicationProperties.getConfiguration().getWireTraceMaxBody();
+    this.sampleRate = (configuredRate == null) ? 0 : configuredRate;
+    this.maxBody = (configuredMaxBody == null) ? DEFAULT_MAX_BODY : configuredMaxBody;
+
+    this.writer = new Thread(this::writeTraces, "wire-trace");
+    this.writer.setDaemon(true);
+    this.writer.start();
+  }
+
+  @PreDestroy
+  public void stopWriter() {
+    this.writer.interrupt();
+  }
+
+  /**
+   * @return true if the current request must be captured
+   */
+  public boolean shouldCapture() {
+    final int rate = (this.sampleRate <= 0 && LOG.isDebugEnabled()) ? DEBUG_SAMPLE_RATE : this.sampleRate;
+    return rate > 0 && this.requestCounter.incrementAndGet() % rate == 0;
+  }
+
+  /**
+   * Add an exchange in the trace buffer without blocking
+   */
+  void record(final HttpRequest request, final byte[] requestBody, final TracedClientHttpResponse response, final long durationNanos) throws IOException {
+    final String trace = "\n===========================request begin================================================"
+            + "\nURI          : " + request.getURI()
+            + "\nMethod       : " + request.getMethod()
+            + "\nHeaders      : " + traceHeaders(request.getHeaders())
+            + "\nRequest body : " + this.truncate(requestBody)
+            + "\n============================response begin=========================================="
+            + "\nStatus code  : " + response.getRawStatusCode() + " " + response.getStatusText()
+            + "\nHeaders      : " + traceHeaders(response.getHeaders())
+            + "\nDuration     : " + (durationNanos / 1_000) + " us"
+            + "\nResponse body: " + this.truncate(response.getBodyBytes())
+            + "\n=======================response end=================================================";
+    if (!this.traces.offer(trace)) {
+      this.droppedTraces.incrementAndGet();
+    }
+  }
+
+  /**
+   * @return the number of traces dropped because the buffer was full
+   */
+  public long getDroppedTraces() {
+    return this.droppedTraces.get();
+  }
+
+  /**
+   * @param headers
+   * @return a copy of the headers without the authentication ones
+   */
+  static HttpHeaders traceHeaders(final HttpHeaders headers) {
+    final HttpHeaders traced = new HttpHeaders();
+    headers.forEach((name, values) -> {
+      if (!name.regionMatches(true, 0, AUTH_HEADER_PREFIX, 0, AUTH_HEADER_PREFIX.length())) {
+        traced.put(name, values);
+      }
+    });
+    return traced;
+  }
+
+  private String truncate(final byte[] body) {
+    if (body == null || body.length == 0) {
+      return "";
+    }
+    final int length = Math.min(body.length, this.maxBody);
+    final String content = new String(body, 0, length, StandardCharsets.UTF_8);
+    return (length < body.length) ? content + "... (" + body.length + " bytes)" : content;
+  }
+
+  private void writeTraces() {
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        LOG.info("Wire trace {}", this.traces.take());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -1,11 +1,11 @@
 package com.wizaord.boursycrypto.gdax.listener.weksocket;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
 import com.wizaord.boursycrypto.gdax.domain.auth.SignatureHeader;
 import com.wizaord.boursycrypto.gdax.domain.feedmessage.SubscribeRequest;
-import com.wizaord.boursycrypto.gdax.service.MessageDispatcherService;
 import com.wizaord.boursycrypto.gdax.service.SignatureService;
+import com.wizaord.boursycrypto.gdax.service.ipc.TickSubscriber;
+import com.wizaord.boursycrypto.gdax.service.shard.ShardManager;
 import org.glassfish.tyrus.client.ClientManager;
 import org.glassfish.tyrus.client.ClientProperties;
 import org.slf4j.Logger;
@@ -31,9 +31,9 @@ public class FeedListener {
     @Autowired
     private SignatureService signatureService;
     @Autowired
-    private ApplicationProperties applicationProperties;
+    private ShardManager shardManager;
     @Autowired
-    private MessageDispatcherService handleFeedMessageService;
+    private TickSubscriber tickSubscriber;
     @Autowired
     private WebSocketContainer webSocketContainer;
 
@@ -57,17 +57,20 @@ public class FeedListener {
     public void onOpen(Session session) throws IOException {
         LOG.info("Sending subscribe request to the webSocket");
 
-        final SubscribeRequest subscriberequest = SubscribeRequest.builder()
+        final SubscribeRequest.SubscribeRequestBuilder subscribeBuilder = SubscribeRequest.builder()
                 .type("subscribe")
-                .product_id(applicationProperties.getProduct().getName())
-                .channel("ticker")
-                .channel("user")
-                .build();
+                .product_ids(shardManager.getProductNames())
+                .channel("user");
+        // in IPC subscriber mode, the ticks are read from the publisher process
+        if (!tickSubscriber.isEnabled()) {
+            subscribeBuilder.channel("ticker");
+        }
+        final SubscribeRequest subscriberequest = subscribeBuilder.build();
 
         final String subscribeJson = jsonMapper.writeValueAsString(subscriberequest);
         LOG.debug("Sig content {}", subscribeJson);
 
-        final SignatureHeader signature = signatureService.getSignature("/users/self/verify", "GET", null);
+        final SignatureHeader signature = signatureService.getSignature("/users/self/verify", "GET", (byte[]) null);
 
         subscriberequest.setKey(signature.getCbAccessKey());
         subscriberequest.setSignature(signature.getCbAccessSign());
@@ -81,8 +84,9 @@ public class FeedListener {
 
     @OnMessage
     public void processMessage(String message) {
+        final long receivedNanos = System.nanoTime();
         LOG.debug("GDAX FEED : receive message : {}", message);
-        this.handleFeedMessageService.handleJsonMessage(message);
+        this.shardManager.dispatch(message, receivedNanos);
     }
 
     @OnClose
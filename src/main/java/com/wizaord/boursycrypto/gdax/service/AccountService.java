@@ -1,66 +1,271 @@
 package com.wizaord.boursycrypto.gdax.service;
 
 import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.config.properties.Paper;
+import com.wizaord.boursycrypto.gdax.domain.E_SchedulerLane;
+import com.wizaord.boursycrypto.gdax.domain.account.BalanceSnapshot;
 import com.wizaord.boursycrypto.gdax.domain.api.Account;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.Match;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.OrderActivated;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.OrderDone;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.OrderOpen;
+import com.wizaord.boursycrypto.gdax.service.metrics.RunOn;
+import com.wizaord.boursycrypto.gdax.service.store.TimeSeriesService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
-import java.util.Arrays;
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 
+/**
+ * Balance ledger of the GDAX account.
+ * The balances are loaded once from the REST API, then updated from the user channel (fills and holds).
+ * A periodic reconciliation with the REST API corrects any drift. It runs on the housekeeping thread : if a fill or a
+ * hold is applied during the REST round trip, the values read are outdated and the reconciliation is retried.
+ * Each product has its own ledger for its coins ; the money is shared by the products and kept by the
+ * {@link FundsService}, where a product reserves the funds of a buy before arming it.
+ * Readers always get a consistent {@link BalanceSnapshot} of the coins without locking.
+ * In paper trading mode, the balances start from application.paper and are never reconciled with GDAX.
+ */
 @Service
 public class AccountService {
 
   private static final Logger LOG = LoggerFactory.getLogger(AccountService.class);
+  private static final int MAX_REFRESH_ATTEMPTS = 3;
+  public static final BigDecimal DEFAULT_TAKER_FEE_RATE = new BigDecimal("0.0025");
 
   @Autowired
   private RestTemplate restTemplate;
   @Autowired
   private ApplicationProperties appProp;
+  @Autowired
+  private TimeSeriesService timeSeriesService;
+  @Autowired
+  private FundsService fundsService;
 
-  private Double money;
-  private Double btc;
+  // only the coin fields are used, the money is in the FundsService
+  private final AtomicReference<BalanceSnapshot> balance = new AtomicReference<>(BalanceSnapshot.EMPTY);
 
   /**
    * Refresh the money and btc from the GDAX account
+   * @return true if the ledger has been replaced by the values of the account
    */
-  public void refreshBalance() {
+  public boolean refreshBalance() {
+    if (appProp.isPaperTrading()) {
+      this.loadPaperBalance();
+      return true;
+    }
+    return this.refreshBalance(false);
+  }
+
+  /**
+   * @param reportDrift true to log the differences between the ledger and the account
+   * @return true if the ledger has been replaced by the values of the account
+   */
+  private boolean refreshBalance(final boolean reportDrift) {
+    for (int attempt = 1; attempt <= MAX_REFRESH_ATTEMPTS; attempt++) {
+      final Boolean refreshed = this.tryRefreshBalance(reportDrift);
+      if (refreshed == null) {
+        return false;
+      }
+      if (refreshed) {
+        this.logBalance();
+        return true;
+      }
+      LOG.info("Balance changed during the refresh (attempt {}/{}), the account is read again", attempt, MAX_REFRESH_ATTEMPTS);
+    }
+    LOG.warn("Balance still changing after {} refreshes, the ledger values are kept", MAX_REFRESH_ATTEMPTS);
+    return false;
+  }
+
+  /**
+   * Read the accounts and replace the ledger, unless a fill or a hold has been applied during the REST call
+   * @param reportDrift true to log the differences between the ledger and the account
+   * @return true if the ledger has been replaced, false if it changed meanwhile, null if the account is not available
+   */
+  private Boolean tryRefreshBalance(final boolean reportDrift) {
+    final BalanceSnapshot coinBefore = this.balance.get();
+    final BalanceSnapshot moneyBefore = this.fundsService.getBalance();
+    final long coinVersion = coinBefore.getVersion();
+    final long moneyVersion = moneyBefore.getVersion();
     LOG.debug("Retrieving account balances..");
     final ResponseEntity<Account[]> accounts = restTemplate.getForEntity("/accounts", Account[].class);
     if (accounts.getStatusCode() != HttpStatus.OK) {
       LOG.error("Unable to get the user account");
-    } else {
-      Arrays.asList(accounts.getBody()).stream()
-              .filter(account -> account.getCurrency().equals(appProp.getProduct().getType()))
-              .findFirst()
-              .ifPresent(account -> this.btc = account.getAvailable().doubleValue());
-
-      Arrays.asList(accounts.getBody()).stream()
-              .filter(account -> account.getCurrency().equals("EUR"))
-              .findFirst()
-              .ifPresent(account -> this.money = account.getAvailable().doubleValue());
+      return null;
+    }
+    final BalanceSnapshot.BalanceSnapshotBuilder reconciled = BalanceSnapshot.builder().version(coinVersion + 1);
+    Account money = null;
+    for (Account account : accounts.getBody()) {
+      if (account.getCurrency().equals(appProp.getProduct().getType())) {
+        reconciled.coin(account.getBalance()).coinHold(account.getHold());
+      } else if (account.getCurrency().equals("EUR")) {
+        money = account;
+      }
+    }
+    final boolean moneyReconciled = money == null || this.fundsService.reconcile(money.getBalance(), money.getHold(), moneyVersion);
+    final BalanceSnapshot current = this.balance.get();
+    final BalanceSnapshot coinAfter = reconciled.build();
+    final boolean coinReconciled = current.getVersion() == coinVersion && this.balance.compareAndSet(current, coinAfter);
+    if (!moneyReconciled || !coinReconciled) {
+      return false;
+    }
+    // the ledger has not changed during the call : the differences are a drift
+    final BigDecimal moneyAfter = (money == null) ? moneyBefore.getMoney() : money.getBalance();
+    if (reportDrift && (coinBefore.getCoin().compareTo(coinAfter.getCoin()) != 0 || moneyBefore.getMoney().compareTo(moneyAfter) != 0)) {
+      LOG.warn("Balance drift corrected : money {} => {} - coin {} => {}", moneyBefore.getMoney(), moneyAfter, coinBefore.getCoin(), coinAfter.getCoin());
+    }
+    return true;
+  }
+
+  /**
+   * Periodic reconciliation of the ledger with the GDAX account
+   */
+  @RunOn(E_SchedulerLane.HOUSEKEEPING)
+  @Scheduled(fixedDelayString = "${application.balance.reconcileDelay:300000}", initialDelayString = "${application.balance.reconcileDelay:300000}")
+  public void reconcileBalance() {
+    if (appProp.isPaperTrading()) {
+      // the paper balance only exists in the ledger
+      return;
+    }
+    try {
+      this.refreshBalance(true);
+    } catch (RestClientException e) {
+      LOG.warn("Unable to reconcile the balance, keeping the ledger values", e);
     }
+  }
 
+  /**
+   * Paper trading : the ledger starts with application.paper.money (shared by the products) and coin, then only
+   * follows the simulated fills
+   */
+  private void loadPaperBalance() {
+    if (this.balance.get().getVersion() == 0) {
+      final Paper paper = appProp.getPaper();
+      final BigDecimal money = (paper.getMoney() == null) ? BigDecimal.ZERO : new BigDecimal(paper.getMoney().toString());
+      final BigDecimal coin = (paper.getCoin() == null) ? BigDecimal.ZERO : new BigDecimal(paper.getCoin().toString());
+      this.fundsService.loadPaper(money);
+      this.update(current -> BalanceSnapshot.builder().coin(coin).version(current.getVersion() + 1).build());
+    }
     this.logBalance();
   }
 
+  /**
+   * A match has been received on the user channel : apply the fill and its fee
+   * @param match
+   */
+  public void notifyMatch(final Match match) {
+    if (match.getSize() == null || match.getPrice() == null) {
+      return;
+    }
+    final boolean isBuy = match.isUserBuy();
+    final BigDecimal size = BigDecimal.valueOf(match.getSize());
+    final BigDecimal price = BigDecimal.valueOf(match.getPrice());
+    final BigDecimal fee = match.getUserFee(DEFAULT_TAKER_FEE_RATE);
+    this.fundsService.applyFill(isBuy, size, price, fee);
+    this.update(current -> current.applyCoinFill(isBuy, size));
+    this.timeSeriesService.appendFill(match.getTime(), isBuy, size, price, fee);
+    LOG.debug("Ledger - fill {} {} at {} fee {}", isBuy ? "buy" : "sell", size, price, fee);
+  }
+
+  /**
+   * An order is open in the order book : its funds are held
+   * @param order
+   */
+  public void notifyOrderOpen(final OrderOpen order) {
+    this.hold(order.getSide(), order.getPrice(), order.getRemainingSize(), false);
+  }
+
+  /**
+   * A stop order has been activated : its funds are held
+   * @param order
+   */
+  public void notifyOrderActivated(final OrderActivated order) {
+    final BigDecimal price = (order.getLimitPrice() != null) ? order.getLimitPrice() : order.getStopPrice();
+    this.hold(order.getSide(), price, order.getSize(), false);
+  }
+
+  /**
+   * An order is finished : the remaining held funds are released
+   * @param order
+   */
+  public void notifyOrderDone(final OrderDone order) {
+    final BigDecimal remaining = (order.getRemainingSize() == null) ? null : new BigDecimal(order.getRemainingSize().toString());
+    this.hold(order.getSide(), order.getPrice(), remaining, true);
+  }
+
+  private void hold(final String side, final BigDecimal price, final BigDecimal size, final boolean release) {
+    if (size == null || size.signum() == 0) {
+      return;
+    }
+    final boolean isBuy = "buy".equals(side);
+    if (isBuy && price == null) {
+      return;
+    }
+    final BigDecimal amount = isBuy ? size.multiply(price) : size;
+    if (isBuy) {
+      this.fundsService.applyHold(release ? amount.negate() : amount);
+    } else {
+      this.update(current -> current.applyHold(false, release ? amount.negate() : amount));
+    }
+  }
+
+  private void update(final UnaryOperator<BalanceSnapshot> transition) {
+    this.balance.updateAndGet(transition);
+  }
+
   public void logBalance() {
+    final BalanceSnapshot snapshot = this.getBalance();
     LOG.info("----------------------------------------------------");
     LOG.info("Balance successfully loaded : ");
-    LOG.info("   Money: {} €", this.money);
-    LOG.info("   BTC:   {} BTC", this.btc);
+    LOG.info("   Money: {} € (hold {} €)", snapshot.getMoney(), snapshot.getMoneyHold());
+    LOG.info("   BTC:   {} BTC (hold {} BTC)", snapshot.getCoin(), snapshot.getCoinHold());
     LOG.info("----------------------------------------------------");
   }
 
+  /**
+   * @return the current balances : the coins of the product and the money of the account
+   */
+  public BalanceSnapshot getBalance() {
+    final BalanceSnapshot money = this.fundsService.getBalance();
+    return this.balance.get().toBuilder().money(money.getMoney()).moneyHold(money.getMoneyHold()).build();
+  }
+
+  /**
+   * @return the money available for a new order of the product, the funds reserved by the other products excluded
+   */
   public Double getMoney() {
-    return money;
+    return this.fundsService.getAvailableMoney(this.appProp.getProduct().getName()).doubleValue();
+  }
+
+  /**
+   * Reserve the funds of a buy : they are no longer available to the other products
+   * @param amount wanted
+   * @return the amount reserved, 0 if no money is available
+   */
+  public double reserveMoney(final double amount) {
+    return this.fundsService.reserve(this.appProp.getProduct().getName(), BigDecimal.valueOf(amount)).doubleValue();
+  }
+
+  /**
+   * The buy is filled or abandoned : its reserved funds are available again to the other products
+   */
+  public void releaseMoney() {
+    this.fundsService.release(this.appProp.getProduct().getName());
   }
 
+  /**
+   * @return the coins owned, including the ones held by our own sell orders (they are re-placed by the trader)
+   */
   public Double getBtc() {
-    return btc;
+    return this.balance.get().getCoin().doubleValue();
   }
 }
@@ -0,0 +1,139 @@
+package com.wizaord.boursycrypto.gdax.service;
+
+import com.wizaord.boursycrypto.gdax.domain.account.BalanceSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * EUR side of the account, shared by all the products (bean of the application context).
+ * The money is updated by the fills and holds of every product shard and reconciled with the REST API.
+ * Before arming a buy, a product reserves the funds it will spend : the money reserved by a product is not available
+ * to the others, so that two products never commit the same euros. The reservation is released when the buy is
+ * filled or abandoned.
+ * The shards call it from their own threads : every access is synchronized.
+ */
+@Service
+public class FundsService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FundsService.class);
+
+  // only the money fields are used
+  private BalanceSnapshot balance = BalanceSnapshot.EMPTY;
+  private final Map<String, BigDecimal> reservations = new HashMap<>();
+
+  /**
+   * The EUR account has been read from the REST API
+   * @param money
+   * @param moneyHold
+   */
+  public synchronized void reconcile(final BigDecimal money, final BigDecimal moneyHold) {
+    this.balance = this.balance.toBuilder().money(money).moneyHold(moneyHold).version(this.balance.getVersion() + 1).build();
+  }
+
+  /**
+   * The EUR account has been read from the REST API, the request being sent when the money was at expectedVersion.
+   * If a fill or a hold has been applied meanwhile, the values read are older than the money : they are ignored.
+   * @param money
+   * @param moneyHold
+   * @param expectedVersion
+   * @return true if the money has been reconciled
+   */
+  public synchronized boolean reconcile(final BigDecimal money, final BigDecimal moneyHold, final long expectedVersion) {
+    if (this.balance.getVersion() != expectedVersion) {
+      return false;
+    }
+    this.reconcile(money, moneyHold);
+    return true;
+  }
+
+  /**
+   * Paper trading : the money of application.paper, loaded by the first product only
+   * @param money
+   */
+  public synchronized void loadPaper(final BigDecimal money) {
+    if (this.balance.getVersion() == 0) {
+      this.reconcile(money, BigDecimal.ZERO);
+    }
+  }
+
+  /**
+   * A fill of any product
+   * @param buy true if coins have been bought
+   * @param size
+   * @param price
+   * @param fee
+   */
+  public synchronized void applyFill(final boolean buy, final BigDecimal size, final BigDecimal price, final BigDecimal fee) {
+    this.balance = this.balance.applyMoneyFill(buy, size, price, fee);
+  }
+
+  /**
+   * Money held (positive amount) or released (negative amount) by a buy order of any product
+   * @param amount
+   */
+  public synchronized void applyHold(final BigDecimal amount) {
+    this.balance = this.balance.applyHold(true, amount);
+  }
+
+  /**
+   * Reserve money for a buy of the product. Its previous reservation is replaced.
+   * @param productName
+   * @param amount wanted
+   * @return the money reserved, at most amount, 0 if none is available
+   */
+  public synchronized BigDecimal reserve(final String productName, final BigDecimal amount) {
+    this.reservations.remove(productName);
+    final BigDecimal reserved = amount.min(this.getAvailableMoney(productName)).max(BigDecimal.ZERO);
+    if (reserved.signum() > 0) {
+      this.reservations.put(productName, reserved);
+      LOG.info("Funds - {} reserved for {}", reserved.toPlainString(), productName);
+    }
+    return reserved;
+  }
+
+  /**
+   * Release the reservation of the product
+   * @param productName
+   */
+  public synchronized void release(final String productName) {
+    final BigDecimal released = this.reservations.remove(productName);
+    if (released != null) {
+      LOG.debug("Funds - reservation of {} released for {}", released.toPlainString(), productName);
+    }
+  }
+
+  /**
+   * @param productName
+   * @return the money which can be used by a new order of the product : the available money less the reservations
+   * of the other products
+   */
+  public synchronized BigDecimal getAvailableMoney(final String productName) {
+    return this.balance.getAvailableMoney().subtract(this.getReserved(productName)).max(BigDecimal.ZERO);
+  }
+
+  /**
+   * @return the money and money hold of the account
+   */
+  public synchronized BalanceSnapshot getBalance() {
+    return this.balance;
+  }
+
+  /**
+   * @param exceptProductName product whose reservation is ignored
+   * @return the money reserved by the other products
+   */
+  private BigDecimal getReserved(final String exceptProductName) {
+    BigDecimal reserved = BigDecimal.ZERO;
+    for (Map.Entry<String, BigDecimal> reservation : this.reservations.entrySet()) {
+      if (!reservation.getKey().equals(exceptProductName)) {
+        reserved = reserved.add(reservation.getValue());
+      }
+    }
+    return reserved;
+  }
+}
@@ -0,0 +1,108 @@
+package com.wizaord.boursycrypto.gdax.service;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import javax.management.RuntimeErrorException;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * HmacSHA256 signing engine of the GDAX requests.
+ * The secret is decoded once and every thread reuses its own initialised {@link Mac} and buffers :
+ * the prehash (timestamp + method + requestPath + body) is fed to the Mac segment by segment,
+ * without building the concatenated string. The segments are UTF-8 encoded : the ASCII ones (the usual case) are
+ * copied in the reused buffer, the others are encoded with String.getBytes. For ASCII requests, the only
+ * allocation is the returned signature.
+ */
+public class HmacSigner {
+
+  private static final String ALGORITHM = "HmacSHA256";
+  private static final int DIGEST_LENGTH = 32;
+
+  private final SecretKeySpec keySpec;
+  private final ThreadLocal<SigningContext> contexts = ThreadLocal.withInitial(this::newContext);
+
+  /**
+   * @param base64Secret the API secret, base64 encoded
+   */
+  public HmacSigner(final String base64Secret) {
+    this.keySpec = new SecretKeySpec(Base64.getDecoder().decode(base64Secret), ALGORITHM);
+    // fail fast if the key or the algorithm is not usable
+    this.newContext();
+  }
+
+  /**
+   * Sign a request.
+   * @param timestamp the CB-ACCESS-TIMESTAMP value
+   * @param method the HTTP method, upper case
+   * @param requestPath the path and the query of the request
+   * @param body the request body, may be null
+   * @return the base64 encoded signature
+   */
+  public String sign(final String timestamp, final String method, final String requestPath, final byte[] body) {
+    final SigningContext context = this.contexts.get();
+    final Mac mac = context.mac;
+    context.update(timestamp);
+    context.update(method);
+    context.update(requestPath);
+    if (body != null && body.length > 0) {
+      mac.update(body);
+    }
+    try {
+      mac.doFinal(context.digest, 0);
+    } catch (ShortBufferException e) {
+      throw new IllegalStateException(e);
+    }
+    final int length = Base64.getEncoder().encode(context.digest, context.encoded);
+    return new String(context.encoded, 0, length, StandardCharsets.ISO_8859_1);
+  }
+
+  private SigningContext newContext() {
+    try {
+      final Mac mac = Mac.getInstance(ALGORITHM);
+      mac.init(this.keySpec);
+      return new SigningContext(mac);
+    } catch (InvalidKeyException e) {
+      throw new RuntimeErrorException(new Error("Cannot set up authentication headers."));
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeErrorException(new Error("Algorithme HmacSHA256 not implemented"));
+    }
+  }
+
+  /**
+   * Mac and buffers confined to one thread
+   */
+  private static final class SigningContext {
+    private final Mac mac;
+    private final byte[] digest = new byte[DIGEST_LENGTH];
+    private final byte[] encoded = new byte[((DIGEST_LENGTH + 2) / 3) * 4];
+    private byte[] ascii = new byte[256];
+
+    private SigningContext(final Mac mac) {
+      this.mac = mac;
+    }
+
+    /**
+     * Feed a segment (timestamp, method, path) to the Mac, UTF-8 encoded. An ASCII segment is fed without allocating.
+     */
+    private void update(final String segment) {
+      final int length = segment.length();
+      if (length > this.ascii.length) {
+        this.ascii = new byte[Math.max(length, this.ascii.length * 2)];
+      }
+      for (int i = 0; i < length; i++) {
+        final char c = segment.charAt(i);
+        if (c >= 0x80) {
+          // not ASCII : one char may be several bytes
+          this.mac.update(segment.getBytes(StandardCharsets.UTF_8));
+          return;
+        }
+        this.ascii[i] = (byte) c;
+      }
+      this.mac.update(this.ascii, 0, length);
+    }
+  }
+}
@@ -4,15 +4,30 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wizaord.boursycrypto.gdax.domain.GenericFeedMessage;
 import com.wizaord.boursycrypto.gdax.domain.api.Fill;
 import com.wizaord.boursycrypto.gdax.domain.feedmessage.*;
+import com.wizaord.boursycrypto.gdax.service.execution.ExecutionService;
 import com.wizaord.boursycrypto.gdax.service.gdax.OrderService;
+import com.wizaord.boursycrypto.gdax.service.ipc.TickPublisher;
+import com.wizaord.boursycrypto.gdax.service.market.CrashDetectorService;
+import com.wizaord.boursycrypto.gdax.service.market.PriceTriggerService;
+import com.wizaord.boursycrypto.gdax.service.metrics.FeedLagMonitor;
+import com.wizaord.boursycrypto.gdax.service.metrics.LatencyService;
+import com.wizaord.boursycrypto.gdax.service.metrics.MonitoredTaskScheduler;
+import com.wizaord.boursycrypto.gdax.service.store.TimeSeriesService;
 import com.wizaord.boursycrypto.gdax.service.trade.TradeService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.wizaord.boursycrypto.gdax.domain.E_LatencyStage.DECODE;
+import static com.wizaord.boursycrypto.gdax.domain.E_LatencyStage.DISPATCH;
 
 @Service
 public class MessageDispatcherService {
@@ -24,9 +39,32 @@ public class MessageDispatcherService {
     @Autowired
     private TradeService tradeService;
     @Autowired
+    private CrashDetectorService crashDetectorService;
+    @Autowired
+    private ExecutionService executionService;
+    @Autowired
+    private PriceTriggerService priceTriggerService;
+    @Autowired
     private TendanceService tendanceService;
     @Autowired
     private OrderService orderService;
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private LatencyService latencyService;
+    @Autowired
+    private FeedLagMonitor feedLagMonitor;
+    @Autowired
+    private TickPublisher tickPublisher;
+    @Autowired
+    private TimeSeriesService timeSeriesService;
+    @Autowired
+    @Qualifier("marketDataScheduler")
+    private MonitoredTaskScheduler marketDataScheduler;
+
+    private final AtomicLongArray receivedMessages = new AtomicLongArray(E_FeedMessage.values().length);
+    private final AtomicLong unknownMessages = new AtomicLong();
+    private final AtomicInteger dispatchInFlight = new AtomicInteger();
 
     /**
      * Cette fonction permet à partir d'un object JSON, de recupérer l'ordre recu par GDAX
@@ -35,21 +73,80 @@ public class MessageDispatcherService {
      * @param message
      */
     public void handleJsonMessage(final String message) {
+        this.handleJsonMessage(message, System.nanoTime());
+    }
+
+    /**
+     * Same as {@link #handleJsonMessage(String)} for a message received from the socket at receivedNanos (System.nanoTime).
+     * The decode and dispatch durations are recorded in the {@link LatencyService}
+     *
+     * @param message
+     * @param receivedNanos
+     */
+    public void handleJsonMessage(final String message, final long receivedNanos) {
+        this.dispatchInFlight.incrementAndGet();
         try {
             final GenericFeedMessage feedMessage = jsonMapper.readValue(message, GenericFeedMessage.class);
             final Optional<E_FeedMessage> feedMessageType = E_FeedMessage.getByName(feedMessage.getType());
             if (feedMessageType.isPresent()) {
+                this.receivedMessages.incrementAndGet(feedMessageType.get().ordinal());
                 final GenericFeedMessage mapperMessage = jsonMapper.readValue(message, feedMessageType.get().javaType);
+                mapperMessage.setReceivedNanos(receivedNanos);
+                final long decodedNanos = System.nanoTime();
+                this.latencyService.record(DECODE, decodedNanos - receivedNanos);
                 this.handleGdaxAction(mapperMessage);
+                this.latencyService.recordSince(DISPATCH, decodedNanos);
             } else {
+                this.unknownMessages.incrementAndGet();
                 LOG.warn("Unknow message type => " + message);
             }
         } catch (IOException e) {
             LOG.error("Unable to parse the receive feedMessage", e);
+        } finally {
+            this.dispatchInFlight.decrementAndGet();
         }
 
     }
 
+    /**
+     * Dispatch a feed message decoded by another process (IPC tick)
+     *
+     * @param message
+     */
+    public void handleDecodedMessage(final GenericFeedMessage message) {
+        this.dispatchInFlight.incrementAndGet();
+        try {
+            E_FeedMessage.getByName(message.getType()).ifPresent(type -> this.receivedMessages.incrementAndGet(type.ordinal()));
+            final long startNanos = System.nanoTime();
+            this.handleGdaxAction(message);
+            this.latencyService.recordSince(DISPATCH, startNanos);
+        } finally {
+            this.dispatchInFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * @param type
+     * @return the number of feed messages received with this type
+     */
+    public long getReceivedMessages(final E_FeedMessage type) {
+        return this.receivedMessages.get(type.ordinal());
+    }
+
+    /**
+     * @return the number of feed messages received with an unknown type
+     */
+    public long getUnknownMessages() {
+        return this.unknownMessages.get();
+    }
+
+    /**
+     * @return the number of feed messages being decoded or dispatched
+     */
+    public int getDispatchInFlight() {
+        return this.dispatchInFlight.get();
+    }
+
     /**
      * Dispatch the message based on its type
      *
@@ -67,6 +164,7 @@ public class MessageDispatcherService {
             handleOrderDoneMessage((OrderDone) gdaxAction);
         } else if (gdaxAction instanceof OrderReceived) {
             LOG.info("Order received by GDAX");
+            this.latencyService.confirm(((OrderReceived) gdaxAction).getOrderId(), gdaxAction.getReceivedNanos());
         } else if (gdaxAction instanceof SubscriptionMessage) {
             LOG.debug("Receive Subscription message");
         } else if (gdaxAction instanceof Match) {
@@ -79,17 +177,25 @@ public class MessageDispatcherService {
 
     private void handleMatchMessage(Match matchOrder) {
         LOG.info("Match message {}", matchOrder);
-        if (matchOrder.getSide().equals("sell")) {
-            // we have buy something
+        this.feedLagMonitor.record(matchOrder.getTime());
+        this.accountService.notifyMatch(matchOrder);
+        if (matchOrder.isUserBuy()) {
+            // we have buy something : the lot of the order is updated
+            this.tradeService.notifyBuyMatch(matchOrder);
         } else {
             // we have sell something
             this.tradeService.notifySellOrderFinished(matchOrder);
+            this.executionService.notifyMatch(matchOrder);
         }
     }
 
     protected void handleOrderDoneMessage(final OrderDone orderDoneMessage) {
         LOG.info("OrderDone message {}", orderDoneMessage);
-        if (orderDoneMessage.getSide().equals("sell")) {
+        this.accountService.notifyOrderDone(orderDoneMessage);
+        if (this.executionService.isChildOrder(orderDoneMessage.getOrderId())) {
+            // child order of an execution : the sales are followed by the match messages
+            this.executionService.notifyDone(orderDoneMessage);
+        } else if (orderDoneMessage.getSide().equals("sell")) {
             if (orderDoneMessage.getReason().equals("canceled")) {
                 // order has been canceled
                 LOG.debug("Canceled order message has been received");
@@ -113,19 +219,25 @@ public class MessageDispatcherService {
      * Handle orderOpenMessage
      */
     protected void handleOrderOpenMessage(final OrderOpen orderOpenMessage) {
-        if (orderOpenMessage.getSide().equals("sell")) {
+        this.latencyService.confirm(orderOpenMessage.getOrderId(), orderOpenMessage.getReceivedNanos());
+        this.accountService.notifyOrderOpen(orderOpenMessage);
+        if (this.executionService.isChildOrder(orderOpenMessage.getOrderId())) {
+            LOG.debug("Child order {} open", orderOpenMessage.getOrderId());
+        } else if (orderOpenMessage.getSide().equals("sell")) {
             this.tradeService.notifySellOrderOpen(orderOpenMessage);
         } else {
-            // TODO : new buy message posted
+            this.tradeService.notifyBuyOrderOpen(orderOpenMessage);
         }
 
     }
 
     protected void handleOrderActivateMessage(final OrderActivated orderActivated) {
+        this.latencyService.confirm(orderActivated.getOrderId(), orderActivated.getReceivedNanos());
+        this.accountService.notifyOrderActivated(orderActivated);
         if (orderActivated.getSide().equals("sell")) {
             this.tradeService.notifySellOrderActivated(orderActivated);
         } else {
-            // TODO : new stop buy message posted
+            this.tradeService.notifyBuyOrderOpen(new OrderOpen(orderActivated));
         }
     }
 
@@ -135,7 +247,15 @@ public class MessageDispatcherService {
      * @param tickerMessage
      */
     protected void handleTickerMessage(final Ticker tickerMessage) {
-        tendanceService.notifyTickerMessage(tickerMessage);
+        feedLagMonitor.record(tickerMessage.getTime());
+        tickPublisher.publish(tickerMessage);
+        // the candles are aggregated on the market-data thread : a slow trading decision does not delay them
+        marketDataScheduler.execute(() -> {
+            timeSeriesService.appendTick(tickerMessage);
+            tendanceService.notifyTickerMessage(tickerMessage);
+        });
         tradeService.notifyNewTickerMessage(tickerMessage);
+        crashDetectorService.notifyTickerMessage(tickerMessage);
+        priceTriggerService.notifyTickerMessage(tickerMessage);
     }
 }
@@ -5,16 +5,12 @@ import com.wizaord.boursycrypto.gdax.domain.auth.SignatureHeader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
-import javax.management.RuntimeErrorException;
-import java.io.UnsupportedEncodingException;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
-import java.util.Base64;
+import java.util.Locale;
 
 @Component
 public class SignatureService {
@@ -24,6 +20,8 @@ public class SignatureService {
   @Autowired
   private ApplicationProperties applicationProperties;
 
+  private volatile HmacSigner signer;
+
   /**
    * The CB-ACCESS-SIGN header is generated by creating a sha256 HMAC using
    * the base64-decoded secret key on the prehash string for:
@@ -37,44 +35,54 @@ public class SignatureService {
    * @return
    */
   public String generate(String requestPath, String method, String body, String timestamp) {
-    LOG.debug("Generate Signature service with body : " + body);
-    if (body == null) {
-      body = "";
-    }
-    try {
-      LOG.debug("timestamp : " + timestamp);
-      LOG.debug("method : " + method.toUpperCase());
-      LOG.debug("requestPath : " + requestPath);
-      LOG.debug("body : " + body);
-
-      String prehash = timestamp + method.toUpperCase() + requestPath + body;
-      byte[] secretDecoded = Base64.getDecoder().decode(applicationProperties.getAuth().getApisecretkey());
-      SecretKeySpec keyspec = new SecretKeySpec(secretDecoded, "HmacSHA256");
-
-      Mac sha256 = Mac.getInstance("HmacSHA256");
-      sha256.init(keyspec);
+    return this.generate(requestPath, method, (body == null) ? null : body.getBytes(StandardCharsets.UTF_8), timestamp);
+  }
 
-      return Base64.getEncoder().encodeToString(sha256.doFinal(prehash.getBytes("UTF-8")));
-    } catch (InvalidKeyException e) {
-      e.printStackTrace();
-      throw new RuntimeErrorException(new Error("Cannot set up authentication headers."));
-    }
-    catch (NoSuchAlgorithmException e) {
-      e.printStackTrace();
-      throw new RuntimeErrorException(new Error("Algorithme HmacSHA256 not implemented"));
-    }
-    catch (UnsupportedEncodingException e) {
-      e.printStackTrace();
-      throw new RuntimeErrorException(new Error("Algorithme HmacSHA256 not implemented"));
+  /**
+   * Same as {@link #generate(String, String, String, String)} with the raw request body
+   * @param requestPath
+   * @param method
+   * @param body
+   * @param timestamp
+   * @return
+   */
+  public String generate(final String requestPath, final String method, final byte[] body, final String timestamp) {
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Generate signature - timestamp : {} method : {} requestPath : {} body : {}",
+              timestamp, method, requestPath, (body == null) ? "" : new String(body, StandardCharsets.UTF_8));
     }
+    // the constant name of the method : no upper case copy for each request
+    final HttpMethod httpMethod = HttpMethod.resolve(method);
+    final String upperCaseMethod = (httpMethod == null) ? method.toUpperCase(Locale.ROOT) : httpMethod.name();
+    return this.getSigner().sign(timestamp, upperCaseMethod, requestPath, body);
   }
 
   public SignatureHeader getSignature(final String requestPath, final String methodType, final String messageContent) {
+    return this.getSignature(requestPath, methodType, (messageContent == null) ? null : messageContent.getBytes(StandardCharsets.UTF_8));
+  }
 
+  public SignatureHeader getSignature(final String requestPath, final String methodType, final byte[] body) {
     final String timestamp = String.valueOf(Instant.now().getEpochSecond());
     return new SignatureHeader(applicationProperties.getAuth().getApikey(),
-            this.generate(requestPath, methodType, messageContent, timestamp),
-            String.valueOf(timestamp),
+            this.generate(requestPath, methodType, body, timestamp),
+            timestamp,
             applicationProperties.getAuth().getPassphrase());
   }
+
+  /**
+   * The signer is created on the first request : the secret is decoded only once
+   */
+  private HmacSigner getSigner() {
+    HmacSigner current = this.signer;
+    if (current == null) {
+      synchronized (this) {
+        current = this.signer;
+        if (current == null) {
+          current = new HmacSigner(applicationProperties.getAuth().getApisecretkey());
+          this.signer = current;
+        }
+      }
+    }
+    return current;
+  }
 }
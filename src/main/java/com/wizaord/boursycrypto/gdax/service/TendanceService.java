@@ -1,29 +1,42 @@
 package com.wizaord.boursycrypto.gdax.service;
 
 import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.domain.E_SchedulerLane;
 import com.wizaord.boursycrypto.gdax.domain.feedmessage.Ticker;
 import com.wizaord.boursycrypto.gdax.domain.historic.HistorizedTic;
+import com.wizaord.boursycrypto.gdax.domain.historic.HistorizedTicSeries;
 import com.wizaord.boursycrypto.gdax.domain.historic.Tendance;
+import com.wizaord.boursycrypto.gdax.service.store.TimeSeriesService;
+import com.wizaord.boursycrypto.gdax.service.timer.TimerService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.*;
-import java.util.stream.Collectors;
 
 import static java.time.temporal.ChronoUnit.MINUTES;
 
 @Service
 public class TendanceService {
     private static final Logger LOG = LoggerFactory.getLogger(TendanceService.class);
+    private static final long SEAL_GRACE_MILLIS = 1000;
+    // the tickers and the historized tics are only used by the market-data thread : the restore and the backfill
+    // of the startup hand their changes to it, the candles may be sealed meanwhile
     List<Ticker> tickerList = new ArrayList<>();
-    private double lastTickValue = 0;
-    LinkedList<HistorizedTic> historizedTics = new LinkedList<>();
+    private volatile double lastTickValue = 0;
+    // off-heap : the retention (maxHistoriqueComputeKeepInMemory) does not weigh on the heap
+    HistorizedTicSeries historizedTics = new HistorizedTicSeries();
     @Autowired
     private ApplicationProperties applicationProperties;
+    @Autowired
+    private TimeSeriesService timeSeriesService;
+    @Autowired
+    private TimerService timerService;
 
     public void notifyTickerMessage(final Ticker tic) {
         this.tickerList.add(tic);
@@ -34,12 +47,93 @@ public class TendanceService {
         return this.lastTickValue;
     }
 
-    @Scheduled(fixedRateString = "${application.historique.computeDelay}")
+    /**
+     * @return the number of tickers waiting for the next historic compute
+     */
+    public int getPendingTickerCount() {
+        return this.tickerList.size();
+    }
+
+    /**
+     * @return the number of historized tics kept in memory
+     */
+    public int getHistorizedTicCount() {
+        return this.historizedTics.size();
+    }
+
+    /**
+     * @return the historized tics, read in place by the snapshot on the thread of the product
+     */
+    public HistorizedTicSeries getHistorizedTicSeries() {
+        return this.historizedTics;
+    }
+
+    /**
+     * Restore the historized tics saved by a previous run
+     *
+     * @param tics the oldest first
+     */
+    public void restoreHistorizedTics(final List<HistorizedTic> tics) {
+        this.historizedTics.clear();
+        this.historizedTics.addAll(tics);
+        while (this.historizedTics.size() > this.applicationProperties.getHistorique().getMaxHistoriqueComputeKeepInMemory()) {
+            this.historizedTics.removeFirst();
+        }
+    }
+
+    /**
+     * Merge historized tics computed elsewhere (backfill) in the history.
+     * The minutes already historized are kept, the others are added at their place.
+     *
+     * @param tics
+     * @return the number of tics added
+     */
+    public int mergeHistorizedTics(final List<HistorizedTic> tics) {
+        final TreeMap<LocalDateTime, HistorizedTic> merged = new TreeMap<>();
+        tics.forEach(tic -> merged.put(tic.getGeneratedDate(), tic));
+        final int nbBefore = this.historizedTics.size();
+        this.historizedTics.forEach(tic -> merged.put(tic.getGeneratedDate(), tic));
+
+        this.historizedTics.clear();
+        this.historizedTics.addAll(merged.values());
+        while (this.historizedTics.size() > this.applicationProperties.getHistorique().getMaxHistoriqueComputeKeepInMemory()) {
+            this.historizedTics.removeFirst();
+        }
+        return Math.max(0, this.historizedTics.size() - nbBefore);
+    }
+
+    /**
+     * Les tickers sont scelles en bougie sur les frontieres de computeDelay (les minutes) et non a un instant
+     * dependant du demarrage : chaque bougie couvre exactement sa minute, comme celles du backfill.
+     * Le scellement tourne sur le thread market-data : une decision de trading lente ne le retarde pas, et un ticker
+     * arrive en retard est quand meme compte dans la bougie de son heure.
+     */
+    @PostConstruct
+    public void scheduleHistoriqueCompute() {
+        final long computeDelay = this.applicationProperties.getHistorique().getComputeDelay();
+        final long firstDelay = computeDelay - System.currentTimeMillis() % computeDelay + SEAL_GRACE_MILLIS;
+        this.timerService.scheduleAtFixedRate(E_SchedulerLane.MARKET_DATA, firstDelay, computeDelay, () -> {
+            // la bougie est scellee un peu apres la fin de son intervalle : elle est datee par son debut
+            long intervalEnd = System.currentTimeMillis() - SEAL_GRACE_MILLIS;
+            intervalEnd -= intervalEnd % computeDelay;
+            final LocalDateTime intervalStart = LocalDateTime.ofInstant(Instant.ofEpochMilli(intervalEnd - computeDelay), ZoneId.systemDefault());
+            this.computeTradeMessagesInHistoriqueCompute(intervalStart.truncatedTo(MINUTES), intervalEnd);
+        });
+    }
+
     public void computeTradeMessagesInHistoriqueCompute() {
+        this.computeTradeMessagesInHistoriqueCompute(LocalDateTime.now().truncatedTo(MINUTES), Long.MAX_VALUE);
+    }
+
+    /**
+     * @param generatedDate date of the candle
+     * @param intervalEnd the tickers received at or after this time are kept for the next candle
+     */
+    void computeTradeMessagesInHistoriqueCompute(final LocalDateTime generatedDate, final long intervalEnd) {
 
         LOG.debug("Launching compute Tics message in HistoricTic");
         HistorizedTic historicTic = HistorizedTic.builder()
-                .generatedDate(LocalDateTime.now().truncatedTo(MINUTES))
+                .generatedDate(generatedDate)
                 .nbTic(0)
                 .averagePrice(0)
                 .volumeEchange(0)
@@ -49,23 +143,21 @@ public class TendanceService {
                 .nbSell(0)
                 .build();
         double totalPrice = 0;
+        final List<Ticker> sealedTickers = this.takeTickers(intervalEnd);
 
-        if (this.tickerList.isEmpty()) {
+        if (sealedTickers.isEmpty()) {
             if (this.historizedTics.isEmpty()) {
                 LOG.info("No Ticker received. Wait again to calculate historic");
                 return;
             }
             historicTic = this.historizedTics.getLast();
-            historicTic.setGeneratedDate(LocalDateTime.now().truncatedTo(MINUTES));
+            historicTic.setGeneratedDate(generatedDate);
             historicTic.setNbSell(0);
             historicTic.setNbBuy(0);
             historicTic.setNbTic(0);
             historicTic.setVolumeEchange(0);
         } else {
-            List<Ticker> copiedList = this.tickerList;
-            this.tickerList = new ArrayList<>();
-
-            for (Ticker tic : copiedList) {
+            for (Ticker tic : sealedTickers) {
                 historicTic.setNbTic(historicTic.getNbTic() + 1);
                 if (tic.getLastSize() != null) {
                     historicTic.setVolumeEchange(historicTic.getVolumeEchange() + tic.getLastSize().doubleValue());
@@ -91,6 +183,7 @@ public class TendanceService {
         }
 
         this.historizedTics.add(historicTic);
+        this.timeSeriesService.appendCandle(historicTic);
         LOG.debug("Added new HistoricTic : {}", historicTic);
 
         // remove old HistoriqueTendance
@@ -100,6 +193,27 @@ public class TendanceService {
     }
 
 
+    /**
+     * @param intervalEnd
+     * @return the tickers received before intervalEnd, removed from the pending tickers
+     */
+    private List<Ticker> takeTickers(final long intervalEnd) {
+        final List<Ticker> pending = this.tickerList;
+        this.tickerList = new ArrayList<>();
+        if (pending.isEmpty() || isBefore(pending.get(pending.size() - 1), intervalEnd)) {
+            return pending;
+        }
+        final List<Ticker> sealed = new ArrayList<>(pending.size());
+        for (Ticker tic : pending) {
+            (isBefore(tic, intervalEnd) ? sealed : this.tickerList).add(tic);
+        }
+        return sealed;
+    }
+
+    private static boolean isBefore(final Ticker tic, final long time) {
+        return tic.getTime() == null || tic.getTime().getTime() < time;
+    }
+
     /**
      * Le calcul d'une tendance est simple.
      * On prend la date de Debut, on prend la date de fin et on compare
@@ -117,32 +231,35 @@ public class TendanceService {
             return Optional.empty();
         }
 
-        final LocalDateTime firstListDate = this.historizedTics.peekFirst().getGeneratedDate();
-        final LocalDateTime beginDateSec = beginDate.truncatedTo(MINUTES);
-        final LocalDateTime endDateSec = endDate.truncatedTo(MINUTES);
+        final long beginTime = HistorizedTicSeries.toTime(beginDate.truncatedTo(MINUTES));
+        final long endTime = HistorizedTicSeries.toTime(endDate.truncatedTo(MINUTES));
 
         // si la date de debut n'existe pas, on ne remonte pas de tendance
-        // console.log('First date ' + firstListDate.getTime());
-        // console.log('Begin Date ' + beginDateSec.getTime());
-        // console.log('End date ' + endDateSec.getTime());
-        if (firstListDate.isAfter(beginDateSec)) {
+        if (this.historizedTics.getTime(0) > beginTime) {
             return Optional.empty();
         }
 
-        final LinkedList<HistorizedTic> historiqueTicsInInterval = new LinkedList<>(this.getHistoriqueTics(beginDateSec, endDateSec));
-        if (historiqueTicsInInterval.size() == 0) {
-            LOG.info("Unable to get computeHisto between beginDate {} and endDate {}", beginDateSec, endDateSec);
+        // the tics of the interval are read in place, between the indexes first and last
+        final int first = this.historizedTics.indexOf(beginTime);
+        final int last = this.historizedTics.indexOf(endTime + 1) - 1;
+        if (last < first) {
+            LOG.info("Unable to get computeHisto between beginDate {} and endDate {}", beginDate.truncatedTo(MINUTES), endDate.truncatedTo(MINUTES));
             return Optional.empty();
         }
 
-        final HistorizedTic oldElement = historiqueTicsInInterval.peekFirst();
-        final HistorizedTic lastElement = historiqueTicsInInterval.peekLast();
-
+        final double oldPrice = this.historizedTics.getAveragePrice(first);
+        final double lastPrice = this.historizedTics.getAveragePrice(last);
+        double totalPrice = 0;
+        double totalVolume = 0;
+        for (int i = first; i <= last; i++) {
+            totalPrice += this.historizedTics.getAveragePrice(i);
+            totalVolume += this.historizedTics.getVolumeEchange(i);
+        }
 
         final Tendance tendance = Tendance.builder()
-                .beginDate(oldElement.getGeneratedDate())
-                .endDate(lastElement.getGeneratedDate())
-                .evolPrice(lastElement.getAveragePrice() - oldElement.getAveragePrice())
+                .beginDate(this.historizedTics.getGeneratedDate(first))
+                .endDate(this.historizedTics.getGeneratedDate(last))
+                .evolPrice(lastPrice - oldPrice)
                 .evolPourcentage(0)
                 .type("")
                 .volumeEchangee(0)
@@ -150,18 +267,16 @@ public class TendanceService {
                 .build();
 
         // set average price
-        tendance.setAveragePrice(historiqueTicsInInterval.stream()
-                .map(HistorizedTic::getAveragePrice)
-                .reduce((previous, current) -> previous + current).orElse(0D) / historiqueTicsInInterval.size());
+        tendance.setAveragePrice(totalPrice / (last - first + 1));
 
         // set type
         tendance.setType((tendance.getEvolPrice() >= 0) ? "HAUSSE" : "BAISSE");
 
         //  (Valeur d’arrivée – Valeur de départ) / Valeur de départ x 100);
-        tendance.setEvolPourcentage(((lastElement.getAveragePrice() - oldElement.getAveragePrice()) / oldElement.getAveragePrice()) * 100);
+        tendance.setEvolPourcentage(((lastPrice - oldPrice) / oldPrice) * 100);
 
         // set volument echange
-        tendance.setVolumeEchangee(historiqueTicsInInterval.stream().mapToDouble(HistorizedTic::getVolumeEchange).sum());
+        tendance.setVolumeEchangee(totalVolume);
         return Optional.of(tendance);
     }
 
@@ -173,13 +288,12 @@ public class TendanceService {
      * @returns {HistoriqueCompute[]}
      */
     List<HistorizedTic> getHistoriqueTics(final LocalDateTime beginDate, final LocalDateTime endDate) {
-        return this.historizedTics.stream()
-                .filter(historizedTic ->
-                        ((historizedTic.getGeneratedDate().isEqual(beginDate) || historizedTic.getGeneratedDate().isAfter(beginDate))
-                                && (historizedTic.getGeneratedDate().isEqual(endDate) || historizedTic.getGeneratedDate().isBefore(endDate)))
-                )
-                .sorted(Comparator.comparing(HistorizedTic::getGeneratedDate))
-                .collect(Collectors.toList());
+        final List<HistorizedTic> tics = new ArrayList<>();
+        final long endTime = HistorizedTicSeries.toTime(endDate);
+        for (int i = this.historizedTics.indexOf(HistorizedTicSeries.toTime(beginDate)); i < this.historizedTics.size() && this.historizedTics.getTime(i) <= endTime; i++) {
+            tics.add(this.historizedTics.get(i));
+        }
+        return tics;
     }
 
     public List<Tendance> getLastEveryMinutesTendances(final int nbTendance) {
@@ -191,7 +305,7 @@ public class TendanceService {
         }
 
         final int maxTendance = (this.historizedTics.size() < nbTendance) ? this.historizedTics.size() : nbTendance;
-        final LocalDateTime lastDate = this.historizedTics.peekLast().getGeneratedDate();
+        final LocalDateTime lastDate = this.historizedTics.getGeneratedDate(this.historizedTics.size() - 1);
         for (int i = 0; i < maxTendance; i++) {
             final LocalDateTime endDate = lastDate.minusMinutes(i);
             final LocalDateTime beginDate = lastDate.minusMinutes((i + 1));
@@ -0,0 +1,199 @@
+package com.wizaord.boursycrypto.gdax.service.backfill;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.config.properties.Backfill;
+import com.wizaord.boursycrypto.gdax.domain.historic.HistorizedTic;
+import com.wizaord.boursycrypto.gdax.service.TendanceService;
+import com.wizaord.boursycrypto.gdax.service.metrics.MonitoredTaskScheduler;
+import com.wizaord.boursycrypto.gdax.service.store.TimeSeriesService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Backfill of the trend history from the GDAX one minute candles (/products/{id}/candles).
+ * The minutes found in the local {@link TimeSeriesService} are loaded first ; only the minutes after the last
+ * stored one are downloaded. The period is split in chunks of 300 candles (the maximum of one request) which are
+ * downloaded concurrently, within the public rate limit, then merged in the {@link TendanceService} on the market-data
+ * thread (the minutes already historized, live or snapshot, are kept) and stored.
+ */
+@Service
+public class CandleBackfillService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CandleBackfillService.class);
+    static final int GRANULARITY_SECONDS = 60;
+    static final int MAX_CANDLES_PER_REQUEST = 300;
+    private static final int DEFAULT_CONCURRENCY = 3;
+    private static final int DEFAULT_REQUESTS_PER_SECOND = 3;
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Autowired
+    private RestTemplate restTemplate;
+    @Autowired
+    private ApplicationProperties applicationProperties;
+    @Autowired
+    private TendanceService tendanceService;
+    @Autowired
+    private TimeSeriesService timeSeriesService;
+    @Autowired
+    @Qualifier("marketDataScheduler")
+    private MonitoredTaskScheduler marketDataScheduler;
+
+    /**
+     * Load the candles of the last application.backfill.minutes (maxHistoriqueComputeKeepInMemory by default)
+     * from the store and GDAX and merge them in the history
+     * @return the number of minutes added to the history
+     */
+    public int backfill() {
+        final Backfill backfill = this.applicationProperties.getBackfill();
+        final boolean downloadActivated = backfill != null && Boolean.TRUE.equals(backfill.getActivate());
+        final int minutes = (backfill == null || backfill.getMinutes() == null) ? this.applicationProperties.getHistorique().getMaxHistoriqueComputeKeepInMemory() : backfill.getMinutes();
+        final Instant end = Instant.now().truncatedTo(ChronoUnit.MINUTES);
+        final Instant start = end.minus(minutes, ChronoUnit.MINUTES);
+
+        // the candles are read and downloaded on the calling thread, merged in the history on the market-data thread
+        final List<HistorizedTic> stored = this.timeSeriesService.readCandles(start, end);
+        int added = this.marketDataScheduler.call(() -> this.tendanceService.mergeHistorizedTics(stored));
+        if (added > 0) {
+            LOG.info("Backfill of {} : {} minutes loaded from the store", this.getProductName(), added);
+        }
+        if (!downloadActivated) {
+            return added;
+        }
+
+        final Instant lastStored = this.timeSeriesService.getLastCandleTime();
+        final Instant downloadStart = (lastStored == null || lastStored.isBefore(start)) ? start : lastStored.plus(1, ChronoUnit.MINUTES);
+        if (downloadStart.isBefore(end)) {
+            final List<HistorizedTic> candles = this.downloadCandles(downloadStart, end,
+                    valueOrDefault(backfill.getConcurrency(), DEFAULT_CONCURRENCY),
+                    valueOrDefault(backfill.getRequestsPerSecond(), DEFAULT_REQUESTS_PER_SECOND));
+            final int downloaded = this.marketDataScheduler.call(() -> this.tendanceService.mergeHistorizedTics(candles));
+            // the store only appends after its last minute : a live minute sealed during the download hides the older candles
+            final int nbStored = this.timeSeriesService.appendCandles(candles);
+            if (this.timeSeriesService.isActivated() && nbStored < candles.size()) {
+                LOG.warn("Backfill of {} : {} candles not stored, older than the last stored minute", this.getProductName(), candles.size() - nbStored);
+            }
+            LOG.info("Backfill of {} : {} candles downloaded, {} minutes added to the history", this.getProductName(), candles.size(), downloaded);
+            added += downloaded;
+        }
+        return added;
+    }
+
+    /**
+     * Download the one minute candles between start and end
+     * @return the candles as historized tics, the oldest first
+     */
+    List<HistorizedTic> downloadCandles(final Instant start, final Instant end, final int concurrency, final int requestsPerSecond) {
+        final List<Instant[]> chunks = new ArrayList<>();
+        for (Instant chunkStart = start; chunkStart.isBefore(end); chunkStart = chunkStart.plusSeconds((long) GRANULARITY_SECONDS * MAX_CANDLES_PER_REQUEST)) {
+            final Instant chunkEnd = chunkStart.plusSeconds((long) GRANULARITY_SECONDS * MAX_CANDLES_PER_REQUEST);
+            chunks.add(new Instant[]{chunkStart, chunkEnd.isAfter(end) ? end : chunkEnd});
+        }
+
+        final RateLimiter rateLimiter = new RateLimiter(requestsPerSecond);
+        final AtomicInteger threadCounter = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(concurrency, chunks.size())), runnable -> {
+            final Thread thread = new Thread(runnable, "backfill-" + this.getProductName() + "-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            final List<Future<List<HistorizedTic>>> results = new ArrayList<>();
+            chunks.forEach(chunk -> results.add(executor.submit(() -> this.downloadChunk(chunk[0], chunk[1], rateLimiter))));
+
+            final List<HistorizedTic> candles = new ArrayList<>();
+            for (Future<List<HistorizedTic>> result : results) {
+                try {
+                    candles.addAll(result.get());
+                } catch (ExecutionException e) {
+                    LOG.warn("Backfill chunk failed : {}", e.getCause().getMessage());
+                }
+            }
+            candles.sort((a, b) -> a.getGeneratedDate().compareTo(b.getGeneratedDate()));
+            return candles;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Collections.emptyList();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<HistorizedTic> downloadChunk(final Instant start, final Instant end, final RateLimiter rateLimiter) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            rateLimiter.acquire();
+            try {
+                final double[][] candles = this.restTemplate.getForObject("/products/{product}/candles?start={start}&end={end}&granularity={granularity}",
+                        double[][].class, this.getProductName(), start.toString(), end.toString(), GRANULARITY_SECONDS);
+                return toHistorizedTics(candles, start, end);
+            } catch (HttpStatusCodeException e) {
+                if (e.getStatusCode() != HttpStatus.TOO_MANY_REQUESTS || attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+                LOG.debug("Backfill rate limited, retrying chunk {}", start);
+            } catch (RestClientException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * A candle is [ time, low, high, open, close, volume ]. The average price of the minute is the typical price
+     * (high + low + close) / 3 ; the number of tics is unknown.
+     */
+    static List<HistorizedTic> toHistorizedTics(final double[][] candles, final Instant start, final Instant end) {
+        final List<HistorizedTic> tics = new ArrayList<>();
+        if (candles == null) {
+            return tics;
+        }
+        for (double[] candle : candles) {
+            if (candle == null || candle.length < 6) {
+                continue;
+            }
+            final Instant time = Instant.ofEpochSecond((long) candle[0]);
+            if (time.isBefore(start) || !time.isBefore(end)) {
+                continue;
+            }
+            tics.add(HistorizedTic.builder()
+                    .generatedDate(LocalDateTime.ofInstant(time, ZoneId.systemDefault()))
+                    .nbTic(0)
+                    .minPrice(candle[1])
+                    .maxPrice(candle[2])
+                    .averagePrice((candle[2] + candle[1] + candle[4]) / 3)
+                    .volumeEchange(candle[5])
+                    .nbBuy(0)
+                    .nbSell(0)
+                    .build());
+        }
+        return tics;
+    }
+
+    private String getProductName() {
+        return this.applicationProperties.getProduct().getName();
+    }
+
+    private static int valueOrDefault(final Integer value, final int defaultValue) {
+        return (value == null) ? defaultValue : value;
+    }
+}
@@ -0,0 +1,34 @@
+package com.wizaord.boursycrypto.gdax.service.backfill;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spacing of the requests : at most requestsPerSecond permits are delivered per second, whatever the number of
+ * threads asking for them.
+ */
+class RateLimiter {
+
+    private final long intervalNanos;
+    private long nextPermitNanos = System.nanoTime();
+
+    RateLimiter(final int requestsPerSecond) {
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, requestsPerSecond);
+    }
+
+    /**
+     * Wait for the next permit
+     * @throws InterruptedException
+     */
+    void acquire() throws InterruptedException {
+        final long waitNanos;
+        synchronized (this) {
+            final long now = System.nanoTime();
+            final long permitNanos = Math.max(now, this.nextPermitNanos);
+            this.nextPermitNanos = permitNanos + this.intervalNanos;
+            waitNanos = permitNanos - now;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.wizaord.boursycrypto.gdax.service.execution;
+
+import java.math.BigDecimal;
+
+/**
+ * Order placed for a {@link ParentOrder}. price is 0 for a market order.
+ */
+class ChildOrder {
+
+    private final String orderId;
+    private final ParentOrder parent;
+    private final double price;
+    private final BigDecimal size;
+    private BigDecimal filled = BigDecimal.ZERO;
+    private boolean canceling;
+
+    ChildOrder(final String orderId, final ParentOrder parent, final double price, final BigDecimal size) {
+        this.orderId = orderId;
+        this.parent = parent;
+        this.price = price;
+        this.size = size;
+    }
+
+    String getOrderId() {
+        return this.orderId;
+    }
+
+    ParentOrder getParent() {
+        return this.parent;
+    }
+
+    double getPrice() {
+        return this.price;
+    }
+
+    boolean isMarket() {
+        return this.price == 0;
+    }
+
+    void addFill(final BigDecimal fillSize) {
+        this.filled = this.filled.add(fillSize);
+    }
+
+    BigDecimal getRemaining() {
+        return this.size.subtract(this.filled).max(BigDecimal.ZERO);
+    }
+
+    boolean isCanceling() {
+        return this.canceling;
+    }
+
+    void canceling() {
+        this.canceling = true;
+    }
+}
@@ -0,0 +1,352 @@
+package com.wizaord.boursycrypto.gdax.service.execution;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.config.properties.Execution;
+import com.wizaord.boursycrypto.gdax.domain.E_ExecutionAlgo;
+import com.wizaord.boursycrypto.gdax.domain.api.Order;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.Match;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.OrderDone;
+import com.wizaord.boursycrypto.gdax.service.gdax.OrderService;
+import com.wizaord.boursycrypto.gdax.service.market.PriceTriggerService;
+import com.wizaord.boursycrypto.gdax.service.notify.SlackService;
+import com.wizaord.boursycrypto.gdax.service.timer.TimerService;
+import com.wizaord.boursycrypto.gdax.service.trade.TradingMode;
+import com.wizaord.boursycrypto.gdax.utils.MathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.wizaord.boursycrypto.gdax.domain.E_NotificationPriority.HIGH;
+import static com.wizaord.boursycrypto.gdax.utils.MathUtils.df;
+
+/**
+ * Execution algorithms of the lot sales (application.execution.algo).
+ * Instead of one market order, the sale of a lot (the parent order) is sliced into child limit orders placed at the
+ * best ask of the ticker :
+ *  - TWAP    : application.execution.slices slices released regularly over application.execution.duration
+ *  - ICEBERG : one child of visibleSize at a time, the next one when it is filled
+ *  - LADDER  : the size spread over levels children, levelStep pourcent apart
+ * Every interval millis, a child which is no longer at the top of the book (the best ask is lower) is canceled and
+ * its size placed again at the new best ask ; so is a child not filled after childTimeout millis. At the end of the
+ * duration, the children are canceled and the remaining size is sold at market. If the lot is not entirely sold, its
+ * stop is removed : the strategy places a new one for the remaining coins.
+ * The child fills and cancellations come from the user channel. The wake ups are scheduled on the {@link TimerService} :
+ * everything runs on the shard thread, without lock.
+ */
+@Service
+public class ExecutionService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExecutionService.class);
+    private static final int SIZE_SCALE = 8;
+    private static final int DEFAULT_DURATION = 120000;
+    private static final int DEFAULT_INTERVAL = 5000;
+    private static final int DEFAULT_SLICES = 10;
+    private static final int DEFAULT_LEVELS = 3;
+    private static final double DEFAULT_LEVEL_STEP = 0.1;
+
+    @Autowired
+    private ApplicationProperties appProp;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private PriceTriggerService priceTriggerService;
+    @Autowired
+    private TimerService timerService;
+    @Autowired
+    private SlackService slackService;
+    @Autowired
+    private TradingMode tradingMode;
+
+    private final Map<String, ParentOrder> parents = new HashMap<>();
+    private final Map<String, ChildOrder> children = new HashMap<>();
+
+    /**
+     * @return the configured algorithm, MARKET if none
+     */
+    public E_ExecutionAlgo getAlgo() {
+        final Execution execution = this.appProp.getExecution();
+        return (execution == null || execution.getAlgo() == null) ? E_ExecutionAlgo.MARKET : E_ExecutionAlgo.valueOf(execution.getAlgo().toUpperCase());
+    }
+
+    /**
+     * @return true if the lot sales are executed by this service, false if they are GDAX stop orders
+     */
+    public boolean isEnabled() {
+        return this.getAlgo() != E_ExecutionAlgo.MARKET;
+    }
+
+    /**
+     * @param lotId
+     * @return true if the sale of the lot is being executed
+     */
+    public boolean isExecuting(final String lotId) {
+        return this.parents.containsKey(lotId);
+    }
+
+    /**
+     * @param orderId
+     * @return true if the order is a child order of an execution
+     */
+    public boolean isChildOrder(final String orderId) {
+        return orderId != null && this.children.containsKey(orderId);
+    }
+
+    /**
+     * @param orderId
+     * @return the lot sold by the child order, null if it is not a child order
+     */
+    public String getLotId(final String orderId) {
+        final ChildOrder child = (orderId == null) ? null : this.children.get(orderId);
+        return (child == null) ? null : child.getParent().getLotId();
+    }
+
+    /**
+     * Start the sale of a lot
+     * @param lotId
+     * @param size
+     */
+    public void sell(final String lotId, final BigDecimal size) {
+        if (this.parents.containsKey(lotId)) {
+            return;
+        }
+        final ParentOrder parent = new ParentOrder(lotId, this.getAlgo(), size.setScale(SIZE_SCALE, RoundingMode.DOWN), this.currentTimeMillis());
+        this.parents.put(lotId, parent);
+        final String message = "EXECUTION " + parent.getAlgo() + " - vente du lot " + lotId + " - " + parent.getSize().toPlainString() + " coins";
+        LOG.info(message);
+        this.slackService.postCustomMessage(message);
+        this.work(parent);
+    }
+
+    /**
+     * A child order has been matched
+     * @param match
+     */
+    public void notifyMatch(final Match match) {
+        final ChildOrder child = this.children.get(match.getUserOrderId());
+        if (child == null || match.getSize() == null) {
+            return;
+        }
+        final BigDecimal size = BigDecimal.valueOf(match.getSize());
+        child.addFill(size);
+        final ParentOrder parent = child.getParent();
+        parent.addFill(size);
+        LOG.debug("EXECUTION - lot {} - child {} filled {} at {}", parent.getLotId(), child.getOrderId(), size, match.getPrice());
+        if (parent.isComplete()) {
+            this.finish(parent);
+        }
+    }
+
+    /**
+     * A child order is done (filled or canceled) : its unfilled size is available again
+     * @param orderDone
+     */
+    public void notifyDone(final OrderDone orderDone) {
+        final ChildOrder child = this.children.remove(orderDone.getOrderId());
+        if (child == null) {
+            return;
+        }
+        final ParentOrder parent = child.getParent();
+        parent.getChildren().remove(child.getOrderId());
+        if (this.parents.get(parent.getLotId()) == parent) {
+            this.work(parent);
+        }
+    }
+
+    /**
+     * Decisions of an execution : new slices, re-pricing, end at market. Then the next wake up is scheduled.
+     */
+    private void work(final ParentOrder parent) {
+        if (parent.isComplete() || (parent.isMarketSent() && parent.getChildren().isEmpty())) {
+            this.finish(parent);
+            return;
+        }
+        final long elapsed = this.currentTimeMillis() - parent.getStartedAt();
+        final double bestAsk = this.priceTriggerService.getBestAsk();
+        if (elapsed >= this.getDuration()) {
+            // fin de l'execution : les enfants sont annules et le reste est vendu au marche
+            new ArrayList<>(parent.getChildren().values()).stream()
+                    .filter(child -> !child.isMarket())
+                    .forEach(this::cancel);
+            if (!parent.isMarketSent() && parent.getChildren().isEmpty()) {
+                this.placeMarket(parent);
+            }
+        } else {
+            this.reprice(parent, bestAsk);
+            this.slice(parent, elapsed, bestAsk);
+        }
+        parent.setWakeUp(this.timerService.schedule(this.getInterval(), () -> this.work(parent)));
+    }
+
+    /**
+     * The children above the best ask are no longer at the top of the book : they are canceled, their size is placed
+     * again when their cancellation is received
+     */
+    private void reprice(final ParentOrder parent, final double bestAsk) {
+        if (bestAsk <= 0) {
+            return;
+        }
+        if (parent.getAlgo() == E_ExecutionAlgo.LADDER) {
+            // the ladder is moved when its first level is above the best ask
+            final double firstLevel = parent.getChildren().values().stream().mapToDouble(ChildOrder::getPrice).min().orElse(0);
+            if (firstLevel > bestAsk) {
+                new ArrayList<>(parent.getChildren().values()).forEach(this::cancel);
+            }
+            return;
+        }
+        new ArrayList<>(parent.getChildren().values()).stream()
+                .filter(child -> child.getPrice() > bestAsk)
+                .forEach(this::cancel);
+    }
+
+    private void slice(final ParentOrder parent, final long elapsed, final double bestAsk) {
+        final BigDecimal unallocated = parent.getUnallocated();
+        if (unallocated.signum() <= 0 || bestAsk <= 0) {
+            return;
+        }
+        final Execution execution = this.appProp.getExecution();
+        switch (parent.getAlgo()) {
+            case TWAP:
+                final int slices = (execution.getSlices() == null) ? DEFAULT_SLICES : execution.getSlices();
+                final long sliceDuration = Math.max(1, this.getDuration() / slices);
+                final long released = Math.min(slices, elapsed / sliceDuration + 1);
+                final BigDecimal target = parent.getSize().multiply(BigDecimal.valueOf(released)).divide(BigDecimal.valueOf(slices), SIZE_SCALE, RoundingMode.DOWN);
+                final BigDecimal toRelease = target.subtract(parent.getFilled()).subtract(parent.getWorking()).min(unallocated);
+                if (toRelease.signum() > 0) {
+                    this.placeChild(parent, bestAsk, toRelease);
+                }
+                break;
+            case ICEBERG:
+                if (parent.getChildren().isEmpty()) {
+                    final BigDecimal visibleSize = (execution.getVisibleSize() == null) ? unallocated
+                            : new BigDecimal(execution.getVisibleSize().toString()).setScale(SIZE_SCALE, RoundingMode.DOWN);
+                    this.placeChild(parent, bestAsk, visibleSize.min(unallocated));
+                }
+                break;
+            case LADDER:
+                if (parent.getChildren().isEmpty()) {
+                    final int levels = (execution.getLevels() == null) ? DEFAULT_LEVELS : execution.getLevels();
+                    final double levelStep = (execution.getLevelStep() == null) ? DEFAULT_LEVEL_STEP : execution.getLevelStep();
+                    final BigDecimal levelSize = unallocated.divide(BigDecimal.valueOf(levels), SIZE_SCALE, RoundingMode.DOWN);
+                    for (int level = 0; level < levels; level++) {
+                        final BigDecimal size = (level == levels - 1) ? unallocated.subtract(levelSize.multiply(BigDecimal.valueOf(levels - 1))) : levelSize;
+                        this.placeChild(parent, MathUtils.calculateAddPourcent(bestAsk, level * levelStep), size);
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void placeChild(final ParentOrder parent, final double price, final BigDecimal size) {
+        if (size.signum() <= 0) {
+            return;
+        }
+        try {
+            this.register(parent, this.orderService.placeLimitOrder("sell", price, size, System.nanoTime()), price, size);
+        } catch (RestClientException e) {
+            LOG.warn("EXECUTION - lot {} - unable to place a child of {} at {}", parent.getLotId(), size, df.format(price), e);
+        }
+    }
+
+    /**
+     * The market order is marked as sent once it is acknowledged : if it fails, it is placed again at the next wake up
+     */
+    private void placeMarket(final ParentOrder parent) {
+        final BigDecimal unallocated = parent.getUnallocated();
+        if (unallocated.signum() <= 0) {
+            parent.marketSent();
+            return;
+        }
+        LOG.info("EXECUTION - lot {} - end of the execution, {} sold at market", parent.getLotId(), unallocated.toPlainString());
+        try {
+            final Optional<Order> order = this.orderService.placeMarketSellOrder(unallocated, System.nanoTime());
+            if (order.isPresent()) {
+                this.register(parent, order, 0, unallocated);
+                parent.marketSent();
+            } else {
+                LOG.error("EXECUTION - lot {} - market order of {} not acknowledged, retry at the next wake up", parent.getLotId(), unallocated);
+            }
+        } catch (RestClientException e) {
+            LOG.error("EXECUTION - lot {} - unable to sell {} at market, retry at the next wake up", parent.getLotId(), unallocated, e);
+        }
+    }
+
+    private void register(final ParentOrder parent, final Optional<Order> order, final double price, final BigDecimal size) {
+        order.ifPresent(placed -> {
+            final ChildOrder child = new ChildOrder(placed.getId(), parent, price, size);
+            parent.getChildren().put(child.getOrderId(), child);
+            this.children.put(child.getOrderId(), child);
+            final Integer childTimeout = this.appProp.getExecution().getChildTimeout();
+            if (!child.isMarket() && childTimeout != null) {
+                this.timerService.schedule(childTimeout, () -> this.expire(child));
+            }
+        });
+    }
+
+    /**
+     * A child is not filled after childTimeout : it is canceled, its size is placed again at the best ask
+     */
+    private void expire(final ChildOrder child) {
+        if (this.children.get(child.getOrderId()) == child) {
+            LOG.debug("EXECUTION - lot {} - child {} expired", child.getParent().getLotId(), child.getOrderId());
+            this.cancel(child);
+        }
+    }
+
+    private void cancel(final ChildOrder child) {
+        if (child.isCanceling()) {
+            return;
+        }
+        child.canceling();
+        try {
+            this.orderService.cancelOrder(child.getOrderId());
+        } catch (RestClientException e) {
+            LOG.debug("Child order {} already done", child.getOrderId());
+        }
+    }
+
+    private void finish(final ParentOrder parent) {
+        parent.cancelWakeUp();
+        this.parents.remove(parent.getLotId());
+        new ArrayList<>(parent.getChildren().values()).forEach(this::cancel);
+        final String message = "EXECUTION " + parent.getAlgo() + " TERMINEE - lot " + parent.getLotId() + " - " + parent.getFilled().toPlainString()
+                + " / " + parent.getSize().toPlainString() + " coins vendus";
+        if (parent.isComplete()) {
+            LOG.info(message);
+            this.slackService.postCustomMessage(message);
+            return;
+        }
+        // the local stop of the lot has been crossed and consumed : it is removed so that the strategy places a new one
+        // for the coins not sold
+        this.tradingMode.transition("execution incomplete", state -> state.stopOrderRemoved(parent.getLotId()));
+        LOG.warn(message);
+        this.slackService.postCustomMessage(message + " - vente incomplete, le stop du lot est replace", HIGH);
+    }
+
+    /**
+     * @return the current time, overridden by the tests
+     */
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private long getDuration() {
+        final Execution execution = this.appProp.getExecution();
+        return (execution == null || execution.getDuration() == null) ? DEFAULT_DURATION : execution.getDuration();
+    }
+
+    private long getInterval() {
+        final Execution execution = this.appProp.getExecution();
+        return (execution == null || execution.getInterval() == null) ? DEFAULT_INTERVAL : execution.getInterval();
+    }
+}
@@ -0,0 +1,102 @@
+package com.wizaord.boursycrypto.gdax.service.execution;
+
+import com.wizaord.boursycrypto.gdax.domain.E_ExecutionAlgo;
+import com.wizaord.boursycrypto.gdax.service.timer.WheelTimer;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sale of a lot being executed by child orders. Confined to the shard thread.
+ *  - filled  : coins sold by the children
+ *  - working : coins of the children waiting in the order book
+ */
+class ParentOrder {
+
+    private final String lotId;
+    private final E_ExecutionAlgo algo;
+    private final BigDecimal size;
+    private final long startedAt;
+    private final Map<String, ChildOrder> children = new LinkedHashMap<>();
+    private BigDecimal filled = BigDecimal.ZERO;
+    private boolean marketSent;
+    private WheelTimer.Timeout wakeUp;
+
+    ParentOrder(final String lotId, final E_ExecutionAlgo algo, final BigDecimal size, final long startedAt) {
+        this.lotId = lotId;
+        this.algo = algo;
+        this.size = size;
+        this.startedAt = startedAt;
+    }
+
+    String getLotId() {
+        return this.lotId;
+    }
+
+    E_ExecutionAlgo getAlgo() {
+        return this.algo;
+    }
+
+    BigDecimal getSize() {
+        return this.size;
+    }
+
+    long getStartedAt() {
+        return this.startedAt;
+    }
+
+    Map<String, ChildOrder> getChildren() {
+        return this.children;
+    }
+
+    BigDecimal getFilled() {
+        return this.filled;
+    }
+
+    void addFill(final BigDecimal fillSize) {
+        this.filled = this.filled.add(fillSize);
+    }
+
+    BigDecimal getWorking() {
+        BigDecimal working = BigDecimal.ZERO;
+        for (ChildOrder child : this.children.values()) {
+            working = working.add(child.getRemaining());
+        }
+        return working;
+    }
+
+    /**
+     * @return the coins which are neither sold nor in a child order
+     */
+    BigDecimal getUnallocated() {
+        return this.size.subtract(this.filled).subtract(this.getWorking()).max(BigDecimal.ZERO);
+    }
+
+    boolean isComplete() {
+        return this.filled.compareTo(this.size) >= 0;
+    }
+
+    boolean isMarketSent() {
+        return this.marketSent;
+    }
+
+    void marketSent() {
+        this.marketSent = true;
+    }
+
+    /**
+     * Replace the next wake up of the execution
+     */
+    void setWakeUp(final WheelTimer.Timeout wakeUp) {
+        this.cancelWakeUp();
+        this.wakeUp = wakeUp;
+    }
+
+    void cancelWakeUp() {
+        if (this.wakeUp != null) {
+            this.wakeUp.cancel();
+            this.wakeUp = null;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.wizaord.boursycrypto.gdax.service.export;
+
+import com.wizaord.boursycrypto.gdax.service.store.SeriesCursor;
+import com.wizaord.boursycrypto.gdax.service.store.TimeSeriesService;
+import com.wizaord.boursycrypto.gdax.service.store.TimeSeriesStore;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.TimeStampMilliTZVector;
+import org.apache.arrow.vector.TinyIntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Export of the recorded history of a product (see {@link TimeSeriesService}) for offline analysis.
+ * Every series is written in an Arrow IPC stream compressed with gzip (PRODUCT-SERIES.arrows.gz) :
+ *  - ticks     : time, price, size, side
+ *  - candles   : time, averagePrice, minPrice, maxPrice, volumeEchange, nbTic, nbBuy, nbSell
+ *  - tendances : beginDate, endDate, averagePrice, evolPrice, evolPourcentage, volumeEchangee, type,
+ *                the one minute tendances computed from two consecutive candles as the TendanceService does
+ *  - fills     : time, price, size, side, fee
+ * The records are read with {@link SeriesCursor}s and written by batches of {@link #BATCH_SIZE} rows :
+ * the memory used does not depend on the length of the exported range.
+ * The store is opened read only, the export can run while the trader is running.
+ */
+public class HistoryExporter implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HistoryExporter.class);
+    static final int BATCH_SIZE = 65536;
+    private static final long MAX_MEMORY = 512L * 1024 * 1024;
+    private static final String UTC = "UTC";
+    private static final String EXTENSION = ".arrows.gz";
+
+    private final File storeDirectory;
+    private final String productName;
+    private final BufferAllocator allocator = new RootAllocator(MAX_MEMORY);
+
+    /**
+     * @param storeDirectory application.store.directory
+     * @param productName
+     */
+    public HistoryExporter(final File storeDirectory, final String productName) {
+        this.storeDirectory = TimeSeriesService.productDirectory(storeDirectory.getPath(), productName);
+        this.productName = productName;
+    }
+
+    /**
+     * Export every series between two times
+     * @param from included
+     * @param to included
+     * @param outputDirectory
+     * @return the number of rows written per series
+     */
+    public List<String> exportAll(final Instant from, final Instant to, final File outputDirectory) throws IOException {
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new IOException("Unable to create the directory " + outputDirectory);
+        }
+        final List<String> summary = new ArrayList<>();
+        summary.add("ticks : " + this.exportTicks(from, to, this.outputFile(outputDirectory, "ticks")));
+        summary.add("candles : " + this.exportCandles(from, to, this.outputFile(outputDirectory, "candles")));
+        summary.add("tendances : " + this.exportTendances(from, to, this.outputFile(outputDirectory, "tendances")));
+        summary.add("fills : " + this.exportFills(from, to, this.outputFile(outputDirectory, "fills")));
+        return summary;
+    }
+
+    long exportTicks(final Instant from, final Instant to, final File file) throws IOException {
+        try (TimeSeriesStore store = this.openSeries(TimeSeriesService.TICK_SERIES, TimeSeriesService.NB_TICK_VALUES);
+             SeriesCursor cursor = store.cursor(from.toEpochMilli(), to.toEpochMilli());
+             BatchWriter writer = new BatchWriter(file, Arrays.asList(
+                     new TimeStampMilliTZVector("time", this.allocator, UTC),
+                     new Float8Vector("price", this.allocator),
+                     new Float8Vector("size", this.allocator),
+                     new TinyIntVector("side", this.allocator)))) {
+            final TimeStampMilliTZVector time = writer.vector(0);
+            final Float8Vector price = writer.vector(1);
+            final Float8Vector size = writer.vector(2);
+            final TinyIntVector side = writer.vector(3);
+            while (cursor.next()) {
+                final int row = writer.row();
+                time.setSafe(row, cursor.getTime());
+                price.setSafe(row, cursor.getDouble(TimeSeriesService.TICK_PRICE));
+                size.setSafe(row, cursor.getDouble(TimeSeriesService.TICK_SIZE));
+                side.setSafe(row, (byte) cursor.getValue(TimeSeriesService.TICK_SIDE));
+                writer.endRow();
+            }
+            return writer.finish();
+        }
+    }
+
+    long exportCandles(final Instant from, final Instant to, final File file) throws IOException {
+        try (TimeSeriesStore store = this.openSeries(TimeSeriesService.CANDLE_SERIES, TimeSeriesService.NB_CANDLE_VALUES);
+             SeriesCursor cursor = store.cursor(from.toEpochMilli(), to.toEpochMilli());
+             BatchWriter writer = new BatchWriter(file, Arrays.asList(
+                     new TimeStampMilliTZVector("time", this.allocator, UTC),
+                     new Float8Vector("averagePrice", this.allocator),
+                     new Float8Vector("minPrice", this.allocator),
+                     new Float8Vector("maxPrice", this.allocator),
+                     new Float8Vector("volumeEchange", this.allocator),
+                     new BigIntVector("nbTic", this.allocator),
+                     new BigIntVector("nbBuy", this.allocator),
+                     new BigIntVector("nbSell", this.allocator)))) {
+            final TimeStampMilliTZVector time = writer.vector(0);
+            final Float8Vector averagePrice = writer.vector(1);
+            final Float8Vector minPrice = writer.vector(2);
+            final Float8Vector maxPrice = writer.vector(3);
+            final Float8Vector volume = writer.vector(4);
+            final BigIntVector nbTic = writer.vector(5);
+            final BigIntVector nbBuy = writer.vector(6);
+            final BigIntVector nbSell = writer.vector(7);
+            while (cursor.next()) {
+                final int row = writer.row();
+                time.setSafe(row, cursor.getTime());
+                averagePrice.setSafe(row, cursor.getDouble(TimeSeriesService.CANDLE_AVERAGE));
+                minPrice.setSafe(row, cursor.getDouble(TimeSeriesService.CANDLE_MIN));
+                maxPrice.setSafe(row, cursor.getDouble(TimeSeriesService.CANDLE_MAX));
+                volume.setSafe(row, cursor.getDouble(TimeSeriesService.CANDLE_VOLUME));
+                nbTic.setSafe(row, cursor.getValue(TimeSeriesService.CANDLE_NB_TIC));
+                nbBuy.setSafe(row, cursor.getValue(TimeSeriesService.CANDLE_NB_BUY));
+                nbSell.setSafe(row, cursor.getValue(TimeSeriesService.CANDLE_NB_SELL));
+                writer.endRow();
+            }
+            return writer.finish();
+        }
+    }
+
+    long exportTendances(final Instant from, final Instant to, final File file) throws IOException {
+        final byte[] hausse = "HAUSSE".getBytes(StandardCharsets.UTF_8);
+        final byte[] baisse = "BAISSE".getBytes(StandardCharsets.UTF_8);
+        try (TimeSeriesStore store = this.openSeries(TimeSeriesService.CANDLE_SERIES, TimeSeriesService.NB_CANDLE_VALUES);
+             SeriesCursor cursor = store.cursor(from.toEpochMilli(), to.toEpochMilli());
+             BatchWriter writer = new BatchWriter(file, Arrays.asList(
+                     new TimeStampMilliTZVector("beginDate", this.allocator, UTC),
+                     new TimeStampMilliTZVector("endDate", this.allocator, UTC),
+                     new Float8Vector("averagePrice", this.allocator),
+                     new Float8Vector("evolPrice", this.allocator),
+                     new Float8Vector("evolPourcentage", this.allocator),
+                     new Float8Vector("volumeEchangee", this.allocator),
+                     new VarCharVector("type", this.allocator)))) {
+            final TimeStampMilliTZVector beginDate = writer.vector(0);
+            final TimeStampMilliTZVector endDate = writer.vector(1);
+            final Float8Vector averagePrice = writer.vector(2);
+            final Float8Vector evolPrice = writer.vector(3);
+            final Float8Vector evolPourcentage = writer.vector(4);
+            final Float8Vector volume = writer.vector(5);
+            final VarCharVector type = writer.vector(6);
+            long previousTime = Long.MIN_VALUE;
+            double previousPrice = 0;
+            double previousVolume = 0;
+            while (cursor.next()) {
+                final double price = cursor.getDouble(TimeSeriesService.CANDLE_AVERAGE);
+                final double candleVolume = cursor.getDouble(TimeSeriesService.CANDLE_VOLUME);
+                if (previousTime != Long.MIN_VALUE) {
+                    final int row = writer.row();
+                    beginDate.setSafe(row, previousTime);
+                    endDate.setSafe(row, cursor.getTime());
+                    averagePrice.setSafe(row, (previousPrice + price) / 2);
+                    evolPrice.setSafe(row, price - previousPrice);
+                    evolPourcentage.setSafe(row, ((price - previousPrice) / previousPrice) * 100);
+                    volume.setSafe(row, previousVolume + candleVolume);
+                    type.setSafe(row, (price >= previousPrice) ? hausse : baisse);
+                    writer.endRow();
+                }
+                previousTime = cursor.getTime();
+                previousPrice = price;
+                previousVolume = candleVolume;
+            }
+            return writer.finish();
+        }
+    }
+
+    long exportFills(final Instant from, final Instant to, final File file) throws IOException {
+        try (TimeSeriesStore store = this.openSeries(TimeSeriesService.FILL_SERIES, TimeSeriesService.NB_FILL_VALUES);
+             SeriesCursor cursor = store.cursor(from.toEpochMilli(), to.toEpochMilli());
+             BatchWriter writer = new BatchWriter(file, Arrays.asList(
+                     new TimeStampMilliTZVector("time", this.allocator, UTC),
+                     new Float8Vector("price", this.allocator),
+                     new Float8Vector("size", this.allocator),
+                     new TinyIntVector("side", this.allocator),
+                     new Float8Vector("fee", this.allocator)))) {
+            final TimeStampMilliTZVector time = writer.vector(0);
+            final Float8Vector price = writer.vector(1);
+            final Float8Vector size = writer.vector(2);
+            final TinyIntVector side = writer.vector(3);
+            final Float8Vector fee = writer.vector(4);
+            while (cursor.next()) {
+                final int row = writer.row();
+                time.setSafe(row, cursor.getTime());
+                price.setSafe(row, cursor.getDouble(TimeSeriesService.FILL_PRICE));
+                size.setSafe(row, cursor.getDouble(TimeSeriesService.FILL_SIZE));
+                side.setSafe(row, (byte) cursor.getValue(TimeSeriesService.FILL_SIDE));
+                fee.setSafe(row, cursor.getDouble(TimeSeriesService.FILL_FEE));
+                writer.endRow();
+            }
+            return writer.finish();
+        }
+    }
+
+    private TimeSeriesStore openSeries(final String name, final int nbValues) throws IOException {
+        return TimeSeriesStore.openReadOnly(this.storeDirectory, name, nbValues);
+    }
+
+    private File outputFile(final File outputDirectory, final String series) {
+        return new File(outputDirectory, this.productName + "-" + series + EXTENSION);
+    }
+
+    @Override
+    public void close() {
+        this.allocator.close();
+    }
+
+    /**
+     * Arrow stream of one series : the vectors are filled row by row and written every BATCH_SIZE rows
+     */
+    private static final class BatchWriter implements Closeable {
+        private final List<FieldVector> vectors;
+        private final VectorSchemaRoot root;
+        private final OutputStream output;
+        private final ArrowStreamWriter writer;
+        private int row;
+        private long nbRows;
+
+        private BatchWriter(final File file, final List<FieldVector> vectors) throws IOException {
+            this.vectors = vectors;
+            this.root = new VectorSchemaRoot(vectors.stream().map(FieldVector::getField).collect(Collectors.toList()), vectors, 0);
+            this.output = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(file)), 65536);
+            this.writer = new ArrowStreamWriter(this.root, null, this.output);
+            this.writer.start();
+            this.vectors.forEach(FieldVector::allocateNew);
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T extends FieldVector> T vector(final int index) {
+            return (T) this.vectors.get(index);
+        }
+
+        private int row() {
+            return this.row;
+        }
+
+        private void endRow() throws IOException {
+            if (++this.row == BATCH_SIZE) {
+                this.flushBatch();
+            }
+        }
+
+        private void flushBatch() throws IOException {
+            if (this.row == 0) {
+                return;
+            }
+            this.vectors.forEach(vector -> vector.setValueCount(this.row));
+            this.root.setRowCount(this.row);
+            this.writer.writeBatch();
+            this.nbRows += this.row;
+            this.row = 0;
+            // the buffers of the written batch are released
+            this.vectors.forEach(FieldVector::allocateNew);
+        }
+
+        /**
+         * @return the number of rows written
+         */
+        private long finish() throws IOException {
+            this.flushBatch();
+            this.writer.end();
+            return this.nbRows;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                this.writer.close();
+                this.output.close();
+            } finally {
+                this.root.close();
+                LOG.debug("{} rows exported", this.nbRows);
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.wizaord.boursycrypto.gdax.service.gdax;
+
+import com.wizaord.boursycrypto.gdax.domain.E_SchedulerLane;
+import com.wizaord.boursycrypto.gdax.domain.api.ServerTime;
+import com.wizaord.boursycrypto.gdax.service.metrics.RunOn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Estimation of the offset between the local clock and the GDAX clock, using the /time endpoint.
+ * Several samples are taken ; the one with the shortest round trip is kept and the server time is assumed to be
+ * taken at the middle of the round trip : offset = serverTime - (localSend + rtt / 2).
+ */
+@Service
+public class ExchangeClockService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExchangeClockService.class);
+    private static final int NB_SAMPLES = 5;
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    private volatile long offsetMillis;
+    private volatile long roundTripMillis = -1;
+
+    @RunOn(E_SchedulerLane.HOUSEKEEPING)
+    @Scheduled(fixedDelay = 600000)
+    public void synchronize() {
+        long bestRoundTrip = Long.MAX_VALUE;
+        long bestOffset = 0;
+        for (int i = 0; i < NB_SAMPLES; i++) {
+            try {
+                final long sendMillis = System.currentTimeMillis();
+                final long sendNanos = System.nanoTime();
+                final ServerTime serverTime = this.restTemplate.getForObject("/time", ServerTime.class);
+                final long roundTrip = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sendNanos);
+                if (serverTime != null && serverTime.getEpoch() != null && roundTrip < bestRoundTrip) {
+                    final long serverMillis = serverTime.getEpoch().multiply(BigDecimal.valueOf(1000)).longValue();
+                    bestRoundTrip = roundTrip;
+                    bestOffset = serverMillis - (sendMillis + roundTrip / 2);
+                }
+            } catch (RestClientException e) {
+                LOG.warn("Unable to get the GDAX time : {}", e.getMessage());
+            }
+        }
+
+        if (bestRoundTrip == Long.MAX_VALUE) {
+            LOG.warn("GDAX clock not synchronized, keeping the offset {} ms", this.offsetMillis);
+            return;
+        }
+        this.offsetMillis = bestOffset;
+        this.roundTripMillis = bestRoundTrip;
+        LOG.info("GDAX clock offset {} ms (round trip {} ms)", bestOffset, bestRoundTrip);
+    }
+
+    /**
+     * @return the GDAX clock minus the local clock, in milliseconds
+     */
+    public long getOffsetMillis() {
+        return this.offsetMillis;
+    }
+
+    /**
+     * @return the round trip of the sample used for the offset, -1 if the clock has never been synchronized
+     */
+    public long getRoundTripMillis() {
+        return this.roundTripMillis;
+    }
+
+    /**
+     * @return the current time in the GDAX clock
+     */
+    public long currentExchangeTimeMillis() {
+        return System.currentTimeMillis() + this.offsetMillis;
+    }
+}
@@ -4,17 +4,21 @@ import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
 import com.wizaord.boursycrypto.gdax.domain.api.Fill;
 import com.wizaord.boursycrypto.gdax.domain.api.Order;
 import com.wizaord.boursycrypto.gdax.domain.api.PlaceOrder;
+import com.wizaord.boursycrypto.gdax.service.metrics.LatencyService;
 import com.wizaord.boursycrypto.gdax.service.notify.SlackService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponents;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.math.BigDecimal;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.Arrays;
@@ -22,7 +26,15 @@ import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+import static com.wizaord.boursycrypto.gdax.domain.E_LatencyStage.DECISION_TO_SEND;
+import static com.wizaord.boursycrypto.gdax.domain.E_LatencyStage.REST_ACK;
+
+/**
+ * Orders of the product, through the GDAX REST API.
+ * In paper trading mode (application.paper.activate), the {@link PaperOrderService} replaces the REST calls.
+ */
 @Service
+@ConditionalOnProperty(prefix = "application.paper", name = "activate", havingValue = "false", matchIfMissing = true)
 public class OrderService {
     private static final Logger LOG = LoggerFactory.getLogger(OrderService.class);
 
@@ -32,6 +44,8 @@ public class OrderService {
     private ApplicationProperties applicationProperties;
     @Autowired
     private SlackService slackService;
+    @Autowired
+    private LatencyService latencyService;
 
     public Optional<List<Order>> loadOrders() {
         LOG.debug("Retrieving orders..");
@@ -96,6 +110,24 @@ public class OrderService {
         return Optional.empty();
     }
 
+    /**
+     * @param orderId
+     * @return true if the order is still waiting in the order book (open, pending or active stop order)
+     */
+    public boolean isOrderOpen(final String orderId) {
+        try {
+            final ResponseEntity<Order> order = restTemplate.getForEntity("/orders/" + orderId, Order.class);
+            if (order.getStatusCode() != HttpStatus.OK || order.getBody() == null) {
+                return false;
+            }
+            final String status = order.getBody().getStatus();
+            return "open".equals(status) || "pending".equals(status) || "active".equals(status);
+        } catch (HttpClientErrorException e) {
+            LOG.debug("Order {} not found", orderId);
+            return false;
+        }
+    }
+
     public void cancelOrders() {
         this.loadOrders().orElse(Arrays.asList())
                 .stream()
@@ -122,16 +154,27 @@ public class OrderService {
         LOG.info("Positionnement d'un Limit Order en vente a {} pour {}", stringPlacePrice, nbCoin);
         slackService.postCustomMessage("positionnement d un LIMIT SELL ORDER a " + stringPlacePrice + " pour " + nbCoin + " coins");
 
-        final ResponseEntity<Order> placeOrderResponse = restTemplate.postForEntity("/orders", placeOrder, Order.class);
-        if (placeOrderResponse.getStatusCode() != HttpStatus.OK) {
-            LOG.error("Unable to place the orders : {}", placeOrderResponse.toString());
-            return Optional.empty();
-        } else {
-            return Optional.of(placeOrderResponse.getBody());
-        }
+        return this.postOrder(placeOrder, LatencyService.UNKNOWN_NANOS);
     }
 
     public Optional<Order> placeStopSellOrder(final double priceP, final double nbCoin) {
+        return this.placeStopSellOrder(priceP, nbCoin, LatencyService.UNKNOWN_NANOS);
+    }
+
+    /**
+     * Place a stop sell order decided at decisionNanos (System.nanoTime, LatencyService.UNKNOWN_NANOS if unknown).
+     * The decision to send and the REST acknowledgement durations are recorded in the {@link LatencyService}
+     */
+    public Optional<Order> placeStopSellOrder(final double priceP, final double nbCoin, final long decisionNanos) {
+        return this.placeStopSellOrder(priceP, nbCoin, decisionNanos, null);
+    }
+
+    /**
+     * Place the stop sell order of a lot decided at decisionNanos (System.nanoTime, LatencyService.UNKNOWN_NANOS if unknown).
+     * The notifications of the stops of a lot are merged, not those of different lots.
+     * @param lotId the lot sold by the stop, null if unknown
+     */
+    public Optional<Order> placeStopSellOrder(final double priceP, final double nbCoin, final long decisionNanos, final String lotId) {
         NumberFormat nf = new DecimalFormat("#.##");
         final String stringPlacePrice = nf.format(priceP).replace(",", ".");
         LOG.debug("Place a STOP ORDER TO {}", stringPlacePrice);
@@ -146,8 +189,78 @@ public class OrderService {
                 .build();
 
         LOG.info("Positionnement d'un StopOrder a {} pour {}", stringPlacePrice, nbCoin);
-        slackService.postCustomMessage("positionnement d un STOP SELL ORDER a " + stringPlacePrice + " pour " + nbCoin + " coins");
+        slackService.postCoalescedMessage((lotId == null) ? "stop-sell-order" : "stop-sell-order:" + lotId, "positionnement d un STOP SELL ORDER a " + stringPlacePrice + " pour " + nbCoin + " coins");
+        return this.postOrder(placeOrder, decisionNanos);
+    }
+
+    /**
+     * Place a market buy order spending funds, decided at decisionNanos (System.nanoTime, LatencyService.UNKNOWN_NANOS if unknown).
+     * The decision to send and the REST acknowledgement durations are recorded in the {@link LatencyService}
+     */
+    public Optional<Order> placeMarketBuyOrder(final double funds, final long decisionNanos) {
+        NumberFormat nf = new DecimalFormat("#.##");
+        final String stringFunds = nf.format(funds).replace(",", ".");
+        final PlaceOrder placeOrder = PlaceOrder.builder()
+                .productId(this.applicationProperties.getProduct().getName())
+                .side("buy")
+                .type("market")
+                .funds(stringFunds)
+                .build();
+
+        LOG.info("Positionnement d'un ordre d'achat au marche pour {}", stringFunds);
+        return this.postOrder(placeOrder, decisionNanos);
+    }
+
+    /**
+     * Place a limit order, without notification (child order of an execution)
+     * @param side buy or sell
+     * @param price
+     * @param size
+     * @param decisionNanos System.nanoTime of the decision, LatencyService.UNKNOWN_NANOS if unknown
+     */
+    public Optional<Order> placeLimitOrder(final String side, final double price, final BigDecimal size, final long decisionNanos) {
+        NumberFormat nf = new DecimalFormat("#.##");
+        final PlaceOrder placeOrder = PlaceOrder.builder()
+                .productId(this.applicationProperties.getProduct().getName())
+                .side(side)
+                .type("limit")
+                .size(size.toPlainString())
+                .price(nf.format(price).replace(",", "."))
+                .build();
+        LOG.debug("Place a {} LIMIT ORDER of {} TO {}", side, placeOrder.getSize(), placeOrder.getPrice());
+        return this.postOrder(placeOrder, decisionNanos);
+    }
+
+    /**
+     * Place a market sell order of size coins
+     * @param size
+     * @param decisionNanos System.nanoTime of the decision, LatencyService.UNKNOWN_NANOS if unknown
+     */
+    public Optional<Order> placeMarketSellOrder(final BigDecimal size, final long decisionNanos) {
+        final PlaceOrder placeOrder = PlaceOrder.builder()
+                .productId(this.applicationProperties.getProduct().getName())
+                .side("sell")
+                .type("market")
+                .size(size.toPlainString())
+                .build();
+        LOG.info("Positionnement d'un ordre de vente au marche pour {}", placeOrder.getSize());
+        return this.postOrder(placeOrder, decisionNanos);
+    }
+
+    private Optional<Order> postOrder(final PlaceOrder placeOrder, final long decisionNanos) {
+        final long sendNanos = System.nanoTime();
+        this.latencyService.recordSince(DECISION_TO_SEND, decisionNanos);
+        final Optional<Order> order = this.sendOrder(placeOrder);
+        this.latencyService.recordSince(REST_ACK, sendNanos);
+        return order;
+    }
 
+    /**
+     * Send an order to the GDAX REST API
+     * @param placeOrder
+     * @return the order acknowledged by GDAX, empty if it is refused
+     */
+    protected Optional<Order> sendOrder(final PlaceOrder placeOrder) {
         final ResponseEntity<Order> placeOrderResponse = restTemplate.postForEntity("/orders", placeOrder, Order.class);
         if (placeOrderResponse.getStatusCode() != HttpStatus.OK) {
             LOG.error("Unable to place the orders : {}", placeOrderResponse.toString());
@@ -0,0 +1,314 @@
+package com.wizaord.boursycrypto.gdax.service.gdax;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.config.properties.Paper;
+import com.wizaord.boursycrypto.gdax.domain.E_TriggerSide;
+import com.wizaord.boursycrypto.gdax.domain.api.Fill;
+import com.wizaord.boursycrypto.gdax.domain.api.Order;
+import com.wizaord.boursycrypto.gdax.domain.api.PlaceOrder;
+import com.wizaord.boursycrypto.gdax.service.AccountService;
+import com.wizaord.boursycrypto.gdax.service.market.PriceTriggerService;
+import com.wizaord.boursycrypto.gdax.service.market.TriggerIndex;
+import com.wizaord.boursycrypto.gdax.service.metrics.MonitoredTaskScheduler;
+import com.wizaord.boursycrypto.gdax.service.shard.ShardManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Paper trading implementation of the {@link OrderService} (application.paper.activate) : the place and cancel calls
+ * are the same, but the orders are kept in memory and matched against the live ticker of the product.
+ *  - a market buy is filled at the last price
+ *  - a stop sell is activated, then filled, at the price of the ticker which crosses its stop price
+ *  - a limit sell is filled at its price when a ticker reaches it
+ * The fees follow application.paper.takerFeeRate and makerFeeRate.
+ * The user channel messages of the orders (received, open, activate, match, done) are written in the GDAX JSON format
+ * and routed by the {@link ShardManager} as the WebSocket messages : they are queued on the shard thread, decoded and
+ * dispatched by the same code, with the same latency measures. The calling thread is blocked application.paper.ackDelay
+ * millis by each place and cancel call, as it is by the REST round trip.
+ */
+@Service
+@ConditionalOnProperty(prefix = "application.paper", name = "activate", havingValue = "true")
+public class PaperOrderService extends OrderService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PaperOrderService.class);
+    private static final String PAPER_USER = "paper";
+    private static final String MARKET_USER = "market";
+
+    @Autowired
+    private ApplicationProperties appProp;
+    @Autowired
+    private ShardManager shardManager;
+    @Autowired
+    private PriceTriggerService priceTriggerService;
+    @Autowired
+    private MonitoredTaskScheduler taskScheduler;
+    @Autowired
+    private ObjectMapper jsonMapper;
+
+    private final Map<String, PaperOrder> orders = new ConcurrentHashMap<>();
+    private final List<Fill> fills = new CopyOnWriteArrayList<>();
+    private final AtomicLong tradeIds = new AtomicLong();
+
+    @Override
+    public Optional<List<Order>> loadOrders() {
+        return Optional.of(this.orders.values().stream()
+                .map(this::toOrder)
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public Optional<List<Fill>> loadFills() {
+        return Optional.of(new ArrayList<>(this.fills));
+    }
+
+    @Override
+    public boolean isOrderOpen(final String orderId) {
+        return this.orders.containsKey(orderId);
+    }
+
+    @Override
+    public void cancelOrder(final String orderId) {
+        LOG.info("Cancel paper order with ID {}", orderId);
+        this.simulateAck();
+        final PaperOrder order = this.orders.remove(orderId);
+        if (order == null) {
+            // comme l'API REST
+            throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+        }
+        this.taskScheduler.execute(() -> {
+            if (order.trigger != null) {
+                order.trigger.cancel();
+            }
+            this.publishDone(order, "canceled", order.size);
+        });
+    }
+
+    @Override
+    protected Optional<Order> sendOrder(final PlaceOrder placeOrder) {
+        this.simulateAck();
+        final PaperOrder order = new PaperOrder(placeOrder);
+        if (order.isMarket() && this.priceTriggerService.getLastPrice() == 0) {
+            LOG.error("Unable to place the paper order : no price received yet");
+            return Optional.empty();
+        }
+        this.orders.put(order.id, order);
+        this.taskScheduler.execute(() -> this.accept(order));
+        return Optional.of(this.toOrder(order));
+    }
+
+    /**
+     * The order is received by the simulated exchange (shard thread)
+     */
+    private void accept(final PaperOrder order) {
+        if (!this.orders.containsKey(order.id)) {
+            return;
+        }
+        final ObjectNode received = this.message("received", order);
+        received.put("order_id", order.id);
+        received.put("order_type", order.type);
+        received.put("size", order.size);
+        received.put("price", order.price);
+        this.publish(received);
+
+        if (order.stopPrice != null) {
+            final E_TriggerSide side = "loss".equals(order.stop) ? E_TriggerSide.BELOW : E_TriggerSide.ABOVE;
+            order.trigger = this.priceTriggerService.register(order.stopPrice.doubleValue(), side, price -> this.activate(order, price));
+        } else if (order.isMarket()) {
+            this.fill(order, this.priceTriggerService.getLastPrice(), true);
+        } else {
+            final ObjectNode open = this.message("open", order);
+            open.put("order_id", order.id);
+            open.put("price", order.price);
+            open.put("remaining_size", order.size);
+            this.publish(open);
+            final E_TriggerSide side = order.isBuy() ? E_TriggerSide.BELOW : E_TriggerSide.ABOVE;
+            order.trigger = this.priceTriggerService.register(order.price.doubleValue(), side, price -> this.fill(order, order.price.doubleValue(), false));
+        }
+    }
+
+    /**
+     * The stop price is crossed : the stop order becomes a market order
+     */
+    private void activate(final PaperOrder order, final double price) {
+        if (!this.orders.containsKey(order.id)) {
+            return;
+        }
+        final ObjectNode activate = this.message("activate", order);
+        activate.put("order_id", order.id);
+        activate.put("stop_type", order.stop);
+        activate.put("stop_price", order.stopPrice);
+        activate.put("limit_price", order.price);
+        activate.put("size", order.size);
+        activate.put("taker_fee_rate", this.getTakerFeeRate());
+        this.publish(activate);
+        this.fill(order, price, true);
+    }
+
+    private void fill(final PaperOrder order, final double price, final boolean taker) {
+        if (this.orders.remove(order.id) == null) {
+            return;
+        }
+        final BigDecimal fillPrice = BigDecimal.valueOf(price);
+        final BigDecimal feeRate = taker ? this.getTakerFeeRate() : this.getMakerFeeRate();
+        // un achat au marche avec des funds : les frais sont pris sur les funds
+        final BigDecimal size = (order.size != null) ? order.size
+                : order.funds.divide(fillPrice.multiply(BigDecimal.ONE.add(feeRate)), 8, RoundingMode.DOWN);
+        final long tradeId = this.tradeIds.incrementAndGet();
+
+        final ObjectNode match = this.message("match", order);
+        match.put("trade_id", String.valueOf(tradeId));
+        match.put(taker ? "taker_order_id" : "maker_order_id", order.id);
+        match.put("user_id", PAPER_USER);
+        match.put("taker_user_id", taker ? PAPER_USER : MARKET_USER);
+        // le side d'un match est celui de l'ordre maker
+        match.put("side", (taker == order.isBuy()) ? "sell" : "buy");
+        match.put("size", size);
+        match.put("price", fillPrice);
+        match.put(taker ? "taker_fee_rate" : "maker_fee_rate", feeRate);
+
+        final Fill fill = new Fill();
+        fill.setCreated_at(new Date());
+        fill.setTrade_id(tradeId);
+        fill.setProduct_id(this.appProp.getProduct().getName());
+        fill.setOrder_id(order.id);
+        fill.setUser_id(PAPER_USER);
+        fill.setLiquidity(taker ? "T" : "M");
+        fill.setPrice(fillPrice);
+        fill.setSize(size);
+        fill.setFee(size.multiply(fillPrice).multiply(feeRate));
+        fill.setSide(order.side);
+        this.fills.add(fill);
+
+        LOG.info("Paper order {} filled : {} {} at {}", order.id, order.side, size, fillPrice);
+        this.publish(match);
+        this.publishDone(order, "filled", BigDecimal.ZERO);
+    }
+
+    private void publishDone(final PaperOrder order, final String reason, final BigDecimal remainingSize) {
+        final ObjectNode done = this.message("done", order);
+        done.put("order_id", order.id);
+        done.put("reason", reason);
+        done.put("price", order.price);
+        done.put("remaining_size", remainingSize);
+        this.publish(done);
+    }
+
+    private ObjectNode message(final String type, final PaperOrder order) {
+        final ObjectNode message = this.jsonMapper.createObjectNode();
+        message.put("type", type);
+        message.put("product_id", this.appProp.getProduct().getName());
+        message.put("side", order.side);
+        message.put("time", DateTimeFormatter.ISO_INSTANT.format(Instant.now()));
+        return message;
+    }
+
+    /**
+     * Send the message as if it was received from the WebSocket
+     */
+    private void publish(final ObjectNode message) {
+        try {
+            this.shardManager.dispatch(this.jsonMapper.writeValueAsString(message), System.nanoTime());
+        } catch (JsonProcessingException e) {
+            LOG.error("Unable to write the paper message {}", message, e);
+        }
+    }
+
+    private void simulateAck() {
+        final Integer ackDelay = this.appProp.getPaper().getAckDelay();
+        if (ackDelay != null && ackDelay > 0) {
+            try {
+                Thread.sleep(ackDelay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private BigDecimal getTakerFeeRate() {
+        final Paper paper = this.appProp.getPaper();
+        return (paper.getTakerFeeRate() == null) ? AccountService.DEFAULT_TAKER_FEE_RATE : new BigDecimal(paper.getTakerFeeRate().toString());
+    }
+
+    private BigDecimal getMakerFeeRate() {
+        final Paper paper = this.appProp.getPaper();
+        return (paper.getMakerFeeRate() == null) ? BigDecimal.ZERO : new BigDecimal(paper.getMakerFeeRate().toString());
+    }
+
+    private Order toOrder(final PaperOrder order) {
+        return Order.builder()
+                .id(order.id)
+                .product_id(this.appProp.getProduct().getName())
+                .side(order.side)
+                .type(order.type)
+                .price(order.price)
+                .size(order.size)
+                .stop(order.stop)
+                .stop_price(order.stopPrice)
+                .status(order.stopPrice != null ? "active" : "open")
+                .create_at(order.createdAt)
+                .fill_fees(BigDecimal.ZERO)
+                .filled_size(BigDecimal.ZERO)
+                .build();
+    }
+
+    /**
+     * An order waiting in the simulated order book
+     */
+    private static final class PaperOrder {
+        private final String id = UUID.randomUUID().toString();
+        private final Date createdAt = new Date();
+        private final String side;
+        private final String type;
+        private final String stop;
+        private final BigDecimal price;
+        private final BigDecimal stopPrice;
+        private final BigDecimal size;
+        private final BigDecimal funds;
+        private TriggerIndex.Trigger trigger;
+
+        private PaperOrder(final PlaceOrder placeOrder) {
+            this.side = placeOrder.getSide();
+            this.type = placeOrder.getType();
+            this.stop = placeOrder.getStop();
+            this.price = decimal(placeOrder.getPrice());
+            this.stopPrice = decimal(placeOrder.getStopPrice());
+            this.size = decimal(placeOrder.getSize());
+            this.funds = decimal(placeOrder.getFunds());
+        }
+
+        private boolean isBuy() {
+            return "buy".equals(this.side);
+        }
+
+        private boolean isMarket() {
+            return "market".equals(this.type) && this.stop == null;
+        }
+
+        private static BigDecimal decimal(final String value) {
+            return (value == null) ? null : new BigDecimal(value);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.wizaord.boursycrypto.gdax.service.ipc;
+
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.E_FeedMessage;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.Ticker;
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Fixed size binary layout of a {@link Ticker} in the IPC ring.
+ * The numbers are written as primitives (NaN or Long.MIN_VALUE for a missing value), nothing is serialized.
+ *
+ * <pre>
+ *   0  sequence        long
+ *   8  time            long   (epoch millis, GDAX clock)
+ *  16  receivedNanos   long   (System.nanoTime of the publisher when the message was received)
+ *  24  publishNanos    long   (System.nanoTime of the publisher when the tick was written)
+ *  32  tradeId         long
+ *  40  price           double
+ *  48  open24h         double
+ *  56  volume24h       double
+ *  64  low24h          double
+ *  72  volume30d       double
+ *  80  lastSize        double
+ *  88  bestBid         float
+ *  92  bestAsk         float
+ *  96  side            byte   (0 unknown, 1 buy, 2 sell)
+ *  97  product length  byte
+ *  98  product         16 ascii bytes
+ * </pre>
+ */
+final class TickCodec {
+
+    static final int TICK_MSG_TYPE_ID = 1;
+    static final int MAX_PRODUCT_LENGTH = 16;
+    static final int LENGTH = 98 + MAX_PRODUCT_LENGTH;
+
+    private static final int SEQUENCE_OFFSET = 0;
+    private static final int TIME_OFFSET = 8;
+    private static final int RECEIVED_NANOS_OFFSET = 16;
+    private static final int PUBLISH_NANOS_OFFSET = 24;
+    private static final int TRADE_ID_OFFSET = 32;
+    private static final int PRICE_OFFSET = 40;
+    private static final int OPEN_24H_OFFSET = 48;
+    private static final int VOLUME_24H_OFFSET = 56;
+    private static final int LOW_24H_OFFSET = 64;
+    private static final int VOLUME_30D_OFFSET = 72;
+    private static final int LAST_SIZE_OFFSET = 80;
+    private static final int BEST_BID_OFFSET = 88;
+    private static final int BEST_ASK_OFFSET = 92;
+    private static final int SIDE_OFFSET = 96;
+    private static final int PRODUCT_LENGTH_OFFSET = 97;
+    private static final int PRODUCT_OFFSET = 98;
+
+    private static final byte SIDE_UNKNOWN = 0;
+    private static final byte SIDE_BUY = 1;
+    private static final byte SIDE_SELL = 2;
+
+    private TickCodec() {
+    }
+
+    /**
+     * Write the tick at the beginning of the buffer
+     * @param buffer
+     * @param tick
+     * @param publishNanos
+     */
+    static void encode(final MutableDirectBuffer buffer, final Ticker tick, final long publishNanos) {
+        buffer.putLong(SEQUENCE_OFFSET, parseLong(tick.getSequence()));
+        buffer.putLong(TIME_OFFSET, tick.getTime() == null ? Long.MIN_VALUE : tick.getTime().getTime());
+        buffer.putLong(RECEIVED_NANOS_OFFSET, tick.getReceivedNanos());
+        buffer.putLong(PUBLISH_NANOS_OFFSET, publishNanos);
+        buffer.putLong(TRADE_ID_OFFSET, parseLong(tick.getTradeId()));
+        buffer.putDouble(PRICE_OFFSET, toDouble(tick.getPrice()));
+        buffer.putDouble(OPEN_24H_OFFSET, toDouble(tick.getOpen24h()));
+        buffer.putDouble(VOLUME_24H_OFFSET, toDouble(tick.getVolume24h()));
+        buffer.putDouble(LOW_24H_OFFSET, toDouble(tick.getLow24h()));
+        buffer.putDouble(VOLUME_30D_OFFSET, toDouble(tick.getVolume30d()));
+        buffer.putDouble(LAST_SIZE_OFFSET, toDouble(tick.getLastSize()));
+        buffer.putFloat(BEST_BID_OFFSET, tick.getBestBid() == null ? Float.NaN : tick.getBestBid());
+        buffer.putFloat(BEST_ASK_OFFSET, tick.getBestAsk() == null ? Float.NaN : tick.getBestAsk());
+        buffer.putByte(SIDE_OFFSET, "buy".equals(tick.getSide()) ? SIDE_BUY : "sell".equals(tick.getSide()) ? SIDE_SELL : SIDE_UNKNOWN);
+
+        final String product = tick.getProductId() == null ? "" : tick.getProductId();
+        final int productLength = Math.min(product.length(), MAX_PRODUCT_LENGTH);
+        buffer.putByte(PRODUCT_LENGTH_OFFSET, (byte) productLength);
+        for (int i = 0; i < productLength; i++) {
+            buffer.putByte(PRODUCT_OFFSET + i, (byte) product.charAt(i));
+        }
+    }
+
+    /**
+     * @return the publish time of the tick written at offset
+     */
+    static long publishNanos(final DirectBuffer buffer, final int offset) {
+        return buffer.getLong(offset + PUBLISH_NANOS_OFFSET);
+    }
+
+    /**
+     * Read the tick written at offset
+     * @param buffer
+     * @param offset
+     * @param productId the product of the ring
+     * @return the tick
+     */
+    static Ticker decode(final DirectBuffer buffer, final int offset, final String productId) {
+        final long sequence = buffer.getLong(offset + SEQUENCE_OFFSET);
+        final long time = buffer.getLong(offset + TIME_OFFSET);
+        final long tradeId = buffer.getLong(offset + TRADE_ID_OFFSET);
+        final float bestBid = buffer.getFloat(offset + BEST_BID_OFFSET);
+        final float bestAsk = buffer.getFloat(offset + BEST_ASK_OFFSET);
+        final byte side = buffer.getByte(offset + SIDE_OFFSET);
+
+        final Ticker tick = Ticker.builder()
+                .sequence(sequence == Long.MIN_VALUE ? null : Long.toString(sequence))
+                .productId(productId)
+                .price(toBigDecimal(buffer.getDouble(offset + PRICE_OFFSET)))
+                .open24h(toBigDecimal(buffer.getDouble(offset + OPEN_24H_OFFSET)))
+                .volume24h(toBigDecimal(buffer.getDouble(offset + VOLUME_24H_OFFSET)))
+                .low24h(toBigDecimal(buffer.getDouble(offset + LOW_24H_OFFSET)))
+                .volume30d(toBigDecimal(buffer.getDouble(offset + VOLUME_30D_OFFSET)))
+                .lastSize(toBigDecimal(buffer.getDouble(offset + LAST_SIZE_OFFSET)))
+                .bestBid(Float.isNaN(bestBid) ? null : bestBid)
+                .bestAsk(Float.isNaN(bestAsk) ? null : bestAsk)
+                .side(side == SIDE_BUY ? "buy" : side == SIDE_SELL ? "sell" : null)
+                .time(time == Long.MIN_VALUE ? null : new Date(time))
+                .tradeId(tradeId == Long.MIN_VALUE ? null : Long.toString(tradeId))
+                .build();
+        tick.setType(E_FeedMessage.TICKER.feedTypeName);
+        tick.setReceivedNanos(buffer.getLong(offset + RECEIVED_NANOS_OFFSET));
+        return tick;
+    }
+
+    private static long parseLong(final String value) {
+        if (value == null || value.isEmpty()) {
+            return Long.MIN_VALUE;
+        }
+        long result = 0;
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return Long.MIN_VALUE;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private static double toDouble(final BigDecimal value) {
+        return value == null ? Double.NaN : value.doubleValue();
+    }
+
+    private static BigDecimal toBigDecimal(final double value) {
+        return Double.isNaN(value) ? null : BigDecimal.valueOf(value);
+    }
+}
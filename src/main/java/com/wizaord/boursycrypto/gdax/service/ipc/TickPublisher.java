@@ -0,0 +1,115 @@
+package com.wizaord.boursycrypto.gdax.service.ipc;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.config.properties.Ipc;
+import com.wizaord.boursycrypto.gdax.domain.E_IpcMode;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.Ticker;
+import org.agrona.IoUtil;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.broadcast.BroadcastBufferDescriptor;
+import org.agrona.concurrent.broadcast.BroadcastTransmitter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * PUBLISHER mode : the decoded ticks are written in a memory-mapped broadcast ring, one file per product
+ * (ticks-PRODUCT.ipc in application.ipc.directory). The ring is written by the shard thread of the product only :
+ * there is one producer per ring and the transmission is lock-free. The subscribers never slow the publisher down,
+ * a subscriber which is too slow is lapped and loses ticks.
+ */
+@Service
+public class TickPublisher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TickPublisher.class);
+    static final int DEFAULT_CAPACITY = 1024 * 1024;
+    static final String DEFAULT_DIRECTORY = "/dev/shm/boursycrypto";
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    private final ConcurrentMap<String, Ring> rings = new ConcurrentHashMap<>();
+    private boolean enabled;
+    private File directory;
+    private int capacity;
+
+    @PostConstruct
+    public void init() {
+        final Ipc ipc = this.applicationProperties.getIpc();
+        this.enabled = ipc != null && ipc.getMode() == E_IpcMode.PUBLISHER;
+        if (this.enabled) {
+            this.directory = new File(directory(ipc));
+            this.capacity = capacity(ipc);
+            IoUtil.ensureDirectoryExists(this.directory, "ipc directory");
+            LOG.info("Ticks published in {}", this.directory);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        this.rings.values().forEach(ring -> IoUtil.unmap(ring.mappedBuffer));
+        this.rings.clear();
+    }
+
+    /**
+     * Publish a tick received from the WebSocket. Must be called by the thread of the product.
+     * @param tick
+     */
+    public void publish(final Ticker tick) {
+        if (!this.enabled || tick.getProductId() == null) {
+            return;
+        }
+        this.rings.computeIfAbsent(tick.getProductId(), this::createRing).transmit(tick);
+    }
+
+    private Ring createRing(final String productId) {
+        final File file = ringFile(this.directory, productId);
+        // a new file (new inode) tells the subscribers that the publisher has restarted
+        IoUtil.deleteIfExists(file);
+        final MappedByteBuffer mappedBuffer = IoUtil.mapNewFile(file, this.capacity + BroadcastBufferDescriptor.TRAILER_LENGTH);
+        LOG.info("Tick ring created {}", file);
+        return new Ring(mappedBuffer, new UnsafeBuffer(mappedBuffer));
+    }
+
+    static File ringFile(final File directory, final String productId) {
+        return new File(directory, "ticks-" + productId + ".ipc");
+    }
+
+    static String directory(final Ipc ipc) {
+        return (ipc.getDirectory() == null || ipc.getDirectory().isEmpty()) ? DEFAULT_DIRECTORY : ipc.getDirectory();
+    }
+
+    static int capacity(final Ipc ipc) {
+        final int capacity = (ipc.getCapacity() == null) ? DEFAULT_CAPACITY : ipc.getCapacity();
+        BroadcastBufferDescriptor.checkCapacity(capacity);
+        return capacity;
+    }
+
+    /**
+     * A ring and the encoding buffer of its producer thread
+     */
+    static final class Ring {
+        private final MappedByteBuffer mappedBuffer;
+        private final BroadcastTransmitter transmitter;
+        private final UnsafeBuffer encodingBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(TickCodec.LENGTH));
+
+        Ring(final MappedByteBuffer mappedBuffer, final UnsafeBuffer ringBuffer) {
+            this.mappedBuffer = mappedBuffer;
+            this.transmitter = new BroadcastTransmitter(ringBuffer);
+        }
+
+        void transmit(final Ticker tick) {
+            TickCodec.encode(this.encodingBuffer, tick, System.nanoTime());
+            this.transmitter.transmit(TickCodec.TICK_MSG_TYPE_ID, this.encodingBuffer, 0, TickCodec.LENGTH);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.wizaord.boursycrypto.gdax.service.ipc;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.config.properties.Ipc;
+import com.wizaord.boursycrypto.gdax.domain.E_IpcMode;
+import com.wizaord.boursycrypto.gdax.domain.E_LatencyStage;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.Ticker;
+import com.wizaord.boursycrypto.gdax.service.metrics.LatencyService;
+import com.wizaord.boursycrypto.gdax.service.shard.ProductShard;
+import com.wizaord.boursycrypto.gdax.service.shard.ShardManager;
+import org.agrona.IoUtil;
+import org.agrona.concurrent.BackoffIdleStrategy;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.broadcast.BroadcastReceiver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SUBSCRIBER mode : the ticks of the products of this process are read from the rings written by the publisher
+ * process (see {@link TickPublisher}) and dispatched to the product shards.
+ * One thread polls all the rings, spinning then backing off when there is nothing to read.
+ * The receive time written by the publisher is kept : System.nanoTime is shared by the processes of a host.
+ */
+@Service
+public class TickSubscriber {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TickSubscriber.class);
+    private static final int POLL_LIMIT = 64;
+    private static final long FILE_CHECK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+    @Autowired
+    private ShardManager shardManager;
+    @Autowired
+    private LatencyService latencyService;
+
+    private final List<RingReader> readers = new ArrayList<>();
+    private volatile boolean running;
+    private Thread poller;
+
+    /**
+     * @return true if the ticks are read from the IPC rings instead of the WebSocket
+     */
+    public boolean isEnabled() {
+        final Ipc ipc = this.applicationProperties.getIpc();
+        return ipc != null && ipc.getMode() == E_IpcMode.SUBSCRIBER;
+    }
+
+    /**
+     * Start polling the rings of the product shards
+     */
+    public synchronized void start() {
+        if (!this.isEnabled() || this.running) {
+            return;
+        }
+        final File directory = new File(TickPublisher.directory(this.applicationProperties.getIpc()));
+        this.shardManager.getShards().forEach(shard -> this.readers.add(new RingReader(shard, TickPublisher.ringFile(directory, shard.getProductName()))));
+        this.running = true;
+        this.poller = new Thread(this::poll, "ipc-subscriber");
+        this.poller.setDaemon(true);
+        this.poller.start();
+        LOG.info("Ticks read from {}", directory);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        this.running = false;
+        if (this.poller != null) {
+            this.poller.interrupt();
+        }
+    }
+
+    private void poll() {
+        final IdleStrategy idleStrategy = new BackoffIdleStrategy(100, 10, TimeUnit.MICROSECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(1));
+        long nextFileCheck = 0;
+        while (this.running) {
+            int work = 0;
+            for (RingReader reader : this.readers) {
+                work += reader.poll();
+            }
+            if (work == 0) {
+                final long now = System.nanoTime();
+                if (now - nextFileCheck > 0) {
+                    this.readers.forEach(RingReader::checkFile);
+                    nextFileCheck = now + FILE_CHECK_INTERVAL_NANOS;
+                }
+            }
+            idleStrategy.idle(work);
+        }
+        this.readers.forEach(RingReader::close);
+    }
+
+    /**
+     * Reader of the ring of one product, used by the poller thread only
+     */
+    private final class RingReader {
+        private final ProductShard shard;
+        private final File file;
+        private Object fileKey;
+        private MappedByteBuffer mappedBuffer;
+        private BroadcastReceiver receiver;
+        private long lappedCount;
+
+        private RingReader(final ProductShard shard, final File file) {
+            this.shard = shard;
+            this.file = file;
+        }
+
+        private int poll() {
+            if (this.receiver == null) {
+                return 0;
+            }
+            int count = 0;
+            while (count < POLL_LIMIT && this.receiver.receiveNext()) {
+                count++;
+                if (this.receiver.typeId() != TickCodec.TICK_MSG_TYPE_ID) {
+                    continue;
+                }
+                final long publishNanos = TickCodec.publishNanos(this.receiver.buffer(), this.receiver.offset());
+                final Ticker tick = TickCodec.decode(this.receiver.buffer(), this.receiver.offset(), this.shard.getProductName());
+                // the record may have been overwritten by the publisher while it was read
+                if (this.receiver.validate()) {
+                    latencyService.record(E_LatencyStage.IPC_HANDOFF, System.nanoTime() - publishNanos);
+                    this.shard.dispatch(tick);
+                }
+            }
+            if (this.receiver.lappedCount() != this.lappedCount) {
+                LOG.warn("Tick ring of {} lapped by the publisher, ticks lost", this.shard.getProductName());
+                this.lappedCount = this.receiver.lappedCount();
+            }
+            return count;
+        }
+
+        /**
+         * Map the ring when it is created, map it again when the publisher has restarted
+         */
+        private void checkFile() {
+            if (!this.file.exists()) {
+                return;
+            }
+            try {
+                final Object currentKey = Files.readAttributes(this.file.toPath(), BasicFileAttributes.class).fileKey();
+                if (this.receiver != null && (currentKey == null || currentKey.equals(this.fileKey))) {
+                    return;
+                }
+                this.close();
+                this.mappedBuffer = IoUtil.mapExistingFile(this.file, "tick ring");
+                this.receiver = new BroadcastReceiver(new UnsafeBuffer(this.mappedBuffer));
+                this.fileKey = currentKey;
+                this.lappedCount = 0;
+                LOG.info("Tick ring {} mapped", this.file);
+            } catch (IOException | IllegalStateException e) {
+                LOG.warn("Unable to map the tick ring {} : {}", this.file, e.getMessage());
+            }
+        }
+
+        private void close() {
+            if (this.mappedBuffer != null) {
+                IoUtil.unmap(this.mappedBuffer);
+                this.mappedBuffer = null;
+                this.receiver = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.wizaord.boursycrypto.gdax.service.market;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.config.properties.Detector;
+import com.wizaord.boursycrypto.gdax.config.properties.DetectorHorizon;
+import com.wizaord.boursycrypto.gdax.domain.E_PriceEvent;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.Ticker;
+import com.wizaord.boursycrypto.gdax.domain.market.PriceEvent;
+import com.wizaord.boursycrypto.gdax.service.trade.TradeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming detector of the price drops and rebounds, fed with every ticker of the product (shard thread).
+ * For each horizon (application.detector.horizons : 10 s, 1 min and 5 min by default), the maximum and the minimum of
+ * the prices of the horizon are kept in a {@link SlidingWindow}. A DROP event is sent to the {@link TradeService}
+ * when the price falls below the maximum of the drop pourcent, a REBOUND event when it rises above the minimum of
+ * the rebound pourcent : the events are sent once, on the ticker which crosses the threshold.
+ */
+@Service
+public class CrashDetectorService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CrashDetectorService.class);
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+    @Autowired
+    private TradeService tradeService;
+
+    private final List<Horizon> horizons = new ArrayList<>();
+    private long lastTime;
+
+    @PostConstruct
+    public void initHorizons() {
+        final Detector detector = this.applicationProperties.getDetector();
+        if (detector != null && Boolean.FALSE.equals(detector.getActivate())) {
+            LOG.info("Price detector disabled");
+            return;
+        }
+        if (detector == null || detector.getHorizons().isEmpty()) {
+            this.horizons.add(new Horizon(10000, -1, 0.5));
+            this.horizons.add(new Horizon(60000, -2, 1));
+            this.horizons.add(new Horizon(300000, -3, 1.5));
+        } else {
+            for (DetectorHorizon horizon : detector.getHorizons()) {
+                this.horizons.add(new Horizon(horizon.getDuration(), horizon.getDrop(), horizon.getRebound()));
+            }
+        }
+    }
+
+    public void notifyTickerMessage(final Ticker ticker) {
+        if (ticker.getPrice() == null) {
+            return;
+        }
+        // the windows need increasing times : a ticker late of a few millis is counted at the time of the last one
+        final long time = Math.max(this.lastTime, (ticker.getTime() == null) ? System.currentTimeMillis() : ticker.getTime().getTime());
+        this.lastTime = time;
+        this.notifyPrice(time, ticker.getPrice().doubleValue());
+    }
+
+    void notifyPrice(final long time, final double price) {
+        for (int i = 0; i < this.horizons.size(); i++) {
+            final PriceEvent event = this.horizons.get(i).add(time, price);
+            if (event != null) {
+                LOG.info("{} of {} % on {} s : {} => {}", event.getType(), event.getEvolution(), event.getHorizon() / 1000, event.getReferencePrice(), price);
+                this.tradeService.notifyPriceEvent(event);
+            }
+        }
+    }
+
+    /**
+     * A window with its thresholds. inDrop / inRebound are set while the threshold is crossed so that an event
+     * is only sent when it is crossed again.
+     */
+    private static final class Horizon {
+        private final SlidingWindow window;
+        private final double drop;
+        private final double rebound;
+        private boolean inDrop;
+        private boolean inRebound;
+
+        private Horizon(final long duration, final double drop, final double rebound) {
+            this.window = new SlidingWindow(duration);
+            this.drop = drop;
+            this.rebound = rebound;
+        }
+
+        private PriceEvent add(final long time, final double price) {
+            this.window.add(time, price);
+            final double max = this.window.getMax();
+            final double min = this.window.getMin();
+            final double fromMax = (price - max) * 100 / max;
+            final double fromMin = (price - min) * 100 / min;
+
+            PriceEvent event = null;
+            final boolean dropping = fromMax <= this.drop;
+            if (dropping && !this.inDrop) {
+                event = this.event(E_PriceEvent.DROP, max, price, fromMax, time);
+            }
+            this.inDrop = dropping;
+
+            final boolean rebounding = fromMin >= this.rebound;
+            if (rebounding && !this.inRebound && event == null) {
+                event = this.event(E_PriceEvent.REBOUND, min, price, fromMin, time);
+            }
+            this.inRebound = rebounding;
+            return event;
+        }
+
+        private PriceEvent event(final E_PriceEvent type, final double reference, final double price, final double evolution, final long time) {
+            return PriceEvent.builder()
+                    .type(type)
+                    .horizon(this.window.getDuration())
+                    .referencePrice(reference)
+                    .price(price)
+                    .evolution(evolution)
+                    .time(time)
+                    .build();
+        }
+    }
+}
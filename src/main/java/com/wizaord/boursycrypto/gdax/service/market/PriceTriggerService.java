@@ -0,0 +1,117 @@
+package com.wizaord.boursycrypto.gdax.service.market;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.config.properties.PriceAlert;
+import com.wizaord.boursycrypto.gdax.domain.E_TriggerSide;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.Ticker;
+import com.wizaord.boursycrypto.gdax.service.notify.SlackService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.function.DoubleConsumer;
+
+import static com.wizaord.boursycrypto.gdax.utils.MathUtils.df;
+
+/**
+ * Price levels watched on every ticker of the product (shard thread) : take profit of the lots, price alerts...
+ * The levels are kept in a {@link TriggerIndex}, a ticker which crosses no level only costs two comparisons.
+ * The price alerts of the product (application.product.alerts) are registered on the first ticker, on the side
+ * of the price where they are.
+ */
+@Service
+public class PriceTriggerService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PriceTriggerService.class);
+
+    @Autowired
+    private ApplicationProperties appProp;
+    @Autowired
+    private SlackService slackService;
+
+    private final TriggerIndex triggers = new TriggerIndex();
+    private boolean alertsRegistered;
+    private volatile Ticker lastTicker;
+
+    public void notifyTickerMessage(final Ticker ticker) {
+        if (ticker.getPrice() == null) {
+            return;
+        }
+        final double price = ticker.getPrice().doubleValue();
+        this.lastTicker = ticker;
+        if (!this.alertsRegistered) {
+            this.alertsRegistered = true;
+            this.registerAlerts(price);
+        }
+        this.triggers.onPrice(price);
+    }
+
+    /**
+     * Watch a price level. Must be called from the thread of the product shard.
+     * @param level
+     * @param side
+     * @param callback called once, with the price of the ticker which crosses the level
+     * @return the trigger, to cancel it
+     */
+    public TriggerIndex.Trigger register(final double level, final E_TriggerSide side, final DoubleConsumer callback) {
+        return this.triggers.register(level, side, callback);
+    }
+
+    /**
+     * @return the price of the last ticker, 0 before the first one
+     */
+    public double getLastPrice() {
+        final Ticker ticker = this.lastTicker;
+        return (ticker == null) ? 0 : ticker.getPrice().doubleValue();
+    }
+
+    /**
+     * @return the best bid of the last ticker, its price if the ticker has no best bid, 0 before the first one
+     */
+    public double getBestBid() {
+        final Ticker ticker = this.lastTicker;
+        return (ticker == null || ticker.getBestBid() == null) ? this.getLastPrice() : ticker.getBestBid();
+    }
+
+    /**
+     * @return the best ask of the last ticker, its price if the ticker has no best ask, 0 before the first one
+     */
+    public double getBestAsk() {
+        final Ticker ticker = this.lastTicker;
+        return (ticker == null || ticker.getBestAsk() == null) ? this.getLastPrice() : ticker.getBestAsk();
+    }
+
+    /**
+     * @return the number of levels watched
+     */
+    public int getTriggerCount() {
+        return this.triggers.size();
+    }
+
+    private void registerAlerts(final double price) {
+        final String productName = this.appProp.getProduct().getName();
+        int nbRegistered = 0;
+        for (PriceAlert alert : this.appProp.getProduct().getAlerts()) {
+            if (alert.getPrice() == null) {
+                // une alerte mal configuree ne doit pas empecher l'enregistrement des suivantes
+                LOG.warn("Price alert without price ignored for {} : {}", productName, alert);
+                continue;
+            }
+            final double level = alert.getPrice();
+            final E_TriggerSide side = (level > price) ? E_TriggerSide.ABOVE : E_TriggerSide.BELOW;
+            this.register(level, side, crossingPrice -> {
+                final String message = "ALERTE COURS : " + productName + (side == E_TriggerSide.ABOVE ? " au dessus de " : " en dessous de ")
+                        + df.format(level) + " - cours " + df.format(crossingPrice);
+                LOG.info(message);
+                if (alert.getChannel() == null) {
+                    this.slackService.postCustomMessage(message);
+                } else {
+                    this.slackService.sendMessage(message, alert.getChannel());
+                }
+            });
+            nbRegistered++;
+        }
+        LOG.info("{} price alerts registered for {}", nbRegistered, productName);
+    }
+}
@@ -0,0 +1,101 @@
+package com.wizaord.boursycrypto.gdax.service.market;
+
+/**
+ * Maximum and minimum of the prices of the last duration millis.
+ * Two monotonic deques are kept : the maximum deque has decreasing prices, the minimum deque increasing prices.
+ * A new price removes from the back the prices it dominates, the prices out of the window are removed from the
+ * front : each price is added and removed once, the cost of a tick is O(1) amortised and nothing is allocated
+ * once the deques have reached the size of the window.
+ */
+class SlidingWindow {
+
+    private final long duration;
+    private final MonotonicDeque maximums = new MonotonicDeque(true);
+    private final MonotonicDeque minimums = new MonotonicDeque(false);
+
+    SlidingWindow(final long duration) {
+        this.duration = duration;
+    }
+
+    /**
+     * @param time epoch millis, not before the previous one
+     * @param price
+     */
+    void add(final long time, final double price) {
+        final long oldest = time - this.duration;
+        this.maximums.add(time, price, oldest);
+        this.minimums.add(time, price, oldest);
+    }
+
+    long getDuration() {
+        return this.duration;
+    }
+
+    boolean isEmpty() {
+        return this.maximums.size == 0;
+    }
+
+    double getMax() {
+        return this.maximums.first();
+    }
+
+    double getMin() {
+        return this.minimums.first();
+    }
+
+    /**
+     * Ring of (time, price), monotonic from the front to the back
+     */
+    private static final class MonotonicDeque {
+        private final boolean decreasing;
+        private long[] times = new long[64];
+        private double[] prices = new double[64];
+        private int head;
+        private int size;
+
+        private MonotonicDeque(final boolean decreasing) {
+            this.decreasing = decreasing;
+        }
+
+        private void add(final long time, final double price, final long oldest) {
+            while (this.size > 0 && this.times[this.head] <= oldest) {
+                this.head = (this.head + 1) & (this.times.length - 1);
+                this.size--;
+            }
+            while (this.size > 0 && this.isDominated(this.prices[this.index(this.size - 1)], price)) {
+                this.size--;
+            }
+            if (this.size == this.times.length) {
+                this.grow();
+            }
+            final int tail = this.index(this.size);
+            this.times[tail] = time;
+            this.prices[tail] = price;
+            this.size++;
+        }
+
+        private boolean isDominated(final double previous, final double price) {
+            return this.decreasing ? previous <= price : previous >= price;
+        }
+
+        private double first() {
+            return this.prices[this.head];
+        }
+
+        private int index(final int i) {
+            return (this.head + i) & (this.times.length - 1);
+        }
+
+        private void grow() {
+            final long[] newTimes = new long[this.times.length * 2];
+            final double[] newPrices = new double[this.prices.length * 2];
+            for (int i = 0; i < this.size; i++) {
+                newTimes[i] = this.times[this.index(i)];
+                newPrices[i] = this.prices[this.index(i)];
+            }
+            this.times = newTimes;
+            this.prices = newPrices;
+            this.head = 0;
+        }
+    }
+}
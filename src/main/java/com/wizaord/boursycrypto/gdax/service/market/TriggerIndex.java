@@ -0,0 +1,224 @@
+package com.wizaord.boursycrypto.gdax.service.market;
+
+import com.wizaord.boursycrypto.gdax.domain.E_TriggerSide;
+
+import java.util.Arrays;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Index of price levels with their callbacks (take profit, alerts...).
+ * The ABOVE levels are kept in a min-heap and the BELOW levels in a max-heap, as primitive arrays : on each price
+ * only the nearest level of each side is compared, so a price which crosses nothing costs O(1) whatever the number
+ * of levels. A crossed level is removed and its callback called once, in O(log n).
+ * A canceled trigger stays in its heap until it reaches the top or until the canceled triggers are the majority,
+ * then the heap is rebuilt.
+ * Not thread safe : the index is used by the thread of the product shard.
+ */
+public class TriggerIndex {
+
+    private final LevelHeap above = new LevelHeap(true);
+    private final LevelHeap below = new LevelHeap(false);
+
+    /**
+     * Register a level
+     * @param level
+     * @param side
+     * @param callback called with the crossing price
+     * @return the trigger, to cancel it
+     */
+    public Trigger register(final double level, final E_TriggerSide side, final DoubleConsumer callback) {
+        final LevelHeap heap = (side == E_TriggerSide.ABOVE) ? this.above : this.below;
+        final Trigger trigger = new Trigger(heap, level, side, callback);
+        heap.push(trigger);
+        return trigger;
+    }
+
+    /**
+     * Fire the triggers crossed by the price.
+     * A callback may register new triggers : if they are already crossed, they are fired by the same call.
+     * @param price
+     * @return the number of triggers fired
+     */
+    public int onPrice(final double price) {
+        int fired = 0;
+        while (this.above.size > 0 && this.above.levels[0] <= price) {
+            fired += this.above.poll().fire(price);
+        }
+        while (this.below.size > 0 && this.below.levels[0] >= price) {
+            fired += this.below.poll().fire(price);
+        }
+        return fired;
+    }
+
+    /**
+     * @return the number of registered triggers, not fired nor canceled
+     */
+    public int size() {
+        return this.above.size - this.above.canceled + this.below.size - this.below.canceled;
+    }
+
+    /**
+     * A registered level
+     */
+    public static final class Trigger {
+        private final LevelHeap heap;
+        private final double level;
+        private final E_TriggerSide side;
+        private final DoubleConsumer callback;
+        private boolean done;
+
+        private Trigger(final LevelHeap heap, final double level, final E_TriggerSide side, final DoubleConsumer callback) {
+            this.heap = heap;
+            this.level = level;
+            this.side = side;
+            this.callback = callback;
+        }
+
+        public double getLevel() {
+            return this.level;
+        }
+
+        public E_TriggerSide getSide() {
+            return this.side;
+        }
+
+        /**
+         * @return false once fired or canceled
+         */
+        public boolean isActive() {
+            return !this.done;
+        }
+
+        /**
+         * Remove the trigger from the index. No effect if it is already fired or canceled.
+         */
+        public void cancel() {
+            if (!this.done) {
+                this.done = true;
+                this.heap.canceled(this);
+            }
+        }
+
+        private int fire(final double price) {
+            if (this.done) {
+                return 0;
+            }
+            this.done = true;
+            this.callback.accept(price);
+            return 1;
+        }
+    }
+
+    /**
+     * Binary heap of the levels of one side. levels[0] is the nearest level : the lowest for a min-heap (ABOVE),
+     * the highest for a max-heap (BELOW).
+     */
+    private static final class LevelHeap {
+        private static final int MIN_PURGE = 64;
+
+        private final boolean minHeap;
+        private double[] levels = new double[16];
+        private Trigger[] triggers = new Trigger[16];
+        private int size;
+        private int canceled;
+
+        private LevelHeap(final boolean minHeap) {
+            this.minHeap = minHeap;
+        }
+
+        private void push(final Trigger trigger) {
+            if (this.size == this.levels.length) {
+                this.levels = Arrays.copyOf(this.levels, this.size * 2);
+                this.triggers = Arrays.copyOf(this.triggers, this.size * 2);
+            }
+            this.levels[this.size] = trigger.level;
+            this.triggers[this.size] = trigger;
+            this.siftUp(this.size++);
+        }
+
+        private Trigger poll() {
+            final Trigger top = this.triggers[0];
+            this.size--;
+            this.levels[0] = this.levels[this.size];
+            this.triggers[0] = this.triggers[this.size];
+            this.triggers[this.size] = null;
+            if (this.size > 0) {
+                this.siftDown(0);
+            }
+            if (top.done) {
+                this.canceled--;
+            }
+            return top;
+        }
+
+        private void canceled(final Trigger trigger) {
+            this.canceled++;
+            if (this.canceled >= MIN_PURGE && this.canceled * 2 > this.size) {
+                this.purge();
+            }
+        }
+
+        /**
+         * Remove the canceled triggers and rebuild the heap, in O(n)
+         */
+        private void purge() {
+            int kept = 0;
+            for (int i = 0; i < this.size; i++) {
+                if (!this.triggers[i].done) {
+                    this.levels[kept] = this.levels[i];
+                    this.triggers[kept++] = this.triggers[i];
+                }
+            }
+            Arrays.fill(this.triggers, kept, this.size, null);
+            this.size = kept;
+            this.canceled = 0;
+            for (int i = (this.size >>> 1) - 1; i >= 0; i--) {
+                this.siftDown(i);
+            }
+        }
+
+        /**
+         * @return true if the level a must be nearer the top than the level b
+         */
+        private boolean before(final double a, final double b) {
+            return this.minHeap ? a < b : a > b;
+        }
+
+        private void siftUp(int index) {
+            final double level = this.levels[index];
+            final Trigger trigger = this.triggers[index];
+            while (index > 0) {
+                final int parent = (index - 1) >>> 1;
+                if (!this.before(level, this.levels[parent])) {
+                    break;
+                }
+                this.levels[index] = this.levels[parent];
+                this.triggers[index] = this.triggers[parent];
+                index = parent;
+            }
+            this.levels[index] = level;
+            this.triggers[index] = trigger;
+        }
+
+        private void siftDown(int index) {
+            final double level = this.levels[index];
+            final Trigger trigger = this.triggers[index];
+            final int half = this.size >>> 1;
+            while (index < half) {
+                int child = (index << 1) + 1;
+                final int right = child + 1;
+                if (right < this.size && this.before(this.levels[right], this.levels[child])) {
+                    child = right;
+                }
+                if (!this.before(this.levels[child], level)) {
+                    break;
+                }
+                this.levels[index] = this.levels[child];
+                this.triggers[index] = this.triggers[child];
+                index = child;
+            }
+            this.levels[index] = level;
+            this.triggers[index] = trigger;
+        }
+    }
+}
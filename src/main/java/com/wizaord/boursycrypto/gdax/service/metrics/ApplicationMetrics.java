@@ -0,0 +1,66 @@
+package com.wizaord.boursycrypto.gdax.service.metrics;
+
+import com.wizaord.boursycrypto.gdax.domain.E_TradingMode;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.E_FeedMessage;
+import com.wizaord.boursycrypto.gdax.service.MessageDispatcherService;
+import com.wizaord.boursycrypto.gdax.service.TendanceService;
+import com.wizaord.boursycrypto.gdax.service.notify.SlackService;
+import com.wizaord.boursycrypto.gdax.service.trade.TradingMode;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Application metrics exported by the actuator (/actuator/prometheus on the server port).
+ * They are all gauges or function counters reading values maintained by the services : nothing is allocated
+ * on the feed path, the values are only read when the metrics are scraped.
+ */
+@Component
+public class ApplicationMetrics implements MeterBinder {
+
+    @Autowired
+    private MessageDispatcherService messageDispatcherService;
+    @Autowired
+    private TendanceService tendanceService;
+    @Autowired
+    private SlackService slackService;
+    @Autowired
+    private TradingMode tradingMode;
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        for (E_FeedMessage type : E_FeedMessage.values()) {
+            FunctionCounter.builder("gdax.feed.messages", this.messageDispatcherService, dispatcher -> dispatcher.getReceivedMessages(type))
+                    .tag("type", type.feedTypeName)
+                    .description("feed messages received, by type")
+                    .register(registry);
+        }
+        FunctionCounter.builder("gdax.feed.messages", this.messageDispatcherService, MessageDispatcherService::getUnknownMessages)
+                .tag("type", "unknown")
+                .register(registry);
+        Gauge.builder("gdax.feed.dispatch.inflight", this.messageDispatcherService, MessageDispatcherService::getDispatchInFlight)
+                .description("feed messages being decoded or dispatched")
+                .register(registry);
+
+        Gauge.builder("tendance.tickers.pending", this.tendanceService, TendanceService::getPendingTickerCount)
+                .description("tickers waiting for the next historic compute")
+                .register(registry);
+        Gauge.builder("tendance.historized.tics", this.tendanceService, TendanceService::getHistorizedTicCount)
+                .description("historized tics kept in memory")
+                .register(registry);
+
+        Gauge.builder("notify.queue.size", this.slackService, SlackService::getQueueSize)
+                .description("notifications waiting to be delivered")
+                .register(registry);
+
+        for (E_TradingMode mode : E_TradingMode.values()) {
+            Gauge.builder("trading.mode", this.tradingMode, current -> current.getTraderMode() == mode ? 1 : 0)
+                    .tag("mode", mode.name())
+                    .description("1 for the current trading mode")
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.wizaord.boursycrypto.gdax.service.metrics;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.domain.E_SchedulerLane;
+import com.wizaord.boursycrypto.gdax.service.gdax.ExchangeClockService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One-way latency of the feed : local arrival time, converted in the GDAX clock, minus the exchange timestamp
+ * of the message (ticker and match time).
+ * The lag of the last message and the time elapsed since its arrival are used to detect stale data : a feed which
+ * stalls completely is lagging too. The distribution is kept in an HdrHistogram.
+ */
+@Service
+public class FeedLagMonitor implements MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FeedLagMonitor.class);
+    private static final long HIGHEST_TRACKABLE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    @Autowired
+    private ExchangeClockService exchangeClockService;
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_MILLIS, 3);
+    private final Histogram cumulative = new Histogram(HIGHEST_TRACKABLE_MILLIS, 3);
+    private Histogram interval;
+    private volatile long lastLagMillis;
+    // local time of the last message, 0 before the first one
+    private volatile long lastArrivalMillis;
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("gdax.feed.lag", this, FeedLagMonitor::getLastLagMillis)
+                .description("lag of the last feed message, in milliseconds")
+                .register(registry);
+        Gauge.builder("gdax.clock.offset", this.exchangeClockService, ExchangeClockService::getOffsetMillis)
+                .description("GDAX clock minus the local clock, in milliseconds")
+                .register(registry);
+    }
+
+    /**
+     * Record the lag of a message received now
+     * @param exchangeTime the time set by GDAX in the message
+     */
+    public void record(final Date exchangeTime) {
+        if (exchangeTime == null) {
+            return;
+        }
+        final long arrival = this.currentTimeMillis();
+        final long lag = arrival + this.exchangeClockService.getOffsetMillis() - exchangeTime.getTime();
+        this.lastLagMillis = lag;
+        this.lastArrivalMillis = arrival;
+        // a negative lag is a residual clock offset error
+        this.recorder.recordValue(Math.min(Math.max(lag, 0), HIGHEST_TRACKABLE_MILLIS));
+    }
+
+    /**
+     * @return the lag of the last message, in milliseconds
+     */
+    public long getLastLagMillis() {
+        return this.lastLagMillis;
+    }
+
+    /**
+     * @return the lag of the feed, in milliseconds : the lag of the last message, or the time elapsed since its
+     * arrival if no message has been received for longer
+     */
+    public long getFeedLagMillis() {
+        final long lastArrival = this.lastArrivalMillis;
+        final long silence = (lastArrival == 0) ? 0 : this.currentTimeMillis() - lastArrival;
+        return Math.max(this.lastLagMillis, silence);
+    }
+
+    /**
+     * @return true if the lag of the last message, or the time elapsed since its arrival, is greater than
+     * application.trader.maxFeedLag
+     */
+    public boolean isLagging() {
+        final Integer maxFeedLag = this.applicationProperties.getTrader().getMaxFeedLag();
+        return maxFeedLag != null && maxFeedLag > 0 && this.getFeedLagMillis() > maxFeedLag;
+    }
+
+    /**
+     * overridden by the tests
+     */
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @RunOn(E_SchedulerLane.HOUSEKEEPING)
+    @Scheduled(fixedRate = 60000)
+    public synchronized void report() {
+        this.interval = this.recorder.getIntervalHistogram(this.interval);
+        this.cumulative.add(this.interval);
+        if (this.interval.getTotalCount() > 0) {
+            LOG.info("Feed lag - count {} - p50 {} ms - p90 {} ms - p99 {} ms - max {} ms - clock offset {} ms",
+                    this.interval.getTotalCount(),
+                    this.interval.getValueAtPercentile(50),
+                    this.interval.getValueAtPercentile(90),
+                    this.interval.getValueAtPercentile(99),
+                    this.interval.getMaxValue(),
+                    this.exchangeClockService.getOffsetMillis());
+        }
+    }
+
+    /**
+     * @return the percentiles (in milliseconds) of the feed lag since the start of the application
+     */
+    public synchronized Map<String, Object> getPercentiles() {
+        final Map<String, Object> values = new LinkedHashMap<>();
+        values.put("count", this.cumulative.getTotalCount());
+        values.put("p50", this.cumulative.getValueAtPercentile(50));
+        values.put("p90", this.cumulative.getValueAtPercentile(90));
+        values.put("p99", this.cumulative.getValueAtPercentile(99));
+        values.put("p99.9", this.cumulative.getValueAtPercentile(99.9));
+        values.put("max", this.cumulative.getMaxValue());
+        values.put("last", this.lastLagMillis);
+        values.put("clockOffset", this.exchangeClockService.getOffsetMillis());
+        return values;
+    }
+}
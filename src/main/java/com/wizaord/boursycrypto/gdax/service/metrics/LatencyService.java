@@ -0,0 +1,170 @@
+package com.wizaord.boursycrypto.gdax.service.metrics;
+
+import com.wizaord.boursycrypto.gdax.domain.E_LatencyStage;
+import com.wizaord.boursycrypto.gdax.domain.E_SchedulerLane;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tick-to-trade latency, per stage.
+ * The values are recorded in HdrHistogram {@link Recorder}s : recording is wait-free and does not allocate,
+ * so it can be done from the feed and trading threads. The periodic report swaps the recorders, logs the
+ * interval percentiles and accumulates them for the /latency endpoint.
+ * An unknown start time is {@link #UNKNOWN_NANOS} : System.nanoTime can be 0 or negative.
+ * The user channel event of an order may arrive before its REST acknowledgement : it is kept until the
+ * acknowledgement, so that the fast confirmations are recorded too.
+ */
+@Service
+public class LatencyService {
+
+    public static final long UNKNOWN_NANOS = Long.MIN_VALUE;
+
+    private static final Logger LOG = LoggerFactory.getLogger(LatencyService.class);
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final long CONFIRMATION_TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private final Map<E_LatencyStage, Recorder> recorders = new EnumMap<>(E_LatencyStage.class);
+    private final Map<E_LatencyStage, Histogram> intervalHistograms = new EnumMap<>(E_LatencyStage.class);
+    private final Map<E_LatencyStage, Histogram> cumulativeHistograms = new EnumMap<>(E_LatencyStage.class);
+    // order id : tick and acknowledgement times of the orders waiting for their confirmation
+    private final Map<String, long[]> pendingConfirmations = new HashMap<>();
+    // order id : reception time of the confirmations received before the acknowledgement
+    private final Map<String, Long> earlyConfirmations = new HashMap<>();
+    private final Object confirmationLock = new Object();
+
+    public LatencyService() {
+        for (E_LatencyStage stage : E_LatencyStage.values()) {
+            this.recorders.put(stage, new Recorder(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS));
+            this.cumulativeHistograms.put(stage, new Histogram(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS));
+        }
+    }
+
+    /**
+     * Record the duration of a stage
+     * @param stage
+     * @param durationNanos
+     */
+    public void record(final E_LatencyStage stage, final long durationNanos) {
+        if (durationNanos < 0) {
+            return;
+        }
+        this.recorders.get(stage).recordValue(Math.min(durationNanos, HIGHEST_TRACKABLE_NANOS));
+    }
+
+    /**
+     * Record the duration of a stage which began at startNanos (System.nanoTime) and ends now
+     * @param stage
+     * @param startNanos UNKNOWN_NANOS if unknown : nothing is recorded
+     */
+    public void recordSince(final E_LatencyStage stage, final long startNanos) {
+        if (startNanos != UNKNOWN_NANOS) {
+            this.record(stage, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * An order has been acknowledged by the REST API. Its confirmation by the user channel is expected.
+     * @param orderId
+     * @param tickNanos reception time of the tick at the origin of the order, UNKNOWN_NANOS if unknown
+     * @param ackNanos REST acknowledgement time
+     */
+    public void expectConfirmation(final String orderId, final long tickNanos, final long ackNanos) {
+        final Long receivedNanos;
+        synchronized (this.confirmationLock) {
+            receivedNanos = this.earlyConfirmations.remove(orderId);
+            if (receivedNanos == null) {
+                this.pendingConfirmations.put(orderId, new long[]{tickNanos, ackNanos});
+                return;
+            }
+        }
+        this.recordConfirmation(tickNanos, ackNanos, receivedNanos);
+    }
+
+    /**
+     * A user channel event has been received for an order
+     * @param orderId
+     * @param receivedNanos reception time of the event
+     */
+    public void confirm(final String orderId, final long receivedNanos) {
+        if (orderId == null || receivedNanos == UNKNOWN_NANOS) {
+            return;
+        }
+        final long[] pending;
+        synchronized (this.confirmationLock) {
+            pending = this.pendingConfirmations.remove(orderId);
+            if (pending == null) {
+                // the acknowledgement is not received yet : only the first event of the order is kept
+                this.earlyConfirmations.putIfAbsent(orderId, receivedNanos);
+                return;
+            }
+        }
+        this.recordConfirmation(pending[0], pending[1], receivedNanos);
+    }
+
+    private void recordConfirmation(final long tickNanos, final long ackNanos, final long receivedNanos) {
+        // a confirmation received before the acknowledgement counts as immediate
+        this.record(E_LatencyStage.ACK_TO_CONFIRM, Math.max(0, receivedNanos - ackNanos));
+        if (tickNanos != UNKNOWN_NANOS) {
+            this.record(E_LatencyStage.TICK_TO_CONFIRM, receivedNanos - tickNanos);
+        }
+    }
+
+    @RunOn(E_SchedulerLane.HOUSEKEEPING)
+    @Scheduled(fixedRate = 60000)
+    public synchronized void report() {
+        final long now = System.nanoTime();
+        synchronized (this.confirmationLock) {
+            this.pendingConfirmations.values().removeIf(pending -> now - pending[1] > CONFIRMATION_TIMEOUT_NANOS);
+            // the events of the orders which are not followed (or already confirmed) are dropped too
+            this.earlyConfirmations.values().removeIf(receivedNanos -> now - receivedNanos > CONFIRMATION_TIMEOUT_NANOS);
+        }
+
+        for (E_LatencyStage stage : E_LatencyStage.values()) {
+            final Histogram interval = this.recorders.get(stage).getIntervalHistogram(this.intervalHistograms.get(stage));
+            this.intervalHistograms.put(stage, interval);
+            this.cumulativeHistograms.get(stage).add(interval);
+            if (interval.getTotalCount() > 0) {
+                LOG.info("Latency {} - count {} - p50 {} us - p90 {} us - p99 {} us - p99.9 {} us - max {} us", stage,
+                        interval.getTotalCount(),
+                        toMicros(interval.getValueAtPercentile(50)),
+                        toMicros(interval.getValueAtPercentile(90)),
+                        toMicros(interval.getValueAtPercentile(99)),
+                        toMicros(interval.getValueAtPercentile(99.9)),
+                        toMicros(interval.getMaxValue()));
+            }
+        }
+    }
+
+    /**
+     * @return the percentiles (in microseconds) of every stage since the start of the application
+     */
+    public synchronized Map<String, Map<String, Object>> getPercentiles() {
+        final Map<String, Map<String, Object>> percentiles = new LinkedHashMap<>();
+        this.cumulativeHistograms.forEach((stage, histogram) -> {
+            final Map<String, Object> values = new LinkedHashMap<>();
+            values.put("count", histogram.getTotalCount());
+            values.put("p50", toMicros(histogram.getValueAtPercentile(50)));
+            values.put("p90", toMicros(histogram.getValueAtPercentile(90)));
+            values.put("p99", toMicros(histogram.getValueAtPercentile(99)));
+            values.put("p99.9", toMicros(histogram.getValueAtPercentile(99.9)));
+            values.put("max", toMicros(histogram.getMaxValue()));
+            percentiles.put(stage.name(), values);
+        });
+        return percentiles;
+    }
+
+    private static long toMicros(final long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
@@ -0,0 +1,241 @@
+package com.wizaord.boursycrypto.gdax.service.metrics;
+
+import com.wizaord.boursycrypto.gdax.config.properties.SchedulerLane;
+import com.wizaord.boursycrypto.gdax.config.properties.Schedulers;
+import com.wizaord.boursycrypto.gdax.domain.E_SchedulerLane;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.support.ScheduledMethodRunnable;
+
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduler of a lane ({@link E_SchedulerLane}) which measures, for each @Scheduled method (tagged with the thread
+ * name prefix of the scheduler and its lane) :
+ *  - scheduler.lag : how late the execution started compared to its planned start
+ *  - scheduler.duration : the execution time
+ * and for the scheduler :
+ *  - scheduler.ready : the tasks (feed messages, timeouts, due executions) waiting for a thread
+ * The planned start of a fixed rate task is the previous planned start + the rate, the one of a fixed delay task
+ * is the end of the previous execution + the delay.
+ * A @Scheduled method annotated with {@link RunOn} another lane is handed to the scheduler of that lane.
+ * The threads get the priority of the lane ; the cpu affinity hint is only logged with the thread names, the pinning
+ * is done outside of the JVM (taskset).
+ */
+public class MonitoredTaskScheduler extends ThreadPoolTaskScheduler implements MeterBinder {
+
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = LoggerFactory.getLogger(MonitoredTaskScheduler.class);
+    private static final int DEFAULT_HOUSEKEEPING_POOL_SIZE = 2;
+
+    private final Map<E_SchedulerLane, MonitoredTaskScheduler> lanes = new EnumMap<>(E_SchedulerLane.class);
+    private E_SchedulerLane lane = E_SchedulerLane.TRADING;
+    private String cpus;
+    private volatile MeterRegistry registry;
+
+    /**
+     * Scheduler of a lane. The MARKET_DATA and TRADING lanes have one thread : their state has a single writer.
+     * @param lane
+     * @param threadNamePrefix
+     * @param schedulers application.schedulers, may be null
+     * @return the scheduler, to be initialized
+     */
+    public static MonitoredTaskScheduler forLane(final E_SchedulerLane lane, final String threadNamePrefix, final Schedulers schedulers) {
+        SchedulerLane config = null;
+        if (schedulers != null) {
+            config = (lane == E_SchedulerLane.MARKET_DATA) ? schedulers.getMarketData()
+                    : (lane == E_SchedulerLane.TRADING) ? schedulers.getTrading() : schedulers.getHousekeeping();
+        }
+        final MonitoredTaskScheduler scheduler = new MonitoredTaskScheduler();
+        scheduler.lane = lane;
+        scheduler.setThreadNamePrefix(threadNamePrefix);
+        scheduler.setThreadPriority((config == null || config.getPriority() == null) ? lane.defaultPriority : config.getPriority());
+        scheduler.setPoolSize((lane != E_SchedulerLane.HOUSEKEEPING) ? 1
+                : (config == null || config.getPoolSize() == null) ? DEFAULT_HOUSEKEEPING_POOL_SIZE : config.getPoolSize());
+        scheduler.cpus = (config == null) ? null : config.getCpus();
+        return scheduler;
+    }
+
+    /**
+     * The @Scheduled methods of this lane are handed to the given scheduler
+     * @param otherLane
+     * @param scheduler
+     */
+    public void route(final E_SchedulerLane otherLane, final MonitoredTaskScheduler scheduler) {
+        this.lanes.put(otherLane, scheduler);
+    }
+
+    public E_SchedulerLane getLane() {
+        return this.lane;
+    }
+
+    /**
+     * Run a task on a thread of the scheduler and wait for its result : the state confined to the lane can be used
+     * from another thread (startup). Must not be called from a thread of the scheduler.
+     * @param task
+     * @return the result of the task
+     */
+    public <T> T call(final Callable<T> task) {
+        try {
+            return this.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the " + this.lane + " scheduler", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public Thread newThread(final Runnable runnable) {
+        final Thread thread = super.newThread(runnable);
+        if (this.cpus != null) {
+            LOG.info("Scheduler thread {} - lane {} - priority {} - cpu affinity hint {}", thread.getName(), this.lane, thread.getPriority(), this.cpus);
+        }
+        return thread;
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        this.registry = registry;
+        Gauge.builder("scheduler.ready", this, MonitoredTaskScheduler::getReadyTaskCount)
+                .tag("scheduler", getThreadNamePrefix())
+                .tag("lane", this.lane.name())
+                .description("tasks waiting for a thread of the scheduler")
+                .register(registry);
+    }
+
+    /**
+     * @return the tasks which should have started and are waiting for a thread
+     */
+    public int getReadyTaskCount() {
+        try {
+            return (int) getScheduledThreadPoolExecutor().getQueue().stream()
+                    .filter(task -> ((Delayed) task).getDelay(TimeUnit.NANOSECONDS) <= 0)
+                    .count();
+        } catch (IllegalStateException e) {
+            // not initialized
+            return 0;
+        }
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(final Runnable task, final Date startTime, final long period) {
+        final MonitoredTaskScheduler target = this.laneOf(task);
+        if (target != this) {
+            return target.scheduleAtFixedRate(task, startTime, period);
+        }
+        return super.scheduleAtFixedRate(new LagTrackingTask(task, period, startTime.getTime(), true), startTime, period);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(final Runnable task, final long period) {
+        final MonitoredTaskScheduler target = this.laneOf(task);
+        if (target != this) {
+            return target.scheduleAtFixedRate(task, period);
+        }
+        return super.scheduleAtFixedRate(new LagTrackingTask(task, period, System.currentTimeMillis(), true), period);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(final Runnable task, final Date startTime, final long delay) {
+        final MonitoredTaskScheduler target = this.laneOf(task);
+        if (target != this) {
+            return target.scheduleWithFixedDelay(task, startTime, delay);
+        }
+        return super.scheduleWithFixedDelay(new LagTrackingTask(task, delay, startTime.getTime(), false), startTime, delay);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(final Runnable task, final long delay) {
+        final MonitoredTaskScheduler target = this.laneOf(task);
+        if (target != this) {
+            return target.scheduleWithFixedDelay(task, delay);
+        }
+        return super.scheduleWithFixedDelay(new LagTrackingTask(task, delay, System.currentTimeMillis(), false), delay);
+    }
+
+    /**
+     * @return the scheduler of the lane of the @Scheduled method, this scheduler by default
+     */
+    private MonitoredTaskScheduler laneOf(final Runnable task) {
+        if (task instanceof ScheduledMethodRunnable) {
+            final RunOn runOn = ((ScheduledMethodRunnable) task).getMethod().getAnnotation(RunOn.class);
+            if (runOn != null && runOn.value() != this.lane) {
+                return this.lanes.getOrDefault(runOn.value(), this);
+            }
+        }
+        return this;
+    }
+
+    static String taskName(final Runnable task) {
+        if (task instanceof ScheduledMethodRunnable) {
+            final ScheduledMethodRunnable methodRunnable = (ScheduledMethodRunnable) task;
+            return methodRunnable.getMethod().getDeclaringClass().getSimpleName() + "." + methodRunnable.getMethod().getName();
+        }
+        return task.getClass().getSimpleName();
+    }
+
+    /**
+     * Periodic task wrapper. Its fields are only accessed by the thread running the task (executions never overlap).
+     */
+    private final class LagTrackingTask implements Runnable {
+        private final Runnable delegate;
+        private final String name;
+        private final long periodNanos;
+        private final boolean fixedRate;
+        private long plannedStartNanos;
+        private Timer lagTimer;
+        private Timer durationTimer;
+
+        private LagTrackingTask(final Runnable delegate, final long periodMillis, final long firstStartMillis, final boolean fixedRate) {
+            this.delegate = delegate;
+            this.name = taskName(delegate);
+            this.periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMillis);
+            this.fixedRate = fixedRate;
+            this.plannedStartNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, firstStartMillis - System.currentTimeMillis()));
+        }
+
+        @Override
+        public void run() {
+            final long start = System.nanoTime();
+            try {
+                this.delegate.run();
+            } finally {
+                final long end = System.nanoTime();
+                this.record(start - this.plannedStartNanos, end - start);
+                this.plannedStartNanos = this.fixedRate ? this.plannedStartNanos + this.periodNanos : end + this.periodNanos;
+            }
+        }
+
+        private void record(final long lagNanos, final long durationNanos) {
+            if (this.lagTimer == null) {
+                final MeterRegistry meterRegistry = MonitoredTaskScheduler.this.registry;
+                if (meterRegistry == null) {
+                    return;
+                }
+                this.lagTimer = Timer.builder("scheduler.lag").tag("task", this.name).tag("scheduler", getThreadNamePrefix())
+                        .tag("lane", MonitoredTaskScheduler.this.lane.name()).register(meterRegistry);
+                this.durationTimer = Timer.builder("scheduler.duration").tag("task", this.name).tag("scheduler", getThreadNamePrefix())
+                        .tag("lane", MonitoredTaskScheduler.this.lane.name()).register(meterRegistry);
+            }
+            this.lagTimer.record(Math.max(0, lagNanos), TimeUnit.NANOSECONDS);
+            this.durationTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.wizaord.boursycrypto.gdax.service.metrics;
+
+import com.wizaord.boursycrypto.gdax.domain.E_SchedulerLane;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Lane of a @Scheduled method. The methods without it run on the TRADING lane (the thread of their product shard).
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RunOn {
+
+    E_SchedulerLane value();
+}
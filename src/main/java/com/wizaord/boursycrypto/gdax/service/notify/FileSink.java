@@ -0,0 +1,41 @@
+package com.wizaord.boursycrypto.gdax.service.notify;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.domain.notify.Notification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Collections;
+
+/**
+ * Append the notifications to the configured file, one line per notification.
+ */
+@Component
+public class FileSink implements NotificationSink {
+
+  @Autowired
+  private ApplicationProperties appProp;
+
+  @Override
+  public String getName() {
+    return "file";
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return this.appProp.getNotify() != null && this.appProp.getNotify().getFilePath() != null;
+  }
+
+  @Override
+  public synchronized void deliver(final String recipient, final String text, final Notification notification) throws IOException {
+    final String line = LocalDateTime.now() + " " + notification.getPriority() + " [" + recipient + "] " + notification.getProductType() + " - " + text;
+    Files.write(Paths.get(this.appProp.getNotify().getFilePath()), Collections.singletonList(line), StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+  }
+}
@@ -0,0 +1,108 @@
+package com.wizaord.boursycrypto.gdax.service.notify;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.config.properties.Notify;
+import com.wizaord.boursycrypto.gdax.domain.E_SchedulerLane;
+import com.wizaord.boursycrypto.gdax.domain.notify.Notification;
+import com.wizaord.boursycrypto.gdax.service.metrics.RunOn;
+import com.wizaord.boursycrypto.gdax.service.timer.WheelTimer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fan-out of the notifications to every enabled {@link NotificationSink}.
+ * Publishing never blocks : each sink has its own bounded queue, workers and retry queue.
+ */
+@Service
+public class NotificationDispatcher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(NotificationDispatcher.class);
+  private static final int DEFAULT_QUEUE_CAPACITY = 100;
+  private static final int DEFAULT_COALESCE_WINDOW = 2000;
+  private static final int DEFAULT_WORKERS = 4;
+  private static final int DEFAULT_MAX_RETRIES = 3;
+
+  @Autowired
+  private ApplicationProperties appProp;
+  @Autowired
+  private List<NotificationSink> sinks;
+  @Autowired
+  private WheelTimer wheelTimer;
+
+  private final List<SinkQueue> sinkQueues = new ArrayList<>();
+  private long coalesceWindowNanos;
+
+  @PostConstruct
+  public void startSinks() {
+    final Notify notify = (this.appProp.getNotify() == null) ? new Notify() : this.appProp.getNotify();
+    final int capacity = valueOrDefault(notify.getQueueCapacity(), DEFAULT_QUEUE_CAPACITY);
+    final int workers = valueOrDefault(notify.getWorkers(), DEFAULT_WORKERS);
+    final int maxRetries = valueOrDefault(notify.getMaxRetries(), DEFAULT_MAX_RETRIES);
+    this.coalesceWindowNanos = TimeUnit.MILLISECONDS.toNanos(valueOrDefault(notify.getCoalesceWindow(), DEFAULT_COALESCE_WINDOW));
+
+    this.sinks.stream()
+            .filter(NotificationSink::isEnabled)
+            .forEach(sink -> {
+              final SinkQueue sinkQueue = new SinkQueue(sink, capacity, maxRetries, this.wheelTimer);
+              sinkQueue.start(workers);
+              this.sinkQueues.add(sinkQueue);
+              LOG.info("Notification sink {} started with {} workers", sink.getName(), workers);
+            });
+  }
+
+  @PreDestroy
+  public void stopSinks() {
+    this.sinkQueues.forEach(SinkQueue::stop);
+  }
+
+  /**
+   * Publish a notification to all the sinks. One delivery is created for each recipient of each sink.
+   * @param notification
+   */
+  public void publish(final Notification notification) {
+    final long notBeforeNanos = (notification.getCoalesceKey() == null) ? 0 : System.nanoTime() + this.coalesceWindowNanos;
+    for (SinkQueue sinkQueue : this.sinkQueues) {
+      for (String recipient : sinkQueue.getSink().getRecipients(notification)) {
+        sinkQueue.enqueue(new SinkDelivery(recipient, notification, notBeforeNanos));
+      }
+    }
+  }
+
+  /**
+   * @return the number of deliveries waiting in all the sinks
+   */
+  public int getQueueSize() {
+    return this.sinkQueues.stream().mapToInt(SinkQueue::getQueueSize).sum();
+  }
+
+  /**
+   * @return the names of the started sinks
+   */
+  public List<String> getSinkNames() {
+    final List<String> names = new ArrayList<>();
+    this.sinkQueues.forEach(sinkQueue -> names.add(sinkQueue.getSinkName()));
+    return Collections.unmodifiableList(names);
+  }
+
+  @RunOn(E_SchedulerLane.HOUSEKEEPING)
+  @Scheduled(fixedRate = 600000, initialDelay = 600000)
+  public void logSinkMetrics() {
+    this.sinkQueues.forEach(sinkQueue -> LOG.info("Notification sink {} - queue {} - delivered {} - failed {} - dropped {} - latency avg {} ms max {} ms",
+            sinkQueue.getSinkName(), sinkQueue.getQueueSize(), sinkQueue.getDelivered(), sinkQueue.getFailed(), sinkQueue.getDropped(),
+            Math.round(sinkQueue.getAverageLatencyMillis()), Math.round(sinkQueue.getMaxLatencyMillis())));
+  }
+
+  private static int valueOrDefault(final Integer value, final int defaultValue) {
+    return (value == null) ? defaultValue : value;
+  }
+}
@@ -0,0 +1,42 @@
+package com.wizaord.boursycrypto.gdax.service.notify;
+
+import com.wizaord.boursycrypto.gdax.domain.notify.Notification;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A destination of the notifications (Slack, webhook, file, ...).
+ * Each enabled sink gets its own queue, workers and retry policy in the {@link NotificationDispatcher},
+ * so a slow sink never delays the others.
+ */
+public interface NotificationSink {
+
+  /**
+   * @return the name of the sink, used for the worker threads and the metrics
+   */
+  String getName();
+
+  /**
+   * @return true if the sink is configured
+   */
+  boolean isEnabled();
+
+  /**
+   * One delivery is done for each recipient. The deliveries of a sink are sent concurrently.
+   * @param notification
+   * @return the recipients of the notification for this sink
+   */
+  default List<String> getRecipients(final Notification notification) {
+    return Collections.singletonList(String.join(",", notification.getChannels()));
+  }
+
+  /**
+   * Deliver the text to a recipient. Any exception triggers a retry.
+   * @param recipient
+   * @param text the text of the notification (the last one if the notification has been coalesced)
+   * @param notification
+   * @throws Exception
+   */
+  void deliver(String recipient, String text, Notification notification) throws Exception;
+}
@@ -0,0 +1,28 @@
+package com.wizaord.boursycrypto.gdax.service.notify;
+
+import com.wizaord.boursycrypto.gdax.domain.notify.Notification;
+
+/**
+ * A delivery of a notification to one recipient of a sink.
+ * The text of a coalesced delivery can be replaced until a worker picks it up.
+ */
+final class SinkDelivery {
+  final String recipient;
+  final Notification notification;
+  final String coalesceKey;
+  final long enqueuedNanos;
+  final long notBeforeNanos;
+  volatile String text;
+  int attempt;
+  // order of the delivery in the queue of its priority
+  long sequence;
+
+  SinkDelivery(final String recipient, final Notification notification, final long notBeforeNanos) {
+    this.recipient = recipient;
+    this.notification = notification;
+    this.text = notification.getText();
+    this.coalesceKey = (notification.getCoalesceKey() == null) ? null : notification.getCoalesceKey() + "@" + recipient;
+    this.enqueuedNanos = System.nanoTime();
+    this.notBeforeNanos = notBeforeNanos;
+  }
+}
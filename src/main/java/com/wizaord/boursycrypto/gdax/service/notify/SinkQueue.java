@@ -0,0 +1,229 @@
+package com.wizaord.boursycrypto.gdax.service.notify;
+
+import com.wizaord.boursycrypto.gdax.domain.E_NotificationPriority;
+import com.wizaord.boursycrypto.gdax.service.timer.WheelTimer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded queue, workers and retry queue of one {@link NotificationSink}.
+ *  - the deliveries are sent concurrently by the workers of the sink, the highest priority first (FIFO within a
+ *    priority) : a LOW delivery never delays a HIGH one
+ *  - a failed delivery goes in the retry queue with an exponential backoff
+ *  - LOW priority deliveries are dropped when the queue is under pressure (3/4 full) and evicted when it is full
+ *  - coalesced deliveries wait on the {@link WheelTimer} until the end of the coalesce window, then join the queue
+ *  - the retries wait on the {@link WheelTimer} too : the workers only block on the queue
+ */
+final class SinkQueue {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SinkQueue.class);
+  private static final long RETRY_BASE_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(1);
+  private static final long POLL_TIMEOUT_MILLIS = 100;
+  private static final Comparator<SinkDelivery> DELIVERY_ORDER = Comparator
+          .comparing((SinkDelivery delivery) -> delivery.notification.getPriority())
+          .thenComparingLong(delivery -> delivery.sequence);
+
+  private final NotificationSink sink;
+  private final BlockingQueue<SinkDelivery> queue;
+  private final WheelTimer wheelTimer;
+  private final AtomicInteger delayed = new AtomicInteger();
+  private final AtomicLong sequence = new AtomicLong();
+  private final ConcurrentMap<String, SinkDelivery> coalescedDeliveries = new ConcurrentHashMap<>();
+  private final int capacity;
+  private final int maxRetries;
+  private final List<Thread> workers = new ArrayList<>();
+
+  private final LongAdder delivered = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder totalLatencyNanos = new LongAdder();
+  private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+  SinkQueue(final NotificationSink sink, final int capacity, final int maxRetries, final WheelTimer wheelTimer) {
+    this.sink = sink;
+    // bounded by offer
+    this.queue = new PriorityBlockingQueue<>(capacity, DELIVERY_ORDER);
+    this.wheelTimer = wheelTimer;
+    this.capacity = capacity;
+    this.maxRetries = maxRetries;
+  }
+
+  void start(final int nbWorkers) {
+    for (int i = 0; i < nbWorkers; i++) {
+      final Thread worker = new Thread(this::processQueue, "notify-" + this.sink.getName() + "-" + i);
+      worker.setDaemon(true);
+      worker.start();
+      this.workers.add(worker);
+    }
+  }
+
+  void stop() {
+    this.workers.forEach(Thread::interrupt);
+  }
+
+  /**
+   * Add the delivery without blocking.
+   */
+  void enqueue(final SinkDelivery delivery) {
+    if (delivery.coalesceKey == null) {
+      this.offer(delivery);
+      return;
+    }
+    this.coalescedDeliveries.compute(delivery.coalesceKey, (key, pending) -> {
+      if (pending != null) {
+        pending.text = delivery.text;
+        return pending;
+      }
+      // coalesced deliveries are LOW priority : they are never evicted from inside this compute
+      return this.offerDelayed(delivery) ? delivery : null;
+    });
+  }
+
+  private boolean offerDelayed(final SinkDelivery delivery) {
+    if (this.isUnderPressure() || this.delayed.get() >= this.capacity) {
+      return this.drop(delivery);
+    }
+    this.delay(delivery, TimeUnit.NANOSECONDS.toMillis(delivery.notBeforeNanos - System.nanoTime()));
+    return true;
+  }
+
+  /**
+   * The delivery joins the queue in delayMillis. offer does not block : it runs on the timer thread.
+   */
+  private void delay(final SinkDelivery delivery, final long delayMillis) {
+    this.delayed.incrementAndGet();
+    this.wheelTimer.schedule(delayMillis, WheelTimer.TIMER_THREAD, "notify-" + this.sink.getName(), () -> {
+      this.delayed.decrementAndGet();
+      if (!this.offer(delivery) && delivery.coalesceKey != null && delivery.attempt == 0) {
+        this.coalescedDeliveries.remove(delivery.coalesceKey, delivery);
+      }
+    });
+  }
+
+  /**
+   * The producers (publishers and timer thread) are serialized : the workers only take deliveries, the capacity
+   * checked here can not be exceeded.
+   */
+  private synchronized boolean offer(final SinkDelivery delivery) {
+    final boolean isLow = delivery.notification.getPriority() == E_NotificationPriority.LOW;
+    if (isLow && this.isUnderPressure()) {
+      return this.drop(delivery);
+    }
+    if (this.queue.size() >= this.capacity && (isLow || !this.evictLowPriority())) {
+      return this.drop(delivery);
+    }
+    delivery.sequence = this.sequence.incrementAndGet();
+    return this.queue.offer(delivery);
+  }
+
+  private boolean isUnderPressure() {
+    return this.queue.size() * 4 > this.capacity * 3;
+  }
+
+  private boolean evictLowPriority() {
+    final Iterator<SinkDelivery> iterator = this.queue.iterator();
+    while (iterator.hasNext()) {
+      final SinkDelivery queued = iterator.next();
+      if (queued.notification.getPriority() == E_NotificationPriority.LOW) {
+        iterator.remove();
+        if (queued.coalesceKey != null && queued.attempt == 0) {
+          this.coalescedDeliveries.remove(queued.coalesceKey, queued);
+        }
+        this.dropped.increment();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean drop(final SinkDelivery delivery) {
+    this.dropped.increment();
+    LOG.warn("Notification queue {} full, message dropped : {}", this.sink.getName(), delivery.text);
+    return false;
+  }
+
+  private void processQueue() {
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        final SinkDelivery delivery = this.queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        if (delivery != null) {
+          this.send(delivery);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void send(final SinkDelivery delivery) {
+    if (delivery.coalesceKey != null && delivery.attempt == 0) {
+      // from now on, a new message with the same key creates a new delivery
+      this.coalescedDeliveries.remove(delivery.coalesceKey, delivery);
+    }
+    try {
+      this.sink.deliver(delivery.recipient, delivery.text, delivery.notification);
+      this.recordLatency(System.nanoTime() - delivery.enqueuedNanos);
+    } catch (Exception e) {
+      this.failed.increment();
+      if (delivery.attempt >= this.maxRetries) {
+        LOG.error("Unable to deliver notification to {} after {} attempts. Reason {}", this.sink.getName(), delivery.attempt + 1, e.getMessage());
+        return;
+      }
+      delivery.attempt++;
+      LOG.warn("Unable to deliver notification to {}, retry {} planned. Reason {}", this.sink.getName(), delivery.attempt, e.getMessage());
+      this.delay(delivery, RETRY_BASE_DELAY_MILLIS << (delivery.attempt - 1));
+    }
+  }
+
+  private void recordLatency(final long latencyNanos) {
+    this.delivered.increment();
+    this.totalLatencyNanos.add(latencyNanos);
+    this.maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+  }
+
+  NotificationSink getSink() {
+    return this.sink;
+  }
+
+  String getSinkName() {
+    return this.sink.getName();
+  }
+
+  int getQueueSize() {
+    return this.queue.size() + this.delayed.get();
+  }
+
+  long getDelivered() {
+    return this.delivered.sum();
+  }
+
+  long getFailed() {
+    return this.failed.sum();
+  }
+
+  long getDropped() {
+    return this.dropped.sum();
+  }
+
+  double getAverageLatencyMillis() {
+    final long count = this.delivered.sum();
+    return (count == 0) ? 0 : (this.totalLatencyNanos.sum() / (double) count) / 1_000_000D;
+  }
+
+  double getMaxLatencyMillis() {
+    return this.maxLatencyNanos.get() / 1_000_000D;
+  }
+}
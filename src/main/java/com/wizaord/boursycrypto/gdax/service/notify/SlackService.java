@@ -1,43 +1,75 @@
 package com.wizaord.boursycrypto.gdax.service.notify;
 
 import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.domain.E_NotificationPriority;
+import com.wizaord.boursycrypto.gdax.domain.notify.Notification;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+/**
+ * Entry point of the notifications.
+ * The messages are published to the {@link NotificationDispatcher} which sends them asynchronously to every
+ * enabled {@link NotificationSink} (Slack, webhook, file, local WebSocket). The trading path never waits for a sink.
+ * Each product shard has its own SlackService : the notifications carry the product which sent them.
+ */
 @Service
 public class SlackService {
 
   public static final Logger LOG = LoggerFactory.getLogger(SlackService.class);
 
-  private static final String SLACK_API = "https://slack.com/api/";
-  private static final String SLACK_ACTION = "chat.postMessage";
-
   @Autowired
   private ApplicationProperties appProp;
-
-
   @Autowired
-  private RestTemplate restTemplate;
+  private NotificationDispatcher notificationDispatcher;
 
   /**
    * Send a message to the configured Slack channel
    * @param message
    */
   public void postCustomMessage(final String message) {
-    this.sendMessage(message, this.appProp.getSlack().getPersonalAccountChannel());
+    this.postCustomMessage(message, E_NotificationPriority.NORMAL);
+  }
+
+  /**
+   * Send a message with the given priority to the configured Slack channel
+   * @param message
+   * @param priority
+   */
+  public void postCustomMessage(final String message, final E_NotificationPriority priority) {
+    this.publish(Notification.builder()
+            .text(message)
+            .channel(this.appProp.getSlack().getPersonalAccountChannel())
+            .priority(priority)
+            .build());
   }
 
   /**
-   * Send a message to the complete list of users
+   * Send a LOW priority message to the configured Slack channel.
+   * Messages sent with the same key within the coalesce window are merged : only the last one is posted.
+   * The key is scoped to the product : the messages of two products are never merged.
+   * @param coalesceKey
+   * @param message
+   */
+  public void postCoalescedMessage(final String coalesceKey, final String message) {
+    this.publish(Notification.builder()
+            .text(message)
+            .channel(this.appProp.getSlack().getPersonalAccountChannel())
+            .priority(E_NotificationPriority.LOW)
+            .coalesceKey(this.appProp.getProduct().getName() + ":" + coalesceKey)
+            .build());
+  }
+
+  /**
+   * Send a message to the complete list of users. The channels are delivered concurrently.
    * @param message
    */
   public void postListChannel(final String message) {
-      this.appProp.getSlack().getListChannel().forEach(x -> this.sendMessage(message, x));
+    this.publish(Notification.builder()
+            .text(message)
+            .channels(this.appProp.getSlack().getListChannel())
+            .build());
   }
 
   /**
@@ -46,18 +78,24 @@ public class SlackService {
    * @param channel
    */
   public void sendMessage(final String message, final String channel) {
-    LOG.debug("Sending message to slack : {}", message);
-    this.sendSlackMessage(SLACK_ACTION, channel , message);
+    this.publish(Notification.builder()
+            .text(message)
+            .channel(channel)
+            .build());
   }
 
-  private void sendSlackMessage(final String uri, final String channel, final String message) {
-    final String msgWithPrefixe = this.appProp.getProduct().getType() + " - " + message;
-    final String fullUri = uri + "?token=" + this.appProp.getSlack().getTokenId() + "&channel=" + channel + "&text=" + msgWithPrefixe + "&pretty=1";
-    LOG.debug("Call REST SLACK API : " + fullUri);
+  /**
+   * @return the number of messages waiting to be sent
+   */
+  public int getQueueSize() {
+    return this.notificationDispatcher.getQueueSize();
+  }
 
-    final ResponseEntity<String> stringResponseEntity = restTemplate.postForEntity(SlackService.SLACK_API + fullUri, null, String.class);
-    if (stringResponseEntity.getStatusCode() != HttpStatus.OK) {
-      LOG.error("Unable to post in Slack !!! Reason {}", stringResponseEntity.getBody());
-    }
+  private void publish(final Notification notification) {
+    LOG.debug("Publishing notification : {}", notification.getText());
+    this.notificationDispatcher.publish(notification.toBuilder()
+            .productName(this.appProp.getProduct().getName())
+            .productType(this.appProp.getProduct().getType())
+            .build());
   }
 }
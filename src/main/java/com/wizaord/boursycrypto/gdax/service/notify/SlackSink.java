@@ -0,0 +1,63 @@
+package com.wizaord.boursycrypto.gdax.service.notify;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.domain.notify.Notification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+
+/**
+ * Post the notifications in Slack. One delivery is done per channel.
+ */
+@Component
+public class SlackSink implements NotificationSink {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SlackSink.class);
+
+  private static final String SLACK_API = "https://slack.com/api/";
+  private static final String SLACK_ACTION = "chat.postMessage";
+
+  @Autowired
+  private ApplicationProperties appProp;
+  @Autowired
+  @Qualifier("notificationRestTemplate")
+  private RestTemplate restTemplate;
+
+  @Override
+  public String getName() {
+    return "slack";
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return this.appProp.getSlack() != null && this.appProp.getSlack().getTokenId() != null;
+  }
+
+  @Override
+  public List<String> getRecipients(final Notification notification) {
+    return notification.getChannels();
+  }
+
+  @Override
+  public void deliver(final String channel, final String text, final Notification notification) {
+    this.sendSlackMessage(SLACK_ACTION, channel, notification.getProductType() + " - " + text);
+  }
+
+  private void sendSlackMessage(final String uri, final String channel, final String msgWithPrefixe) {
+    final String fullUri = uri + "?token=" + this.appProp.getSlack().getTokenId() + "&channel=" + channel + "&text=" + msgWithPrefixe + "&pretty=1";
+    LOG.debug("Call REST SLACK API : " + fullUri);
+
+    final ResponseEntity<String> stringResponseEntity = restTemplate.postForEntity(SlackSink.SLACK_API + fullUri, null, String.class);
+    if (stringResponseEntity.getStatusCode() != HttpStatus.OK) {
+      throw new RestClientException("Unable to post in Slack !!! Reason " + stringResponseEntity.getBody());
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package com.wizaord.boursycrypto.gdax.service.notify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.domain.notify.Notification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Broadcast the notifications to the clients connected on the local WebSocket endpoint (/notifications).
+ */
+@Component
+public class WebSocketSink extends TextWebSocketHandler implements NotificationSink {
+
+  private static final Logger LOG = LoggerFactory.getLogger(WebSocketSink.class);
+
+  @Autowired
+  private ApplicationProperties appProp;
+  @Autowired
+  private ObjectMapper jsonMapper;
+
+  private final Set<WebSocketSession> sessions = new CopyOnWriteArraySet<>();
+
+  @Override
+  public String getName() {
+    return "websocket";
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return this.appProp.getNotify() != null && Boolean.TRUE.equals(this.appProp.getNotify().getWebsocket());
+  }
+
+  /**
+   * Send the notification to every connected client. A client which can not receive it is disconnected : the
+   * delivery is not failed (and retried) for the others.
+   */
+  @Override
+  public void deliver(final String recipient, final String text, final Notification notification) throws IOException {
+    final Map<String, Object> payload = new LinkedHashMap<>();
+    payload.put("product", notification.getProductName());
+    payload.put("priority", notification.getPriority());
+    payload.put("text", text);
+    final TextMessage message = new TextMessage(this.jsonMapper.writeValueAsString(payload));
+    for (WebSocketSession session : this.sessions) {
+      if (!session.isOpen()) {
+        this.sessions.remove(session);
+        continue;
+      }
+      try {
+        // a WebSocket session does not support concurrent sends
+        synchronized (session) {
+          session.sendMessage(message);
+        }
+      } catch (IOException | RuntimeException e) {
+        LOG.warn("Unable to send the notification to {}, the client is disconnected : {}", session.getRemoteAddress(), e.getMessage());
+        this.disconnect(session);
+      }
+    }
+  }
+
+  private void disconnect(final WebSocketSession session) {
+    this.sessions.remove(session);
+    try {
+      session.close(CloseStatus.SERVER_ERROR);
+    } catch (IOException | RuntimeException e) {
+      LOG.debug("Unable to close the session {}", session.getId(), e);
+    }
+  }
+
+  @Override
+  public void afterConnectionEstablished(final WebSocketSession session) {
+    LOG.info("Notification client connected : {}", session.getRemoteAddress());
+    this.sessions.add(session);
+  }
+
+  @Override
+  public void afterConnectionClosed(final WebSocketSession session, final CloseStatus status) {
+    this.sessions.remove(session);
+  }
+}
@@ -0,0 +1,44 @@
+package com.wizaord.boursycrypto.gdax.service.notify;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.domain.notify.Notification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * POST the notifications as JSON to the configured webhook url.
+ */
+@Component
+public class WebhookSink implements NotificationSink {
+
+  @Autowired
+  private ApplicationProperties appProp;
+  @Autowired
+  @Qualifier("notificationRestTemplate")
+  private RestTemplate restTemplate;
+
+  @Override
+  public String getName() {
+    return "webhook";
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return this.appProp.getNotify() != null && this.appProp.getNotify().getWebhookUrl() != null;
+  }
+
+  @Override
+  public void deliver(final String recipient, final String text, final Notification notification) {
+    final Map<String, Object> payload = new LinkedHashMap<>();
+    payload.put("product", notification.getProductName());
+    payload.put("priority", notification.getPriority());
+    payload.put("channels", notification.getChannels());
+    payload.put("text", text);
+    this.restTemplate.postForEntity(this.appProp.getNotify().getWebhookUrl(), payload, String.class);
+  }
+}
@@ -0,0 +1,109 @@
+package com.wizaord.boursycrypto.gdax.service.shard;
+
+import com.wizaord.boursycrypto.gdax.domain.GenericFeedMessage;
+import com.wizaord.boursycrypto.gdax.service.AccountService;
+import com.wizaord.boursycrypto.gdax.service.MessageDispatcherService;
+import com.wizaord.boursycrypto.gdax.service.backfill.CandleBackfillService;
+import com.wizaord.boursycrypto.gdax.service.gdax.OrderService;
+import com.wizaord.boursycrypto.gdax.service.metrics.MonitoredTaskScheduler;
+import com.wizaord.boursycrypto.gdax.service.snapshot.SnapshotService;
+import com.wizaord.boursycrypto.gdax.service.trade.TradeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The trend, trading and order state of one product, with the thread processing its feed messages.
+ * The main product uses the beans of the application context, the other products the beans of a child context.
+ */
+public class ProductShard {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProductShard.class);
+
+    private final String productName;
+    private final ApplicationContext context;
+    private final MonitoredTaskScheduler executor;
+    private final MessageDispatcherService dispatcher;
+    private final AtomicInteger pendingMessages = new AtomicInteger();
+
+    ProductShard(final String productName, final ApplicationContext context, final MonitoredTaskScheduler executor) {
+        this.productName = productName;
+        this.context = context;
+        this.executor = executor;
+        this.dispatcher = context.getBean(MessageDispatcherService.class);
+    }
+
+    /**
+     * Queue a feed message on the shard thread
+     * @param message
+     * @param receivedNanos
+     */
+    void dispatch(final String message, final long receivedNanos) {
+        this.pendingMessages.incrementAndGet();
+        this.executor.execute(() -> {
+            this.pendingMessages.decrementAndGet();
+            try {
+                this.dispatcher.handleJsonMessage(message, receivedNanos);
+            } catch (RuntimeException e) {
+                LOG.error("Unable to handle the feed message of {}", this.productName, e);
+            }
+        });
+    }
+
+    /**
+     * Queue an already decoded feed message (IPC tick) on the shard thread
+     * @param message
+     */
+    public void dispatch(final GenericFeedMessage message) {
+        this.pendingMessages.incrementAndGet();
+        this.executor.execute(() -> {
+            this.pendingMessages.decrementAndGet();
+            try {
+                this.dispatcher.handleDecodedMessage(message);
+            } catch (RuntimeException e) {
+                LOG.error("Unable to handle the feed message of {}", this.productName, e);
+            }
+        });
+    }
+
+    public String getProductName() {
+        return this.productName;
+    }
+
+    public ApplicationContext getContext() {
+        return this.context;
+    }
+
+    MonitoredTaskScheduler getExecutor() {
+        return this.executor;
+    }
+
+    /**
+     * @return the number of feed messages waiting for the shard thread
+     */
+    public int getPendingMessages() {
+        return this.pendingMessages.get();
+    }
+
+    public AccountService getAccountService() {
+        return this.context.getBean(AccountService.class);
+    }
+
+    public OrderService getOrderService() {
+        return this.context.getBean(OrderService.class);
+    }
+
+    public TradeService getTradeService() {
+        return this.context.getBean(TradeService.class);
+    }
+
+    public SnapshotService getSnapshotService() {
+        return this.context.getBean(SnapshotService.class);
+    }
+
+    public CandleBackfillService getBackfillService() {
+        return this.context.getBean(CandleBackfillService.class);
+    }
+}
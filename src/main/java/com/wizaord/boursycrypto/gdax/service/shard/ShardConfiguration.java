@@ -0,0 +1,134 @@
+package com.wizaord.boursycrypto.gdax.service.shard;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.service.AccountService;
+import com.wizaord.boursycrypto.gdax.service.MessageDispatcherService;
+import com.wizaord.boursycrypto.gdax.service.TendanceService;
+import com.wizaord.boursycrypto.gdax.service.backfill.CandleBackfillService;
+import com.wizaord.boursycrypto.gdax.service.execution.ExecutionService;
+import com.wizaord.boursycrypto.gdax.service.gdax.OrderService;
+import com.wizaord.boursycrypto.gdax.service.gdax.PaperOrderService;
+import com.wizaord.boursycrypto.gdax.service.market.CrashDetectorService;
+import com.wizaord.boursycrypto.gdax.service.market.PriceTriggerService;
+import com.wizaord.boursycrypto.gdax.service.metrics.MonitoredTaskScheduler;
+import com.wizaord.boursycrypto.gdax.service.notify.SlackService;
+import com.wizaord.boursycrypto.gdax.service.snapshot.SnapshotService;
+import com.wizaord.boursycrypto.gdax.service.store.TimeSeriesService;
+import com.wizaord.boursycrypto.gdax.service.strategy.StrategyEngine;
+import com.wizaord.boursycrypto.gdax.service.timer.TimerService;
+import com.wizaord.boursycrypto.gdax.service.trade.TradeService;
+import com.wizaord.boursycrypto.gdax.service.trade.TradingMode;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Beans of a product shard, registered in a child context of the application context.
+ * They are @Primary so that they are injected instead of the beans of the main product ; the shared services
+ * (REST client, notification sinks, metrics...) come from the parent context.
+ * The @Scheduled methods of the shard, its timeouts and its feed messages run on the single thread of the shard scheduler.
+ *
+ * This class is not a @Configuration : it must not be found by the component scan of the main context.
+ */
+@EnableScheduling
+class ShardConfiguration {
+
+    @Bean
+    public MonitoredTaskScheduler taskScheduler(final ApplicationProperties applicationProperties,
+                                                @Qualifier("marketDataScheduler") final MonitoredTaskScheduler marketDataScheduler,
+                                                @Qualifier("housekeepingScheduler") final MonitoredTaskScheduler housekeepingScheduler) {
+        return ShardManager.newShardScheduler(applicationProperties.getProduct().getName(), applicationProperties.getSchedulers(),
+                marketDataScheduler, housekeepingScheduler);
+    }
+
+    @Bean
+    @Primary
+    public TradingMode tradingMode() {
+        return new TradingMode();
+    }
+
+    @Bean
+    @Primary
+    public TendanceService tendanceService() {
+        return new TendanceService();
+    }
+
+    @Bean
+    @Primary
+    public AccountService accountService() {
+        return new AccountService();
+    }
+
+    @Bean
+    @Primary
+    public OrderService orderService(final ApplicationProperties applicationProperties) {
+        return applicationProperties.isPaperTrading() ? new PaperOrderService() : new OrderService();
+    }
+
+    @Bean
+    @Primary
+    public TradeService tradeService() {
+        return new TradeService();
+    }
+
+    @Bean
+    @Primary
+    public StrategyEngine strategyEngine() {
+        return new StrategyEngine();
+    }
+
+    @Bean
+    @Primary
+    public CrashDetectorService crashDetectorService() {
+        return new CrashDetectorService();
+    }
+
+    @Bean
+    @Primary
+    public PriceTriggerService priceTriggerService() {
+        return new PriceTriggerService();
+    }
+
+    @Bean
+    @Primary
+    public SlackService slackService() {
+        return new SlackService();
+    }
+
+    @Bean
+    @Primary
+    public TimerService timerService() {
+        return new TimerService();
+    }
+
+    @Bean
+    @Primary
+    public ExecutionService executionService() {
+        return new ExecutionService();
+    }
+
+    @Bean
+    @Primary
+    public MessageDispatcherService messageDispatcherService() {
+        return new MessageDispatcherService();
+    }
+
+    @Bean
+    @Primary
+    public SnapshotService snapshotService() {
+        return new SnapshotService();
+    }
+
+    @Bean
+    @Primary
+    public CandleBackfillService candleBackfillService() {
+        return new CandleBackfillService();
+    }
+
+    @Bean
+    @Primary
+    public TimeSeriesService timeSeriesService() {
+        return new TimeSeriesService();
+    }
+}
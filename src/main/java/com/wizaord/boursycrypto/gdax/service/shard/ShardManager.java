@@ -0,0 +1,167 @@
+package com.wizaord.boursycrypto.gdax.service.shard;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.config.properties.Product;
+import com.wizaord.boursycrypto.gdax.config.properties.Schedulers;
+import com.wizaord.boursycrypto.gdax.domain.E_SchedulerLane;
+import com.wizaord.boursycrypto.gdax.service.metrics.MonitoredTaskScheduler;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Multi-product mode.
+ * The main product (application.product) and every product of application.products get their own
+ * {@link ProductShard}. The feed of all the products is received on one WebSocket and each message is routed,
+ * using its product_id, to the thread of its shard : the products are processed in parallel and the state of a
+ * shard is only accessed by its thread.
+ * The main shard runs on the application taskScheduler : its feed messages, its @Scheduled methods and its timeouts
+ * (doTrading, stop refresh...) share one thread, like in the child shards, so that the trading state has a single writer.
+ * The candle aggregation of all the shards runs on the market-data thread, the reports and reconciliations on the
+ * housekeeping threads ({@link E_SchedulerLane}).
+ */
+@Service
+public class ShardManager implements MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShardManager.class);
+    private static final String PRODUCT_ID_FIELD = "\"product_id\":\"";
+
+    @Autowired
+    private ApplicationContext applicationContext;
+    @Autowired
+    private ApplicationProperties applicationProperties;
+    @Autowired
+    private MonitoredTaskScheduler taskScheduler;
+
+    private final Map<String, ProductShard> shards = new LinkedHashMap<>();
+    private ProductShard mainShard;
+    private volatile MeterRegistry registry;
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Create the shards. The child contexts of the other products are started here.
+     */
+    public synchronized void startShards() {
+        final Product mainProduct = this.applicationProperties.getProduct();
+        this.mainShard = new ProductShard(mainProduct.getName(), this.applicationContext, this.taskScheduler);
+        this.addShard(this.mainShard);
+
+        for (Product product : this.applicationProperties.getProducts()) {
+            if (this.shards.containsKey(product.getName())) {
+                continue;
+            }
+            final AnnotationConfigApplicationContext shardContext = new AnnotationConfigApplicationContext();
+            shardContext.setParent(this.applicationContext);
+            shardContext.setDisplayName("shard-" + product.getName());
+            final ApplicationProperties shardProperties = this.applicationProperties.forProduct(product);
+            shardContext.registerBean("applicationProperties", ApplicationProperties.class, () -> shardProperties,
+                    definition -> definition.setPrimary(true));
+            shardContext.register(ShardConfiguration.class);
+            shardContext.refresh();
+            this.addShard(new ProductShard(product.getName(), shardContext, shardContext.getBean(MonitoredTaskScheduler.class)));
+        }
+        LOG.info("Product shards started : {}", this.shards.keySet());
+    }
+
+    private void addShard(final ProductShard shard) {
+        this.shards.put(shard.getProductName(), shard);
+        final MeterRegistry meterRegistry = this.registry;
+        if (meterRegistry != null) {
+            if (shard.getExecutor() != this.taskScheduler) {
+                // the application scheduler is already bound as a bean
+                shard.getExecutor().bindTo(meterRegistry);
+            }
+            Gauge.builder("gdax.feed.dispatch.queue", shard, ProductShard::getPendingMessages)
+                    .tag("product", shard.getProductName())
+                    .description("feed messages waiting for the shard thread")
+                    .register(meterRegistry);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stopShards() {
+        // the main shard runs on the application scheduler, which is shut down with the application context
+        this.shards.values().stream()
+                .filter(shard -> shard.getContext() instanceof AnnotationConfigApplicationContext)
+                .forEach(shard -> ((AnnotationConfigApplicationContext) shard.getContext()).close());
+        this.shards.clear();
+    }
+
+    /**
+     * Route a feed message to the shard of its product. The messages without product (subscriptions) go to the
+     * main shard.
+     * @param message
+     * @param receivedNanos
+     */
+    public void dispatch(final String message, final long receivedNanos) {
+        ProductShard shard = null;
+        final int start = message.indexOf(PRODUCT_ID_FIELD);
+        if (start >= 0) {
+            final int valueStart = start + PRODUCT_ID_FIELD.length();
+            final int valueEnd = message.indexOf('"', valueStart);
+            if (valueEnd > valueStart) {
+                shard = this.findShard(message, valueStart, valueEnd);
+            }
+        }
+        (shard == null ? this.mainShard : shard).dispatch(message, receivedNanos);
+    }
+
+    private ProductShard findShard(final String message, final int valueStart, final int valueEnd) {
+        final int length = valueEnd - valueStart;
+        for (ProductShard shard : this.shards.values()) {
+            final String name = shard.getProductName();
+            if (name.length() == length && message.regionMatches(valueStart, name, 0, length)) {
+                return shard;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the product names of all the shards, main product first
+     */
+    public List<String> getProductNames() {
+        return Collections.unmodifiableList(new ArrayList<>(this.shards.keySet()));
+    }
+
+    /**
+     * @return all the shards, main product first
+     */
+    public List<ProductShard> getShards() {
+        return Collections.unmodifiableList(new ArrayList<>(this.shards.values()));
+    }
+
+    /**
+     * Single threaded scheduler of a child shard (TRADING lane). Its MARKET_DATA and HOUSEKEEPING @Scheduled methods
+     * are handed to the schedulers of the application.
+     * @param productName
+     * @param schedulers application.schedulers
+     * @param marketDataScheduler
+     * @param housekeepingScheduler
+     * @return the scheduler, to be initialized
+     */
+    static MonitoredTaskScheduler newShardScheduler(final String productName, final Schedulers schedulers,
+                                                    final MonitoredTaskScheduler marketDataScheduler, final MonitoredTaskScheduler housekeepingScheduler) {
+        final MonitoredTaskScheduler scheduler = MonitoredTaskScheduler.forLane(E_SchedulerLane.TRADING, "shard-" + productName + "-", schedulers);
+        scheduler.route(E_SchedulerLane.MARKET_DATA, marketDataScheduler);
+        scheduler.route(E_SchedulerLane.HOUSEKEEPING, housekeepingScheduler);
+        return scheduler;
+    }
+}
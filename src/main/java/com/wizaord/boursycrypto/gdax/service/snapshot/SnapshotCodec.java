@@ -0,0 +1,218 @@
+package com.wizaord.boursycrypto.gdax.service.snapshot;
+
+import com.wizaord.boursycrypto.gdax.domain.E_TradingMode;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.OrderOpen;
+import com.wizaord.boursycrypto.gdax.domain.historic.HistorizedTic;
+import com.wizaord.boursycrypto.gdax.domain.historic.HistorizedTicSeries;
+import com.wizaord.boursycrypto.gdax.domain.snapshot.TradingSnapshot;
+import com.wizaord.boursycrypto.gdax.domain.trade.PositionLot;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+/**
+ * Binary layout of a {@link TradingSnapshot}.
+ *
+ * <pre>
+ *   header        : magic int, version int, writtenAt long, product string
+ *   trading mode  : ordinal byte
+ *   lots          : count int, then per lot : lot_id string, opened_at long, entry price, size, fee,
+ *                   take profit pourcent double, stop order
+ *   stop order    : present byte, time long, order_id string, price, remaining_size, side string
+ *   history       : count int, then per tic : generatedDate long (epoch second UTC), nbTic long,
+ *                   averagePrice, volumeEchange, minPrice, maxPrice doubles, nbBuy, nbSell long
+ * </pre>
+ * The strings are an int length followed by the UTF-8 bytes (-1 for null), the decimals are strings,
+ * the dates are epoch millis (Long.MIN_VALUE for null).
+ * Version 1 held a single position (last buy fill, then stop order) instead of the lots : it is read as one lot.
+ */
+final class SnapshotCodec {
+
+    static final int MAGIC = 0x42435354; // BCST
+    static final int VERSION = 2;
+    private static final int VERSION_SINGLE_POSITION = 1;
+
+    private SnapshotCodec() {
+    }
+
+    static ByteBuffer encode(final TradingSnapshot snapshot) {
+        final HistorizedTicSeries history = new HistorizedTicSeries(snapshot.getHistorizedTics().size());
+        history.addAll(snapshot.getHistorizedTics());
+        return encode(snapshot, history);
+    }
+
+    /**
+     * @param snapshot its historized tics are ignored
+     * @param history the history to save, copied record by record
+     */
+    static ByteBuffer encode(final TradingSnapshot snapshot, final HistorizedTicSeries history) {
+        final ByteBuffer buffer = ByteBuffer.allocate(estimateLength(snapshot, history));
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(snapshot.getWrittenAt());
+        putString(buffer, snapshot.getProductName());
+        buffer.put((byte) snapshot.getTradingMode().ordinal());
+
+        buffer.putInt(snapshot.getLots().size());
+        for (PositionLot lot : snapshot.getLots()) {
+            putString(buffer, lot.getLotId());
+            putDate(buffer, lot.getOpenedAt());
+            putDecimal(buffer, lot.getEntryPrice());
+            putDecimal(buffer, lot.getSize());
+            putDecimal(buffer, lot.getFee());
+            buffer.putDouble(lot.getTakeProfitPourcent());
+            putStopOrder(buffer, lot.getStopOrder());
+        }
+
+        // the records of the series have the layout of the snapshot history
+        buffer.putInt(history.size());
+        history.writeTo(buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * @param buffer positioned at the beginning of the snapshot
+     * @return the snapshot
+     * @throws IllegalArgumentException if the buffer is not a snapshot of this version
+     */
+    static TradingSnapshot decode(final ByteBuffer buffer) {
+        if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a trading snapshot");
+        }
+        final int version = buffer.getInt();
+        if (version != VERSION && version != VERSION_SINGLE_POSITION) {
+            throw new IllegalArgumentException("Unsupported snapshot version " + version);
+        }
+        final TradingSnapshot.TradingSnapshotBuilder snapshot = TradingSnapshot.builder()
+                .writtenAt(buffer.getLong())
+                .productName(getString(buffer))
+                .tradingMode(E_TradingMode.values()[buffer.get()]);
+
+        if (version == VERSION_SINGLE_POSITION) {
+            decodeSinglePosition(buffer, snapshot);
+        } else {
+            final int nbLots = buffer.getInt();
+            for (int i = 0; i < nbLots; i++) {
+                snapshot.lot(PositionLot.builder()
+                        .lotId(getString(buffer))
+                        .openedAt(getDate(buffer))
+                        .entryPrice(getDecimal(buffer))
+                        .size(getDecimal(buffer))
+                        .fee(getDecimal(buffer))
+                        .takeProfitPourcent(buffer.getDouble())
+                        .stopOrder(getStopOrder(buffer))
+                        .build());
+            }
+        }
+
+        final int nbTics = buffer.getInt();
+        for (int i = 0; i < nbTics; i++) {
+            snapshot.historizedTic(HistorizedTic.builder()
+                    .generatedDate(LocalDateTime.ofEpochSecond(buffer.getLong(), 0, ZoneOffset.UTC))
+                    .nbTic(buffer.getLong())
+                    .averagePrice(buffer.getDouble())
+                    .volumeEchange(buffer.getDouble())
+                    .minPrice(buffer.getDouble())
+                    .maxPrice(buffer.getDouble())
+                    .nbBuy(buffer.getLong())
+                    .nbSell(buffer.getLong())
+                    .build());
+        }
+        return snapshot.build();
+    }
+
+    /**
+     * Version 1 : the last buy fill and the stop order become one lot
+     */
+    private static void decodeSinglePosition(final ByteBuffer buffer, final TradingSnapshot.TradingSnapshotBuilder snapshot) {
+        PositionLot.PositionLotBuilder lot = null;
+        if (buffer.get() == 1) {
+            final Date createdAt = getDate(buffer);
+            buffer.getLong(); // trade_id
+            lot = PositionLot.builder()
+                    .openedAt(createdAt)
+                    .lotId(getString(buffer))
+                    .entryPrice(getDecimal(buffer))
+                    .size(getDecimal(buffer))
+                    .fee(getDecimal(buffer));
+            getString(buffer); // side
+        }
+        final OrderOpen stopOrder = getStopOrder(buffer);
+        if (lot != null) {
+            snapshot.lot(lot.stopOrder(stopOrder).build());
+        }
+    }
+
+    private static void putStopOrder(final ByteBuffer buffer, final OrderOpen stopOrder) {
+        buffer.put((byte) (stopOrder == null ? 0 : 1));
+        if (stopOrder != null) {
+            putDate(buffer, stopOrder.getTime());
+            putString(buffer, stopOrder.getOrderId());
+            putDecimal(buffer, stopOrder.getPrice());
+            putDecimal(buffer, stopOrder.getRemainingSize());
+            putString(buffer, stopOrder.getSide());
+        }
+    }
+
+    private static OrderOpen getStopOrder(final ByteBuffer buffer) {
+        if (buffer.get() != 1) {
+            return null;
+        }
+        final OrderOpen stopOrder = new OrderOpen();
+        stopOrder.setType("open");
+        stopOrder.setTime(getDate(buffer));
+        stopOrder.setOrderId(getString(buffer));
+        stopOrder.setPrice(getDecimal(buffer));
+        stopOrder.setRemainingSize(getDecimal(buffer));
+        stopOrder.setSide(getString(buffer));
+        return stopOrder;
+    }
+
+    private static int estimateLength(final TradingSnapshot snapshot, final HistorizedTicSeries history) {
+        // the strings and decimals of the header, lots and stop orders are small : 1 KB per lot is enough for them
+        return 1024 * (1 + snapshot.getLots().size()) + history.size() * HistorizedTicSeries.RECORD_LENGTH;
+    }
+
+    private static void putString(final ByteBuffer buffer, final String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(final ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putDecimal(final ByteBuffer buffer, final BigDecimal value) {
+        putString(buffer, value == null ? null : value.toPlainString());
+    }
+
+    private static BigDecimal getDecimal(final ByteBuffer buffer) {
+        final String value = getString(buffer);
+        return value == null ? null : new BigDecimal(value);
+    }
+
+    private static void putDate(final ByteBuffer buffer, final Date value) {
+        buffer.putLong(value == null ? Long.MIN_VALUE : value.getTime());
+    }
+
+    private static Date getDate(final ByteBuffer buffer) {
+        final long value = buffer.getLong();
+        return value == Long.MIN_VALUE ? null : new Date(value);
+    }
+}
@@ -0,0 +1,157 @@
+package com.wizaord.boursycrypto.gdax.service.snapshot;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.config.properties.Snapshot;
+import com.wizaord.boursycrypto.gdax.domain.E_SchedulerLane;
+import com.wizaord.boursycrypto.gdax.domain.snapshot.TradingSnapshot;
+import com.wizaord.boursycrypto.gdax.domain.trade.TradingState;
+import com.wizaord.boursycrypto.gdax.service.TendanceService;
+import com.wizaord.boursycrypto.gdax.service.metrics.MonitoredTaskScheduler;
+import com.wizaord.boursycrypto.gdax.service.metrics.RunOn;
+import com.wizaord.boursycrypto.gdax.service.trade.TradeService;
+import com.wizaord.boursycrypto.gdax.service.trade.TradingMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * Periodic binary snapshot of the trader state of a product : the historized tics, the stop order, the last buy
+ * order and the trading mode. The file is written next to the current one then atomically renamed ; on restart
+ * it is memory-mapped and decoded, so that the trend history is available immediately.
+ */
+@Service
+public class SnapshotService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SnapshotService.class);
+    private static final String DEFAULT_DIRECTORY = "./snapshots";
+    private static final long DEFAULT_MAX_AGE = 3600000;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+    @Autowired
+    private TendanceService tendanceService;
+    @Autowired
+    private TradingMode tradingMode;
+    @Autowired
+    @Qualifier("marketDataScheduler")
+    private MonitoredTaskScheduler marketDataScheduler;
+
+    private volatile boolean restoreDone;
+
+    /**
+     * Save the state of the trader. It runs on the market-data thread, which writes the historized tics.
+     */
+    @RunOn(E_SchedulerLane.MARKET_DATA)
+    @Scheduled(fixedDelayString = "${application.snapshot.interval:60000}", initialDelayString = "${application.snapshot.interval:60000}")
+    public void writeSnapshot() {
+        // do not overwrite the snapshot of the previous run before it has been read
+        if (!this.isActivated() || !this.restoreDone) {
+            return;
+        }
+        final TradingState state = this.tradingMode.getState();
+        final TradingSnapshot snapshot = TradingSnapshot.builder()
+                .writtenAt(System.currentTimeMillis())
+                .productName(this.getProductName())
+                .tradingMode(state.getMode())
+                .lots(state.getPositions().getLots())
+                .build();
+
+        final Path file = this.snapshotFile().toPath();
+        final Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                final ByteBuffer buffer = SnapshotCodec.encode(snapshot, this.tendanceService.getHistorizedTicSeries());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOG.debug("Snapshot written {} - {} historized tics", file, this.tendanceService.getHistorizedTicCount());
+        } catch (IOException e) {
+            LOG.warn("Unable to write the snapshot {} : {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Read the snapshot of the previous run and restore the trend history.
+     * The trading state (stop order, last buy, mode) is returned to be reconciled by the {@link TradeService}.
+     * @return the snapshot if it exists, is valid and is not older than application.snapshot.maxAge
+     */
+    public Optional<TradingSnapshot> restore() {
+        try {
+            if (!this.isActivated()) {
+                return Optional.empty();
+            }
+            final Optional<TradingSnapshot> snapshot = this.readSnapshot();
+            snapshot.ifPresent(s -> {
+                // the history is owned by the market-data thread
+                this.marketDataScheduler.call(() -> {
+                    this.tendanceService.restoreHistorizedTics(s.getHistorizedTics());
+                    return null;
+                });
+                LOG.info("Snapshot of {} restored - {} historized tics - mode {}", s.getProductName(), s.getHistorizedTics().size(), s.getTradingMode());
+            });
+            return snapshot;
+        } finally {
+            this.restoreDone = true;
+        }
+    }
+
+    private Optional<TradingSnapshot> readSnapshot() {
+        final File file = this.snapshotFile();
+        if (!file.exists()) {
+            LOG.info("No snapshot {}", file);
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final TradingSnapshot snapshot = SnapshotCodec.decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            final long age = System.currentTimeMillis() - snapshot.getWrittenAt();
+            if (!this.getProductName().equals(snapshot.getProductName())) {
+                LOG.warn("Snapshot {} is for product {}, ignored", file, snapshot.getProductName());
+                return Optional.empty();
+            }
+            if (age > this.getMaxAge()) {
+                LOG.info("Snapshot {} is too old ({} s), ignored", file, age / 1000);
+                return Optional.empty();
+            }
+            return Optional.of(snapshot);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Unable to read the snapshot {} : {}", file, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private boolean isActivated() {
+        final Snapshot snapshot = this.applicationProperties.getSnapshot();
+        return snapshot != null && Boolean.TRUE.equals(snapshot.getActivate());
+    }
+
+    private long getMaxAge() {
+        final Integer maxAge = this.applicationProperties.getSnapshot().getMaxAge();
+        return (maxAge == null) ? DEFAULT_MAX_AGE : maxAge;
+    }
+
+    private String getProductName() {
+        return this.applicationProperties.getProduct().getName();
+    }
+
+    private File snapshotFile() {
+        final String directory = this.applicationProperties.getSnapshot().getDirectory();
+        return new File((directory == null || directory.isEmpty()) ? DEFAULT_DIRECTORY : directory, "state-" + this.getProductName() + ".snap");
+    }
+}
@@ -0,0 +1,207 @@
+package com.wizaord.boursycrypto.gdax.service.store;
+
+import org.agrona.IoUtil;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A fixed-size memory-mapped chunk of a time series.
+ * The chunk is columnar : the time and every value have their own region of (chunkSize - header) / nbColumns bytes.
+ * Each column is a sequence of zigzag varint deltas from the previous value of the column (the first value is a
+ * delta from 0). The chunk is full as soon as one of its columns cannot receive a maximum-length varint.
+ *
+ * Header (little endian, the count is accessed in the native order of the supported platforms which is the same) :
+ *  0  int   magic
+ *  4  int   version
+ *  8  int   number of columns (the time included)
+ *  12 int   number of records, written last (ordered) : a record is visible once it is counted
+ *  16 long  time of the first record
+ *  24 long  time of the last record
+ *
+ * There is a single writer per chunk ; readers decode the counted records directly from the mapped memory.
+ */
+final class ColumnChunk {
+
+    static final int MAGIC = 0x53544342; // BCTS
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    private static final int COUNT_OFFSET = 12;
+    private static final int FIRST_TIME_OFFSET = 16;
+    private static final int LAST_TIME_OFFSET = 24;
+    private static final int MAX_VARINT_LENGTH = 10;
+
+    private final File file;
+    private final MappedByteBuffer mappedBuffer;
+    private final UnsafeBuffer buffer;
+    private final int nbColumns;
+    private final int regionSize;
+
+    // writer state : write offset and last value of each column
+    private int[] offsets;
+    private long[] lastValues;
+
+    private ColumnChunk(final File file, final MappedByteBuffer mappedBuffer) {
+        this.file = file;
+        this.mappedBuffer = mappedBuffer;
+        this.buffer = new UnsafeBuffer(mappedBuffer);
+        if (this.buffer.getInt(0, ByteOrder.LITTLE_ENDIAN) != MAGIC || this.buffer.getInt(4, ByteOrder.LITTLE_ENDIAN) != VERSION) {
+            IoUtil.unmap(mappedBuffer);
+            throw new IllegalStateException("Not a time series chunk : " + file);
+        }
+        this.nbColumns = this.buffer.getInt(8, ByteOrder.LITTLE_ENDIAN);
+        this.regionSize = (this.buffer.capacity() - HEADER_SIZE) / this.nbColumns;
+    }
+
+    /**
+     * Create a new empty chunk
+     */
+    static ColumnChunk create(final File file, final int nbColumns, final int chunkSize) {
+        final MappedByteBuffer mappedBuffer = IoUtil.mapNewFile(file, chunkSize);
+        final UnsafeBuffer header = new UnsafeBuffer(mappedBuffer);
+        header.putInt(0, MAGIC, ByteOrder.LITTLE_ENDIAN);
+        header.putInt(4, VERSION, ByteOrder.LITTLE_ENDIAN);
+        header.putInt(8, nbColumns, ByteOrder.LITTLE_ENDIAN);
+        final ColumnChunk chunk = new ColumnChunk(file, mappedBuffer);
+        chunk.offsets = new int[nbColumns];
+        chunk.lastValues = new long[nbColumns];
+        return chunk;
+    }
+
+    /**
+     * Open an existing chunk to append records : the counted records are decoded to find the end of every column.
+     * The bytes written after the last counted record (interrupted append) are overwritten.
+     */
+    static ColumnChunk openForAppend(final File file) {
+        final ColumnChunk chunk = new ColumnChunk(file, IoUtil.mapExistingFile(file, "time series chunk"));
+        chunk.offsets = new int[chunk.nbColumns];
+        chunk.lastValues = new long[chunk.nbColumns];
+        final int count = chunk.getCount();
+        for (int i = 0; i < count; i++) {
+            chunk.readRecord(chunk.offsets, chunk.lastValues);
+        }
+        return chunk;
+    }
+
+    /**
+     * Open an existing chunk to read it
+     */
+    static ColumnChunk openReadOnly(final File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final ColumnChunk chunk = new ColumnChunk(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            return chunk;
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to map the chunk " + file, e);
+        }
+    }
+
+    /**
+     * Read the header of a chunk without mapping it
+     * @return { count, first time, last time }
+     */
+    static long[] readHeader(final File file) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // reading the whole header
+            }
+        }
+        if (header.position() < 32 || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("Not a time series chunk : " + file);
+        }
+        return new long[]{header.getInt(COUNT_OFFSET), header.getLong(FIRST_TIME_OFFSET), header.getLong(LAST_TIME_OFFSET)};
+    }
+
+    /**
+     * Append a record. Only one thread may append.
+     * @param time
+     * @param values one per column after the time
+     * @return false if the chunk is full
+     */
+    boolean append(final long time, final long[] values) {
+        for (int column = 0; column < this.nbColumns; column++) {
+            if (this.offsets[column] + MAX_VARINT_LENGTH > this.regionSize) {
+                return false;
+            }
+        }
+        this.writeColumn(0, time);
+        for (int column = 1; column < this.nbColumns; column++) {
+            this.writeColumn(column, values[column - 1]);
+        }
+        final int count = this.getCount();
+        if (count == 0) {
+            this.buffer.putLong(FIRST_TIME_OFFSET, time, ByteOrder.LITTLE_ENDIAN);
+        }
+        this.buffer.putLong(LAST_TIME_OFFSET, time, ByteOrder.LITTLE_ENDIAN);
+        this.buffer.putIntOrdered(COUNT_OFFSET, count + 1);
+        return true;
+    }
+
+    private void writeColumn(final int column, final long value) {
+        final long delta = value - this.lastValues[column];
+        long zigzag = (delta << 1) ^ (delta >> 63);
+        int index = HEADER_SIZE + column * this.regionSize + this.offsets[column];
+        while ((zigzag & ~0x7FL) != 0) {
+            this.buffer.putByte(index++, (byte) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        this.buffer.putByte(index++, (byte) zigzag);
+        this.offsets[column] = index - HEADER_SIZE - column * this.regionSize;
+        this.lastValues[column] = value;
+    }
+
+    /**
+     * Decode the next record of every column
+     * @param positions read offset of every column, advanced
+     * @param values previous value of every column, replaced by the decoded one
+     */
+    void readRecord(final int[] positions, final long[] values) {
+        for (int column = 0; column < this.nbColumns; column++) {
+            int index = HEADER_SIZE + column * this.regionSize + positions[column];
+            long zigzag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = this.buffer.getByte(index++);
+                zigzag |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            values[column] += (zigzag >>> 1) ^ -(zigzag & 1);
+            positions[column] = index - HEADER_SIZE - column * this.regionSize;
+        }
+    }
+
+    int getCount() {
+        return this.buffer.getIntVolatile(COUNT_OFFSET);
+    }
+
+    long getFirstTime() {
+        return this.buffer.getLong(FIRST_TIME_OFFSET, ByteOrder.LITTLE_ENDIAN);
+    }
+
+    long getLastTime() {
+        return this.buffer.getLong(LAST_TIME_OFFSET, ByteOrder.LITTLE_ENDIAN);
+    }
+
+    int getNbColumns() {
+        return this.nbColumns;
+    }
+
+    File getFile() {
+        return this.file;
+    }
+
+    void force() {
+        this.mappedBuffer.force();
+    }
+
+    void close() {
+        IoUtil.unmap(this.mappedBuffer);
+    }
+}
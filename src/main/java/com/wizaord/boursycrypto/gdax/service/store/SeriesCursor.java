@@ -0,0 +1,116 @@
+package com.wizaord.boursycrypto.gdax.service.store;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Forward iteration over the records of a {@link TimeSeriesStore} between two times.
+ * The records are decoded directly from the mapped chunks into the cursor : nothing is allocated per record.
+ * A cursor is used by one thread ; the chunks are mapped one at a time and unmapped when the cursor leaves them.
+ *
+ * <pre>
+ * try (SeriesCursor cursor = store.cursor(from, to)) {
+ *     while (cursor.next()) {
+ *         cursor.getTime(); cursor.getValue(0); ...
+ *     }
+ * }
+ * </pre>
+ */
+public final class SeriesCursor implements Closeable {
+
+    private final List<File> files;
+    private final long fromTime;
+    private final long toTime;
+    private final int[] positions;
+    private final long[] values;
+    private int fileIndex;
+    private ColumnChunk chunk;
+    private int remaining;
+    private boolean finished;
+
+    SeriesCursor(final List<File> files, final int nbValues, final long fromTime, final long toTime) {
+        this.files = files;
+        this.fromTime = fromTime;
+        this.toTime = toTime;
+        this.positions = new int[nbValues + 1];
+        this.values = new long[nbValues + 1];
+    }
+
+    /**
+     * Move to the next record
+     * @return false if there is no more record in the range
+     */
+    public boolean next() {
+        while (!this.finished) {
+            if (this.remaining == 0 && !this.nextChunk()) {
+                this.close();
+                return false;
+            }
+            this.chunk.readRecord(this.positions, this.values);
+            this.remaining--;
+            if (this.values[0] > this.toTime) {
+                this.close();
+                return false;
+            }
+            if (this.values[0] >= this.fromTime) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean nextChunk() {
+        this.closeChunk();
+        while (this.fileIndex < this.files.size()) {
+            this.chunk = ColumnChunk.openReadOnly(this.files.get(this.fileIndex++));
+            // the records appended after this point are not read
+            this.remaining = this.chunk.getCount();
+            if (this.remaining > 0) {
+                Arrays.fill(this.positions, 0);
+                Arrays.fill(this.values, 0);
+                return true;
+            }
+            this.closeChunk();
+        }
+        return false;
+    }
+
+    /**
+     * @return the time of the current record
+     */
+    public long getTime() {
+        return this.values[0];
+    }
+
+    /**
+     * @param index of the value, 0 for the first value after the time
+     * @return the value of the current record
+     */
+    public long getValue(final int index) {
+        return this.values[index + 1];
+    }
+
+    /**
+     * @param index of the value, 0 for the first value after the time
+     * @return the value of the current record, unscaled
+     */
+    public double getDouble(final int index) {
+        return TimeSeriesStore.toDouble(this.values[index + 1]);
+    }
+
+    private void closeChunk() {
+        if (this.chunk != null) {
+            this.chunk.close();
+            this.chunk = null;
+        }
+        this.remaining = 0;
+    }
+
+    @Override
+    public void close() {
+        this.finished = true;
+        this.closeChunk();
+    }
+}
@@ -0,0 +1,234 @@
+package com.wizaord.boursycrypto.gdax.service.store;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.config.properties.Store;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.Ticker;
+import com.wizaord.boursycrypto.gdax.domain.historic.HistorizedTic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Persistent history of a product : every tick received, every historized minute (candle) and every fill of our
+ * orders are appended to {@link TimeSeriesStore}s in application.store.directory/PRODUCT. The history is kept for years on disk
+ * without being loaded in the heap ; the trend engine and the backtests read it with {@link SeriesCursor}s.
+ *
+ * Tick values : price, last size, side (1 buy, -1 sell, 0 unknown).
+ * Candle values : average price, min price, max price, volume, nb tic, nb buy, nb sell.
+ * Fill values : price, size, side (1 buy, -1 sell), fee.
+ * The decimal values are scaled by {@link TimeSeriesStore#SCALE}, the times are epoch milliseconds.
+ */
+@Service
+public class TimeSeriesService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TimeSeriesService.class);
+    private static final String DEFAULT_DIRECTORY = "./store";
+    private static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    public static final String TICK_SERIES = "ticks";
+    public static final String CANDLE_SERIES = "candles";
+    public static final String FILL_SERIES = "fills";
+    public static final int NB_TICK_VALUES = 3;
+    public static final int NB_CANDLE_VALUES = 7;
+    public static final int NB_FILL_VALUES = 4;
+    public static final int TICK_PRICE = 0;
+    public static final int TICK_SIZE = 1;
+    public static final int TICK_SIDE = 2;
+    public static final int CANDLE_AVERAGE = 0;
+    public static final int CANDLE_MIN = 1;
+    public static final int CANDLE_MAX = 2;
+    public static final int CANDLE_VOLUME = 3;
+    public static final int CANDLE_NB_TIC = 4;
+    public static final int CANDLE_NB_BUY = 5;
+    public static final int CANDLE_NB_SELL = 6;
+    public static final int FILL_PRICE = 0;
+    public static final int FILL_SIZE = 1;
+    public static final int FILL_SIDE = 2;
+    public static final int FILL_FEE = 3;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    private TimeSeriesStore ticks;
+    private TimeSeriesStore candles;
+    private TimeSeriesStore fills;
+    // ticks and candles are written by the market-data thread, fills by the shard thread
+    private final long[] tickValues = new long[NB_TICK_VALUES];
+    private final long[] candleValues = new long[NB_CANDLE_VALUES];
+    private final long[] fillValues = new long[NB_FILL_VALUES];
+
+    @PostConstruct
+    public void init() throws IOException {
+        final Store store = this.applicationProperties.getStore();
+        if (store == null || !Boolean.TRUE.equals(store.getActivate())) {
+            return;
+        }
+        final String productName = this.applicationProperties.getProduct().getName();
+        final File directory = productDirectory((store.getDirectory() == null || store.getDirectory().isEmpty()) ? DEFAULT_DIRECTORY : store.getDirectory(), productName);
+        final int chunkSize = (store.getChunkSize() == null) ? DEFAULT_CHUNK_SIZE : store.getChunkSize();
+        this.ticks = TimeSeriesStore.open(directory, TICK_SERIES, NB_TICK_VALUES, chunkSize);
+        this.candles = TimeSeriesStore.open(directory, CANDLE_SERIES, NB_CANDLE_VALUES, chunkSize);
+        this.fills = TimeSeriesStore.open(directory, FILL_SERIES, NB_FILL_VALUES, chunkSize);
+        LOG.info("Time series of {} stored in {}", productName, directory);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (this.ticks != null) {
+            this.ticks.close();
+            this.candles.close();
+            this.fills.close();
+        }
+    }
+
+    public boolean isActivated() {
+        return this.ticks != null;
+    }
+
+    /**
+     * Append a tick received from the feed
+     * @param tick
+     */
+    public void appendTick(final Ticker tick) {
+        if (this.ticks == null || tick.getTime() == null || tick.getPrice() == null) {
+            return;
+        }
+        this.tickValues[TICK_PRICE] = TimeSeriesStore.toLong(tick.getPrice().doubleValue());
+        this.tickValues[TICK_SIZE] = (tick.getLastSize() == null) ? 0 : TimeSeriesStore.toLong(tick.getLastSize().doubleValue());
+        this.tickValues[TICK_SIDE] = "buy".equals(tick.getSide()) ? 1 : "sell".equals(tick.getSide()) ? -1 : 0;
+        this.ticks.append(tick.getTime().getTime(), this.tickValues);
+    }
+
+    /**
+     * Append a fill of one of our orders
+     * @param time
+     * @param buy
+     * @param size
+     * @param price
+     * @param fee
+     */
+    public void appendFill(final Date time, final boolean buy, final BigDecimal size, final BigDecimal price, final BigDecimal fee) {
+        if (this.fills == null || time == null) {
+            return;
+        }
+        this.fillValues[FILL_PRICE] = TimeSeriesStore.toLong(price.doubleValue());
+        this.fillValues[FILL_SIZE] = TimeSeriesStore.toLong(size.doubleValue());
+        this.fillValues[FILL_SIDE] = buy ? 1 : -1;
+        this.fillValues[FILL_FEE] = TimeSeriesStore.toLong(fee.doubleValue());
+        this.fills.append(time.getTime(), this.fillValues);
+    }
+
+    /**
+     * Append historized minutes. The minutes which are not after the last stored one are ignored.
+     * @param tics the oldest first
+     * @return the number of candles stored
+     */
+    public int appendCandles(final List<HistorizedTic> tics) {
+        int nbStored = 0;
+        for (HistorizedTic tic : tics) {
+            if (this.appendCandle(tic)) {
+                nbStored++;
+            }
+        }
+        return nbStored;
+    }
+
+    /**
+     * Append a historized minute
+     * @param tic
+     * @return false if the minute is not after the last stored one
+     */
+    public synchronized boolean appendCandle(final HistorizedTic tic) {
+        if (this.candles == null) {
+            return false;
+        }
+        final long time = toEpochMillis(tic.getGeneratedDate());
+        if (time <= this.candles.getLastTime()) {
+            return false;
+        }
+        this.candleValues[CANDLE_AVERAGE] = TimeSeriesStore.toLong(tic.getAveragePrice());
+        this.candleValues[CANDLE_MIN] = TimeSeriesStore.toLong(tic.getMinPrice());
+        this.candleValues[CANDLE_MAX] = TimeSeriesStore.toLong(tic.getMaxPrice());
+        this.candleValues[CANDLE_VOLUME] = TimeSeriesStore.toLong(tic.getVolumeEchange());
+        this.candleValues[CANDLE_NB_TIC] = tic.getNbTic();
+        this.candleValues[CANDLE_NB_BUY] = tic.getNbBuy();
+        this.candleValues[CANDLE_NB_SELL] = tic.getNbSell();
+        return this.candles.append(time, this.candleValues);
+    }
+
+    /**
+     * @return the time of the last stored candle, null if there is none
+     */
+    public Instant getLastCandleTime() {
+        if (this.candles == null || this.candles.getLastTime() == Long.MIN_VALUE) {
+            return null;
+        }
+        return Instant.ofEpochMilli(this.candles.getLastTime());
+    }
+
+    /**
+     * Read the stored candles as historized tics
+     * @param from included
+     * @param to included
+     * @return the oldest first
+     */
+    public List<HistorizedTic> readCandles(final Instant from, final Instant to) {
+        final List<HistorizedTic> tics = new ArrayList<>();
+        if (this.candles == null) {
+            return tics;
+        }
+        try (SeriesCursor cursor = this.candles.cursor(from.toEpochMilli(), to.toEpochMilli())) {
+            while (cursor.next()) {
+                tics.add(HistorizedTic.builder()
+                        .generatedDate(LocalDateTime.ofInstant(Instant.ofEpochMilli(cursor.getTime()), ZoneId.systemDefault()))
+                        .averagePrice(cursor.getDouble(CANDLE_AVERAGE))
+                        .minPrice(cursor.getDouble(CANDLE_MIN))
+                        .maxPrice(cursor.getDouble(CANDLE_MAX))
+                        .volumeEchange(cursor.getDouble(CANDLE_VOLUME))
+                        .nbTic(cursor.getValue(CANDLE_NB_TIC))
+                        .nbBuy(cursor.getValue(CANDLE_NB_BUY))
+                        .nbSell(cursor.getValue(CANDLE_NB_SELL))
+                        .build());
+            }
+        }
+        return tics;
+    }
+
+    /**
+     * @return a cursor over the stored ticks (see the TICK_* value indexes), null if the store is not activated
+     */
+    public SeriesCursor tickCursor(final Instant from, final Instant to) {
+        return (this.ticks == null) ? null : this.ticks.cursor(from.toEpochMilli(), to.toEpochMilli());
+    }
+
+    /**
+     * @return a cursor over the stored candles (see the CANDLE_* value indexes), null if the store is not activated
+     */
+    public SeriesCursor candleCursor(final Instant from, final Instant to) {
+        return (this.candles == null) ? null : this.candles.cursor(from.toEpochMilli(), to.toEpochMilli());
+    }
+
+    /**
+     * @return the directory of the series of a product
+     */
+    public static File productDirectory(final String storeDirectory, final String productName) {
+        return new File(storeDirectory, productName);
+    }
+
+    private static long toEpochMillis(final LocalDateTime date) {
+        return date.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
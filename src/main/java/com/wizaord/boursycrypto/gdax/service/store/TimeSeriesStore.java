@@ -0,0 +1,212 @@
+package com.wizaord.boursycrypto.gdax.service.store;
+
+import org.agrona.IoUtil;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Persistent append-only time series : a directory of fixed-size columnar {@link ColumnChunk}s named
+ * NAME-SEQUENCE.chunk. Only the chunk being written is kept mapped ; the time index (first and last time of every
+ * chunk) is read from the chunk headers at opening, so the heap does not grow with the history.
+ *
+ * The values are longs : decimal values are stored scaled by {@link #SCALE} (see {@link #toLong(double)}).
+ * The times must be increasing (equal times are accepted) ; a record older than the last one is refused.
+ * One thread appends, any thread can read with a {@link SeriesCursor}.
+ */
+public class TimeSeriesStore implements Closeable {
+
+    public static final double SCALE = 100_000_000d;
+    private static final String EXTENSION = ".chunk";
+
+    private final File directory;
+    private final String name;
+    private final int nbColumns;
+    private final int chunkSize;
+    private final List<ChunkRef> chunks = new ArrayList<>();
+    private ColumnChunk activeChunk;
+    private long lastTime = Long.MIN_VALUE;
+    private boolean readOnly;
+
+    private TimeSeriesStore(final File directory, final String name, final int nbValues, final int chunkSize) {
+        this.directory = directory;
+        this.name = name;
+        this.nbColumns = nbValues + 1;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Open (or create) a series
+     * @param directory
+     * @param name prefix of the chunk files
+     * @param nbValues number of values of a record, the time excluded
+     * @param chunkSize size of a chunk file
+     */
+    public static TimeSeriesStore open(final File directory, final String name, final int nbValues, final int chunkSize) throws IOException {
+        IoUtil.ensureDirectoryExists(directory, "time series directory");
+        return load(directory, name, nbValues, chunkSize, false);
+    }
+
+    /**
+     * Open a series to read it, possibly while another process appends to it. Nothing is modified on disk.
+     * The records appended after the opening are not indexed.
+     * @param directory
+     * @param name prefix of the chunk files
+     * @param nbValues number of values of a record, the time excluded
+     */
+    public static TimeSeriesStore openReadOnly(final File directory, final String name, final int nbValues) throws IOException {
+        return load(directory, name, nbValues, 0, true);
+    }
+
+    private static TimeSeriesStore load(final File directory, final String name, final int nbValues, final int chunkSize, final boolean readOnly) throws IOException {
+        final TimeSeriesStore store = new TimeSeriesStore(directory, name, nbValues, chunkSize);
+        store.readOnly = readOnly;
+        final File[] files = directory.listFiles((dir, fileName) -> fileName.startsWith(name + "-") && fileName.endsWith(EXTENSION));
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                final long[] header = ColumnChunk.readHeader(file);
+                if (header[0] > 0) {
+                    store.chunks.add(new ChunkRef(file, header[1], header[2]));
+                    store.lastTime = header[2];
+                } else if (!readOnly && file != files[files.length - 1]) {
+                    IoUtil.delete(file, true);
+                }
+            }
+            if (files.length > 0 && !readOnly) {
+                final File lastFile = files[files.length - 1];
+                store.activeChunk = ColumnChunk.openForAppend(lastFile);
+                if (store.activeChunk.getNbColumns() != store.nbColumns) {
+                    store.activeChunk.close();
+                    throw new IOException("The chunk " + lastFile + " has " + store.activeChunk.getNbColumns() + " columns, " + store.nbColumns + " expected");
+                }
+                if (store.activeChunk.getCount() == 0) {
+                    store.chunks.add(new ChunkRef(lastFile, Long.MIN_VALUE, Long.MIN_VALUE));
+                }
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Append a record
+     * @param time
+     * @param values one per value of the series ; the array can be reused by the caller
+     * @return false if the record is older than the last one
+     */
+    public synchronized boolean append(final long time, final long[] values) {
+        if (this.readOnly) {
+            throw new IllegalStateException("The series " + this.name + " is opened read only");
+        }
+        if (time < this.lastTime) {
+            return false;
+        }
+        if (this.activeChunk == null || !this.activeChunk.append(time, values)) {
+            this.rollChunk();
+            if (!this.activeChunk.append(time, values)) {
+                throw new IllegalStateException("The chunk size " + this.chunkSize + " is too small for a record");
+            }
+        }
+        final ChunkRef active = this.chunks.get(this.chunks.size() - 1);
+        if (active.firstTime == Long.MIN_VALUE) {
+            active.firstTime = time;
+        }
+        active.lastTime = time;
+        this.lastTime = time;
+        return true;
+    }
+
+    private void rollChunk() {
+        if (this.activeChunk != null) {
+            this.activeChunk.force();
+            this.activeChunk.close();
+        }
+        final File file = new File(this.directory, String.format("%s-%010d%s", this.name, this.chunks.size(), EXTENSION));
+        this.activeChunk = ColumnChunk.create(file, this.nbColumns, this.chunkSize);
+        this.chunks.add(new ChunkRef(file, Long.MIN_VALUE, Long.MIN_VALUE));
+    }
+
+    /**
+     * Read the records between two times
+     * @param fromTime included
+     * @param toTime included
+     * @return a cursor positioned before the first record
+     */
+    public synchronized SeriesCursor cursor(final long fromTime, final long toTime) {
+        // first chunk which may contain fromTime
+        int low = 0;
+        int high = this.chunks.size() - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            if (this.chunks.get(middle).lastTime < fromTime) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        final List<File> files = new ArrayList<>();
+        for (int i = low; i < this.chunks.size() && this.chunks.get(i).firstTime <= toTime; i++) {
+            files.add(this.chunks.get(i).file);
+        }
+        return new SeriesCursor(files, this.nbColumns - 1, fromTime, toTime);
+    }
+
+    /**
+     * @return the time of the last record, Long.MIN_VALUE if the series is empty
+     */
+    public synchronized long getLastTime() {
+        return this.lastTime;
+    }
+
+    /**
+     * @return the number of chunk files
+     */
+    public synchronized int getNbChunks() {
+        return this.chunks.size();
+    }
+
+    /**
+     * Write the active chunk on disk
+     */
+    public synchronized void flush() {
+        if (this.activeChunk != null) {
+            this.activeChunk.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (this.activeChunk != null) {
+            this.activeChunk.force();
+            this.activeChunk.close();
+            this.activeChunk = null;
+        }
+    }
+
+    public static long toLong(final double value) {
+        return Math.round(value * SCALE);
+    }
+
+    public static double toDouble(final long value) {
+        return value / SCALE;
+    }
+
+    /**
+     * Time index entry of a chunk
+     */
+    private static final class ChunkRef {
+        private final File file;
+        private long firstTime;
+        private long lastTime;
+
+        private ChunkRef(final File file, final long firstTime, final long lastTime) {
+            this.file = file;
+            this.firstTime = firstTime;
+            this.lastTime = lastTime;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.wizaord.boursycrypto.gdax.service.strategy;
+
+import com.wizaord.boursycrypto.gdax.config.properties.Achat;
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.domain.E_OrderIntent;
+import com.wizaord.boursycrypto.gdax.domain.E_PriceEvent;
+import com.wizaord.boursycrypto.gdax.domain.market.PriceEvent;
+import com.wizaord.boursycrypto.gdax.domain.strategy.MarketView;
+import com.wizaord.boursycrypto.gdax.domain.strategy.OrderIntent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import static com.wizaord.boursycrypto.gdax.utils.MathUtils.df;
+
+/**
+ * Strategie d'achat : elle reagit aux chutes du cours vues par le detecteur (CrashDetectorService) sur un de ses horizons.
+ * A chaque chute, on signale une opportunite d'achat (au plus une fois toutes les 10 minutes) :
+ * si l'achat est active (application.trader.achat.activate), un stop-buy suiveur est arme, sinon une alerte est envoyee.
+ */
+public class ChuteAchatStrategy implements Strategy {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChuteAchatStrategy.class);
+    public static final String NAME = "chuteAchat";
+
+    private Achat achat;
+    private String productName;
+    private LocalDateTime lastNotifyBuyMessage = LocalDateTime.of(2010, 1, 1, 1, 1);
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void init(final ApplicationProperties properties) {
+        this.achat = properties.getTrader().getAchat();
+        this.productName = properties.getProduct().getName();
+    }
+
+    @Override
+    public List<OrderIntent> evaluate(final MarketView market) {
+        if (market.getTradingState().getBuyTrail() != null) {
+            // un achat est deja en cours
+            return Collections.emptyList();
+        }
+        // la plus forte chute detectee sur un des horizons du detecteur
+        final Optional<PriceEvent> chute = market.getPriceEvents().stream()
+                .filter(event -> event.getType() == E_PriceEvent.DROP)
+                .min(Comparator.comparingDouble(PriceEvent::getEvolution));
+        if (!chute.isPresent()) {
+            return Collections.emptyList();
+        }
+
+        // envoie d'un message de notification
+        // uniquement si l'ancien message date d'il y a lontemps
+        final LocalDateTime currentDate = LocalDateTime.now().minusMinutes(10);
+        final PriceEvent event = chute.get();
+        if (!currentDate.isAfter(this.lastNotifyBuyMessage)) {
+            LOG.debug("Chute de {}% deja signalee depuis {}", df.format(event.getEvolution()), this.lastNotifyBuyMessage);
+            return Collections.emptyList();
+        }
+        this.lastNotifyBuyMessage = LocalDateTime.now();
+        return Collections.singletonList(OrderIntent.builder()
+                .strategy(NAME)
+                .type(Boolean.TRUE.equals(this.achat.getActivate()) ? E_OrderIntent.BUY_TRAIL : E_OrderIntent.BUY_ALERT)
+                .price(market.getPrice())
+                .message("CHECK FOR ACHAT - Baisse du cours : " + this.productName + " de " + df.format(event.getEvolution()) + "% en "
+                        + event.getHorizon() / 1000 + " s a " + market.getPrice())
+                .build());
+    }
+}
@@ -0,0 +1,36 @@
+package com.wizaord.boursycrypto.gdax.service.strategy;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.domain.strategy.MarketView;
+import com.wizaord.boursycrypto.gdax.domain.strategy.OrderIntent;
+
+import java.util.List;
+
+/**
+ * Trading strategy. Each product has its own instances.
+ * An instance is never evaluated by two threads at the same time, but the instances of a product are evaluated in
+ * parallel on the strategy workers : a strategy only reads the {@link MarketView} and its own fields.
+ *
+ * The strategies found in the jars of application.strategies.directory are loaded with the {@link java.util.ServiceLoader}
+ * (META-INF/services/com.wizaord.boursycrypto.gdax.service.strategy.Strategy) and reloaded when a jar changes.
+ */
+public interface Strategy {
+
+    /**
+     * @return the name of the strategy, unique for a product
+     */
+    String getName();
+
+    /**
+     * Called once before the first evaluation
+     * @param properties the properties of the product
+     */
+    default void init(final ApplicationProperties properties) {
+    }
+
+    /**
+     * @param market
+     * @return the orders requested, empty if nothing is to be done
+     */
+    List<OrderIntent> evaluate(MarketView market);
+}
@@ -0,0 +1,368 @@
+package com.wizaord.boursycrypto.gdax.service.strategy;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.config.properties.Strategies;
+import com.wizaord.boursycrypto.gdax.domain.E_OrderIntent;
+import com.wizaord.boursycrypto.gdax.domain.strategy.MarketView;
+import com.wizaord.boursycrypto.gdax.domain.strategy.OrderIntent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Evaluation of the strategies of a product.
+ * For each new price, the strategies are evaluated in parallel on the {@link StrategyWorkerPool} with the same
+ * {@link MarketView} ; the calling thread (the shard thread) waits for them and merges their intents : for a lot,
+ * the highest stop price is kept. The shard thread does not process the feed meanwhile : a strategy which has not
+ * decided within application.strategies.timeout (50 ms by default) is skipped for this price.
+ * The built-in strategies (trailing stop sell, buy alert on a price drop) are always present. The jars of
+ * application.strategies.directory are scanned every application.strategies.reloadDelay : the strategies of a new
+ * or modified jar are (re)loaded in their own class loader, the ones of a removed jar are dropped. The class loader
+ * of a dropped jar is closed once its evaluations still running (timed out) are finished.
+ * The duration of each decision is recorded in the gdax.strategy.decision timer.
+ */
+@Service
+public class StrategyEngine {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StrategyEngine.class);
+    private static final String BUILTIN = "builtin";
+    private static final int DEFAULT_TIMEOUT = 50;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+    @Autowired
+    private StrategyWorkerPool workerPool;
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    // source (builtin or jar path) => strategies. Only changed by the shard thread, read by the shard thread.
+    private final Map<String, StrategySource> sources = new LinkedHashMap<>();
+    private volatile List<StrategyInstance> instances = Collections.emptyList();
+
+    @PostConstruct
+    public void loadBuiltinStrategies() {
+        final List<Strategy> builtins = new ArrayList<>();
+        builtins.add(new TrailingStopStrategy());
+        builtins.add(new ChuteAchatStrategy());
+        this.sources.put(BUILTIN, new StrategySource(null, 0, this.initialize(builtins)));
+        this.reloadStrategies();
+    }
+
+    @PreDestroy
+    public void closeStrategies() {
+        this.sources.values().forEach(StrategySource::close);
+        this.sources.clear();
+        this.instances = Collections.emptyList();
+    }
+
+    /**
+     * Evaluate all the strategies
+     * @param market
+     * @return the intents of the strategies, one STOP_SELL at most by lot
+     */
+    public List<OrderIntent> evaluate(final MarketView market) {
+        final List<StrategyInstance> current = this.instances;
+        final List<Future<List<OrderIntent>>> results = new ArrayList<>(current.size());
+        final List<AtomicBoolean> started = new ArrayList<>(current.size());
+        for (StrategyInstance instance : current) {
+            final AtomicBoolean evaluationStarted = new AtomicBoolean();
+            instance.source.evaluationSubmitted();
+            started.add(evaluationStarted);
+            results.add(this.workerPool.submit(() -> instance.evaluate(market, evaluationStarted)));
+        }
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.getTimeout());
+        final Map<String, OrderIntent> stopSells = new HashMap<>();
+        final List<OrderIntent> intents = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            final StrategyInstance instance = current.get(i);
+            final Future<List<OrderIntent>> result = results.get(i);
+            try {
+                for (OrderIntent intent : result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    if (intent.getType() != E_OrderIntent.STOP_SELL) {
+                        intents.add(intent);
+                    } else {
+                        stopSells.merge(intent.getLotId(), intent, (a, b) -> a.getPrice() >= b.getPrice() ? a : b);
+                    }
+                }
+            } catch (TimeoutException e) {
+                result.cancel(true);
+                if (claimEvaluation(started.get(i))) {
+                    // cancelled before being run : it will never end by itself
+                    instance.source.evaluationDone();
+                }
+                instance.failed();
+                LOG.warn("Strategy {} of {} has not decided in {} ms", instance.getName(), market.getProductName(), this.getTimeout());
+            } catch (ExecutionException e) {
+                instance.failed();
+                LOG.error("Strategy {} of {} has failed", instance.getName(), market.getProductName(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Collections.emptyList();
+            }
+        }
+        intents.addAll(stopSells.values());
+        return intents;
+    }
+
+    /**
+     * An evaluation is claimed once : by the worker which runs it, or by the shard thread which cancels it before it
+     * has started
+     * @return true if the evaluation was not claimed yet
+     */
+    private static boolean claimEvaluation(final AtomicBoolean started) {
+        return started.compareAndSet(false, true);
+    }
+
+    /**
+     * Scan the strategy directory and reload the jars which have changed
+     */
+    @Scheduled(fixedDelayString = "${application.strategies.reloadDelay:30000}", initialDelayString = "${application.strategies.reloadDelay:30000}")
+    public void reloadStrategies() {
+        final Strategies strategies = this.applicationProperties.getStrategies();
+        final File directory = (strategies == null || strategies.getDirectory() == null) ? null : new File(strategies.getDirectory());
+        final File[] jars = (directory == null) ? null : directory.listFiles((dir, name) -> name.endsWith(".jar"));
+        final Map<String, File> found = new HashMap<>();
+        if (jars != null) {
+            for (File jar : jars) {
+                found.put(jar.getAbsolutePath(), jar);
+            }
+        }
+
+        boolean changed = false;
+        for (String path : new ArrayList<>(this.sources.keySet())) {
+            if (!BUILTIN.equals(path) && !found.containsKey(path)) {
+                LOG.info("Strategy jar {} removed", path);
+                this.sources.remove(path).retire();
+                changed = true;
+            }
+        }
+        for (File jar : found.values()) {
+            final StrategySource previous = this.sources.get(jar.getAbsolutePath());
+            if (previous != null && previous.lastModified == jar.lastModified()) {
+                continue;
+            }
+            final StrategySource loaded = this.load(jar);
+            if (loaded != null) {
+                if (previous != null) {
+                    previous.retire();
+                }
+                this.sources.put(jar.getAbsolutePath(), loaded);
+                changed = true;
+            }
+        }
+        if (changed || this.instances.isEmpty()) {
+            final List<StrategyInstance> all = new ArrayList<>();
+            this.sources.values().forEach(source -> all.addAll(source.instances));
+            this.instances = Collections.unmodifiableList(all);
+            LOG.info("Strategies of {} : {}", this.getProductName(), this.getStrategyNames());
+        }
+    }
+
+    /**
+     * @return the names of the strategies evaluated
+     */
+    public List<String> getStrategyNames() {
+        final List<String> names = new ArrayList<>();
+        this.instances.forEach(instance -> names.add(instance.getName()));
+        return names;
+    }
+
+    private StrategySource load(final File jar) {
+        final URLClassLoader classLoader;
+        try {
+            classLoader = new URLClassLoader(new URL[]{jar.toURI().toURL()}, Strategy.class.getClassLoader());
+        } catch (MalformedURLException e) {
+            LOG.error("Unable to load the strategy jar {}", jar, e);
+            return null;
+        }
+        final List<Strategy> strategies = new ArrayList<>();
+        try {
+            ServiceLoader.load(Strategy.class, classLoader).forEach(strategies::add);
+            LOG.info("Strategy jar {} loaded : {} strategies", jar, strategies.size());
+            return new StrategySource(classLoader, jar.lastModified(), this.initialize(strategies));
+        } catch (ServiceConfigurationError | RuntimeException e) {
+            LOG.error("Unable to load the strategies of {}", jar, e);
+            closeQuietly(classLoader);
+            return null;
+        }
+    }
+
+    private List<StrategyInstance> initialize(final List<Strategy> strategies) {
+        final List<StrategyInstance> initialized = new ArrayList<>(strategies.size());
+        for (Strategy strategy : strategies) {
+            strategy.init(this.applicationProperties);
+            initialized.add(new StrategyInstance(strategy, this.meterRegistry, this.getProductName()));
+        }
+        return initialized;
+    }
+
+    private int getTimeout() {
+        final Strategies strategies = this.applicationProperties.getStrategies();
+        return (strategies == null || strategies.getTimeout() == null) ? DEFAULT_TIMEOUT : strategies.getTimeout();
+    }
+
+    private String getProductName() {
+        return this.applicationProperties.getProduct().getName();
+    }
+
+    private static void closeQuietly(final URLClassLoader classLoader) {
+        try {
+            classLoader.close();
+        } catch (IOException e) {
+            LOG.debug("Unable to close the class loader", e);
+        }
+    }
+
+    /**
+     * The strategies of a jar (or the built-in ones, without class loader).
+     * A retired source (jar removed or replaced) is closed when none of its evaluations is running : a strategy which
+     * has timed out may still be running and loading classes.
+     */
+    private static final class StrategySource {
+        private final URLClassLoader classLoader;
+        private final long lastModified;
+        private final List<StrategyInstance> instances;
+        // evaluations submitted and not finished
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile boolean retired;
+
+        private StrategySource(final URLClassLoader classLoader, final long lastModified, final List<StrategyInstance> instances) {
+            this.classLoader = classLoader;
+            this.lastModified = lastModified;
+            this.instances = instances;
+            instances.forEach(instance -> instance.source = this);
+        }
+
+        private void evaluationSubmitted() {
+            this.inFlight.incrementAndGet();
+        }
+
+        private void evaluationDone() {
+            if (this.inFlight.decrementAndGet() == 0 && this.retired) {
+                this.closeIfIdle();
+            }
+        }
+
+        /**
+         * No more evaluation will be submitted : close the class loader now or after the running evaluations
+         */
+        private void retire() {
+            this.retired = true;
+            this.closeIfIdle();
+        }
+
+        private void close() {
+            if (this.classLoader != null && this.closed.compareAndSet(false, true)) {
+                closeQuietly(this.classLoader);
+            }
+        }
+
+        private void closeIfIdle() {
+            if (this.inFlight.get() == 0) {
+                this.close();
+            }
+        }
+    }
+
+    /**
+     * A strategy with its metrics. The evaluations of an instance never overlap : the shard thread waits for all of
+     * them before the next evaluation, and an instance still running after a timeout is skipped.
+     */
+    private static final class StrategyInstance {
+        private final Strategy strategy;
+        private final AtomicBoolean running = new AtomicBoolean();
+        private StrategySource source;
+        private final Timer decisionTimer;
+        private final Counter failures;
+
+        private StrategyInstance(final Strategy strategy, final MeterRegistry registry, final String productName) {
+            this.strategy = strategy;
+            if (registry == null) {
+                this.decisionTimer = null;
+                this.failures = null;
+            } else {
+                this.decisionTimer = Timer.builder("gdax.strategy.decision")
+                        .tag("product", productName)
+                        .tag("strategy", strategy.getName())
+                        .description("decision time of a strategy")
+                        .publishPercentiles(0.5, 0.99)
+                        .register(registry);
+                this.failures = Counter.builder("gdax.strategy.failures")
+                        .tag("product", productName)
+                        .tag("strategy", strategy.getName())
+                        .description("strategy evaluations failed or timed out")
+                        .register(registry);
+            }
+        }
+
+        /**
+         * @param started set when the evaluation starts ; if it is already set, the evaluation has been cancelled
+         */
+        private List<OrderIntent> evaluate(final MarketView market, final AtomicBoolean started) {
+            if (!claimEvaluation(started)) {
+                return Collections.emptyList();
+            }
+            try {
+                return this.evaluate(market);
+            } finally {
+                this.source.evaluationDone();
+            }
+        }
+
+        private List<OrderIntent> evaluate(final MarketView market) {
+            if (!this.running.compareAndSet(false, true)) {
+                // the previous evaluation has timed out and is still running
+                return Collections.emptyList();
+            }
+            final long start = System.nanoTime();
+            try {
+                final List<OrderIntent> intents = this.strategy.evaluate(market);
+                return (intents == null) ? Collections.emptyList() : intents;
+            } finally {
+                if (this.decisionTimer != null) {
+                    this.decisionTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+                this.running.set(false);
+            }
+        }
+
+        private void failed() {
+            if (this.failures != null) {
+                this.failures.increment();
+            }
+        }
+
+        private String getName() {
+            return this.strategy.getName();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.wizaord.boursycrypto.gdax.service.strategy;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.config.properties.Strategies;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads evaluating the strategies, shared by all the products (it is only defined in the application context).
+ */
+@Service
+public class StrategyWorkerPool implements MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StrategyWorkerPool.class);
+    private static final int DEFAULT_WORKERS = 4;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void start() {
+        final Strategies strategies = this.applicationProperties.getStrategies();
+        final int workers = (strategies == null || strategies.getWorkers() == null) ? DEFAULT_WORKERS : strategies.getWorkers();
+        final AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            final Thread thread = new Thread(runnable, "strategy-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        LOG.info("Strategy workers started : {}", workers);
+    }
+
+    @PreDestroy
+    public void stop() {
+        this.executor.shutdownNow();
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("gdax.strategy.queue", this, StrategyWorkerPool::getQueueSize)
+                .description("strategy evaluations waiting for a worker")
+                .register(registry);
+    }
+
+    <T> Future<T> submit(final Callable<T> evaluation) {
+        return this.executor.submit(evaluation);
+    }
+
+    public int getQueueSize() {
+        return this.executor.getQueue().size();
+    }
+}
@@ -0,0 +1,147 @@
+package com.wizaord.boursycrypto.gdax.service.strategy;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.config.properties.Vente;
+import com.wizaord.boursycrypto.gdax.domain.E_OrderIntent;
+import com.wizaord.boursycrypto.gdax.domain.E_TradingMode;
+import com.wizaord.boursycrypto.gdax.domain.E_TradingSellMode;
+import com.wizaord.boursycrypto.gdax.domain.strategy.MarketView;
+import com.wizaord.boursycrypto.gdax.domain.strategy.OrderIntent;
+import com.wizaord.boursycrypto.gdax.domain.trade.PositionLot;
+import com.wizaord.boursycrypto.gdax.utils.MathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.wizaord.boursycrypto.gdax.domain.E_TradingSellMode.BENEFICE;
+import static com.wizaord.boursycrypto.gdax.domain.E_TradingSellMode.WAITING_FOR_BENEFICE;
+import static com.wizaord.boursycrypto.gdax.utils.MathUtils.df;
+
+/**
+ * Strategie de vente de chaque lot.
+ * - on regarde si un stopOrder est positionné. Si non, on le positionne a XX% en dessous du prix en cours (stop de secours)
+ * - si on est en deficite, on ne change pas le stop order
+ * - si on est en bénéfice, on positionne le stopOrder juste pour gagner de l'argent
+ * - et ensuite on fait monter ce stopOrder en fonction de la courbe
+ */
+public class TrailingStopStrategy implements Strategy {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TrailingStopStrategy.class);
+    public static final String NAME = "trailingStop";
+
+    private Vente vente;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void init(final ApplicationProperties properties) {
+        this.vente = properties.getTrader().getVente();
+    }
+
+    @Override
+    public List<OrderIntent> evaluate(final MarketView market) {
+        if (market.getTradingState().getMode() != E_TradingMode.VENTE) {
+            return Collections.emptyList();
+        }
+        final List<OrderIntent> intents = new ArrayList<>();
+        for (PositionLot lot : market.getTradingState().getPositions().getLots()) {
+            final double stopPrice = this.newStopPrice(lot, market.getPrice());
+            if (stopPrice > 0) {
+                intents.add(OrderIntent.builder()
+                        .strategy(NAME)
+                        .type(E_OrderIntent.STOP_SELL)
+                        .lotId(lot.getLotId())
+                        .price(stopPrice)
+                        .build());
+            }
+        }
+        return intents;
+    }
+
+    /**
+     * realisation du trading en mode VENTE pour un lot
+     * @return le prix du nouveau stop order, 0 si le stop order ne change pas
+     */
+    private double newStopPrice(final PositionLot lot, final double currentPrice) {
+        final boolean isStopOrderPlaced = (lot.getStopOrder() != null);
+
+        // positionnement du stop order de secours si activé dans le fichier de configuration
+        if (this.vente.getSecureStopOrder().getActivate() && !isStopOrderPlaced) {
+            final double stopPrice = MathUtils.calculateRemovePourcent(currentPrice, this.vente.getSecureStopOrder().getPourcent());
+            LOG.info("MODE VENTE - lot {} - Place a SECURE stop order to {}", lot.getLotId(), df.format(stopPrice));
+            return stopPrice;
+        }
+
+        // on verifie si on est deja en benefice ou non
+        //      - possible si stopOrder n'existe pas              et cours supérieur au take profit du lot
+        //      - possible si stopOrder inférieur au prix d'achat et cours supérieur au take profit du lot
+        //      - possible si le prix du stopOrder est supérieur au prix d'achat => deja en mode benefice
+        final E_TradingSellMode sellMode = determineTradeSellMode(lot, currentPrice);
+        switch (sellMode) {
+            case WAITING_FOR_BENEFICE:
+                LOG.debug("MODE VENTE - lot {} - Not enougth benef. Waiting benefice to : {}", lot.getLotId(), df.format(lot.getTakeProfitPrice()));
+                return 0;
+            case BENEFICE:
+            default:
+                LOG.debug("MODE VENTE - lot {} - Sell Order posts in benefice. Just wait or replace sell order", lot.getLotId());
+                return this.newStopPriceBenefice(lot, currentPrice);
+        }
+    }
+
+    /**
+     * Fonction qui détermine le mode de vente d'un lot. Soit en benefice et on suit la courbe. Soit en mode attente
+     * On est en mode benefice et donc on suit la courbe qui monte si :
+     * - possible si stopOrder n'existe pas              et cours supérieur au take profit du lot
+     * - possible si stopOrder inférieur au prix d'achat et cours supérieur au take profit du lot
+     * - possible si le prix du stopOrder est supérieur au prix d'achat => deja en mode benefice
+     */
+    static E_TradingSellMode determineTradeSellMode(final PositionLot lot, final double currentPrice) {
+        final double lastOrderPrice = lot.getEntryPrice().doubleValue();
+        if (lot.getStopOrder() != null && lot.getStopOrder().getPrice().doubleValue() > lastOrderPrice) {
+            // on est dans le cas où on a déjà été en BENEFICE. On y reste
+            return BENEFICE;
+        }
+        // le stop order est posé ou pas. On est en bénéfice uniquement si le cours le permet
+        if (currentPrice >= lot.getTakeProfitPrice()) {
+            return BENEFICE;
+        }
+        // on a pas engendré assez de bénéfices
+        return WAITING_FOR_BENEFICE;
+    }
+
+    /**
+     * Fonction de gestion quand on est en mode vente et BENEFICE
+     * Si le stopOrder n'est pas positionné ou inférieur au prix d'achat du lot, on le position au seuil minimal
+     * Ensuite on fait monter ce stopOrder en fonction du cours
+     */
+    private double newStopPriceBenefice(final PositionLot lot, final double currentPrice) {
+        final double lastOrderPrice = lot.getEntryPrice().doubleValue();
+        final double seuilStopPrice = MathUtils.calculateAddPourcent(lastOrderPrice, this.vente.getBenefice().getInitialPourcent());
+
+        // test si aucun stop order n'est positionné : positionnement d'un stop order au prix seuil
+        if (lot.getStopOrder() == null) {
+            return seuilStopPrice;
+        }
+
+        // test si le stop order est le stop de secours
+        final double currentStopOrderPrice = lot.getStopOrder().getPrice().doubleValue();
+        if (currentStopOrderPrice < lastOrderPrice) {
+            return seuilStopPrice;
+        }
+
+        // on est dans les benefices et on a le stop order deja positionne pour assurer notre argent.
+        // on fait donc monter le stop en fonction de la hausse de la courbe
+        final double newStopOrderPrice = MathUtils.calculateRemovePourcent(currentPrice, this.vente.getBenefice().getFollowingPourcent());
+        if (newStopOrderPrice <= currentStopOrderPrice) {
+            LOG.debug("Cours en chute, on ne repositionne pas le stopOrder du lot {} qui est a {}", lot.getLotId(), df.format(currentStopOrderPrice));
+            return 0;
+        }
+        return newStopOrderPrice;
+    }
+}
@@ -0,0 +1,92 @@
+package com.wizaord.boursycrypto.gdax.service.timer;
+
+import com.wizaord.boursycrypto.gdax.domain.E_SchedulerLane;
+import com.wizaord.boursycrypto.gdax.service.metrics.MonitoredTaskScheduler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+/**
+ * Timeouts of the product shard (child orders of the executions, trailing buy expiry, candle sealing...).
+ * The timeouts are kept by the shared {@link WheelTimer} and their tasks run on the shard thread, with the feed
+ * messages : they can use the state of the shard without lock. The tasks of another lane (candle sealing on the
+ * MARKET_DATA lane...) run on the scheduler of that lane.
+ */
+@Service
+public class TimerService {
+
+    @Autowired
+    private WheelTimer wheelTimer;
+    @Autowired
+    private MonitoredTaskScheduler taskScheduler;
+    @Autowired
+    @Qualifier("marketDataScheduler")
+    private MonitoredTaskScheduler marketDataScheduler;
+    @Autowired
+    @Qualifier("housekeepingScheduler")
+    private MonitoredTaskScheduler housekeepingScheduler;
+
+    /**
+     * Run the task on the shard thread in delayMillis
+     * @param delayMillis
+     * @param task
+     * @return the timeout, to cancel it
+     */
+    public WheelTimer.Timeout schedule(final long delayMillis, final Runnable task) {
+        return this.schedule(E_SchedulerLane.TRADING, delayMillis, task);
+    }
+
+    /**
+     * Run the task on the thread of the lane in delayMillis
+     * @param lane TRADING for the shard thread
+     * @param delayMillis
+     * @param task
+     * @return the timeout, to cancel it
+     */
+    public WheelTimer.Timeout schedule(final E_SchedulerLane lane, final long delayMillis, final Runnable task) {
+        final MonitoredTaskScheduler executor = this.executor(lane);
+        return this.wheelTimer.schedule(delayMillis, executor, executor.getThreadNamePrefix(), task);
+    }
+
+    /**
+     * Run the task on the shard thread every periodMillis
+     * @param initialDelayMillis
+     * @param periodMillis
+     * @param task
+     * @return the timeout, to stop the task
+     */
+    public WheelTimer.Timeout scheduleAtFixedRate(final long initialDelayMillis, final long periodMillis, final Runnable task) {
+        return this.scheduleAtFixedRate(E_SchedulerLane.TRADING, initialDelayMillis, periodMillis, task);
+    }
+
+    /**
+     * Run the task on the thread of the lane every periodMillis
+     * @param lane TRADING for the shard thread
+     * @param initialDelayMillis
+     * @param periodMillis
+     * @param task
+     * @return the timeout, to stop the task
+     */
+    public WheelTimer.Timeout scheduleAtFixedRate(final E_SchedulerLane lane, final long initialDelayMillis, final long periodMillis, final Runnable task) {
+        final MonitoredTaskScheduler executor = this.executor(lane);
+        return this.wheelTimer.scheduleAtFixedRate(initialDelayMillis, periodMillis, executor, executor.getThreadNamePrefix(), task);
+    }
+
+    private MonitoredTaskScheduler executor(final E_SchedulerLane lane) {
+        switch (lane) {
+            case MARKET_DATA:
+                return this.marketDataScheduler;
+            case HOUSEKEEPING:
+                return this.housekeepingScheduler;
+            default:
+                return this.taskScheduler;
+        }
+    }
+
+    /**
+     * @return the number of timeouts scheduled on the wheel (all the shards)
+     */
+    public int getPendingCount() {
+        return this.wheelTimer.getPendingCount();
+    }
+}
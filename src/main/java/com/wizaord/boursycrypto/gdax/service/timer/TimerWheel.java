@@ -0,0 +1,234 @@
+package com.wizaord.boursycrypto.gdax.service.timer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hashed hierarchical timer wheel.
+ * The level 0 has one bucket per tick ; each upper level has one bucket per rotation of the level below, so that
+ * 4 levels of 256 buckets of 10 millis cover more than a year. A timeout is put in the lowest level able to hold its
+ * deadline ; when the level below completes a rotation, the next bucket of the upper level is cascaded : its timeouts
+ * move down to a finer level. schedule and cancel are O(1) (intrusive doubly linked buckets), a tick visits one bucket
+ * of the level 0 and, once per rotation, one bucket of an upper level.
+ * Not thread safe : the wheel is used by one thread.
+ */
+public class TimerWheel {
+
+    private final long tickMillis;
+    private final Bucket[][] levels;
+    private final int bits;
+    private final int mask;
+    private final long startMillis;
+    private final List<Timeout> expired = new ArrayList<>();
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param tickMillis resolution of the wheel
+     * @param wheelSize number of buckets of each level, rounded to a power of two
+     * @param nbLevels number of levels
+     * @param startMillis time of the tick 0
+     */
+    public TimerWheel(final long tickMillis, final int wheelSize, final int nbLevels, final long startMillis) {
+        final int powerOfTwo = Integer.highestOneBit(Math.max(2, wheelSize - 1) << 1);
+        this.bits = Integer.numberOfTrailingZeros(powerOfTwo);
+        if (nbLevels < 1 || this.bits * nbLevels > 62) {
+            throw new IllegalArgumentException("Invalid number of levels " + nbLevels + " for a wheel of " + powerOfTwo);
+        }
+        this.tickMillis = tickMillis;
+        this.levels = new Bucket[nbLevels][powerOfTwo];
+        for (Bucket[] level : this.levels) {
+            for (int i = 0; i < powerOfTwo; i++) {
+                level[i] = new Bucket();
+            }
+        }
+        this.mask = powerOfTwo - 1;
+        this.startMillis = startMillis;
+    }
+
+    /**
+     * Schedule a task
+     * @param task
+     * @param delayMillis
+     * @param nowMillis
+     * @return the timeout, to cancel it
+     */
+    public Timeout schedule(final Runnable task, final long delayMillis, final long nowMillis) {
+        // a timeout is never run before its deadline : the deadline tick is rounded up
+        final long deadlineTick = Math.max(this.currentTick + 1, (nowMillis + delayMillis - this.startMillis + this.tickMillis - 1) / this.tickMillis);
+        final Timeout timeout = new Timeout(task, deadlineTick);
+        this.add(timeout);
+        this.size++;
+        return timeout;
+    }
+
+    private void add(final Timeout timeout) {
+        final long delta = timeout.deadlineTick - this.currentTick;
+        int level = 0;
+        while (level < this.levels.length - 1 && delta >= this.span(level)) {
+            level++;
+        }
+        // beyond the last level, the timeout waits in its farthest bucket and is placed again when it is cascaded
+        final long tick = Math.min(timeout.deadlineTick, this.currentTick + this.span(level) - 1);
+        this.levels[level][(int) ((tick >>> (this.bits * level)) & this.mask)].add(timeout);
+    }
+
+    /**
+     * @return the number of ticks covered by the levels 0 to level
+     */
+    private long span(final int level) {
+        return 1L << (this.bits * (level + 1));
+    }
+
+    /**
+     * Advance the wheel up to nowMillis and run the expired tasks
+     * @param nowMillis
+     * @return the number of tasks run
+     */
+    public int advance(final long nowMillis) {
+        final long targetTick = (nowMillis - this.startMillis) / this.tickMillis;
+        int expired = 0;
+        while (this.currentTick < targetTick) {
+            this.currentTick++;
+            // a rotation of the level below is complete : the next bucket of the upper level moves down
+            for (int level = 1; level < this.levels.length && (this.currentTick & (this.span(level - 1) - 1)) == 0; level++) {
+                this.cascade(this.levels[level][(int) ((this.currentTick >>> (this.bits * level)) & this.mask)]);
+            }
+            expired += this.expire(this.levels[0][(int) (this.currentTick & this.mask)]);
+        }
+        return expired;
+    }
+
+    private void cascade(final Bucket bucket) {
+        Timeout timeout = bucket.clear();
+        while (timeout != null) {
+            final Timeout next = timeout.next;
+            timeout.next = null;
+            timeout.previous = null;
+            this.add(timeout);
+            timeout = next;
+        }
+    }
+
+    private int expire(final Bucket bucket) {
+        // the expired timeouts are removed before running them : a task may schedule or cancel timeouts
+        Timeout timeout = bucket.clear();
+        while (timeout != null) {
+            final Timeout next = timeout.next;
+            timeout.next = null;
+            timeout.previous = null;
+            this.size--;
+            this.expired.add(timeout);
+            timeout = next;
+        }
+        int run = 0;
+        for (int i = 0; i < this.expired.size(); i++) {
+            final Timeout expiredTimeout = this.expired.get(i);
+            if (!expiredTimeout.done) {
+                expiredTimeout.done = true;
+                run++;
+                expiredTimeout.task.run();
+            }
+        }
+        this.expired.clear();
+        return run;
+    }
+
+    /**
+     * @return the time of the next tick
+     */
+    public long getNextTickMillis() {
+        return this.startMillis + (this.currentTick + 1) * this.tickMillis;
+    }
+
+    /**
+     * @return the number of scheduled timeouts
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * A scheduled task
+     */
+    public final class Timeout {
+        private final Runnable task;
+        private final long deadlineTick;
+        private Bucket bucket;
+        private boolean done;
+        private Timeout previous;
+        private Timeout next;
+
+        private Timeout(final Runnable task, final long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * @return false once run or canceled
+         */
+        public boolean isPending() {
+            return !this.done;
+        }
+
+        /**
+         * Cancel the task. No effect if it is already run or canceled.
+         */
+        public void cancel() {
+            if (this.done) {
+                return;
+            }
+            this.done = true;
+            if (this.bucket != null) {
+                this.bucket.remove(this);
+                TimerWheel.this.size--;
+            }
+        }
+    }
+
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(final Timeout timeout) {
+            timeout.bucket = this;
+            timeout.previous = this.tail;
+            if (this.tail == null) {
+                this.head = timeout;
+            } else {
+                this.tail.next = timeout;
+            }
+            this.tail = timeout;
+        }
+
+        private void remove(final Timeout timeout) {
+            if (timeout.previous == null) {
+                this.head = timeout.next;
+            } else {
+                timeout.previous.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                this.tail = timeout.previous;
+            } else {
+                timeout.next.previous = timeout.previous;
+            }
+            timeout.bucket = null;
+            timeout.previous = null;
+            timeout.next = null;
+        }
+
+        /**
+         * Empty the bucket
+         * @return the first timeout of the detached list, linked by next
+         */
+        private Timeout clear() {
+            final Timeout first = this.head;
+            for (Timeout timeout = first; timeout != null; timeout = timeout.next) {
+                timeout.bucket = null;
+            }
+            this.head = null;
+            this.tail = null;
+            return first;
+        }
+    }
+}
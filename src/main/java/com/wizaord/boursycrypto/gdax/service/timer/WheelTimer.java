@@ -0,0 +1,265 @@
+package com.wizaord.boursycrypto.gdax.service.timer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Timer of the application : a {@link TimerWheel} advanced by a dedicated thread (timer-wheel).
+ * Timeouts can be scheduled and canceled from any thread : they are handed to the timer thread through lock free
+ * queues. When a timeout expires, its task is submitted to the executor given at scheduling (the thread of a product
+ * shard, or the timer thread itself for the short tasks) so that it runs where its state lives.
+ * Metrics :
+ *  - timer.lag : delay between the deadline of a timeout and the start of its task, by executor
+ *  - timer.tick.lag : how late the timer thread wakes up compared to the planned tick
+ *  - timer.pending : the scheduled timeouts
+ * The wheel runs on System.nanoTime : a change of the wall clock does not move the deadlines.
+ */
+@Service
+public class WheelTimer implements MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WheelTimer.class);
+    private static final long TICK_MILLIS = 10;
+    private static final int WHEEL_SIZE = 256;
+    private static final int NB_LEVELS = 4;
+    private static final int PENDING = 0;
+    private static final int CANCELED = 1;
+    private static final int EXPIRED = 2;
+
+    /**
+     * Executor running the tasks on the timer thread. The tasks must be short and must not block.
+     */
+    public static final Executor TIMER_THREAD = Runnable::run;
+
+    private final TimerWheel wheel = new TimerWheel(TICK_MILLIS, WHEEL_SIZE, NB_LEVELS, nowMillis());
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> canceled = new ConcurrentLinkedQueue<>();
+    private final ConcurrentMap<String, Timer> lagTimers = new ConcurrentHashMap<>();
+    private volatile MeterRegistry registry;
+    private volatile Timer tickLagTimer;
+    private volatile int pendingCount;
+    private volatile boolean running;
+    private Thread thread;
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        this.registry = registry;
+        this.tickLagTimer = Timer.builder("timer.tick.lag").description("late wake ups of the timer thread").register(registry);
+        Gauge.builder("timer.pending", this, WheelTimer::getPendingCount)
+                .description("timeouts scheduled on the timer wheel")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        this.running = true;
+        this.thread = new Thread(this::run, "timer-wheel");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        this.running = false;
+        if (this.thread != null) {
+            this.thread.interrupt();
+        }
+    }
+
+    /**
+     * Schedule a task
+     * @param delayMillis
+     * @param executor executor of the task when the timeout expires
+     * @param executorName name of the executor in the lag metrics
+     * @param task
+     * @return the timeout, to cancel it
+     */
+    public Timeout schedule(final long delayMillis, final Executor executor, final String executorName, final Runnable task) {
+        return this.schedule(delayMillis, 0, executor, executorName, task);
+    }
+
+    /**
+     * Schedule a periodic task. The next run is planned at the previous deadline + the period ; the runs missed
+     * while the executor was busy are skipped.
+     * @param initialDelayMillis
+     * @param periodMillis
+     * @param executor executor of the task
+     * @param executorName name of the executor in the lag metrics
+     * @param task
+     * @return the timeout, to cancel all the next runs
+     */
+    public Timeout scheduleAtFixedRate(final long initialDelayMillis, final long periodMillis, final Executor executor, final String executorName,
+                                       final Runnable task) {
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("Invalid period " + periodMillis);
+        }
+        return this.schedule(initialDelayMillis, periodMillis, executor, executorName, task);
+    }
+
+    private Timeout schedule(final long delayMillis, final long periodMillis, final Executor executor, final String executorName, final Runnable task) {
+        final Timeout timeout = new Timeout(task, executor, executorName, nowMillis() + Math.max(0, delayMillis), periodMillis);
+        this.scheduled.offer(timeout);
+        return timeout;
+    }
+
+    /**
+     * @return the number of scheduled timeouts
+     */
+    public int getPendingCount() {
+        return this.pendingCount + this.scheduled.size();
+    }
+
+    private void run() {
+        while (this.running) {
+            final long plannedTick = this.wheel.getNextTickMillis();
+            long now = nowMillis();
+            if (plannedTick > now) {
+                try {
+                    Thread.sleep(plannedTick - now);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                now = nowMillis();
+            }
+            final Timer tickLag = this.tickLagTimer;
+            if (tickLag != null) {
+                tickLag.record(Math.max(0, now - plannedTick), TimeUnit.MILLISECONDS);
+            }
+            try {
+                this.transferScheduled(now);
+                this.removeCanceled();
+                this.wheel.advance(now);
+            } catch (RuntimeException e) {
+                LOG.error("Timer wheel error", e);
+            }
+            this.pendingCount = this.wheel.size();
+        }
+    }
+
+    private void transferScheduled(final long now) {
+        Timeout timeout;
+        while ((timeout = this.scheduled.poll()) != null) {
+            if (timeout.state.get() == PENDING) {
+                timeout.wheelTimeout = this.wheel.schedule(timeout::expire, timeout.deadlineMillis - now, now);
+            }
+        }
+    }
+
+    private void removeCanceled() {
+        Timeout timeout;
+        while ((timeout = this.canceled.poll()) != null) {
+            if (timeout.wheelTimeout != null) {
+                timeout.wheelTimeout.cancel();
+            }
+        }
+    }
+
+    private Timer lagTimer(final String executorName) {
+        final MeterRegistry meterRegistry = this.registry;
+        if (meterRegistry == null) {
+            return null;
+        }
+        return this.lagTimers.computeIfAbsent(executorName, name -> Timer.builder("timer.lag")
+                .tag("executor", name)
+                .description("delay between the deadline of a timeout and the start of its task")
+                .register(meterRegistry));
+    }
+
+    private static long nowMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /**
+     * A scheduled task. It can be canceled from any thread until its task starts.
+     */
+    public final class Timeout {
+        private final Runnable task;
+        private final Executor executor;
+        private final String executorName;
+        private final long periodMillis;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        // written by the thread running the task, read by the timer thread after the queue hand off
+        private long deadlineMillis;
+        // timer thread only
+        private TimerWheel.Timeout wheelTimeout;
+
+        private Timeout(final Runnable task, final Executor executor, final String executorName, final long deadlineMillis, final long periodMillis) {
+            this.task = task;
+            this.executor = executor;
+            this.executorName = executorName;
+            this.deadlineMillis = deadlineMillis;
+            this.periodMillis = periodMillis;
+        }
+
+        /**
+         * @return false once a one shot task is started, or once the timeout is canceled
+         */
+        public boolean isPending() {
+            return this.state.get() == PENDING;
+        }
+
+        /**
+         * Cancel the task. No effect if it is already started or canceled.
+         */
+        public void cancel() {
+            if (this.state.compareAndSet(PENDING, CANCELED)) {
+                WheelTimer.this.canceled.offer(this);
+            }
+        }
+
+        /**
+         * Timer thread : the deadline is reached
+         */
+        private void expire() {
+            try {
+                this.executor.execute(this::runTask);
+            } catch (RejectedExecutionException e) {
+                LOG.debug("Timeout rejected by its executor, it is shut down");
+                this.state.set(CANCELED);
+            }
+        }
+
+        private void runTask() {
+            if (this.periodMillis == 0 && !this.state.compareAndSet(PENDING, EXPIRED)) {
+                return;
+            }
+            if (this.periodMillis > 0 && this.state.get() != PENDING) {
+                return;
+            }
+            final long start = nowMillis();
+            final Timer lagTimer = WheelTimer.this.lagTimer(this.executorName);
+            if (lagTimer != null) {
+                lagTimer.record(Math.max(0, start - this.deadlineMillis), TimeUnit.MILLISECONDS);
+            }
+            try {
+                this.task.run();
+            } catch (RuntimeException e) {
+                LOG.error("Scheduled task failed", e);
+            }
+            if (this.periodMillis > 0 && this.state.get() == PENDING) {
+                this.deadlineMillis += this.periodMillis;
+                final long now = nowMillis();
+                if (this.deadlineMillis < now) {
+                    this.deadlineMillis += ((now - this.deadlineMillis) / this.periodMillis + 1) * this.periodMillis;
+                }
+                WheelTimer.this.scheduled.offer(this);
+            }
+        }
+    }
+}
@@ -1,35 +1,65 @@
 package com.wizaord.boursycrypto.gdax.service.trade;
 
+import com.wizaord.boursycrypto.gdax.config.properties.Achat;
 import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
-import com.wizaord.boursycrypto.gdax.domain.E_TradingSellMode;
+import com.wizaord.boursycrypto.gdax.domain.E_TriggerSide;
 import com.wizaord.boursycrypto.gdax.domain.api.Fill;
 import com.wizaord.boursycrypto.gdax.domain.api.Order;
 import com.wizaord.boursycrypto.gdax.domain.feedmessage.*;
+import com.wizaord.boursycrypto.gdax.domain.market.PriceEvent;
+import com.wizaord.boursycrypto.gdax.domain.snapshot.TradingSnapshot;
+import com.wizaord.boursycrypto.gdax.domain.strategy.MarketView;
+import com.wizaord.boursycrypto.gdax.domain.strategy.OrderIntent;
+import com.wizaord.boursycrypto.gdax.domain.trade.PositionBook;
+import com.wizaord.boursycrypto.gdax.domain.trade.PositionLot;
+import com.wizaord.boursycrypto.gdax.domain.trade.TradingState;
+import com.wizaord.boursycrypto.gdax.domain.trade.TrailingBuy;
 import com.wizaord.boursycrypto.gdax.service.AccountService;
+import com.wizaord.boursycrypto.gdax.service.execution.ExecutionService;
 import com.wizaord.boursycrypto.gdax.service.gdax.OrderService;
+import com.wizaord.boursycrypto.gdax.service.market.PriceTriggerService;
+import com.wizaord.boursycrypto.gdax.service.market.TriggerIndex;
+import com.wizaord.boursycrypto.gdax.service.metrics.FeedLagMonitor;
+import com.wizaord.boursycrypto.gdax.service.metrics.LatencyService;
 import com.wizaord.boursycrypto.gdax.service.notify.SlackService;
+import com.wizaord.boursycrypto.gdax.service.strategy.StrategyEngine;
+import com.wizaord.boursycrypto.gdax.service.timer.TimerService;
 import com.wizaord.boursycrypto.gdax.utils.MathUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
 
+import javax.annotation.PostConstruct;
 import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 
-import static com.wizaord.boursycrypto.gdax.domain.E_TradingMode.ACHAT;
+import static com.wizaord.boursycrypto.gdax.domain.E_LatencyStage.TICK_TO_ACK;
+import static com.wizaord.boursycrypto.gdax.domain.E_LatencyStage.TICK_TO_DECISION;
+import static com.wizaord.boursycrypto.gdax.domain.E_NotificationPriority.HIGH;
 import static com.wizaord.boursycrypto.gdax.domain.E_TradingMode.VENTE;
-import static com.wizaord.boursycrypto.gdax.domain.E_TradingSellMode.BENEFICE;
-import static com.wizaord.boursycrypto.gdax.domain.E_TradingSellMode.WAITING_FOR_BENEFICE;
 import static com.wizaord.boursycrypto.gdax.utils.MathUtils.df;
 
+/**
+ * Trading decisions of a product. The feed notifications and doTrading run on the thread of the product shard ;
+ * the trading state (mode, position book) is only changed through the transitions of {@link TradingState}.
+ * Each lot of the book is sold on its own : its stop order covers its coins and follows its own entry price.
+ * The decisions are taken by the strategies of the {@link StrategyEngine} ; this service executes their intents.
+ */
 @Service
 public class TradeService {
 
     private static final Logger LOG = LoggerFactory.getLogger(TradeService.class);
+    private static final double SELL_FEE_RATE = AccountService.DEFAULT_TAKER_FEE_RATE.doubleValue();
+    private static final double DEFAULT_REBOUND_POURCENT = 0.5;
+    private static final long DEFAULT_TRAILING_TIMEOUT = 1800000;
 
     @Autowired
     private SlackService slackService;
@@ -39,38 +69,180 @@ public class TradeService {
     private OrderService orderService;
     @Autowired
     private ApplicationProperties appProp;
+    @Autowired
+    private LatencyService latencyService;
+    @Autowired
+    private FeedLagMonitor feedLagMonitor;
+    @Autowired
+    private StrategyEngine strategyEngine;
+    @Autowired
+    private PriceTriggerService priceTriggerService;
+    @Autowired
+    private ExecutionService executionService;
 
-    private Double lastCurrentPriceReceived;
+    private volatile Double lastCurrentPriceReceived;
+    private volatile long lastTickReceivedNanos = LatencyService.UNKNOWN_NANOS;
     private double currentPrice;
-    private Fill lastBuyOrder;
-    private OrderOpen stopOrderCurrentOrder;
+    private long currentPriceReceivedNanos = LatencyService.UNKNOWN_NANOS;
+    private boolean pausedOnFeedLag;
+    private final Map<String, TriggerIndex.Trigger> takeProfitTriggers = new HashMap<>();
+    private final Map<String, TriggerIndex.Trigger> localStops = new HashMap<>();
+    private PositionBook indexedPositions;
     @Autowired
     private TradingMode tradeMode;
+    @Autowired
+    private TimerService timerService;
+
+    /**
+     * Le doTrading (suivi des stops) est cadence par le timer, sur le thread du produit
+     */
+    @PostConstruct
+    public void scheduleTrading() {
+        final long delay = Long.parseLong(this.appProp.getTrader().getDelay());
+        this.timerService.scheduleAtFixedRate(delay, delay, this::doTrading);
+    }
 
     public void notifyNewTickerMessage(final Ticker ticMessage) {
+        this.lastTickReceivedNanos = ticMessage.getReceivedNanos();
         this.lastCurrentPriceReceived = ticMessage.getPrice().doubleValue();
         LOG.debug("New Ticker value {}", this.lastCurrentPriceReceived);
+
+        final TradingState state = this.tradeMode.getState();
+        // le book a change depuis le dernier ticker : les take profit surveilles sont mis a jour
+        if (state.getPositions() != this.indexedPositions) {
+            this.indexTakeProfits(state.getPositions());
+        }
+
+        // le stop-buy suiveur est suivi a chaque ticker, sans attendre le prochain doTrading
+        final TrailingBuy trail = state.getBuyTrail();
+        if (trail != null && !trail.isSubmitted()) {
+            this.followBuyTrail(trail, this.lastCurrentPriceReceived, this.lastTickReceivedNanos);
+        }
+    }
+
+    /**
+     * Surveille le take profit des lots qui ne sont pas encore en benefice : des que le cours l'atteint,
+     * les strategies sont evaluees sans attendre le prochain doTrading
+     * @param positions
+     */
+    private void indexTakeProfits(final PositionBook positions) {
+        this.indexedPositions = positions;
+        for (PositionLot lot : positions.getLots()) {
+            final boolean secured = lot.getStopOrder() != null && lot.getStopOrder().getPrice().compareTo(lot.getEntryPrice()) > 0;
+            final double level = lot.getTakeProfitPrice();
+            TriggerIndex.Trigger trigger = this.takeProfitTriggers.get(lot.getLotId());
+            if (trigger != null && (secured || trigger.getLevel() != level)) {
+                trigger.cancel();
+                this.takeProfitTriggers.remove(lot.getLotId());
+                trigger = null;
+            }
+            if (!secured && trigger == null) {
+                final String lotId = lot.getLotId();
+                this.takeProfitTriggers.put(lotId, this.priceTriggerService.register(level, E_TriggerSide.ABOVE, price -> this.notifyTakeProfit(lotId, price)));
+            }
+        }
+        // lots vendus
+        this.takeProfitTriggers.entrySet().removeIf(entry -> {
+            if (positions.getLot(entry.getKey()) != null) {
+                return false;
+            }
+            entry.getValue().cancel();
+            return true;
+        });
+    }
+
+    private void notifyTakeProfit(final String lotId, final double price) {
+        LOG.info("TAKE PROFIT - lot {} - cours {}", lotId, df.format(price));
+        this.evaluateNow(Collections.emptyList());
+    }
+
+    /**
+     * Suivi du stop-buy : on suit le cours qui baisse, et on achete des que le cours remonte au dessus du seuil
+     * @param trail
+     * @param price
+     * @param tickNanos
+     */
+    private void followBuyTrail(final TrailingBuy trail, final double price, final long tickNanos) {
+        if (System.currentTimeMillis() - trail.getStartedAt() > this.getTrailingTimeout()) {
+            this.expireBuyTrail(trail.getStartedAt());
+            return;
+        }
+        if (price < trail.getTriggerPrice()) {
+            this.tradeMode.transition("buy trail followed", state -> state.buyTrailFollowed(price));
+            return;
+        }
+        // si le flux est en retard, le cours n'est pas fiable : on attend
+        if (this.feedLagMonitor.isLagging()) {
+            return;
+        }
+
+        final long decisionNanos = System.nanoTime();
+        this.latencyService.recordSince(TICK_TO_DECISION, tickNanos);
+        final double funds = Math.min(trail.getFunds(), this.accountService.getMoney());
+        final String message = "STOP BUY - rebound to " + df.format(price) + " from " + df.format(trail.getLowestPrice()) + " - buy for " + df.format(funds);
+        LOG.info(message);
+        if (this.appProp.getTrader().getModeVisualisation() || funds <= 0) {
+            this.endBuyTrail("buy trail not placed");
+            return;
+        }
+        final Optional<Order> order = this.orderService.placeMarketBuyOrder(funds, decisionNanos);
+        if (order.isPresent()) {
+            this.latencyService.recordSince(TICK_TO_ACK, tickNanos);
+            this.latencyService.expectConfirmation(order.get().getId(), tickNanos, System.nanoTime());
+            this.tradeMode.transition("buy order placed", state -> state.buySubmitted(order.get().getId()));
+            this.slackService.postCustomMessage(message, HIGH);
+        } else {
+            this.endBuyTrail("buy order refused");
+        }
+    }
+
+    /**
+     * Fin du stop-buy suiveur sans rebond, meme si aucun ticker n'arrive
+     * @param startedAt debut du stop-buy expire
+     */
+    private void expireBuyTrail(final long startedAt) {
+        final TrailingBuy trail = this.tradeMode.getState().getBuyTrail();
+        if (trail == null || trail.isSubmitted() || trail.getStartedAt() != startedAt) {
+            return;
+        }
+        LOG.info("STOP BUY - no rebound since {}, lowest price {}", new Date(trail.getStartedAt()), df.format(trail.getLowestPrice()));
+        this.endBuyTrail("buy trail expired");
+    }
+
+    /**
+     * Fin du stop-buy sans achat : les fonds reserves sont rendus aux autres produits
+     * @param event
+     */
+    private void endBuyTrail(final String event) {
+        this.tradeMode.transition(event, TradingState::buyTrailEnded);
+        this.accountService.releaseMoney();
+    }
+
+    private long getTrailingTimeout() {
+        final Integer timeout = this.appProp.getTrader().getAchat().getTrailingTimeout();
+        return (timeout == null) ? DEFAULT_TRAILING_TIMEOUT : timeout;
     }
 
     /**
      * Algo mis en place.
      * Si pas encore de cours sur le prix, on ne fait rien
-     * Si on est pas en mode VENTE, on ne fait rien
-     * Si on est en mode VENTE
-     * - on regarde si un stopOrder est positionné. Si non, on le positionne a XX% en dessous du prix en cours (possible si lors du demarrage de l'application, le cours est tellement bas qu'on ne peut pas mettre le stopOrder)
-     * - on calcule la balance et on l'affiche
-     * - si on est en deficite, on ne change pas le stop order
-     * - si on est en bénéfice, on positionne le stopOrder juste pour gagner de l'argent
-     * - et ensuite on fait monter ce stopOrder en fonction de la courbe
+     * Si le cours a change :
+     * - en mode VENTE, on calcule la balance de chaque lot et on l'affiche
+     * - les strategies (stop suiveur de vente, alerte d'achat, strategies chargees...) sont evaluees avec le nouveau cours
+     * - les ordres demandes par les strategies sont passes (sauf en mode visualisation pour les stop orders)
      */
-    @Scheduled(fixedRateString = "${application.trader.delay}")
-    public synchronized void doTrading() {
+    public void doTrading() {
         // si on a pas de cours, on ne fait rien. Sans prix, on ne peut rien faire
         if (this.lastCurrentPriceReceived == null) {
             LOG.info("en attente d une premiere transaction pour connaitre le cours");
             return;
         }
 
+        // si le flux est en retard, le cours n'est pas fiable : on suspend le trading
+        if (this.isPausedOnFeedLag()) {
+            return;
+        }
+
         if (currentPrice == this.lastCurrentPriceReceived) {
             LOG.debug("Pas d'evolution du Prix. En attente de changement.");
             return;
@@ -78,213 +250,283 @@ public class TradeService {
 
         // on va travailler avec le currentPrice, on le sauvegarde
         this.currentPrice = this.lastCurrentPriceReceived;
+        this.currentPriceReceivedNanos = this.lastTickReceivedNanos;
 
-        switch (this.tradeMode.getTraderMode()) {
+        final TradingState state = this.tradeMode.getState();
+        switch (state.getMode()) {
             case ACHAT:
                 LOG.info("MODE ACHAT - cours {}", this.currentPrice);
                 break;
             case VENTE:
-                this.logVenteEvolution();
-                if (!this.appProp.getTrader().getModeVisualisation()) {
-                    LOG.debug("MODE VENTE");
-                    this.doTradingSell();
-                }
+                state.getPositions().getLots().forEach(this::logVenteEvolution);
                 break;
         }
-    }
 
+        this.evaluateStrategies(state, Collections.emptyList());
+    }
 
     /**
-     * Fonction qui détermine le mode de vente. Soit en benefice et on suit la courbe. Soit en mode attente
-     * On est en mode benefice et donc on suit la courbe qui monte si :
-     * - possible si stopOrder n'existe pas              et benefice supérieur à la valeur configurée dans le fichier de configuration
-     * - possible si stopOrder inférieur au prix d'achat et benefice supérieur à la valeur configurée dans le fichier de configuration
-     * - possible si le prix du stopOrder est supérieur au prix d'achat => deja en mode benefice
-     *
-     * @returns {E_TRADESELLMODE}
+     * Le detecteur a vu une chute ou un rebond du cours : les strategies sont evaluees tout de suite,
+     * sans attendre le prochain doTrading
+     * @param event
      */
-    private E_TradingSellMode determineTradeSellMode() {
-        final double coursRequisPourBenefice = MathUtils
-                .calculateAddPourcent(this.lastBuyOrder.getPrice().doubleValue(), appProp.getTrader().getVente().getBenefice()
-                        .getPourcentBeforeStartVenteMode());
-        final double lastOrderPrice = this.lastBuyOrder.getPrice().doubleValue();
-        final boolean isStopOrderPlaced = (this.stopOrderCurrentOrder != null);
-
-        if (isStopOrderPlaced) {
-            final double sellOrderPrice = this.stopOrderCurrentOrder.getPrice().doubleValue();
-            if (sellOrderPrice > lastOrderPrice) {
-                // on est dans le cas où on a déjà été en BENEFICE. On y reste
-                return BENEFICE;
-            }
-        }
-        // le stop order est posé ou pas. On est en bénéfice uniquement si le cours le permet
-        if (this.currentPrice >= coursRequisPourBenefice) {
-            return BENEFICE;
-        }
-        // on a pas engendré assez de bénéfices
-        return WAITING_FOR_BENEFICE;
+    public void notifyPriceEvent(final PriceEvent event) {
+        LOG.info("PRICE EVENT - {} de {}% en {} s - reference {} - cours {}", event.getType(), df.format(event.getEvolution()),
+                event.getHorizon() / 1000, df.format(event.getReferencePrice()), df.format(event.getPrice()));
+        this.evaluateNow(Collections.singletonList(event));
     }
 
-    public void notifyBuyOrderPassed(Fill order) {
-        // on recherche toutes les fills pour cette order.
-        Optional<List<Fill>> fills = this.orderService.loadFillsForOrderId(order.getOrder_id());
-
-        if (fills.isPresent()) {
-            order.setFee(new BigDecimal(0));
-            order.setSize(new BigDecimal(0));
-            Fill reducedFill = fills.get().stream()
-                    .reduce(order, (a, b) -> {
-                        a.setFee(a.getFee().add(b.getFee()));
-                        a.setSize(a.getSize().add(b.getSize()));
-                        return a;
-                    });
-            final String message = "NEW FILL - Price <" + df.format(order.getPrice()) + "> size<" + df.format(reducedFill.getSize()) + "> fee<" + df.format(reducedFill.getFee()) + ">";
-            LOG.info(message);
-            slackService.postCustomMessage(message);
-            this.tradeMode.setTraderMode(VENTE);
-            this.accountService.refreshBalance();
-            this.lastBuyOrder = reducedFill;
+    /**
+     * Evaluation des strategies avec le dernier cours, en dehors du doTrading
+     * @param priceEvents
+     */
+    private void evaluateNow(final List<PriceEvent> priceEvents) {
+        if (this.lastCurrentPriceReceived == null || this.isPausedOnFeedLag()) {
+            return;
         }
+        this.currentPrice = this.lastCurrentPriceReceived;
+        this.currentPriceReceivedNanos = this.lastTickReceivedNanos;
+        this.evaluateStrategies(this.tradeMode.getState(), priceEvents);
     }
 
-    public void notifySellOrderFinished(final Match order) {
-        final double sellPrice = order.getPrice();
-        final double balance = getBalance(sellPrice, order.getSize());
-        final String message = "ORDER PASSED => price: " + df.format(sellPrice) + " quantity :" + df.format(order.getSize()) + " - gain/perte " + df.format(balance)+ " evol: " +df.format(MathUtils.calculatePourcentDifference(sellPrice, this.lastBuyOrder.getPrice().doubleValue()));
-
-        LOG.info(message);
-        this.slackService.postCustomMessage(message);
-
-        stopOrderRemove();
-        this.accountService.refreshBalance();
-        if (this.accountService.getBtc() > 0) {
-            //Still BTC... Set in VENTE MODE
-            this.tradeMode.setTraderMode(VENTE);
-        } else {
-            // nothing to sell, pass in BUY MODE
-            this.tradeMode.setTraderMode(ACHAT);
-        }
+    private void evaluateStrategies(final TradingState state, final List<PriceEvent> priceEvents) {
+        final MarketView market = MarketView.builder()
+                .productName(this.appProp.getProduct().getName())
+                .price(this.currentPrice)
+                .priceReceivedNanos(this.currentPriceReceivedNanos)
+                .priceEvents(priceEvents)
+                .tradingState(state)
+                .build();
+        this.strategyEngine.evaluate(market).forEach(this::execute);
     }
 
-    public void logVenteEvolution() {
-        final double fee = this.lastBuyOrder.getFee().doubleValue();
-        final double price = this.lastBuyOrder.getPrice().doubleValue();
-        final double evolution = MathUtils.calculatePourcentDifference(this.currentPrice, this.lastBuyOrder.getPrice().doubleValue());
-
-        String message = "COURS EVOL : - achat " + df.format(price) + " - fee " + df.format(fee) + " - now " + this.currentPrice;
-        message += " - benefice " + df.format(this.getBalance(this.currentPrice, this.lastBuyOrder.getSize().doubleValue())) + " E - evolution " + df.format(evolution) + "%";
-        message += (this.stopOrderCurrentOrder != null) ? " <sop " + df.format(this.stopOrderCurrentOrder.getPrice()) + "> " : " <sonp>";
-        LOG.info(message);
+    /**
+     * Passe un ordre demande par une strategie
+     * @param intent
+     */
+    private void execute(final OrderIntent intent) {
+        switch (intent.getType()) {
+            case STOP_SELL:
+                if (this.appProp.getTrader().getModeVisualisation()) {
+                    LOG.info("MODE VISUALISATION - {} : stop order of lot {} to {}", intent.getStrategy(), intent.getLotId(), df.format(intent.getPrice()));
+                    return;
+                }
+                // le lot a pu etre vendu pendant l'evaluation, ou etre en cours de vente
+                final PositionLot lot = this.tradeMode.getState().getPositions().getLot(intent.getLotId());
+                if (lot != null && !this.executionService.isExecuting(lot.getLotId())) {
+                    this.stopOrderPlace(lot, intent.getPrice());
+                }
+                break;
+            case BUY_ALERT:
+                this.slackService.postListChannel(intent.getMessage());
+                break;
+            case BUY_TRAIL:
+                this.armBuyTrail(intent);
+                break;
+        }
     }
 
 
-    public double getBalance(final double currentPrice, final double quantity) {
-        final double lastOrderPrice = this.lastBuyOrder.getPrice().doubleValue();
-        double feeAchat = this.lastBuyOrder.getFee().doubleValue();
-        if (feeAchat != 0) {
-            feeAchat = quantity * lastOrderPrice * 0.0025;
+    /**
+     * Suspend le trading tant que le retard du flux depasse application.trader.maxFeedLag
+     *
+     * @return true si le trading est suspendu
+     */
+    private boolean isPausedOnFeedLag() {
+        final boolean lagging = this.feedLagMonitor.isLagging();
+        if (lagging != this.pausedOnFeedLag) {
+            this.pausedOnFeedLag = lagging;
+            final String message = lagging
+                    ? "TRADING PAUSED - feed lag " + this.feedLagMonitor.getFeedLagMillis() + " ms"
+                    : "TRADING RESUMED - feed lag " + this.feedLagMonitor.getFeedLagMillis() + " ms";
+            LOG.warn(message);
+            this.slackService.postCustomMessage(message, HIGH);
         }
-        final double feeVente = quantity * currentPrice * 0.0025;
-
-        final double prixVente = (quantity * currentPrice) - feeVente;
-        final double coutAchat = (quantity * lastOrderPrice) + feeAchat;
-        return prixVente - coutAchat;
+        return lagging;
     }
 
     /**
-     * realisation du trading en mode VENTE
+     * Arme le stop-buy suiveur. Le montant est limite par maxBuyAmount et par l'argent disponible ; il est reserve :
+     * les autres produits ne peuvent pas engager les memes fonds
+     * @param intent
      */
-    private void doTradingSell() {
-        final boolean isStopOrderPlaced = (this.stopOrderCurrentOrder != null);
-
-        // positionnement du stop order de secours si activé dans le fichier de configuration
-        if (this.appProp.getTrader().getVente().getSecureStopOrder().getActivate() && !isStopOrderPlaced) {
-            final double negativeWaitPourcent = this.appProp.getTrader().getVente().getSecureStopOrder().getPourcent();
-            final double stopPrice = MathUtils.calculateRemovePourcent(this.currentPrice, negativeWaitPourcent);
-            LOG.info("MODE VENTE - Place a SECURE stop order to {}", df.format(stopPrice));
-            this.stopOrderPlace(stopPrice);
+    private void armBuyTrail(final OrderIntent intent) {
+        if (this.tradeMode.getState().getBuyTrail() != null) {
             return;
         }
-
-        // on verifie si on est deja en benefice ou non
-        //      - possible si stopOrder n'existe pas              et benefice supérieur à la valeur configurée dans le fichier de configuration
-        //      - possible si stopOrder inférieur au prix d'achat et benefice supérieur à la valeur configurée dans le fichier de configuration
-        //      - possible si le prix du stopOrder est supérieur au prix d'achat => deja en mode benefice
-        E_TradingSellMode sellMode = this.determineTradeSellMode();
-        switch (sellMode) {
-            case WAITING_FOR_BENEFICE:
-                final double coursRequisPourBenefice = MathUtils
-                        .calculateAddPourcent(this.lastBuyOrder.getPrice().doubleValue(), this.appProp.getTrader().getVente().getBenefice()
-                                .getPourcentBeforeStartVenteMode());
-                LOG.debug("MODE VENTE - Not enougth benef. Waiting benefice to : {}", df.format(coursRequisPourBenefice));
-                break;
-            case BENEFICE:
-                LOG.debug("MODE VENTE - Sell Order posts in benefice. Just wait or replace sell order");
-                this.doTradingSellBenefice();
-                break;
+        final Achat achat = this.appProp.getTrader().getAchat();
+        final double maxBuyAmount = (achat.getMaxBuyAmount() == null) ? 0 : achat.getMaxBuyAmount();
+        final double funds = this.accountService.reserveMoney(maxBuyAmount);
+        if (funds <= 0) {
+            LOG.info("{} - no money to buy", intent.getMessage());
+            return;
         }
+        final TrailingBuy trail = TrailingBuy.builder()
+                .startedAt(System.currentTimeMillis())
+                .lowestPrice(intent.getPrice())
+                .reboundPourcent((achat.getReboundPourcent() == null) ? DEFAULT_REBOUND_POURCENT : achat.getReboundPourcent())
+                .funds(funds)
+                .build();
+        this.tradeMode.transition("buy trail armed", state -> state.buyTrailArmed(trail));
+        this.timerService.schedule(this.getTrailingTimeout(), () -> this.expireBuyTrail(trail.getStartedAt()));
+        this.slackService.postListChannel(intent.getMessage() + " - STOP BUY a " + df.format(trail.getTriggerPrice()) + " pour " + df.format(funds));
     }
 
     /**
-     * Fonction de gestion quand on est en mode vente et BENEFICE
-     * Si le stopOrder n'est pas positionné ou inférieur au prix du lastOrderPrice, on le position au seuil minimal
-     * Ensuite on fait monter ce stopOrder en fonction du cours
+     * Notifie le positionnement d'un ordre d'achat
+     * @param order
      */
-    private void doTradingSellBenefice() {
-        final double lastOrderPrice = this.lastBuyOrder.getPrice().doubleValue();
-        final double seuilStopPrice = MathUtils
-                .calculateAddPourcent(lastOrderPrice, this.appProp.getTrader().getVente().getBenefice().getInitialPourcent());
-        final boolean isStopOrderPlaced = (this.stopOrderCurrentOrder != null);
-
-        // test si aucun stop order n'est positionné
-        if (!isStopOrderPlaced) {
-            // positionnement d'un stop order au prix seuil
-            this.stopOrderPlace(seuilStopPrice);
-            return;
-        }
+    public void notifyBuyOrderOpen(final OrderOpen order) {
+        LOG.info("Buy order {} open at {} for {}", order.getOrderId(), order.getPrice(), order.getRemainingSize());
+    }
 
-        // recuperation du seuil du stopOrder
-        final double currentStopOrderPrice = this.stopOrderCurrentOrder.getPrice().doubleValue();
+    /**
+     * Un ordre d'achat est termine : son lot est consolide avec les fills de l'ordre
+     * @param order
+     */
+    public void notifyBuyOrderPassed(Fill order) {
+        this.loadLot(order).ifPresent(lot -> {
+            final String message = "NEW FILL - Price <" + df.format(lot.getEntryPrice()) + "> size<" + df.format(lot.getSize()) + "> fee<" + df.format(lot.getFee()) + ">";
+            LOG.info(message);
+            slackService.postCustomMessage(message, HIGH);
+            final TradingState state = this.tradeMode.transition("buy order passed", current -> current.buyFilled(lot));
+            if (state.getBuyTrail() == null) {
+                // the money spent is now in the fills of the ledger
+                this.accountService.releaseMoney();
+            }
+        });
+    }
 
-        // test si le stop order est le stop de secours
-        if (isStopOrderPlaced && currentStopOrderPrice < lastOrderPrice) {
-            this.stopOrderPlace(seuilStopPrice);
+    /**
+     * Un achat a ete realise sur le user channel : le lot de l'ordre est mis a jour sans attendre la fin de l'ordre
+     * @param match
+     */
+    public void notifyBuyMatch(final Match match) {
+        final String lotId = match.getUserOrderId();
+        if (lotId == null || match.getSize() == null || match.getPrice() == null) {
             return;
         }
+        final PositionLot newLot = this.newLot(lotId, match.getTime());
+        final BigDecimal price = BigDecimal.valueOf(match.getPrice());
+        final BigDecimal size = BigDecimal.valueOf(match.getSize());
+        final BigDecimal fee = match.getUserFee(AccountService.DEFAULT_TAKER_FEE_RATE);
+        this.tradeMode.transition("buy match", state -> state.buyMatched(newLot, price, size, fee));
+    }
 
-        // on est dans les benefices et on a le stop order deja positionne pour assurer notre argent.
-        // on fait donc monter le stop en fonction de la hausse de la courbe
-        final double newStopOrderPrice = MathUtils
-                .calculateRemovePourcent(this.currentPrice, this.appProp.getTrader().getVente().getBenefice().getFollowingPourcent());
-
-        if (newStopOrderPrice <= currentStopOrderPrice) {
-            LOG.debug("Cours en chute, on ne repositionne pas le stopOrder qui est a {}", df.format(currentStopOrderPrice));
-        } else {
-            this.stopOrderPlace(newStopOrderPrice);
+    /**
+     * Des coins d'un lot ont ete vendus par son stop order
+     * @param order
+     */
+    public void notifySellOrderFinished(final Match order) {
+        final PositionBook positions = this.tradeMode.getState().getPositions();
+        PositionLot lot = positions.findByStopOrder(order.getUserOrderId());
+        if (lot == null && this.executionService.isChildOrder(order.getUserOrderId())) {
+            lot = positions.getLot(this.executionService.getLotId(order.getUserOrderId()));
+        }
+        if (lot == null && !positions.isEmpty()) {
+            // vente non passee par un stop order du trader : elle est imputee sur le lot le plus ancien
+            lot = positions.getLots().get(0);
+        }
+        if (lot == null) {
+            LOG.warn("Sell match {} without position", order.getTradeId());
             return;
         }
+        final String lotId = lot.getLotId();
+        final double sellPrice = order.getPrice();
+        final double balance = lot.getBalance(sellPrice, order.getSize(), SELL_FEE_RATE);
+        final String message = "ORDER PASSED => price: " + df.format(sellPrice) + " quantity :" + df.format(order.getSize()) + " - gain/perte " + df.format(balance)+ " evol: " +df.format(MathUtils.calculatePourcentDifference(sellPrice, lot.getEntryPrice().doubleValue()));
+
+        LOG.info(message);
+        this.slackService.postCustomMessage(message, HIGH);
+
+        // the balance ledger has already applied this match : still coins => VENTE, nothing to sell => ACHAT
+        final boolean remainingCoins = this.accountService.getBtc() > 0;
+        final BigDecimal size = BigDecimal.valueOf(order.getSize());
+        this.tradeMode.transition("sell order finished", state -> state.sold(lotId, size, remainingCoins));
     }
 
+    public void logVenteEvolution(final PositionLot lot) {
+        final double fee = lot.getFee().doubleValue();
+        final double price = lot.getEntryPrice().doubleValue();
+        final double evolution = MathUtils.calculatePourcentDifference(this.currentPrice, price);
+
+        String message = "COURS EVOL : lot " + lot.getLotId() + " - achat " + df.format(price) + " - fee " + df.format(fee) + " - now " + this.currentPrice;
+        message += " - benefice " + df.format(lot.getBalance(this.currentPrice, lot.getSize().doubleValue(), SELL_FEE_RATE)) + " E - evolution " + df.format(evolution) + "%";
+        message += (lot.getStopOrder() != null) ? " <sop " + df.format(lot.getStopOrder().getPrice()) + "> " : " <sonp>";
+        LOG.info(message);
+    }
 
-    void stopOrderRemove() {
-        if (this.stopOrderCurrentOrder != null) {
-            try {
-                this.orderService.cancelOrder(this.stopOrderCurrentOrder.getOrderId());
-            } catch (HttpClientErrorException e) {
-                LOG.debug("order already deleted");
+    void stopOrderRemove(final PositionLot lot) {
+        final OrderOpen stopOrder = lot.getStopOrder();
+        if (stopOrder != null) {
+            final TriggerIndex.Trigger localStop = this.localStops.remove(stopOrder.getOrderId());
+            if (localStop != null) {
+                localStop.cancel();
+            } else {
+                try {
+                    this.orderService.cancelOrder(stopOrder.getOrderId());
+                } catch (HttpClientErrorException e) {
+                    LOG.debug("order already deleted");
+                }
             }
-            this.stopOrderCurrentOrder = null;
+            this.tradeMode.transition("stop order removed", state -> state.stopOrderRemoved(lot.getLotId()));
         }
     }
     /**
-     * Fonction qui positionne un stopOrder a XX% en dessous du court actuel.
-     * Le XX% est configurable dans le fichier de configuration
+     * Fonction qui positionne le stopOrder d'un lot pour la totalite de ses coins.
      */
-    public void stopOrderPlace(final double price) {
+    public void stopOrderPlace(final PositionLot lot, final double price) {
+        final long decisionNanos = System.nanoTime();
+        final long tickNanos = this.currentPriceReceivedNanos;
+        this.latencyService.recordSince(TICK_TO_DECISION, tickNanos);
         // si un stop order est deja present, il faut le supprimer
-        stopOrderRemove();
-        this.orderService.placeStopSellOrder(price, this.accountService.getBtc())
-                .ifPresent(order -> notifySellOrderActivated(new OrderActivated(order)));
+        stopOrderRemove(lot);
+        if (this.executionService.isEnabled()) {
+            this.localStopPlace(lot, price);
+            return;
+        }
+        this.orderService.placeStopSellOrder(price, lot.getSize().doubleValue(), decisionNanos, lot.getLotId())
+                .ifPresent(order -> {
+                    final long ackNanos = System.nanoTime();
+                    this.latencyService.recordSince(TICK_TO_ACK, tickNanos);
+                    this.latencyService.expectConfirmation(order.getId(), tickNanos, ackNanos);
+                    final OrderOpen stopOrder = new OrderOpen(new OrderActivated(order));
+                    this.tradeMode.transition("stop order placed", state -> state.stopOrderPlaced(lot.getLotId(), stopOrder));
+                    slackService.postCoalescedMessage("sell-order-handle:" + lot.getLotId(), "SELL ORDER HANDLE a " + stopOrder.getPrice() + " pour " + stopOrder.getRemainingSize() + " coins");
+                });
+    }
+
+    /**
+     * Stop order garde localement : quand le cours le franchit, la vente du lot est confiee a l'{@link ExecutionService}
+     * au lieu d'un ordre au marche
+     * @param lot
+     * @param price
+     */
+    private void localStopPlace(final PositionLot lot, final double price) {
+        final OrderOpen stopOrder = new OrderOpen();
+        stopOrder.setOrderId("local-" + UUID.randomUUID());
+        stopOrder.setProductId(this.appProp.getProduct().getName());
+        stopOrder.setSide("sell");
+        stopOrder.setPrice(BigDecimal.valueOf(price));
+        stopOrder.setRemainingSize(lot.getSize());
+        stopOrder.setTime(new Date());
+        final String lotId = lot.getLotId();
+        this.localStops.put(stopOrder.getOrderId(), this.priceTriggerService.register(price, E_TriggerSide.BELOW, crossingPrice -> this.notifyLocalStop(lotId, stopOrder.getOrderId(), crossingPrice)));
+        this.tradeMode.transition("stop order placed", state -> state.stopOrderPlaced(lotId, stopOrder));
+        LOG.info("Positionnement d'un stop local a {} pour le lot {}", df.format(price), lotId);
+        slackService.postCoalescedMessage("sell-order-handle:" + lotId, "SELL ORDER HANDLE a " + df.format(price) + " pour " + lot.getSize() + " coins");
+    }
+
+    private void notifyLocalStop(final String lotId, final String stopOrderId, final double price) {
+        this.localStops.remove(stopOrderId);
+        final PositionLot lot = this.tradeMode.getState().getPositions().getLot(lotId);
+        if (lot == null || !lot.isStopOrder(stopOrderId)) {
+            return;
+        }
+        final String message = "STOP ATTEINT - lot " + lotId + " - cours " + df.format(price) + " - vente par " + this.executionService.getAlgo();
+        LOG.info(message);
+        this.slackService.postCustomMessage(message, HIGH);
+        this.executionService.sell(lotId, lot.getSize());
     }
 
     /**
@@ -302,9 +544,14 @@ public class TradeService {
      * @param order
      */
     public void notifySellOrderOpen(final OrderOpen order) {
-        slackService.postCustomMessage("SELL ORDER HANDLE a " + order.getPrice() + " pour " + order.getRemainingSize() + " coins");
-        this.stopOrderCurrentOrder = order;
-        this.tradeMode.setTraderMode(VENTE);
+        final TradingState state = this.tradeMode.transition("sell order open", current -> current.sellOrderOpen(order).selling());
+        final PositionLot lot = state.getPositions().findByStopOrder(order.getOrderId());
+        if (lot == null) {
+            LOG.warn("Sell order {} is not the stop order of a lot", order.getOrderId());
+        }
+        // les notifications d'un meme lot sont fusionnees
+        final String coalesceKey = "sell-order-handle:" + ((lot == null) ? order.getOrderId() : lot.getLotId());
+        slackService.postCoalescedMessage(coalesceKey, "SELL ORDER HANDLE a " + order.getPrice() + " pour " + order.getRemainingSize() + " coins");
     }
 
     /**
@@ -314,11 +561,11 @@ public class TradeService {
      * @param orderId
      */
     public void notifySellOrderCanceled(String orderId) {
-        if (this.stopOrderCurrentOrder != null && this.stopOrderCurrentOrder.getOrderId().compareTo(orderId) == 0) {
+        if (this.tradeMode.getState().isStopOrder(orderId)) {
             final String message = "Order with ID " + orderId + " is canceled";
             LOG.info(message);
             this.slackService.postCustomMessage(message);
-            this.stopOrderCurrentOrder = null;
+            this.tradeMode.transition("sell order canceled", state -> state.orderCanceled(orderId));
         } else {
             LOG.warn("Order with Id {} has not handle by application", orderId);
         }
@@ -327,10 +574,14 @@ public class TradeService {
     }
 
     /**
-     * A buy order has been canceled. Refresh the account and recalculate mode
+     * A buy order has been canceled. Recalculate mode from the balance ledger
      * @param orderDoneMessage
      */
     public void notifyBuyOrderCanceled(OrderDone orderDoneMessage) {
+        final TrailingBuy trail = this.tradeMode.getState().getBuyTrail();
+        if (trail != null && orderDoneMessage.getOrderId().equals(trail.getOrderId())) {
+            this.endBuyTrail("buy order canceled");
+        }
         this.determineTradeMode();
     }
 
@@ -342,23 +593,89 @@ public class TradeService {
      // else => BUY MODE
      */
     public void determineTradeMode() {
-        this.accountService.refreshBalance();
         Optional<List<Order>> orders = orderService.loadSellOrders();
         boolean isOrderExixt = (orders.isPresent() && ! orders.get().isEmpty());
         if (this.accountService.getBtc() > 0 || isOrderExixt) {
+            // recuperation et injection de l'ordre d'achat. Les coins achetes avant lui sont valorises a son prix
+            final Fill lastFill = this.orderService.getLastBuyFill().get();
+            final BigDecimal btc = BigDecimal.valueOf(this.accountService.getBtc());
+            this.loadLot(lastFill).ifPresent(lot -> {
+                final PositionLot allCoins = (lot.getSize().compareTo(btc) < 0) ? lot.addFill(lot.getEntryPrice(), btc.subtract(lot.getSize()), BigDecimal.ZERO) : lot;
+                this.tradeMode.transition("last buy loaded", state -> state.buyFilled(allCoins));
+            });
             // notify order in the trade service
             if (isOrderExixt) {
-                final Order firstOrder = orders.get().get(0);
-                this.notifySellOrderActivated(new OrderActivated(firstOrder));
+                orders.get().forEach(order -> this.notifySellOrderActivated(new OrderActivated(order)));
             }
-            // recuperation et injection de l'ordre d'achat
-            final Fill lastFill = this.orderService.getLastBuyFill().get();
-            this.notifyBuyOrderPassed(lastFill);
             // mode vente
-            this.tradeMode.setTraderMode(VENTE);
+            this.tradeMode.transition("coins to sell", TradingState::selling);
         } else {
             // mode achat
-            this.tradeMode.setTraderMode(ACHAT);
+            this.tradeMode.transition("nothing to sell", TradingState::buying);
+        }
+    }
+
+    /**
+     * Reprise de l'etat sauvegarde par le snapshot, avec le minimum d'appels REST :
+     * - les lots du snapshot sont conserves si on etait deja en mode VENTE
+     * - le stop order d'un lot est conserve s'il est toujours ouvert
+     * - sans coin, les lots du snapshot ont ete vendus pendant l'arret : ils sont oublies
+     * Dans les autres cas (achat pendant l'arret...), on recalcule le mode complet.
+     *
+     * @param snapshot
+     */
+    public void reconcile(final TradingSnapshot snapshot) {
+        final boolean hasCoins = this.accountService.getBtc() > 0;
+        if (!hasCoins) {
+            if (!snapshot.getLots().isEmpty()) {
+                LOG.info("No coin left, the {} lots of the snapshot have been sold during the stop", snapshot.getLots().size());
+            }
+            this.tradeMode.transition("nothing to sell", TradingState::buying);
+            return;
+        }
+        if (snapshot.getTradingMode() != VENTE || snapshot.getLots().isEmpty()) {
+            LOG.info("Snapshot not usable for the trading state, loading it from GDAX");
+            this.determineTradeMode();
+            return;
+        }
+        this.tradeMode.transition("snapshot restored", state -> state.restored(snapshot.getLots()));
+
+        // les stop orders executes ou annules pendant l'arret sont oublies
+        for (PositionLot lot : snapshot.getLots()) {
+            final OrderOpen stopOrder = lot.getStopOrder();
+            if (stopOrder == null) {
+                continue;
+            }
+            if (this.orderService.isOrderOpen(stopOrder.getOrderId())) {
+                LOG.info("Stop order {} of lot {} restored from the snapshot", stopOrder.getOrderId(), lot.getLotId());
+            } else {
+                this.tradeMode.transition("snapshot stop order closed", state -> state.stopOrderRemoved(lot.getLotId()));
+            }
         }
+        this.tradeMode.transition("snapshot restored", TradingState::selling);
+    }
+
+    /**
+     * @param order un fill de l'ordre d'achat
+     * @return le lot de l'ordre, avec la somme de ses fills
+     */
+    private Optional<PositionLot> loadLot(final Fill order) {
+        // on recherche toutes les fills pour cette order.
+        final Optional<List<Fill>> fills = this.orderService.loadFillsForOrderId(order.getOrder_id());
+        return fills.map(orderFills -> {
+            PositionLot lot = this.newLot(order.getOrder_id(), order.getCreated_at());
+            for (Fill fill : orderFills) {
+                lot = lot.addFill(fill.getPrice(), fill.getSize(), fill.getFee());
+            }
+            return lot.getSize().signum() == 0 ? lot.addFill(order.getPrice(), order.getSize(), order.getFee()) : lot;
+        });
+    }
+
+    private PositionLot newLot(final String lotId, final Date openedAt) {
+        return PositionLot.builder()
+                .lotId(lotId)
+                .openedAt(openedAt)
+                .takeProfitPourcent(this.appProp.getTrader().getVente().getBenefice().getPourcentBeforeStartVenteMode())
+                .build();
     }
 }
@@ -1,34 +1,61 @@
 package com.wizaord.boursycrypto.gdax.service.trade;
 
 import com.wizaord.boursycrypto.gdax.domain.E_TradingMode;
+import com.wizaord.boursycrypto.gdax.domain.trade.TradingState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Holder of the {@link TradingState} of the product.
+ * The state is changed by the thread of the product shard (feed messages and trading decisions) ; the other threads
+ * (metrics, snapshot, startup) read consistent snapshots without locking. The transitions are applied by CAS, they
+ * must be pure functions of the previous state.
+ */
 @Component
 public class TradingMode {
 
     private static final Logger LOG = LoggerFactory.getLogger(TradingMode.class);
 
+    private final AtomicReference<TradingState> state = new AtomicReference<>(TradingState.INITIAL);
+
     /**
-     * Le mode de fonctionnement de l'application
+     * @return the current state
      */
-    private E_TradingMode traderMode = E_TradingMode.NOORDER;
+    public TradingState getState() {
+        return this.state.get();
+    }
 
     /**
      * Getter pour récupérer le mode de transaction
      * @return
      */
     public E_TradingMode getTraderMode() {
-        return traderMode;
+        return this.state.get().getMode();
     }
 
     /**
-     * Fonction permettant de changer le tradingMode
-     * @param mode
+     * Apply a transition on the state
+     * @param event name of the event, for the logs
+     * @param transition
+     * @return the new state
      */
-    public void setTraderMode(final E_TradingMode mode) {
-        LOG.info("New trading mode {}", mode);
-        this.traderMode = mode;
+    public TradingState transition(final String event, final UnaryOperator<TradingState> transition) {
+        TradingState previous;
+        TradingState next;
+        do {
+            previous = this.state.get();
+            next = transition.apply(previous);
+        } while (next != previous && !this.state.compareAndSet(previous, next));
+
+        if (next.getMode() != previous.getMode()) {
+            LOG.info("New trading mode {} ({})", next.getMode(), event);
+        } else {
+            LOG.debug("Trading state {} after {}", next.getVersion(), event);
+        }
+        return next;
     }
 }
@@ -0,0 +1,37 @@
+package com.wizaord.boursycrypto.gdax.web;
+
+import com.wizaord.boursycrypto.gdax.service.metrics.FeedLagMonitor;
+import com.wizaord.boursycrypto.gdax.service.metrics.LatencyService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Export of the tick-to-trade latency percentiles
+ */
+@RestController
+public class LatencyController {
+
+    @Autowired
+    private LatencyService latencyService;
+    @Autowired
+    private FeedLagMonitor feedLagMonitor;
+
+    /**
+     * @return per stage : count, p50, p90, p99, p99.9 and max in microseconds, since the start of the application
+     */
+    @GetMapping("/latency")
+    public Map<String, Map<String, Object>> getLatency() {
+        return this.latencyService.getPercentiles();
+    }
+
+    /**
+     * @return the feed lag percentiles in milliseconds, the lag of the last message and the clock offset
+     */
+    @GetMapping("/latency/feed")
+    public Map<String, Object> getFeedLag() {
+        return this.feedLagMonitor.getPercentiles();
+    }
+}
@@ -0,0 +1,56 @@
+package com.wizaord.boursycrypto.gdax.config.properties;
+
+import org.junit.Test;
+
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ApplicationPropertiesTest {
+
+    @Test
+    public void forProductReplacesTheProductAndSharesTheOtherSections() {
+        final Product main = new Product();
+        main.setName("BTC-EUR");
+        final Product other = new Product();
+        other.setName("ETH-EUR");
+        final ApplicationProperties properties = new ApplicationProperties();
+        properties.setProduct(main);
+        properties.getProducts().add(other);
+        properties.setTrader(new Trader());
+        properties.setExecution(new Execution());
+        properties.setSchedulers(new Schedulers());
+
+        final ApplicationProperties shardProperties = properties.forProduct(other);
+
+        assertThat(shardProperties.getProduct()).isSameAs(other);
+        assertThat(properties.getProduct()).isSameAs(main);
+        // a shard does not start other shards
+        assertThat(shardProperties.getProducts()).isEmpty();
+        assertThat(shardProperties.getTrader()).isSameAs(properties.getTrader());
+        assertThat(shardProperties.getExecution()).isSameAs(properties.getExecution());
+        assertThat(shardProperties.getSchedulers()).isSameAs(properties.getSchedulers());
+    }
+
+    @Test
+    public void forProductCopiesEverySection() throws Exception {
+        // every section added to ApplicationProperties must be copied for the shards
+        final ApplicationProperties properties = new ApplicationProperties();
+        final PropertyDescriptor[] descriptors = Introspector.getBeanInfo(ApplicationProperties.class).getPropertyDescriptors();
+        for (PropertyDescriptor descriptor : descriptors) {
+            if (descriptor.getWriteMethod() != null && !"products".equals(descriptor.getName())) {
+                descriptor.getWriteMethod().invoke(properties, descriptor.getPropertyType().newInstance());
+            }
+        }
+
+        final ApplicationProperties shardProperties = properties.forProduct(new Product());
+
+        for (PropertyDescriptor descriptor : descriptors) {
+            if (descriptor.getWriteMethod() != null && !"products".equals(descriptor.getName()) && !"product".equals(descriptor.getName())) {
+                assertThat(descriptor.getReadMethod().invoke(shardProperties)).as(descriptor.getName())
+                        .isSameAs(descriptor.getReadMethod().invoke(properties));
+            }
+        }
+    }
+}
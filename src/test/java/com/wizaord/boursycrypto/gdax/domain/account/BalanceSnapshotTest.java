@@ -0,0 +1,40 @@
+package com.wizaord.boursycrypto.gdax.domain.account;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BalanceSnapshotTest {
+
+    @Test
+    public void applyBuyFill() {
+        final BalanceSnapshot snapshot = BalanceSnapshot.builder().money(BigDecimal.valueOf(1000)).build()
+                .applyFill(true, BigDecimal.valueOf(2), BigDecimal.valueOf(100), BigDecimal.valueOf(1));
+
+        assertThat(snapshot.getCoin()).isEqualByComparingTo("2");
+        assertThat(snapshot.getMoney()).isEqualByComparingTo("799");
+        assertThat(snapshot.getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    public void applySellFillReleaseHold() {
+        final BalanceSnapshot snapshot = BalanceSnapshot.builder().coin(BigDecimal.valueOf(2)).build()
+                .applyHold(false, BigDecimal.valueOf(2))
+                .applyFill(false, BigDecimal.valueOf(2), BigDecimal.valueOf(100), BigDecimal.ZERO);
+
+        assertThat(snapshot.getCoin()).isEqualByComparingTo("0");
+        assertThat(snapshot.getCoinHold()).isEqualByComparingTo("0");
+        assertThat(snapshot.getMoney()).isEqualByComparingTo("200");
+    }
+
+    @Test
+    public void availableMoneyExcludeHold() {
+        final BalanceSnapshot snapshot = BalanceSnapshot.builder().money(BigDecimal.valueOf(100)).build()
+                .applyHold(true, BigDecimal.valueOf(30));
+
+        assertThat(snapshot.getAvailableMoney()).isEqualByComparingTo("70");
+        assertThat(snapshot.applyHold(true, BigDecimal.valueOf(-30)).getAvailableMoney()).isEqualByComparingTo("100");
+    }
+}
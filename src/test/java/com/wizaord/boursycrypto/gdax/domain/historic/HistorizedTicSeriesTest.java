@@ -0,0 +1,78 @@
+package com.wizaord.boursycrypto.gdax.domain.historic;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HistorizedTicSeriesTest {
+
+  private static final LocalDateTime START = LocalDateTime.of(2018, 3, 1, 10, 0);
+
+  private static HistorizedTic tic(final int minute) {
+    return HistorizedTic.builder()
+            .generatedDate(START.plusMinutes(minute))
+            .averagePrice(100 + minute)
+            .volumeEchange(minute)
+            .nbTic(minute)
+            .build();
+  }
+
+  @Test
+  public void ticsAreKeptInOrderWhenTheRingWrapsAndGrows() {
+    final HistorizedTicSeries series = new HistorizedTicSeries(4);
+    for (int minute = 0; minute < 4; minute++) {
+      series.add(tic(minute));
+    }
+    series.removeFirst();
+    series.removeFirst();
+    // wraps, then grows
+    for (int minute = 4; minute < 10; minute++) {
+      series.add(tic(minute));
+    }
+
+    assertThat(series).hasSize(8);
+    for (int i = 0; i < series.size(); i++) {
+      assertThat(series.getGeneratedDate(i)).isEqualTo(START.plusMinutes(i + 2));
+      assertThat(series.getAveragePrice(i)).isEqualTo(102 + i);
+    }
+    assertThat(series.getFirst()).isEqualTo(tic(2));
+    assertThat(series.getLast()).isEqualTo(tic(9));
+  }
+
+  @Test
+  public void indexOfReturnsTheFirstTicAtOrAfterTheTime() {
+    final HistorizedTicSeries series = new HistorizedTicSeries();
+    for (int minute = 0; minute < 10; minute += 2) {
+      series.add(tic(minute));
+    }
+
+    assertThat(series.indexOf(HistorizedTicSeries.toTime(START.minusMinutes(5)))).isEqualTo(0);
+    assertThat(series.indexOf(HistorizedTicSeries.toTime(START.plusMinutes(4)))).isEqualTo(2);
+    assertThat(series.indexOf(HistorizedTicSeries.toTime(START.plusMinutes(5)))).isEqualTo(3);
+    assertThat(series.indexOf(HistorizedTicSeries.toTime(START.plusMinutes(20)))).isEqualTo(5);
+  }
+
+  @Test
+  public void writeToCopiesTheRecordsOldestFirst() {
+    final HistorizedTicSeries series = new HistorizedTicSeries(3);
+    for (int minute = 0; minute < 5; minute++) {
+      series.add(tic(minute));
+      if (series.size() > 3) {
+        series.removeFirst();
+      }
+    }
+
+    final ByteBuffer buffer = ByteBuffer.allocate(series.size() * HistorizedTicSeries.RECORD_LENGTH);
+    series.writeTo(buffer);
+    buffer.flip();
+    for (int minute = 2; minute < 5; minute++) {
+      assertThat(HistorizedTicSeries.toDate(buffer.getLong())).isEqualTo(START.plusMinutes(minute));
+      assertThat(buffer.getLong()).isEqualTo(minute);
+      assertThat(buffer.getDouble()).isEqualTo(100 + minute);
+      buffer.position(buffer.position() + 5 * 8);
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package com.wizaord.boursycrypto.gdax.domain.trade;
+
+import com.wizaord.boursycrypto.gdax.domain.E_TradingMode;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.OrderOpen;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TradingStateTest {
+
+  private static OrderOpen stopOrder(final String orderId) {
+    final OrderOpen order = new OrderOpen();
+    order.setOrderId(orderId);
+    order.setPrice(new BigDecimal("9500"));
+    return order;
+  }
+
+  private static PositionLot lot(final String lotId) {
+    return PositionLot.builder().lotId(lotId).takeProfitPourcent(1).build();
+  }
+
+  @Test
+  public void eachLotHasItsOwnCostBasisAndStopOrder() {
+    final TradingState state = TradingState.INITIAL
+            .buyMatched(lot("buy-1"), new BigDecimal("9000"), new BigDecimal("1"), new BigDecimal("10"))
+            .buyMatched(lot("buy-1"), new BigDecimal("9200"), new BigDecimal("1"), new BigDecimal("10"))
+            .buyMatched(lot("buy-2"), new BigDecimal("10000"), new BigDecimal("0.5"), BigDecimal.ZERO)
+            .stopOrderPlaced("buy-2", stopOrder("stop-2"));
+
+    assertThat(state.getMode()).isEqualTo(E_TradingMode.VENTE);
+    assertThat(state.getPositions().size()).isEqualTo(2);
+    final PositionLot first = state.getPositions().getLot("buy-1");
+    assertThat(first.getEntryPrice()).isEqualByComparingTo("9100");
+    assertThat(first.getCostBasis()).isEqualTo(18220.0);
+    assertThat(first.getTakeProfitPrice()).isEqualTo(9191.0);
+    assertThat(first.getStopOrder()).isNull();
+    assertThat(state.getPositions().findByStopOrder("stop-2").getLotId()).isEqualTo("buy-2");
+    assertThat(state.getPositions().getTotalSize()).isEqualByComparingTo("2.5");
+  }
+
+  @Test
+  public void aLotIsClosedWhenAllItsCoinsAreSold() {
+    final TradingState bought = TradingState.INITIAL
+            .buyMatched(lot("buy-1"), new BigDecimal("9000"), new BigDecimal("2"), new BigDecimal("20"))
+            .stopOrderPlaced("buy-1", stopOrder("stop-1"));
+
+    final TradingState partial = bought.sold("buy-1", new BigDecimal("0.5"), true);
+    assertThat(partial.getPositions().getLot("buy-1").getSize()).isEqualByComparingTo("1.5");
+    assertThat(partial.getPositions().getLot("buy-1").getFee()).isEqualByComparingTo("15");
+    assertThat(partial.isStopOrder("stop-1")).isTrue();
+
+    final TradingState sold = partial.sold("buy-1", new BigDecimal("1.5"), false);
+    assertThat(sold.getMode()).isEqualTo(E_TradingMode.ACHAT);
+    assertThat(sold.getPositions().isEmpty()).isTrue();
+    // the initial state is never modified
+    assertThat(TradingState.INITIAL.getMode()).isEqualTo(E_TradingMode.NOORDER);
+  }
+
+  @Test
+  public void anUnknownSellOrderBecomesTheStopOrderOfTheOldestLotWithoutOne() {
+    final TradingState state = TradingState.INITIAL
+            .buyFilled(lot("buy-1").addFill(new BigDecimal("9000"), BigDecimal.ONE, BigDecimal.ZERO))
+            .buyFilled(lot("buy-2").addFill(new BigDecimal("9100"), BigDecimal.ONE, BigDecimal.ZERO))
+            .stopOrderPlaced("buy-1", stopOrder("stop-1"))
+            .sellOrderOpen(stopOrder("found-at-startup"));
+
+    assertThat(state.getPositions().findByStopOrder("found-at-startup").getLotId()).isEqualTo("buy-2");
+    assertThat(state.orderCanceled("other")).isSameAs(state);
+    assertThat(state.orderCanceled("stop-1").getPositions().getLot("buy-1").getStopOrder()).isNull();
+  }
+
+  @Test
+  public void theTrailingBuyFollowsThePriceDownUntilItsOrderIsFilled() {
+    final TrailingBuy trail = TrailingBuy.builder().lowestPrice(100).reboundPourcent(1).funds(50).build();
+    TradingState state = TradingState.INITIAL.buying().buyTrailArmed(trail);
+
+    state = state.buyTrailFollowed(98).buyTrailFollowed(99);
+    assertThat(state.getBuyTrail().getLowestPrice()).isEqualTo(98);
+    assertThat(state.getBuyTrail().getTriggerPrice()).isEqualTo(98.98);
+    assertThat(state.buyTrailFollowed(98.5)).isSameAs(state);
+
+    state = state.buySubmitted("buy-1");
+    assertThat(state.getBuyTrail().isSubmitted()).isTrue();
+    state = state.buyFilled(lot("buy-1").addFill(new BigDecimal("98.98"), new BigDecimal("0.5"), BigDecimal.ZERO));
+    assertThat(state.getBuyTrail()).isNull();
+    assertThat(state.getMode()).isEqualTo(E_TradingMode.VENTE);
+  }
+}
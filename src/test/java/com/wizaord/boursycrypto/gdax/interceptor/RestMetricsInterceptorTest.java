@@ -0,0 +1,17 @@
+package com.wizaord.boursycrypto.gdax.interceptor;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RestMetricsInterceptorTest {
+
+    @Test
+    public void idsAreRemovedFromTheEndpoint() {
+        assertThat(RestMetricsInterceptor.normalize("/orders/d0c5340b-6d6c-49d9-b567-48c4bfca13d2")).isEqualTo("/orders/{id}");
+        assertThat(RestMetricsInterceptor.normalize("/accounts")).isEqualTo("/accounts");
+        assertThat(RestMetricsInterceptor.normalize("/products/BTC-EUR/ticker")).isEqualTo("/products/BTC-EUR/ticker");
+        assertThat(RestMetricsInterceptor.normalize("/accounts/12/ledger/")).isEqualTo("/accounts/{id}/ledger");
+        assertThat(RestMetricsInterceptor.normalize("")).isEqualTo("/");
+    }
+}
@@ -0,0 +1,41 @@
+package com.wizaord.boursycrypto.gdax.interceptor;
+
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WireTraceServiceTest {
+
+    @Test
+    public void authenticationHeadersAreNotTraced() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.add("CB-ACCESS-KEY", "key");
+        headers.add("CB-ACCESS-SIGN", "sign");
+        headers.add("CB-ACCESS-TIMESTAMP", "1517434000");
+        headers.add("cb-access-passphrase", "passphrase");
+        headers.add("Content-Type", "application/json");
+
+        final HttpHeaders traced = WireTraceService.traceHeaders(headers);
+
+        assertThat(traced.keySet()).containsExactly("Content-Type");
+        // the request keeps its headers
+        assertThat(headers).hasSize(5);
+    }
+
+    @Test
+    public void onlyTheSampledRequestsAreCaptured() {
+        final WireTraceService wireTraceService = new WireTraceService();
+        ReflectionTestUtils.setField(wireTraceService, "sampleRate", 3);
+
+        int nbCaptured = 0;
+        for (int i = 0; i < 9; i++) {
+            if (wireTraceService.shouldCapture()) {
+                nbCaptured++;
+            }
+        }
+
+        assertThat(nbCaptured).isEqualTo(3);
+    }
+}
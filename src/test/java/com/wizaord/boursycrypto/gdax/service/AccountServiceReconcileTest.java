@@ -0,0 +1,109 @@
+package com.wizaord.boursycrypto.gdax.service;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.config.properties.Product;
+import com.wizaord.boursycrypto.gdax.domain.api.Account;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.Match;
+import com.wizaord.boursycrypto.gdax.service.store.TimeSeriesService;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reconciliation of the ledger with the account while fills are applied by the shard thread, without Spring context
+ */
+public class AccountServiceReconcileTest {
+
+    private final AccountService accountService = new AccountService();
+    private final AtomicInteger nbCalls = new AtomicInteger();
+    // account read by the REST call : coin, money
+    private volatile String[] account = {"2", "1000"};
+    // fills applied during the REST calls
+    private volatile int nbFillsDuringCall;
+
+    @Before
+    public void initService() {
+        final Product product = new Product();
+        product.setName("BTC-EUR");
+        product.setType("BTC");
+        final ApplicationProperties appProp = new ApplicationProperties();
+        appProp.setProduct(product);
+        ReflectionTestUtils.setField(this.accountService, "appProp", appProp);
+        ReflectionTestUtils.setField(this.accountService, "fundsService", new FundsService());
+        ReflectionTestUtils.setField(this.accountService, "timeSeriesService", new TimeSeriesService());
+        ReflectionTestUtils.setField(this.accountService, "restTemplate", new RestTemplate() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> ResponseEntity<T> getForEntity(final String url, final Class<T> responseType, final Object... uriVariables) {
+                nbCalls.incrementAndGet();
+                final Account[] accounts = {AccountServiceReconcileTest.account("BTC", account[0]), AccountServiceReconcileTest.account("EUR", account[1])};
+                if (nbFillsDuringCall > 0) {
+                    nbFillsDuringCall--;
+                    // the fill is applied by the shard thread while the request is in flight ; the account read is older
+                    buyOneCoinAt100();
+                }
+                return new ResponseEntity<>((T) accounts, HttpStatus.OK);
+            }
+        });
+        this.accountService.refreshBalance();
+    }
+
+    @Test
+    public void fillAppliedDuringTheCallIsNotLost() {
+        this.nbFillsDuringCall = 1;
+
+        this.accountService.reconcileBalance();
+
+        // the first read is dropped, the second one includes the fill
+        assertThat(this.nbCalls.get()).isEqualTo(3);
+        assertThat(this.accountService.getBalance().getCoin()).isEqualByComparingTo("3");
+        assertThat(this.accountService.getBalance().getMoney()).isEqualByComparingTo("900");
+    }
+
+    @Test
+    public void ledgerIsKeptWhenItKeepsChanging() {
+        this.nbFillsDuringCall = 10;
+
+        assertThat(this.accountService.refreshBalance()).isFalse();
+
+        // the account read is never applied over the fills
+        assertThat(this.accountService.getBalance().getCoin()).isEqualByComparingTo("5");
+        assertThat(this.accountService.getBalance().getMoney()).isEqualByComparingTo("700");
+    }
+
+    @Test
+    public void driftIsCorrectedWhenTheLedgerDoesNotChange() {
+        this.account = new String[]{"2.5", "950"};
+
+        this.accountService.reconcileBalance();
+
+        assertThat(this.accountService.getBalance().getCoin()).isEqualByComparingTo("2.5");
+        assertThat(this.accountService.getBalance().getMoney()).isEqualByComparingTo("950");
+    }
+
+    private void buyOneCoinAt100() {
+        final Match match = new Match();
+        match.setSide("buy");
+        match.setSize(1d);
+        match.setPrice(100d);
+        this.accountService.notifyMatch(match);
+        this.account = new String[]{new BigDecimal(this.account[0]).add(BigDecimal.ONE).toPlainString(),
+                new BigDecimal(this.account[1]).subtract(BigDecimal.valueOf(100)).toPlainString()};
+    }
+
+    private static Account account(final String currency, final String balance) {
+        final Account account = new Account();
+        account.setCurrency(currency);
+        account.setBalance(new BigDecimal(balance));
+        account.setHold(BigDecimal.ZERO);
+        return account;
+    }
+}
@@ -0,0 +1,58 @@
+package com.wizaord.boursycrypto.gdax.service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The money shared by the products : a product can not commit the funds reserved by another one
+ */
+public class FundsServiceTest {
+
+    private final FundsService fundsService = new FundsService();
+
+    @Before
+    public void initMoney() {
+        this.fundsService.reconcile(new BigDecimal("1000"), new BigDecimal("100"));
+    }
+
+    @Test
+    public void reservedFundsAreNotAvailableToTheOtherProducts() {
+        assertThat(this.fundsService.reserve("BTC-EUR", new BigDecimal("600"))).isEqualByComparingTo("600");
+
+        assertThat(this.fundsService.getAvailableMoney("BTC-EUR")).isEqualByComparingTo("900");
+        assertThat(this.fundsService.getAvailableMoney("ETH-EUR")).isEqualByComparingTo("300");
+        // the second product only gets what is left
+        assertThat(this.fundsService.reserve("ETH-EUR", new BigDecimal("600"))).isEqualByComparingTo("300");
+        assertThat(this.fundsService.reserve("LTC-EUR", new BigDecimal("600"))).isEqualByComparingTo("0");
+    }
+
+    @Test
+    public void releasedFundsAreAvailableAgain() {
+        this.fundsService.reserve("BTC-EUR", new BigDecimal("600"));
+        this.fundsService.release("BTC-EUR");
+
+        assertThat(this.fundsService.getAvailableMoney("ETH-EUR")).isEqualByComparingTo("900");
+    }
+
+    @Test
+    public void newReservationReplacesThePreviousOne() {
+        this.fundsService.reserve("BTC-EUR", new BigDecimal("600"));
+        assertThat(this.fundsService.reserve("BTC-EUR", new BigDecimal("800"))).isEqualByComparingTo("800");
+
+        assertThat(this.fundsService.getAvailableMoney("ETH-EUR")).isEqualByComparingTo("100");
+    }
+
+    @Test
+    public void fillsAndHoldsOfAllTheProductsUpdateTheMoney() {
+        this.fundsService.applyHold(new BigDecimal("-100"));
+        this.fundsService.applyFill(true, new BigDecimal("2"), new BigDecimal("100"), new BigDecimal("1"));
+        this.fundsService.applyFill(false, new BigDecimal("1"), new BigDecimal("50"), BigDecimal.ZERO);
+
+        assertThat(this.fundsService.getBalance().getMoney()).isEqualByComparingTo("849");
+        assertThat(this.fundsService.getAvailableMoney("BTC-EUR")).isEqualByComparingTo("849");
+    }
+}
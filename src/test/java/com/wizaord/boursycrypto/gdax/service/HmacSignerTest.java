@@ -0,0 +1,43 @@
+package com.wizaord.boursycrypto.gdax.service;
+
+import org.junit.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HmacSignerTest {
+
+    private static final String SECRET = Base64.getEncoder().encodeToString("my-very-secret-key".getBytes(StandardCharsets.UTF_8));
+
+    @Test
+    public void signLikeTheStringPrehash() throws Exception {
+        final HmacSigner signer = new HmacSigner(SECRET);
+        final String body = "{\"product_id\":\"BTC-EUR\",\"side\":\"sell\"}";
+
+        assertThat(signer.sign("1520000000", "POST", "/orders", body.getBytes(StandardCharsets.UTF_8)))
+                .isEqualTo(referenceSignature("1520000000" + "POST" + "/orders" + body));
+        assertThat(signer.sign("1520000001", "GET", "/accounts", null))
+                .isEqualTo(referenceSignature("1520000001" + "GET" + "/accounts"));
+    }
+
+    @Test
+    public void nonAsciiSegmentsAreUtf8Encoded() throws Exception {
+        final HmacSigner signer = new HmacSigner(SECRET);
+
+        assertThat(signer.sign("1520000002", "GET", "/products/\u00e9t\u00e9/\u20ac", null))
+                .isEqualTo(referenceSignature("1520000002" + "GET" + "/products/\u00e9t\u00e9/\u20ac"));
+        // the buffer reused by the next ASCII request is not altered
+        assertThat(signer.sign("1520000003", "GET", "/accounts", null))
+                .isEqualTo(referenceSignature("1520000003" + "GET" + "/accounts"));
+    }
+
+    private String referenceSignature(final String prehash) throws Exception {
+        final Mac sha256 = Mac.getInstance("HmacSHA256");
+        sha256.init(new SecretKeySpec(Base64.getDecoder().decode(SECRET), "HmacSHA256"));
+        return Base64.getEncoder().encodeToString(sha256.doFinal(prehash.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,106 @@
+package com.wizaord.boursycrypto.gdax.service;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.config.properties.Historique;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.Ticker;
+import com.wizaord.boursycrypto.gdax.domain.historic.HistorizedTic;
+import com.wizaord.boursycrypto.gdax.service.store.TimeSeriesService;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sealing of the tickers in the candle of their minute, without Spring context
+ */
+public class TendanceServiceSealingTest {
+
+    private static final LocalDateTime MINUTE = LocalDateTime.of(2018, 2, 1, 10, 0);
+
+    private final TendanceService tendanceService = new TendanceService();
+
+    @Before
+    public void initService() {
+        final Historique historique = new Historique();
+        historique.setMaxHistoriqueComputeKeepInMemory(10);
+        final ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.setHistorique(historique);
+        ReflectionTestUtils.setField(this.tendanceService, "applicationProperties", applicationProperties);
+        // no store activated : the candles are not persisted
+        ReflectionTestUtils.setField(this.tendanceService, "timeSeriesService", new TimeSeriesService());
+    }
+
+    @Test
+    public void tickersAreSealedInTheCandleOfTheirMinute() {
+        final long intervalEnd = toMillis(MINUTE.plusMinutes(1));
+        this.tendanceService.notifyTickerMessage(this.ticker(100, intervalEnd - 1));
+        this.tendanceService.notifyTickerMessage(this.ticker(200, intervalEnd));
+        this.tendanceService.notifyTickerMessage(this.ticker(400, intervalEnd + 500));
+
+        this.tendanceService.computeTradeMessagesInHistoriqueCompute(MINUTE, intervalEnd);
+
+        final HistorizedTic first = this.tendanceService.historizedTics.getLast();
+        assertThat(first.getGeneratedDate()).isEqualTo(MINUTE);
+        assertThat(first.getNbTic()).isEqualTo(1);
+        assertThat(first.getAveragePrice()).isEqualTo(100);
+        // the ticker received at the end of the interval belongs to the next minute
+        assertThat(this.tendanceService.tickerList).extracting(Ticker::getPrice)
+                .containsExactly(BigDecimal.valueOf(200), BigDecimal.valueOf(400));
+
+        this.tendanceService.computeTradeMessagesInHistoriqueCompute(MINUTE.plusMinutes(1), intervalEnd + 60000);
+
+        final HistorizedTic second = this.tendanceService.historizedTics.getLast();
+        assertThat(this.tendanceService.historizedTics).hasSize(2);
+        assertThat(second.getGeneratedDate()).isEqualTo(MINUTE.plusMinutes(1));
+        assertThat(second.getNbTic()).isEqualTo(2);
+        assertThat(second.getMinPrice()).isEqualTo(200);
+        assertThat(second.getMaxPrice()).isEqualTo(400);
+        assertThat(this.tendanceService.tickerList).isEmpty();
+    }
+
+    @Test
+    public void tickerWithoutTimeIsSealedInTheCurrentCandle() {
+        final long intervalEnd = toMillis(MINUTE.plusMinutes(1));
+        this.tendanceService.notifyTickerMessage(this.ticker(100, intervalEnd - 1));
+        this.tendanceService.notifyTickerMessage(this.ticker(300, null));
+        this.tendanceService.notifyTickerMessage(this.ticker(500, intervalEnd + 1));
+
+        this.tendanceService.computeTradeMessagesInHistoriqueCompute(MINUTE, intervalEnd);
+
+        final HistorizedTic candle = this.tendanceService.historizedTics.getLast();
+        assertThat(candle.getNbTic()).isEqualTo(2);
+        assertThat(candle.getMinPrice()).isEqualTo(100);
+        assertThat(candle.getMaxPrice()).isEqualTo(300);
+        assertThat(this.tendanceService.tickerList).extracting(Ticker::getPrice).containsExactly(BigDecimal.valueOf(500));
+    }
+
+    @Test
+    public void lastTickerWithoutTimeSealsAllThePendingTickers() {
+        final long intervalEnd = toMillis(MINUTE.plusMinutes(1));
+        this.tendanceService.notifyTickerMessage(this.ticker(100, intervalEnd - 1000));
+        this.tendanceService.notifyTickerMessage(this.ticker(300, null));
+
+        this.tendanceService.computeTradeMessagesInHistoriqueCompute(MINUTE, intervalEnd);
+
+        assertThat(this.tendanceService.historizedTics.getLast().getNbTic()).isEqualTo(2);
+        assertThat(this.tendanceService.tickerList).isEmpty();
+    }
+
+    private Ticker ticker(final long price, final Long time) {
+        return Ticker.builder()
+                .price(BigDecimal.valueOf(price))
+                .side("buy")
+                .time((time == null) ? null : new Date(time))
+                .build();
+    }
+
+    private static long toMillis(final LocalDateTime date) {
+        return date.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
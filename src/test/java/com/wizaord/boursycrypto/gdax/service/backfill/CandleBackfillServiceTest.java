@@ -0,0 +1,105 @@
+package com.wizaord.boursycrypto.gdax.service.backfill;
+
+import com.sun.net.httpserver.HttpServer;
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.config.properties.Product;
+import com.wizaord.boursycrypto.gdax.domain.historic.HistorizedTic;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The candles are served by a local stand-in of the GDAX REST API
+ */
+public class CandleBackfillServiceTest {
+
+    private HttpServer server;
+    private final AtomicInteger nbRequests = new AtomicInteger();
+    private final AtomicInteger nbRateLimited = new AtomicInteger();
+    private CandleBackfillService backfillService;
+
+    @Before
+    public void startServer() throws Exception {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/products/BTC-EUR/candles", exchange -> {
+            // the first request is rate limited
+            if (this.nbRequests.getAndIncrement() == 0) {
+                this.nbRateLimited.incrementAndGet();
+                exchange.sendResponseHeaders(429, -1);
+                exchange.close();
+                return;
+            }
+            final String query = exchange.getRequestURI().getQuery();
+            final long start = Instant.parse(param(query, "start")).getEpochSecond();
+            final long end = Instant.parse(param(query, "end")).getEpochSecond();
+            // GDAX returns the most recent candle first
+            final StringBuilder json = new StringBuilder("[");
+            for (long time = end - 60; time >= start; time -= 60) {
+                json.append(json.length() > 1 ? "," : "").append("[").append(time).append(",90,120,100,105,2.5]");
+            }
+            final byte[] body = json.append("]").toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        this.server.start();
+
+        final Product product = new Product();
+        product.setName("BTC-EUR");
+        final ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.setProduct(product);
+
+        this.backfillService = new CandleBackfillService();
+        ReflectionTestUtils.setField(this.backfillService, "applicationProperties", applicationProperties);
+        ReflectionTestUtils.setField(this.backfillService, "restTemplate",
+                new RestTemplateBuilder().rootUri("http://127.0.0.1:" + this.server.getAddress().getPort()).build());
+    }
+
+    @After
+    public void stopServer() {
+        this.server.stop(0);
+    }
+
+    @Test
+    public void candlesAreDownloadedByChunksAndOrdered() {
+        final Instant end = Instant.parse("2018-03-01T12:00:00Z");
+        final Instant start = end.minusSeconds(1000 * 60);
+
+        final List<HistorizedTic> tics = this.backfillService.downloadCandles(start, end, 3, 50);
+
+        assertThat(tics).hasSize(1000);
+        // 4 chunks of 300 minutes and the retry of the rate limited one
+        assertThat(this.nbRequests.get()).isEqualTo(5);
+        assertThat(this.nbRateLimited.get()).isEqualTo(1);
+        for (int i = 1; i < tics.size(); i++) {
+            assertThat(tics.get(i).getGeneratedDate()).isAfter(tics.get(i - 1).getGeneratedDate());
+        }
+        final HistorizedTic tic = tics.get(0);
+        assertThat(tic.getMinPrice()).isEqualTo(90);
+        assertThat(tic.getMaxPrice()).isEqualTo(120);
+        assertThat(tic.getAveragePrice()).isEqualTo(105);
+        assertThat(tic.getVolumeEchange()).isEqualTo(2.5);
+    }
+
+    private static String param(final String query, final String name) {
+        for (String param : query.split("&")) {
+            if (param.startsWith(name + "=")) {
+                return param.substring(name.length() + 1);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,332 @@
+package com.wizaord.boursycrypto.gdax.service.execution;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.config.properties.Execution;
+import com.wizaord.boursycrypto.gdax.domain.E_NotificationPriority;
+import com.wizaord.boursycrypto.gdax.domain.api.Order;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.Match;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.OrderDone;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.OrderOpen;
+import com.wizaord.boursycrypto.gdax.domain.trade.PositionLot;
+import com.wizaord.boursycrypto.gdax.service.gdax.OrderService;
+import com.wizaord.boursycrypto.gdax.service.market.PriceTriggerService;
+import com.wizaord.boursycrypto.gdax.service.notify.SlackService;
+import com.wizaord.boursycrypto.gdax.service.timer.TimerService;
+import com.wizaord.boursycrypto.gdax.service.timer.WheelTimer;
+import com.wizaord.boursycrypto.gdax.service.trade.TradingMode;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestClientException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * The slicing decisions of the executions, with the orders, the ticker and the wake ups stubbed.
+ * The wake ups are run by the test, with a manual clock.
+ */
+public class ExecutionServiceTest {
+
+    private static final int DURATION = 100000;
+    private static final int INTERVAL = 5000;
+
+    private final List<PlacedOrder> placed = new ArrayList<>();
+    private final List<String> canceled = new ArrayList<>();
+    private final List<String> highAlerts = new ArrayList<>();
+    private final Execution execution = new Execution();
+    private final TradingMode tradingMode = new TradingMode();
+    private final WheelTimer wheelTimer = new WheelTimer();
+    private long now = 1000000;
+    private double bestAsk = 10000;
+    private Runnable wakeUp;
+    // results of the next market orders : an exception, an empty response, then acknowledged
+    private int failingMarketOrders;
+    private int emptyMarketResponses;
+
+    private final ExecutionService executionService = new ExecutionService() {
+        @Override
+        long currentTimeMillis() {
+            return now;
+        }
+    };
+
+    @Before
+    public void initService() {
+        this.execution.setDuration(DURATION);
+        this.execution.setInterval(INTERVAL);
+        this.execution.setSlices(4);
+        this.execution.setVisibleSize(0.3f);
+        this.execution.setLevels(3);
+        this.execution.setLevelStep(0.1f);
+        final ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.setExecution(this.execution);
+
+        final OrderService orderService = new OrderService() {
+            @Override
+            public Optional<Order> placeLimitOrder(final String side, final double price, final BigDecimal size, final long decisionNanos) {
+                return Optional.of(place(price, size));
+            }
+
+            @Override
+            public Optional<Order> placeMarketSellOrder(final BigDecimal size, final long decisionNanos) {
+                if (failingMarketOrders > 0) {
+                    failingMarketOrders--;
+                    throw new RestClientException("503 Service Unavailable");
+                }
+                if (emptyMarketResponses > 0) {
+                    emptyMarketResponses--;
+                    return Optional.empty();
+                }
+                return Optional.of(place(0, size));
+            }
+
+            @Override
+            public void cancelOrder(final String orderId) {
+                canceled.add(orderId);
+            }
+        };
+        final PriceTriggerService priceTriggerService = new PriceTriggerService() {
+            @Override
+            public double getBestAsk() {
+                return bestAsk;
+            }
+        };
+        final TimerService timerService = new TimerService() {
+            @Override
+            public WheelTimer.Timeout schedule(final long delayMillis, final Runnable task) {
+                wakeUp = task;
+                // the timer is not started : the timeout is only used to be canceled
+                return wheelTimer.schedule(delayMillis, WheelTimer.TIMER_THREAD, "test", task);
+            }
+        };
+        final SlackService slackService = new SlackService() {
+            @Override
+            public void postCustomMessage(final String message, final E_NotificationPriority priority) {
+                if (priority == E_NotificationPriority.HIGH) {
+                    highAlerts.add(message);
+                }
+            }
+        };
+
+        ReflectionTestUtils.setField(this.executionService, "appProp", applicationProperties);
+        ReflectionTestUtils.setField(this.executionService, "orderService", orderService);
+        ReflectionTestUtils.setField(this.executionService, "priceTriggerService", priceTriggerService);
+        ReflectionTestUtils.setField(this.executionService, "timerService", timerService);
+        ReflectionTestUtils.setField(this.executionService, "slackService", slackService);
+        ReflectionTestUtils.setField(this.executionService, "tradingMode", this.tradingMode);
+
+        // a lot of 1 coin whose local stop has been crossed
+        final OrderOpen stopOrder = new OrderOpen();
+        stopOrder.setOrderId("local-1");
+        stopOrder.setPrice(new BigDecimal("10050"));
+        this.tradingMode.transition("test", state -> state
+                .buyMatched(PositionLot.builder().lotId("lot-1").takeProfitPourcent(1).build(), new BigDecimal("10100"), BigDecimal.ONE, BigDecimal.ZERO)
+                .stopOrderPlaced("lot-1", stopOrder));
+    }
+
+    @Test
+    public void twapReleasesOneSliceAtEachSliceDuration() {
+        this.execution.setAlgo("TWAP");
+        this.executionService.sell("lot-1", BigDecimal.ONE);
+
+        assertThat(this.placed).hasSize(1);
+        assertThat(this.placed.get(0).size).isEqualByComparingTo("0.25");
+        assertThat(this.placed.get(0).price).isEqualTo(10000);
+
+        // still in the first slice : nothing new
+        this.wakeUp(INTERVAL);
+        assertThat(this.placed).hasSize(1);
+
+        // second slice : the coins filled and working count as released
+        this.match(this.placed.get(0).id, 0.1);
+        this.wakeUp(DURATION / 4 - INTERVAL);
+        assertThat(this.placed).hasSize(2);
+        assertThat(this.placed.get(1).size).isEqualByComparingTo("0.25");
+
+        // the fourth slice releases everything
+        this.wakeUp(DURATION / 2);
+        assertThat(this.placed).hasSize(3);
+        assertThat(this.placed.get(2).size).isEqualByComparingTo("0.5");
+    }
+
+    @Test
+    public void ladderLevelsSumToTheParentSize() {
+        this.execution.setAlgo("LADDER");
+        this.executionService.sell("lot-1", BigDecimal.ONE);
+
+        assertThat(this.placed).hasSize(3);
+        assertThat(this.placed.get(0).size).isEqualByComparingTo("0.33333333");
+        assertThat(this.placed.get(1).size).isEqualByComparingTo("0.33333333");
+        assertThat(this.placed.get(2).size).isEqualByComparingTo("0.33333334");
+        assertThat(this.placed.stream().map(order -> order.size).reduce(BigDecimal.ZERO, BigDecimal::add)).isEqualByComparingTo("1");
+        assertThat(this.placed.get(0).price).isEqualTo(10000);
+        assertThat(this.placed.get(1).price).isCloseTo(10010, within(1e-3));
+        assertThat(this.placed.get(2).price).isCloseTo(10020, within(1e-3));
+    }
+
+    @Test
+    public void icebergPlacesTheNextSliceWhenAChildIsDone() {
+        this.execution.setAlgo("ICEBERG");
+        this.executionService.sell("lot-1", BigDecimal.ONE);
+
+        assertThat(this.placed).hasSize(1);
+        assertThat(this.placed.get(0).size).isEqualByComparingTo("0.3");
+
+        // one visible child at a time
+        this.wakeUp(INTERVAL);
+        assertThat(this.placed).hasSize(1);
+
+        this.match(this.placed.get(0).id, 0.3);
+        this.done(this.placed.get(0).id);
+        assertThat(this.placed).hasSize(2);
+        assertThat(this.placed.get(1).size).isEqualByComparingTo("0.3");
+
+        // the last slice is the remaining size
+        this.match(this.placed.get(1).id, 0.3);
+        this.done(this.placed.get(1).id);
+        this.match(this.placed.get(2).id, 0.3);
+        this.done(this.placed.get(2).id);
+        assertThat(this.placed).hasSize(4);
+        assertThat(this.placed.get(3).size).isEqualByComparingTo("0.1");
+
+        this.match(this.placed.get(3).id, 0.1);
+        assertThat(this.executionService.isExecuting("lot-1")).isFalse();
+        assertThat(this.highAlerts).isEmpty();
+    }
+
+    @Test
+    public void childAboveTheBestAskIsPlacedAgainAtTheNewBestAsk() {
+        this.execution.setAlgo("ICEBERG");
+        this.executionService.sell("lot-1", BigDecimal.ONE);
+        final String first = this.placed.get(0).id;
+
+        // the best ask does not move : the child stays
+        this.wakeUp(INTERVAL);
+        assertThat(this.canceled).isEmpty();
+
+        this.bestAsk = 9990;
+        this.wakeUp(INTERVAL);
+        assertThat(this.canceled).containsExactly(first);
+        assertThat(this.placed).hasSize(1);
+
+        // the cancellation is received : the size is placed again
+        this.done(first);
+        assertThat(this.placed).hasSize(2);
+        assertThat(this.placed.get(1).price).isEqualTo(9990);
+        assertThat(this.placed.get(1).size).isEqualByComparingTo("0.3");
+    }
+
+    @Test
+    public void remainingSizeIsSoldAtMarketAtTheEndOfTheDuration() {
+        this.execution.setAlgo("ICEBERG");
+        this.executionService.sell("lot-1", BigDecimal.ONE);
+        final String child = this.placed.get(0).id;
+        this.match(child, 0.2);
+
+        this.wakeUp(DURATION);
+        assertThat(this.canceled).containsExactly(child);
+        // the market order waits for the cancellation of the children
+        assertThat(this.placed).hasSize(1);
+
+        this.done(child);
+        assertThat(this.placed).hasSize(2);
+        final PlacedOrder market = this.placed.get(1);
+        assertThat(market.price).isZero();
+        assertThat(market.size).isEqualByComparingTo("0.8");
+
+        this.match(market.id, 0.8);
+        assertThat(this.executionService.isExecuting("lot-1")).isFalse();
+        assertThat(this.highAlerts).isEmpty();
+    }
+
+    @Test
+    public void failedMarketOrderIsPlacedAgainAtTheNextWakeUp() {
+        this.execution.setAlgo("ICEBERG");
+        this.failingMarketOrders = 1;
+        this.emptyMarketResponses = 1;
+        this.executionService.sell("lot-1", BigDecimal.ONE);
+        final String child = this.placed.get(0).id;
+        this.wakeUp(DURATION);
+
+        // REST error : the execution goes on
+        this.done(child);
+        assertThat(this.placed).hasSize(1);
+        assertThat(this.executionService.isExecuting("lot-1")).isTrue();
+
+        // empty response : the execution goes on
+        this.wakeUp(INTERVAL);
+        assertThat(this.placed).hasSize(1);
+        assertThat(this.executionService.isExecuting("lot-1")).isTrue();
+
+        this.wakeUp(INTERVAL);
+        assertThat(this.placed).hasSize(2);
+        assertThat(this.placed.get(1).size).isEqualByComparingTo("1");
+        this.match(this.placed.get(1).id, 1);
+        assertThat(this.executionService.isExecuting("lot-1")).isFalse();
+        assertThat(this.highAlerts).isEmpty();
+    }
+
+    @Test
+    public void unsoldLotGetsItsStopRemovedAndRaisesAnAlert() {
+        this.execution.setAlgo("ICEBERG");
+        this.executionService.sell("lot-1", BigDecimal.ONE);
+        final String child = this.placed.get(0).id;
+        this.wakeUp(DURATION);
+        this.done(child);
+
+        // the market order is only partly filled
+        final String market = this.placed.get(1).id;
+        this.match(market, 0.4);
+        this.done(market);
+
+        assertThat(this.executionService.isExecuting("lot-1")).isFalse();
+        assertThat(this.tradingMode.getState().getPositions().getLot("lot-1").getStopOrder()).isNull();
+        assertThat(this.highAlerts).hasSize(1);
+        assertThat(this.highAlerts.get(0)).contains("0.4", "lot-1");
+    }
+
+    private Order place(final double price, final BigDecimal size) {
+        final PlacedOrder order = new PlacedOrder("child-" + (this.placed.size() + 1), price, size);
+        this.placed.add(order);
+        return Order.builder().id(order.id).price(BigDecimal.valueOf(price)).size(size).side("sell").build();
+    }
+
+    private void wakeUp(final long elapsedMillis) {
+        this.now += elapsedMillis;
+        final Runnable task = this.wakeUp;
+        this.wakeUp = null;
+        task.run();
+    }
+
+    private void match(final String orderId, final double size) {
+        final Match match = new Match();
+        match.setMakerOrderId(orderId);
+        match.setSize(size);
+        match.setPrice(this.bestAsk);
+        this.executionService.notifyMatch(match);
+    }
+
+    private void done(final String orderId) {
+        final OrderDone orderDone = new OrderDone();
+        orderDone.setOrderId(orderId);
+        this.executionService.notifyDone(orderDone);
+    }
+
+    private static final class PlacedOrder {
+        private final String id;
+        private final double price;
+        private final BigDecimal size;
+
+        private PlacedOrder(final String id, final double price, final BigDecimal size) {
+            this.id = id;
+            this.price = price;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.wizaord.boursycrypto.gdax.service.export;
+
+import com.wizaord.boursycrypto.gdax.service.store.TimeSeriesService;
+import com.wizaord.boursycrypto.gdax.service.store.TimeSeriesStore;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.time.Instant;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HistoryExporterTest {
+
+    private static final long START = 1520000000000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void seriesAreExportedInArrowStreams() throws Exception {
+        final File store = this.folder.newFolder("store");
+        final File productDirectory = TimeSeriesService.productDirectory(store.getPath(), "BTC-EUR");
+        final int nbTicks = HistoryExporter.BATCH_SIZE + 10;
+        try (TimeSeriesStore ticks = TimeSeriesStore.open(productDirectory, TimeSeriesService.TICK_SERIES, TimeSeriesService.NB_TICK_VALUES, 1024 * 1024);
+             TimeSeriesStore candles = TimeSeriesStore.open(productDirectory, TimeSeriesService.CANDLE_SERIES, TimeSeriesService.NB_CANDLE_VALUES, 1024 * 1024)) {
+            final long[] tick = new long[TimeSeriesService.NB_TICK_VALUES];
+            for (int i = 0; i < nbTicks; i++) {
+                tick[TimeSeriesService.TICK_PRICE] = TimeSeriesStore.toLong(8000 + i % 10);
+                ticks.append(START + i, tick);
+            }
+            final long[] candle = new long[TimeSeriesService.NB_CANDLE_VALUES];
+            for (int i = 0; i < 3; i++) {
+                candle[TimeSeriesService.CANDLE_AVERAGE] = TimeSeriesStore.toLong(100 - i);
+                candle[TimeSeriesService.CANDLE_VOLUME] = TimeSeriesStore.toLong(1);
+                candles.append(START + i * 60000L, candle);
+            }
+        }
+
+        final File output = new File(this.folder.getRoot(), "export");
+        try (HistoryExporter exporter = new HistoryExporter(store, "BTC-EUR")) {
+            exporter.exportAll(Instant.ofEpochMilli(START), Instant.ofEpochMilli(START + 3600000L), output);
+        }
+
+        try (RootAllocator allocator = new RootAllocator(Long.MAX_VALUE)) {
+            try (ArrowStreamReader reader = new ArrowStreamReader(new GZIPInputStream(new FileInputStream(new File(output, "BTC-EUR-ticks.arrows.gz"))), allocator)) {
+                final VectorSchemaRoot root = reader.getVectorSchemaRoot();
+                int nbRows = 0;
+                while (reader.loadNextBatch()) {
+                    final Float8Vector price = (Float8Vector) root.getVector("price");
+                    for (int i = 0; i < root.getRowCount(); i++) {
+                        assertThat(price.get(i)).isEqualTo(8000 + (nbRows + i) % 10);
+                    }
+                    nbRows += root.getRowCount();
+                }
+                assertThat(nbRows).isEqualTo(nbTicks);
+            }
+
+            try (ArrowStreamReader reader = new ArrowStreamReader(new GZIPInputStream(new FileInputStream(new File(output, "BTC-EUR-tendances.arrows.gz"))), allocator)) {
+                assertThat(reader.loadNextBatch()).isTrue();
+                final VectorSchemaRoot root = reader.getVectorSchemaRoot();
+                assertThat(root.getRowCount()).isEqualTo(2);
+                assertThat(((Float8Vector) root.getVector("evolPrice")).get(0)).isEqualTo(-1);
+                assertThat(((Float8Vector) root.getVector("volumeEchangee")).get(0)).isEqualTo(2);
+                assertThat(new String(((VarCharVector) root.getVector("type")).get(1), "UTF-8")).isEqualTo("BAISSE");
+            }
+
+            try (ArrowStreamReader reader = new ArrowStreamReader(new GZIPInputStream(new FileInputStream(new File(output, "BTC-EUR-fills.arrows.gz"))), allocator)) {
+                assertThat(reader.loadNextBatch()).isFalse();
+            }
+        }
+    }
+}
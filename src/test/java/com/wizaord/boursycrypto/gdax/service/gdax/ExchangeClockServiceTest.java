@@ -0,0 +1,83 @@
+package com.wizaord.boursycrypto.gdax.service.gdax;
+
+import com.wizaord.boursycrypto.gdax.domain.api.ServerTime;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Offset estimate of the GDAX clock, with a stubbed /time endpoint
+ */
+public class ExchangeClockServiceTest {
+
+    private final ExchangeClockService exchangeClockService = new ExchangeClockService();
+
+    @Test
+    public void offsetIsTheServerTimeMinusTheMiddleOfTheRoundTrip() {
+        this.stubTime(sample -> 0, 5000);
+
+        this.exchangeClockService.synchronize();
+
+        assertThat(this.exchangeClockService.getOffsetMillis()).isCloseTo(5000L, within(20L));
+        assertThat(this.exchangeClockService.getRoundTripMillis()).isBetween(0L, 20L);
+    }
+
+    @Test
+    public void sampleWithTheShortestRoundTripIsKept() {
+        // the first sample is slow : its server time, taken late, would give a wrong offset
+        this.stubTime(sample -> (sample == 0) ? 200 : 0, 5000);
+
+        this.exchangeClockService.synchronize();
+
+        assertThat(this.exchangeClockService.getOffsetMillis()).isCloseTo(5000L, within(20L));
+        assertThat(this.exchangeClockService.getRoundTripMillis()).isLessThan(100L);
+    }
+
+    @Test
+    public void offsetIsKeptWhenTheServerIsNotReachable() {
+        ReflectionTestUtils.setField(this.exchangeClockService, "offsetMillis", 1234L);
+        ReflectionTestUtils.setField(this.exchangeClockService, "restTemplate", new RestTemplate() {
+            @Override
+            public <T> T getForObject(final String url, final Class<T> responseType, final Object... uriVariables) {
+                throw new RestClientException("unreachable");
+            }
+        });
+
+        this.exchangeClockService.synchronize();
+
+        assertThat(this.exchangeClockService.getOffsetMillis()).isEqualTo(1234L);
+        assertThat(this.exchangeClockService.getRoundTripMillis()).isEqualTo(-1L);
+    }
+
+    /**
+     * The server answers after a delay, with its time taken at the end of the delay
+     * @param delayOfSample delay of the server in milliseconds, by sample number
+     * @param offset GDAX clock minus the local clock
+     */
+    private void stubTime(final IntUnaryOperator delayOfSample, final long offset) {
+        final AtomicInteger sample = new AtomicInteger();
+        ReflectionTestUtils.setField(this.exchangeClockService, "restTemplate", new RestTemplate() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T getForObject(final String url, final Class<T> responseType, final Object... uriVariables) {
+                final int delay = delayOfSample.applyAsInt(sample.getAndIncrement());
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                final ServerTime serverTime = new ServerTime();
+                serverTime.setEpoch(BigDecimal.valueOf(System.currentTimeMillis() + offset).movePointLeft(3));
+                return (T) serverTime;
+            }
+        });
+    }
+}
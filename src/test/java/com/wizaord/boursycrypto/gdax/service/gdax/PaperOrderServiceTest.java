@@ -0,0 +1,143 @@
+package com.wizaord.boursycrypto.gdax.service.gdax;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.config.properties.Paper;
+import com.wizaord.boursycrypto.gdax.config.properties.Product;
+import com.wizaord.boursycrypto.gdax.domain.GenericFeedMessage;
+import com.wizaord.boursycrypto.gdax.domain.api.Order;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.E_FeedMessage;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.Match;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.OrderActivated;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.OrderDone;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.Ticker;
+import com.wizaord.boursycrypto.gdax.service.market.PriceTriggerService;
+import com.wizaord.boursycrypto.gdax.service.metrics.LatencyService;
+import com.wizaord.boursycrypto.gdax.service.metrics.MonitoredTaskScheduler;
+import com.wizaord.boursycrypto.gdax.service.notify.SlackService;
+import com.wizaord.boursycrypto.gdax.service.shard.ShardManager;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * The user channel messages of the paper orders are decoded as the WebSocket messages
+ */
+public class PaperOrderServiceTest {
+
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+    private final List<GenericFeedMessage> messages = new ArrayList<>();
+    private final PaperOrderService orderService = new PaperOrderService();
+    private final PriceTriggerService priceTriggerService = new PriceTriggerService();
+
+    @Before
+    public void initService() {
+        final Product product = new Product();
+        product.setName("BTC-EUR");
+        final Paper paper = new Paper();
+        paper.setActivate(true);
+        paper.setTakerFeeRate(0.0025f);
+        final ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.setProduct(product);
+        applicationProperties.setPaper(paper);
+
+        // the shard thread runs the tasks at once, the dispatched messages are decoded
+        final MonitoredTaskScheduler taskScheduler = new MonitoredTaskScheduler() {
+            @Override
+            public void execute(final Runnable task) {
+                task.run();
+            }
+        };
+        final ShardManager shardManager = new ShardManager() {
+            @Override
+            public void dispatch(final String message, final long receivedNanos) {
+                messages.add(decode(message));
+            }
+        };
+
+        ReflectionTestUtils.setField(this.priceTriggerService, "appProp", applicationProperties);
+        ReflectionTestUtils.setField(this.orderService, "applicationProperties", applicationProperties);
+        ReflectionTestUtils.setField(this.orderService, "appProp", applicationProperties);
+        ReflectionTestUtils.setField(this.orderService, "slackService", new SlackService() {
+            @Override
+            public void postCoalescedMessage(final String coalesceKey, final String message) {
+            }
+        });
+        ReflectionTestUtils.setField(this.orderService, "latencyService", new LatencyService());
+        ReflectionTestUtils.setField(this.orderService, "shardManager", shardManager);
+        ReflectionTestUtils.setField(this.orderService, "priceTriggerService", this.priceTriggerService);
+        ReflectionTestUtils.setField(this.orderService, "taskScheduler", taskScheduler);
+        ReflectionTestUtils.setField(this.orderService, "jsonMapper", this.jsonMapper);
+    }
+
+    @Test
+    public void stopSellIsFilledWhenTheStopPriceIsCrossed() {
+        this.tick("100");
+        final Order order = this.orderService.placeStopSellOrder(95, 2, 0).get();
+        assertThat(this.orderService.isOrderOpen(order.getId())).isTrue();
+        assertThat(this.types()).containsExactly("received");
+
+        this.tick("96");
+        assertThat(this.types()).containsExactly("received");
+
+        this.tick("94.5");
+        assertThat(this.types()).containsExactly("received", "activate", "match", "done");
+        assertThat(((OrderActivated) this.messages.get(1)).getStopPrice()).isEqualByComparingTo("95");
+        final Match match = (Match) this.messages.get(2);
+        assertThat(match.isUserBuy()).isFalse();
+        assertThat(match.getUserOrderId()).isEqualTo(order.getId());
+        assertThat(match.getPrice()).isEqualTo(94.5);
+        assertThat(match.getUserFee(BigDecimal.ZERO).doubleValue()).isCloseTo(2 * 94.5 * 0.0025, within(1e-9));
+        assertThat(((OrderDone) this.messages.get(3)).getReason()).isEqualTo("filled");
+        assertThat(this.orderService.isOrderOpen(order.getId())).isFalse();
+    }
+
+    @Test
+    public void marketBuyIsFilledAtTheLastPrice() {
+        this.tick("200");
+        final Order order = this.orderService.placeMarketBuyOrder(100.25, 0).get();
+
+        assertThat(this.types()).containsExactly("received", "match", "done");
+        final Match match = (Match) this.messages.get(1);
+        assertThat(match.isUserBuy()).isTrue();
+        assertThat(match.getSize()).isEqualTo(0.5);
+        assertThat(this.orderService.getLastBuyFill().get().getOrder_id()).isEqualTo(order.getId());
+    }
+
+    @Test
+    public void canceledOrderIsNotFilled() {
+        this.tick("100");
+        final Order order = this.orderService.placeStopSellOrder(95, 2, 0).get();
+        this.orderService.cancelOrder(order.getId());
+        this.tick("90");
+
+        assertThat(this.types()).containsExactly("received", "done");
+        assertThat(((OrderDone) this.messages.get(1)).getReason()).isEqualTo("canceled");
+    }
+
+    private void tick(final String price) {
+        this.priceTriggerService.notifyTickerMessage(Ticker.builder().price(new BigDecimal(price)).build());
+    }
+
+    private List<String> types() {
+        final List<String> types = new ArrayList<>();
+        this.messages.forEach(message -> types.add(message.getType()));
+        return types;
+    }
+
+    private GenericFeedMessage decode(final String json) {
+        try {
+            final GenericFeedMessage message = this.jsonMapper.readValue(json, GenericFeedMessage.class);
+            return this.jsonMapper.readValue(json, E_FeedMessage.getByName(message.getType()).get().javaType);
+        } catch (Exception e) {
+            throw new IllegalStateException(json, e);
+        }
+    }
+}
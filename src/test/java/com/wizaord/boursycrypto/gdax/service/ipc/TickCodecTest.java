@@ -0,0 +1,59 @@
+package com.wizaord.boursycrypto.gdax.service.ipc;
+
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.Ticker;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.broadcast.BroadcastBufferDescriptor;
+import org.agrona.concurrent.broadcast.BroadcastReceiver;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TickCodecTest {
+
+    private final Ticker tick = Ticker.builder()
+            .sequence("3291341298")
+            .productId("BTC-EUR")
+            .price(new BigDecimal("8052.94"))
+            .volume24h(new BigDecimal("3377.29740495"))
+            .bestBid(8052.15f)
+            .side("buy")
+            .time(new Date(1517433980947L))
+            .tradeId("10960276")
+            .lastSize(new BigDecimal("0.01"))
+            .build();
+
+    @Test
+    public void tickIsTransmittedThroughTheRing() {
+        tick.setReceivedNanos(123456789L);
+        final UnsafeBuffer ring = new UnsafeBuffer(ByteBuffer.allocateDirect(4096 + BroadcastBufferDescriptor.TRAILER_LENGTH));
+        final TickPublisher.Ring publisherRing = new TickPublisher.Ring(null, ring);
+        final BroadcastReceiver receiver = new BroadcastReceiver(ring);
+
+        publisherRing.transmit(tick);
+
+        assertThat(receiver.receiveNext()).isTrue();
+        assertThat(receiver.typeId()).isEqualTo(TickCodec.TICK_MSG_TYPE_ID);
+        final Ticker decoded = TickCodec.decode(receiver.buffer(), receiver.offset(), "BTC-EUR");
+        assertThat(receiver.validate()).isTrue();
+
+        assertThat(decoded.getType()).isEqualTo("ticker");
+        assertThat(decoded.getProductId()).isEqualTo("BTC-EUR");
+        assertThat(decoded.getSequence()).isEqualTo("3291341298");
+        assertThat(decoded.getPrice()).isEqualByComparingTo("8052.94");
+        assertThat(decoded.getVolume24h()).isEqualByComparingTo("3377.29740495");
+        assertThat(decoded.getLastSize()).isEqualByComparingTo("0.01");
+        assertThat(decoded.getOpen24h()).isNull();
+        assertThat(decoded.getBestBid()).isEqualTo(8052.15f);
+        assertThat(decoded.getBestAsk()).isNull();
+        assertThat(decoded.getSide()).isEqualTo("buy");
+        assertThat(decoded.getTime()).isEqualTo(new Date(1517433980947L));
+        assertThat(decoded.getTradeId()).isEqualTo("10960276");
+        assertThat(decoded.getReceivedNanos()).isEqualTo(123456789L);
+        assertThat(TickCodec.publishNanos(receiver.buffer(), receiver.offset())).isPositive();
+        assertThat(receiver.receiveNext()).isFalse();
+    }
+}
@@ -0,0 +1,67 @@
+package com.wizaord.boursycrypto.gdax.service.market;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.config.properties.PriceAlert;
+import com.wizaord.boursycrypto.gdax.config.properties.Product;
+import com.wizaord.boursycrypto.gdax.domain.E_NotificationPriority;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.Ticker;
+import com.wizaord.boursycrypto.gdax.service.notify.SlackService;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Registration of the price alerts of the product on the first ticker
+ */
+public class PriceTriggerServiceTest {
+
+    private final PriceTriggerService priceTriggerService = new PriceTriggerService();
+    private final Product product = new Product();
+    private final List<String> messages = new ArrayList<>();
+
+    @Before
+    public void initService() {
+        this.product.setName("BTC-EUR");
+        final ApplicationProperties appProp = new ApplicationProperties();
+        appProp.setProduct(this.product);
+        ReflectionTestUtils.setField(this.priceTriggerService, "appProp", appProp);
+        ReflectionTestUtils.setField(this.priceTriggerService, "slackService", new SlackService() {
+            @Override
+            public void postCustomMessage(final String message, final E_NotificationPriority priority) {
+                messages.add(message);
+            }
+        });
+    }
+
+    @Test
+    public void alertWithoutPriceDoesNotPreventTheOthers() {
+        this.product.getAlerts().add(this.alert(null));
+        this.product.getAlerts().add(this.alert(9500f));
+        this.product.getAlerts().add(this.alert(8500f));
+
+        this.priceTriggerService.notifyTickerMessage(this.ticker(9000));
+
+        assertThat(this.priceTriggerService.getTriggerCount()).isEqualTo(2);
+        this.priceTriggerService.notifyTickerMessage(this.ticker(9600));
+        this.priceTriggerService.notifyTickerMessage(this.ticker(8400));
+        assertThat(this.messages).hasSize(2);
+        assertThat(this.messages.get(0)).contains("au dessus de");
+        assertThat(this.messages.get(1)).contains("en dessous de");
+    }
+
+    private PriceAlert alert(final Float price) {
+        final PriceAlert alert = new PriceAlert();
+        alert.setPrice(price);
+        return alert;
+    }
+
+    private Ticker ticker(final long price) {
+        return Ticker.builder().price(BigDecimal.valueOf(price)).build();
+    }
+}
@@ -0,0 +1,55 @@
+package com.wizaord.boursycrypto.gdax.service.market;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SlidingWindowTest {
+
+    @Test
+    public void maxAndMinFollowTheWindow() {
+        final SlidingWindow window = new SlidingWindow(1000);
+        assertThat(window.isEmpty()).isTrue();
+
+        window.add(0, 100);
+        window.add(400, 105);
+        window.add(800, 98);
+        assertThat(window.getMax()).isEqualTo(105);
+        assertThat(window.getMin()).isEqualTo(98);
+
+        // 100 a 0 ms et 105 a 400 ms sortent de la fenetre
+        window.add(1400, 99);
+        assertThat(window.getMax()).isEqualTo(99);
+        assertThat(window.getMin()).isEqualTo(98);
+
+        window.add(1800, 101);
+        assertThat(window.getMax()).isEqualTo(101);
+        assertThat(window.getMin()).isEqualTo(99);
+    }
+
+    @Test
+    public void matchesABruteForceWindow() {
+        final Random random = new Random(42);
+        final SlidingWindow window = new SlidingWindow(500);
+        final long[] times = new long[5000];
+        final double[] prices = new double[5000];
+        long time = 0;
+        for (int i = 0; i < times.length; i++) {
+            time += random.nextInt(20);
+            times[i] = time;
+            prices[i] = 100 + random.nextGaussian();
+            window.add(time, prices[i]);
+
+            double max = Double.NEGATIVE_INFINITY;
+            double min = Double.POSITIVE_INFINITY;
+            for (int j = i; j >= 0 && times[j] > time - 500; j--) {
+                max = Math.max(max, prices[j]);
+                min = Math.min(min, prices[j]);
+            }
+            assertThat(window.getMax()).isEqualTo(max);
+            assertThat(window.getMin()).isEqualTo(min);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.wizaord.boursycrypto.gdax.service.market;
+
+import com.wizaord.boursycrypto.gdax.domain.E_TriggerSide;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TriggerIndexTest {
+
+    private final TriggerIndex index = new TriggerIndex();
+    private final List<String> fired = new ArrayList<>();
+
+    @Test
+    public void firesTheCrossedLevelsOnce() {
+        this.register("tp-105", 105, E_TriggerSide.ABOVE);
+        this.register("tp-110", 110, E_TriggerSide.ABOVE);
+        this.register("alert-95", 95, E_TriggerSide.BELOW);
+
+        assertThat(this.index.onPrice(100)).isEqualTo(0);
+        assertThat(this.index.onPrice(106)).isEqualTo(1);
+        assertThat(this.fired).containsExactly("tp-105");
+
+        // un niveau declenche ne l'est plus
+        assertThat(this.index.onPrice(104)).isEqualTo(0);
+        assertThat(this.index.onPrice(120)).isEqualTo(1);
+        assertThat(this.index.onPrice(95)).isEqualTo(1);
+        assertThat(this.fired).containsExactly("tp-105", "tp-110", "alert-95");
+        assertThat(this.index.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void canceledTriggersAreNotFired() {
+        final List<TriggerIndex.Trigger> triggers = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            triggers.add(this.register("above-" + i, 100 + i, E_TriggerSide.ABOVE));
+        }
+        // annulation des niveaux pairs : les niveaux annules sont purges du tas
+        for (int i = 0; i < 1000; i += 2) {
+            triggers.get(i).cancel();
+        }
+        assertThat(this.index.size()).isEqualTo(500);
+        assertThat(triggers.get(0).isActive()).isFalse();
+
+        assertThat(this.index.onPrice(110)).isEqualTo(5);
+        assertThat(this.fired).containsExactly("above-1", "above-3", "above-5", "above-7", "above-9");
+        assertThat(this.index.onPrice(2000)).isEqualTo(495);
+        assertThat(this.index.size()).isEqualTo(0);
+    }
+
+    private TriggerIndex.Trigger register(final String name, final double level, final E_TriggerSide side) {
+        return this.index.register(level, side, price -> this.fired.add(name));
+    }
+}
@@ -0,0 +1,82 @@
+package com.wizaord.boursycrypto.gdax.service.metrics;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.config.properties.Trader;
+import com.wizaord.boursycrypto.gdax.service.gdax.ExchangeClockService;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Stale feed detection : late messages and stalled feed, with a manual clock
+ */
+public class FeedLagMonitorTest {
+
+    private static final long START = 1_517_434_000_000L;
+
+    private long now = START;
+    private final FeedLagMonitor feedLagMonitor = new FeedLagMonitor() {
+        @Override
+        long currentTimeMillis() {
+            return now;
+        }
+    };
+
+    @Before
+    public void initMonitor() {
+        final Trader trader = new Trader();
+        trader.setMaxFeedLag(3000);
+        final ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.setTrader(trader);
+        final ExchangeClockService exchangeClockService = new ExchangeClockService();
+        // the GDAX clock is 500 ms ahead
+        ReflectionTestUtils.setField(exchangeClockService, "offsetMillis", 500L);
+        ReflectionTestUtils.setField(this.feedLagMonitor, "applicationProperties", applicationProperties);
+        ReflectionTestUtils.setField(this.feedLagMonitor, "exchangeClockService", exchangeClockService);
+    }
+
+    @Test
+    public void lagIsMeasuredInTheExchangeClock() {
+        this.feedLagMonitor.record(new Date(START + 400));
+
+        assertThat(this.feedLagMonitor.getLastLagMillis()).isEqualTo(100);
+        assertThat(this.feedLagMonitor.isLagging()).isFalse();
+    }
+
+    @Test
+    public void lateMessageIsLagging() {
+        this.feedLagMonitor.record(new Date(START - 4000));
+
+        assertThat(this.feedLagMonitor.getLastLagMillis()).isEqualTo(4500);
+        assertThat(this.feedLagMonitor.isLagging()).isTrue();
+
+        this.now += 100;
+        this.feedLagMonitor.record(new Date(this.now + 400));
+        assertThat(this.feedLagMonitor.isLagging()).isFalse();
+    }
+
+    @Test
+    public void stalledFeedIsLagging() {
+        this.feedLagMonitor.record(new Date(START + 400));
+
+        this.now += 2900;
+        assertThat(this.feedLagMonitor.isLagging()).isFalse();
+        this.now += 200;
+        assertThat(this.feedLagMonitor.isLagging()).isTrue();
+        assertThat(this.feedLagMonitor.getFeedLagMillis()).isEqualTo(3100);
+
+        this.feedLagMonitor.record(new Date(this.now + 400));
+        assertThat(this.feedLagMonitor.isLagging()).isFalse();
+    }
+
+    @Test
+    public void noMessageYetIsNotLagging() {
+        this.now += 60000;
+
+        assertThat(this.feedLagMonitor.isLagging()).isFalse();
+    }
+}
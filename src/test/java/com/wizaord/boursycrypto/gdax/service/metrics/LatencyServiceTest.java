@@ -0,0 +1,78 @@
+package com.wizaord.boursycrypto.gdax.service.metrics;
+
+import com.wizaord.boursycrypto.gdax.domain.E_LatencyStage;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LatencyServiceTest {
+
+    @Test
+    public void recordedValuesAreExportedAfterTheReport() {
+        final LatencyService latencyService = new LatencyService();
+        latencyService.record(E_LatencyStage.DECODE, TimeUnit.MICROSECONDS.toNanos(100));
+        latencyService.record(E_LatencyStage.DECODE, TimeUnit.MICROSECONDS.toNanos(300));
+        latencyService.record(E_LatencyStage.DECODE, -1);
+
+        assertThat(latencyService.getPercentiles().get("DECODE").get("count")).isEqualTo(0L);
+
+        latencyService.report();
+
+        final Map<String, Object> decode = latencyService.getPercentiles().get("DECODE");
+        assertThat(decode.get("count")).isEqualTo(2L);
+        assertThat((Long) decode.get("max")).isBetween(299L, 301L);
+        assertThat(latencyService.getPercentiles().get("REST_ACK").get("count")).isEqualTo(0L);
+    }
+
+    @Test
+    public void confirmationIsRecordedOnceFromTheAck() {
+        final LatencyService latencyService = new LatencyService();
+        latencyService.expectConfirmation("order-1", 1_000, 5_000);
+
+        latencyService.confirm("order-1", 25_000);
+        latencyService.confirm("order-1", 50_000);
+        latencyService.confirm("unknown", 50_000);
+        latencyService.confirm(null, 50_000);
+        latencyService.report();
+
+        final Map<String, Map<String, Object>> percentiles = latencyService.getPercentiles();
+        assertThat(percentiles.get("ACK_TO_CONFIRM").get("count")).isEqualTo(1L);
+        assertThat(percentiles.get("ACK_TO_CONFIRM").get("max")).isEqualTo(20L);
+        assertThat(percentiles.get("TICK_TO_CONFIRM").get("max")).isEqualTo(24L);
+    }
+
+    @Test
+    public void confirmationReceivedBeforeTheAckIsRecorded() {
+        final LatencyService latencyService = new LatencyService();
+        latencyService.confirm("order-1", 4_000);
+        latencyService.confirm("order-1", 6_000);
+
+        latencyService.expectConfirmation("order-1", 1_000, 5_000);
+        latencyService.confirm("order-1", 50_000);
+        latencyService.report();
+
+        final Map<String, Map<String, Object>> percentiles = latencyService.getPercentiles();
+        assertThat(percentiles.get("ACK_TO_CONFIRM").get("count")).isEqualTo(1L);
+        assertThat(percentiles.get("ACK_TO_CONFIRM").get("max")).isEqualTo(0L);
+        assertThat(percentiles.get("TICK_TO_CONFIRM").get("max")).isEqualTo(3L);
+    }
+
+    @Test
+    public void zeroIsAValidNanoTime() {
+        final LatencyService latencyService = new LatencyService();
+        latencyService.expectConfirmation("order-1", 0, 5_000);
+        latencyService.expectConfirmation("order-2", LatencyService.UNKNOWN_NANOS, 5_000);
+
+        latencyService.confirm("order-1", 25_000);
+        latencyService.confirm("order-2", 25_000);
+        latencyService.report();
+
+        final Map<String, Map<String, Object>> percentiles = latencyService.getPercentiles();
+        assertThat(percentiles.get("ACK_TO_CONFIRM").get("count")).isEqualTo(2L);
+        assertThat(percentiles.get("TICK_TO_CONFIRM").get("count")).isEqualTo(1L);
+        assertThat(percentiles.get("TICK_TO_CONFIRM").get("max")).isEqualTo(25L);
+    }
+}
@@ -0,0 +1,121 @@
+package com.wizaord.boursycrypto.gdax.service.notify;
+
+import com.wizaord.boursycrypto.gdax.domain.E_NotificationPriority;
+import com.wizaord.boursycrypto.gdax.domain.notify.Notification;
+import com.wizaord.boursycrypto.gdax.service.timer.WheelTimer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SinkQueueTest {
+
+    private final List<String> delivered = new CopyOnWriteArrayList<>();
+    private final AtomicInteger failuresToSimulate = new AtomicInteger();
+    private final CountDownLatch workerBlocked = new CountDownLatch(1);
+    private final CountDownLatch workerReleased = new CountDownLatch(1);
+    private final WheelTimer wheelTimer = new WheelTimer();
+    private SinkQueue sinkQueue;
+
+    private final NotificationSink sink = new NotificationSink() {
+        @Override
+        public String getName() {
+            return "test";
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public void deliver(final String recipient, final String text, final Notification notification) {
+            if ("blocker".equals(text)) {
+                workerBlocked.countDown();
+                try {
+                    workerReleased.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failuresToSimulate.getAndDecrement() > 0) {
+                throw new IllegalStateException("sink unavailable");
+            }
+            delivered.add(recipient + ":" + text);
+        }
+    };
+
+    @Before
+    public void startTimer() {
+        this.wheelTimer.start();
+    }
+
+    @After
+    public void stopQueue() {
+        this.sinkQueue.stop();
+        this.wheelTimer.stop();
+    }
+
+    @Test
+    public void coalescedMessagesAreMerged() throws InterruptedException {
+        this.sinkQueue = new SinkQueue(sink, 10, 0, this.wheelTimer);
+        this.sinkQueue.start(1);
+        final long notBefore = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+        for (int i = 0; i < 3; i++) {
+            final Notification notification = Notification.builder().text("stop " + i).channel("me")
+                    .priority(E_NotificationPriority.LOW).coalesceKey("stop").build();
+            this.sinkQueue.enqueue(new SinkDelivery("me", notification, notBefore));
+        }
+
+        waitForDelivery(1);
+        assertThat(this.delivered).containsExactly("me:stop 2");
+    }
+
+    @Test
+    public void failedDeliveryIsRetried() throws InterruptedException {
+        this.sinkQueue = new SinkQueue(sink, 10, 2, this.wheelTimer);
+        this.sinkQueue.start(1);
+        this.failuresToSimulate.set(1);
+        this.sinkQueue.enqueue(new SinkDelivery("me", Notification.builder().text("fill").channel("me").build(), 0));
+
+        waitForDelivery(1);
+        assertThat(this.delivered).containsExactly("me:fill");
+        assertThat(this.sinkQueue.getFailed()).isEqualTo(1);
+        assertThat(this.sinkQueue.getDelivered()).isEqualTo(1);
+    }
+
+    @Test
+    public void highPriorityMessagesAreDeliveredBeforeTheLowOnes() throws InterruptedException {
+        this.sinkQueue = new SinkQueue(sink, 10, 0, this.wheelTimer);
+        this.sinkQueue.start(1);
+        this.sinkQueue.enqueue(new SinkDelivery("me", Notification.builder().text("blocker").channel("me").build(), 0));
+        assertThat(this.workerBlocked.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // queued while the worker is busy : a coalesced low message (it joins the queue at the end of its window),
+        // a low one, then a high one
+        this.sinkQueue.enqueue(new SinkDelivery("me", Notification.builder().text("stop").channel("me")
+                .priority(E_NotificationPriority.LOW).coalesceKey("stop").build(), System.nanoTime()));
+        Thread.sleep(200);
+        this.sinkQueue.enqueue(new SinkDelivery("me", Notification.builder().text("low").channel("me")
+                .priority(E_NotificationPriority.LOW).build(), 0));
+        this.sinkQueue.enqueue(new SinkDelivery("me", Notification.builder().text("fill").channel("me")
+                .priority(E_NotificationPriority.HIGH).build(), 0));
+        this.workerReleased.countDown();
+
+        waitForDelivery(4);
+        assertThat(this.delivered).containsExactly("me:blocker", "me:fill", "me:stop", "me:low");
+    }
+
+    private void waitForDelivery(final int expected) throws InterruptedException {
+        for (int i = 0; i < 50 && this.delivered.size() < expected; i++) {
+            Thread.sleep(100);
+        }
+    }
+}
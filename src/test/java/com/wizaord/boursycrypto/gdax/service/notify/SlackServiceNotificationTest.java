@@ -0,0 +1,61 @@
+package com.wizaord.boursycrypto.gdax.service.notify;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.config.properties.Product;
+import com.wizaord.boursycrypto.gdax.config.properties.Slack;
+import com.wizaord.boursycrypto.gdax.domain.notify.Notification;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The notifications of the shards share the sinks : they carry their product and their coalesce key is scoped to it
+ */
+public class SlackServiceNotificationTest {
+
+    private final List<Notification> published = new ArrayList<>();
+    private final NotificationDispatcher notificationDispatcher = new NotificationDispatcher() {
+        @Override
+        public void publish(final Notification notification) {
+            published.add(notification);
+        }
+    };
+
+    @Test
+    public void notificationsCarryTheProductOfTheShard() {
+        this.slackService("BTC-EUR", "BTC").postCustomMessage("btc");
+        this.slackService("ETH-EUR", "ETH").postCustomMessage("eth");
+
+        assertThat(this.published).extracting(Notification::getProductName).containsExactly("BTC-EUR", "ETH-EUR");
+        assertThat(this.published).extracting(Notification::getProductType).containsExactly("BTC", "ETH");
+        assertThat(this.published).flatExtracting(Notification::getChannels).containsExactly("me", "me");
+    }
+
+    @Test
+    public void coalesceKeysOfTwoProductsAreDifferent() {
+        this.slackService("BTC-EUR", "BTC").postCoalescedMessage("sell-order-handle:lot-1", "btc");
+        this.slackService("ETH-EUR", "ETH").postCoalescedMessage("sell-order-handle:lot-1", "eth");
+
+        assertThat(this.published).extracting(Notification::getCoalesceKey)
+                .containsExactly("BTC-EUR:sell-order-handle:lot-1", "ETH-EUR:sell-order-handle:lot-1");
+    }
+
+    private SlackService slackService(final String productName, final String productType) {
+        final Product product = new Product();
+        product.setName(productName);
+        product.setType(productType);
+        final Slack slack = new Slack();
+        slack.setPersonalAccountChannel("me");
+        final ApplicationProperties appProp = new ApplicationProperties();
+        appProp.setProduct(product);
+        appProp.setSlack(slack);
+        final SlackService slackService = new SlackService();
+        ReflectionTestUtils.setField(slackService, "appProp", appProp);
+        ReflectionTestUtils.setField(slackService, "notificationDispatcher", this.notificationDispatcher);
+        return slackService;
+    }
+}
@@ -0,0 +1,84 @@
+package com.wizaord.boursycrypto.gdax.service.notify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wizaord.boursycrypto.gdax.domain.notify.Notification;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Broadcast to the WebSocket clients : a broken client does not fail the delivery for the others
+ */
+public class WebSocketSinkTest {
+
+    private final WebSocketSink webSocketSink = new WebSocketSink();
+    // "<session id> sent" for each message received, "<session id> closed" when the session is closed
+    private final List<String> events = new ArrayList<>();
+
+    @Before
+    public void initSink() {
+        ReflectionTestUtils.setField(this.webSocketSink, "jsonMapper", new ObjectMapper());
+    }
+
+    @Test
+    public void brokenSessionIsDisconnectedAndTheOthersReceiveTheNotification() throws IOException {
+        this.webSocketSink.afterConnectionEstablished(this.session("first", false));
+        this.webSocketSink.afterConnectionEstablished(this.session("broken", true));
+        this.webSocketSink.afterConnectionEstablished(this.session("last", false));
+
+        this.webSocketSink.deliver("all", "hello", Notification.builder().text("hello").productName("BTC-EUR").build());
+
+        assertThat(this.events).containsExactly("first sent", "broken closed", "last sent");
+        assertThat(this.sessions()).extracting(WebSocketSession::getId).containsExactly("first", "last");
+
+        this.webSocketSink.deliver("all", "again", Notification.builder().text("again").productName("BTC-EUR").build());
+        assertThat(this.events).containsExactly("first sent", "broken closed", "last sent", "first sent", "last sent");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<WebSocketSession> sessions() {
+        return (Set<WebSocketSession>) ReflectionTestUtils.getField(this.webSocketSink, "sessions");
+    }
+
+    /**
+     * @param id
+     * @param broken true if sending a message fails
+     */
+    private WebSocketSession session(final String id, final boolean broken) {
+        return (WebSocketSession) Proxy.newProxyInstance(WebSocketSession.class.getClassLoader(), new Class<?>[]{WebSocketSession.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getId":
+                            return id;
+                        case "isOpen":
+                            return true;
+                        case "sendMessage":
+                            if (broken) {
+                                throw new IOException("broken pipe");
+                            }
+                            this.events.add(id + " sent");
+                            return null;
+                        case "close":
+                            assertThat(args[0]).isEqualTo(CloseStatus.SERVER_ERROR);
+                            this.events.add(id + " closed");
+                            return null;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
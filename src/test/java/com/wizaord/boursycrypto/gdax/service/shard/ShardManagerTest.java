@@ -0,0 +1,95 @@
+package com.wizaord.boursycrypto.gdax.service.shard;
+
+import com.wizaord.boursycrypto.gdax.service.MessageDispatcherService;
+import com.wizaord.boursycrypto.gdax.service.metrics.MonitoredTaskScheduler;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Routing of the raw feed messages to the shards, by product_id
+ */
+public class ShardManagerTest {
+
+    private final ShardManager shardManager = new ShardManager();
+    // product of the shard : messages received
+    private final Map<String, List<String>> received = new LinkedHashMap<>();
+
+    @Before
+    public void initShards() {
+        final ProductShard mainShard = this.shard("BTC-EUR");
+        ReflectionTestUtils.setField(this.shardManager, "mainShard", mainShard);
+        @SuppressWarnings("unchecked")
+        final Map<String, ProductShard> shards = (Map<String, ProductShard>) ReflectionTestUtils.getField(this.shardManager, "shards");
+        shards.put("BTC-EUR", mainShard);
+        // BTC-EU is a prefix of BTC-EUR and ETH-EURO starts with ETH-EUR
+        shards.put("BTC-EU", this.shard("BTC-EU"));
+        shards.put("ETH-EUR", this.shard("ETH-EUR"));
+        shards.put("ETH-EURO", this.shard("ETH-EURO"));
+    }
+
+    @Test
+    public void messageIsRoutedToTheShardOfItsProduct() {
+        this.shardManager.dispatch("{\"type\":\"ticker\",\"product_id\":\"ETH-EUR\",\"price\":\"500\"}", 0);
+        this.shardManager.dispatch("{\"type\":\"ticker\",\"product_id\":\"BTC-EUR\",\"price\":\"9000\"}", 0);
+
+        assertThat(this.received.get("ETH-EUR")).containsExactly("{\"type\":\"ticker\",\"product_id\":\"ETH-EUR\",\"price\":\"500\"}");
+        assertThat(this.received.get("BTC-EUR")).containsExactly("{\"type\":\"ticker\",\"product_id\":\"BTC-EUR\",\"price\":\"9000\"}");
+        assertThat(this.received.get("ETH-EURO")).isEmpty();
+        assertThat(this.received.get("BTC-EU")).isEmpty();
+    }
+
+    @Test
+    public void productNamesWhichArePrefixesOfEachOtherAreNotMixed() {
+        this.shardManager.dispatch("{\"product_id\":\"BTC-EU\"}", 0);
+        this.shardManager.dispatch("{\"product_id\":\"BTC-EUR\"}", 0);
+        this.shardManager.dispatch("{\"product_id\":\"ETH-EURO\"}", 0);
+
+        assertThat(this.received.get("BTC-EU")).containsExactly("{\"product_id\":\"BTC-EU\"}");
+        assertThat(this.received.get("BTC-EUR")).containsExactly("{\"product_id\":\"BTC-EUR\"}");
+        assertThat(this.received.get("ETH-EURO")).containsExactly("{\"product_id\":\"ETH-EURO\"}");
+        assertThat(this.received.get("ETH-EUR")).isEmpty();
+    }
+
+    @Test
+    public void messageWithoutKnownProductGoesToTheMainShard() {
+        this.shardManager.dispatch("{\"type\":\"subscriptions\",\"channels\":[]}", 0);
+        this.shardManager.dispatch("{\"type\":\"ticker\",\"product_id\":\"LTC-EUR\"}", 0);
+        this.shardManager.dispatch("{\"type\":\"ticker\",\"product_id\":\"\"}", 0);
+
+        assertThat(this.received.get("BTC-EUR")).hasSize(3);
+        assertThat(this.received.get("BTC-EU")).isEmpty();
+        assertThat(this.received.get("ETH-EUR")).isEmpty();
+    }
+
+    /**
+     * A shard whose thread runs the messages at once and whose dispatcher records them
+     */
+    private ProductShard shard(final String productName) {
+        final List<String> messages = new ArrayList<>();
+        this.received.put(productName, messages);
+        final StaticApplicationContext context = new StaticApplicationContext();
+        context.getBeanFactory().registerSingleton("messageDispatcherService", new MessageDispatcherService() {
+            @Override
+            public void handleJsonMessage(final String message, final long receivedNanos) {
+                messages.add(message);
+            }
+        });
+        context.refresh();
+        final MonitoredTaskScheduler executor = new MonitoredTaskScheduler() {
+            @Override
+            public void execute(final Runnable task) {
+                task.run();
+            }
+        };
+        return new ProductShard(productName, context, executor);
+    }
+}
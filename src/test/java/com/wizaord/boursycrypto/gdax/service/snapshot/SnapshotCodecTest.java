@@ -0,0 +1,134 @@
+package com.wizaord.boursycrypto.gdax.service.snapshot;
+
+import com.wizaord.boursycrypto.gdax.domain.E_TradingMode;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.OrderOpen;
+import com.wizaord.boursycrypto.gdax.domain.historic.HistorizedTic;
+import com.wizaord.boursycrypto.gdax.domain.snapshot.TradingSnapshot;
+import com.wizaord.boursycrypto.gdax.domain.trade.PositionLot;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SnapshotCodecTest {
+
+    @Test
+    public void snapshotIsDecodedAsEncoded() {
+        final PositionLot first = PositionLot.builder()
+                .lotId("buy-order")
+                .openedAt(new Date(1520000000000L))
+                .entryPrice(new BigDecimal("8000.50"))
+                .size(new BigDecimal("0.0125"))
+                .fee(new BigDecimal("0.25"))
+                .takeProfitPourcent(1.5)
+                .stopOrder(stopOrder())
+                .build();
+        final PositionLot second = PositionLot.builder()
+                .lotId("other-buy-order")
+                .entryPrice(new BigDecimal("7800"))
+                .size(new BigDecimal("0.5"))
+                .build();
+
+        final LocalDateTime date = LocalDateTime.of(2018, 3, 1, 10, 15);
+        final TradingSnapshot snapshot = TradingSnapshot.builder()
+                .writtenAt(1520000060000L)
+                .productName("BTC-EUR")
+                .tradingMode(E_TradingMode.VENTE)
+                .lot(first)
+                .lot(second)
+                .historizedTic(HistorizedTic.builder().generatedDate(date).nbTic(12).averagePrice(8001.5).volumeEchange(1.5)
+                        .minPrice(7990).maxPrice(8010).nbBuy(7).nbSell(5).build())
+                .historizedTic(HistorizedTic.builder().generatedDate(date.plusMinutes(1)).nbTic(3).averagePrice(8002).build())
+                .build();
+
+        final TradingSnapshot decoded = SnapshotCodec.decode(SnapshotCodec.encode(snapshot));
+
+        assertThat(decoded.getWrittenAt()).isEqualTo(1520000060000L);
+        assertThat(decoded.getProductName()).isEqualTo("BTC-EUR");
+        assertThat(decoded.getTradingMode()).isEqualTo(E_TradingMode.VENTE);
+        assertThat(decoded.getLots()).hasSize(2);
+        final PositionLot decodedFirst = decoded.getLots().get(0);
+        assertThat(decodedFirst.getLotId()).isEqualTo("buy-order");
+        assertThat(decodedFirst.getOpenedAt()).isEqualTo(new Date(1520000000000L));
+        assertThat(decodedFirst.getEntryPrice()).isEqualByComparingTo("8000.50");
+        assertThat(decodedFirst.getFee()).isEqualByComparingTo("0.25");
+        assertThat(decodedFirst.getTakeProfitPourcent()).isEqualTo(1.5);
+        assertThat(decodedFirst.getStopOrder().getOrderId()).isEqualTo("stop-order");
+        assertThat(decodedFirst.getStopOrder().getPrice()).isEqualByComparingTo("7900");
+        assertThat(decodedFirst.getStopOrder().getTime()).isNull();
+        assertThat(decoded.getLots().get(1).getStopOrder()).isNull();
+        assertThat(decoded.getLots().get(1).getSize()).isEqualByComparingTo("0.5");
+        assertThat(decoded.getHistorizedTics()).isEqualTo(snapshot.getHistorizedTics());
+    }
+
+    @Test
+    public void singlePositionSnapshotIsReadAsOneLot() {
+        final ByteBuffer buffer = ByteBuffer.allocate(512);
+        buffer.putInt(SnapshotCodec.MAGIC).putInt(1).putLong(1L);
+        putString(buffer, "BTC-EUR");
+        buffer.put((byte) E_TradingMode.VENTE.ordinal());
+        // last buy fill
+        buffer.put((byte) 1).putLong(1520000000000L).putLong(42);
+        putString(buffer, "buy-order");
+        putString(buffer, "8000.50");
+        putString(buffer, "0.0125");
+        putString(buffer, "0");
+        putString(buffer, "buy");
+        // stop order
+        buffer.put((byte) 1).putLong(Long.MIN_VALUE);
+        putString(buffer, "stop-order");
+        putString(buffer, "7900");
+        putString(buffer, "0.0125");
+        putString(buffer, "sell");
+        // history
+        buffer.putInt(0);
+        buffer.flip();
+
+        final TradingSnapshot decoded = SnapshotCodec.decode(buffer);
+
+        assertThat(decoded.getLots()).hasSize(1);
+        assertThat(decoded.getLots().get(0).getLotId()).isEqualTo("buy-order");
+        assertThat(decoded.getLots().get(0).getEntryPrice()).isEqualByComparingTo("8000.50");
+        assertThat(decoded.getLots().get(0).getStopOrder().getOrderId()).isEqualTo("stop-order");
+    }
+
+    private static OrderOpen stopOrder() {
+        final OrderOpen stopOrder = new OrderOpen();
+        stopOrder.setOrderId("stop-order");
+        stopOrder.setPrice(new BigDecimal("7900"));
+        stopOrder.setRemainingSize(new BigDecimal("0.0125"));
+        stopOrder.setSide("sell");
+        return stopOrder;
+    }
+
+    private static void putString(final ByteBuffer buffer, final String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    @Test
+    public void emptyStateIsDecoded() {
+        final TradingSnapshot snapshot = TradingSnapshot.builder()
+                .writtenAt(1L)
+                .productName("ETH-EUR")
+                .tradingMode(E_TradingMode.ACHAT)
+                .build();
+
+        final TradingSnapshot decoded = SnapshotCodec.decode(SnapshotCodec.encode(snapshot));
+
+        assertThat(decoded.getLots()).isEmpty();
+        assertThat(decoded.getHistorizedTics()).isEmpty();
+    }
+
+    @Test
+    public void unknownFileIsRejected() {
+        assertThatThrownBy(() -> SnapshotCodec.decode(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5, 6, 7, 8})))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,78 @@
+package com.wizaord.boursycrypto.gdax.service.store;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TimeSeriesStoreTest {
+
+    private static final long START = 1520000000000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recordsAreReadAcrossChunksAndAfterReopening() throws Exception {
+        final File directory = this.folder.newFolder();
+        final long[] values = new long[2];
+        try (TimeSeriesStore store = TimeSeriesStore.open(directory, "ticks", 2, 4096)) {
+            for (int i = 0; i < 1000; i++) {
+                values[0] = TimeSeriesStore.toLong(8000 + ((i % 7) - 3) * 0.01);
+                values[1] = (i % 2 == 0) ? i : -i;
+                assertThat(store.append(START + i * 250L, values)).isTrue();
+            }
+            assertThat(store.getNbChunks()).isGreaterThan(1);
+            // older than the last record
+            assertThat(store.append(START, values)).isFalse();
+        }
+
+        try (TimeSeriesStore store = TimeSeriesStore.open(directory, "ticks", 2, 4096)) {
+            assertThat(store.getLastTime()).isEqualTo(START + 999 * 250L);
+            values[0] = 42;
+            values[1] = 43;
+            assertThat(store.append(START + 1000 * 250L, values)).isTrue();
+
+            int i = 0;
+            try (SeriesCursor cursor = store.cursor(Long.MIN_VALUE, Long.MAX_VALUE)) {
+                while (cursor.next()) {
+                    assertThat(cursor.getTime()).isEqualTo(START + i * 250L);
+                    if (i < 1000) {
+                        assertThat(cursor.getDouble(0)).isEqualTo(8000 + ((i % 7) - 3) * 0.01);
+                        assertThat(cursor.getValue(1)).isEqualTo((i % 2 == 0) ? i : -i);
+                    } else {
+                        assertThat(cursor.getValue(0)).isEqualTo(42);
+                    }
+                    i++;
+                }
+            }
+            assertThat(i).isEqualTo(1001);
+        }
+    }
+
+    @Test
+    public void cursorReadsOnlyTheRange() throws Exception {
+        try (TimeSeriesStore store = TimeSeriesStore.open(this.folder.newFolder(), "candles", 1, 1024)) {
+            final long[] values = new long[1];
+            for (int i = 0; i < 500; i++) {
+                values[0] = i;
+                store.append(START + i * 60000L, values);
+            }
+
+            int nbRecords = 0;
+            try (SeriesCursor cursor = store.cursor(START + 100 * 60000L, START + 199 * 60000L)) {
+                while (cursor.next()) {
+                    assertThat(cursor.getValue(0)).isEqualTo(100 + nbRecords);
+                    nbRecords++;
+                }
+            }
+            assertThat(nbRecords).isEqualTo(100);
+            try (SeriesCursor cursor = store.cursor(START + 1000 * 60000L, Long.MAX_VALUE)) {
+                assertThat(cursor.next()).isFalse();
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.wizaord.boursycrypto.gdax.service.strategy;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.config.properties.Product;
+import com.wizaord.boursycrypto.gdax.config.properties.Strategies;
+import com.wizaord.boursycrypto.gdax.domain.E_OrderIntent;
+import com.wizaord.boursycrypto.gdax.domain.strategy.MarketView;
+import com.wizaord.boursycrypto.gdax.domain.strategy.OrderIntent;
+import com.wizaord.boursycrypto.gdax.domain.trade.TradingState;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Strategies loaded from a jar : timeout of a slow strategy and close of the class loader of a removed jar
+ */
+public class StrategyEngineTest {
+
+    private static final String SERVICE_FILE = "META-INF/services/" + Strategy.class.getName();
+    private static volatile CountDownLatch slowRelease;
+    private static volatile CountDownLatch slowEnded;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final StrategyEngine strategyEngine = new StrategyEngine();
+    private final StrategyWorkerPool workerPool = new StrategyWorkerPool();
+    private File jar;
+
+    @Before
+    public void initEngine() throws IOException {
+        slowRelease = new CountDownLatch(1);
+        slowEnded = new CountDownLatch(1);
+        final Product product = new Product();
+        product.setName("BTC-EUR");
+        final Strategies strategies = new Strategies();
+        strategies.setDirectory(this.folder.getRoot().getAbsolutePath());
+        strategies.setWorkers(2);
+        final ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.setProduct(product);
+        applicationProperties.setStrategies(strategies);
+        ReflectionTestUtils.setField(this.workerPool, "applicationProperties", applicationProperties);
+        this.workerPool.start();
+        ReflectionTestUtils.setField(this.strategyEngine, "applicationProperties", applicationProperties);
+        ReflectionTestUtils.setField(this.strategyEngine, "workerPool", this.workerPool);
+
+        this.jar = this.folder.newFile("strategies.jar");
+        try (JarOutputStream output = new JarOutputStream(new FileOutputStream(this.jar))) {
+            output.putNextEntry(new ZipEntry(SERVICE_FILE));
+            output.write((FastStrategy.class.getName() + "\n" + SlowStrategy.class.getName() + "\n").getBytes(StandardCharsets.UTF_8));
+            output.closeEntry();
+        }
+        this.strategyEngine.reloadStrategies();
+    }
+
+    @After
+    public void stopEngine() {
+        slowRelease.countDown();
+        this.strategyEngine.closeStrategies();
+        this.workerPool.stop();
+    }
+
+    @Test
+    public void slowStrategyIsSkippedByDefaultAfter50Ms() {
+        assertThat(this.strategyEngine.getStrategyNames()).containsExactlyInAnyOrder("fast", "slow");
+
+        final long start = System.nanoTime();
+        final List<OrderIntent> intents = this.strategyEngine.evaluate(this.market());
+
+        assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(500);
+        assertThat(intents).extracting(OrderIntent::getStrategy).containsExactly("fast");
+    }
+
+    @Test
+    public void classLoaderOfARemovedJarIsClosedAfterItsRunningEvaluations() throws InterruptedException {
+        final URLClassLoader classLoader = this.classLoaderOf(this.jar);
+        // the slow strategy times out and keeps running
+        this.strategyEngine.evaluate(this.market());
+
+        assertThat(this.jar.delete()).isTrue();
+        this.strategyEngine.reloadStrategies();
+
+        assertThat(this.strategyEngine.getStrategyNames()).isEmpty();
+        assertThat(classLoader.findResource(SERVICE_FILE)).isNotNull();
+
+        slowRelease.countDown();
+        assertThat(slowEnded.await(2, TimeUnit.SECONDS)).isTrue();
+        final long deadline = System.currentTimeMillis() + 2000;
+        while (classLoader.findResource(SERVICE_FILE) != null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(classLoader.findResource(SERVICE_FILE)).isNull();
+    }
+
+    private MarketView market() {
+        return MarketView.builder()
+                .productName("BTC-EUR")
+                .price(100)
+                .priceEvents(Collections.emptyList())
+                .tradingState(TradingState.INITIAL)
+                .build();
+    }
+
+    private URLClassLoader classLoaderOf(final File jarFile) {
+        @SuppressWarnings("unchecked")
+        final Map<String, Object> sources = (Map<String, Object>) ReflectionTestUtils.getField(this.strategyEngine, "sources");
+        return (URLClassLoader) ReflectionTestUtils.getField(sources.get(jarFile.getAbsolutePath()), "classLoader");
+    }
+
+    public static class FastStrategy implements Strategy {
+        @Override
+        public String getName() {
+            return "fast";
+        }
+
+        @Override
+        public List<OrderIntent> evaluate(final MarketView market) {
+            return Collections.singletonList(OrderIntent.builder().strategy("fast").type(E_OrderIntent.BUY_ALERT).message("buy").build());
+        }
+    }
+
+    public static class SlowStrategy implements Strategy {
+        @Override
+        public String getName() {
+            return "slow";
+        }
+
+        @Override
+        public List<OrderIntent> evaluate(final MarketView market) {
+            // does not stop when it is interrupted, as a badly written strategy
+            boolean released = false;
+            while (!released) {
+                try {
+                    released = slowRelease.await(10, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    // ignored
+                }
+            }
+            slowEnded.countDown();
+            return Collections.singletonList(OrderIntent.builder().strategy("slow").type(E_OrderIntent.BUY_ALERT).message("late").build());
+        }
+    }
+}
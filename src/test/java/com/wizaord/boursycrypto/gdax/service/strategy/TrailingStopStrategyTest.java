@@ -0,0 +1,89 @@
+package com.wizaord.boursycrypto.gdax.service.strategy;
+
+import com.wizaord.boursycrypto.gdax.config.properties.ApplicationProperties;
+import com.wizaord.boursycrypto.gdax.config.properties.Benefice;
+import com.wizaord.boursycrypto.gdax.config.properties.SecureStopOrder;
+import com.wizaord.boursycrypto.gdax.config.properties.Trader;
+import com.wizaord.boursycrypto.gdax.config.properties.Vente;
+import com.wizaord.boursycrypto.gdax.domain.E_OrderIntent;
+import com.wizaord.boursycrypto.gdax.domain.feedmessage.OrderOpen;
+import com.wizaord.boursycrypto.gdax.domain.strategy.MarketView;
+import com.wizaord.boursycrypto.gdax.domain.strategy.OrderIntent;
+import com.wizaord.boursycrypto.gdax.domain.trade.PositionLot;
+import com.wizaord.boursycrypto.gdax.domain.trade.TradingState;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class TrailingStopStrategyTest {
+
+    private final TrailingStopStrategy strategy = new TrailingStopStrategy();
+
+    @Before
+    public void initStrategy() {
+        final SecureStopOrder secureStopOrder = new SecureStopOrder();
+        secureStopOrder.setActivate(true);
+        secureStopOrder.setPourcent(2.5f);
+        final Benefice benefice = new Benefice();
+        benefice.setPourcentBeforeStartVenteMode(1.5f);
+        benefice.setInitialPourcent(0.5f);
+        benefice.setFollowingPourcent(1f);
+        final Vente vente = new Vente();
+        vente.setSecureStopOrder(secureStopOrder);
+        vente.setBenefice(benefice);
+        final Trader trader = new Trader();
+        trader.setVente(vente);
+        final ApplicationProperties properties = new ApplicationProperties();
+        properties.setTrader(trader);
+        this.strategy.init(properties);
+    }
+
+    private static OrderOpen stopOrder(final String price) {
+        final OrderOpen order = new OrderOpen();
+        order.setOrderId("stop-" + price);
+        order.setPrice(new BigDecimal(price));
+        return order;
+    }
+
+    private static PositionLot lot(final String lotId, final OrderOpen stopOrder) {
+        return PositionLot.builder().lotId(lotId).entryPrice(new BigDecimal("100")).size(BigDecimal.ONE)
+                .takeProfitPourcent(1.5).stopOrder(stopOrder).build();
+    }
+
+    private List<OrderIntent> evaluate(final double price, final PositionLot... lots) {
+        TradingState state = TradingState.INITIAL.selling();
+        for (PositionLot lot : lots) {
+            state = state.buyFilled(lot);
+        }
+        return this.strategy.evaluate(MarketView.builder().price(price).priceEvents(Collections.emptyList()).tradingState(state).build());
+    }
+
+    @Test
+    public void eachLotGetsItsOwnStopOrder() {
+        final List<OrderIntent> intents = evaluate(102,
+                lot("without-stop", null),
+                lot("secure-stop", stopOrder("97")),
+                lot("in-benefice", stopOrder("100.5")));
+
+        assertThat(intents).extracting(OrderIntent::getType).containsOnly(E_OrderIntent.STOP_SELL);
+        assertThat(intents).extracting(OrderIntent::getLotId).containsExactly("without-stop", "secure-stop", "in-benefice");
+        // secure stop 2.5% below the price
+        assertThat(intents.get(0).getPrice()).isCloseTo(99.45, within(1e-6));
+        // take profit reached : the secure stop goes to the threshold, 0.5% above the entry price
+        assertThat(intents.get(1).getPrice()).isCloseTo(100.5, within(1e-6));
+        // following stop 1% below the price
+        assertThat(intents.get(2).getPrice()).isCloseTo(100.98, within(1e-6));
+    }
+
+    @Test
+    public void stopOrdersAreKeptWhenThePriceDoesNotRiseEnough() {
+        assertThat(evaluate(101, lot("in-benefice", stopOrder("100.5")), lot("waiting", stopOrder("97")))).isEmpty();
+        assertThat(this.strategy.evaluate(MarketView.builder().price(100).tradingState(TradingState.INITIAL.buying()).build())).isEmpty();
+    }
+}
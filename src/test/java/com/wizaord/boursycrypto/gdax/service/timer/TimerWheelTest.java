@@ -0,0 +1,67 @@
+package com.wizaord.boursycrypto.gdax.service.timer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TimerWheelTest {
+
+    private final TimerWheel wheel = new TimerWheel(100, 8, 2, 0);
+    private final List<String> fired = new ArrayList<>();
+
+    @Test
+    public void runsTheTasksWhenTheirDelayIsElapsed() {
+        this.wheel.schedule(() -> this.fired.add("a"), 250, 0);
+        this.wheel.schedule(() -> this.fired.add("b"), 100, 0);
+
+        assertThat(this.wheel.advance(50)).isEqualTo(0);
+        assertThat(this.wheel.advance(150)).isEqualTo(1);
+        assertThat(this.fired).containsExactly("b");
+        assertThat(this.wheel.advance(400)).isEqualTo(1);
+        assertThat(this.fired).containsExactly("b", "a");
+        assertThat(this.wheel.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void longDelaysCascadeToTheLowerLevel() {
+        final TimerWheel.Timeout timeout = this.wheel.schedule(() -> this.fired.add("long"), 2000, 0);
+
+        this.wheel.advance(1900);
+        assertThat(this.fired).isEmpty();
+        assertThat(timeout.isPending()).isTrue();
+
+        this.wheel.advance(2000);
+        assertThat(this.fired).containsExactly("long");
+        assertThat(timeout.isPending()).isFalse();
+    }
+
+    @Test
+    public void delaysBeyondTheLastLevelAreNeverRunEarly() {
+        // 2 levels of 8 buckets of 100 millis : 6.4 s
+        this.wheel.schedule(() -> this.fired.add("beyond"), 15000, 0);
+        this.wheel.schedule(() -> this.fired.add("near"), 500, 0);
+
+        this.wheel.advance(14900);
+        assertThat(this.fired).containsExactly("near");
+        assertThat(this.wheel.size()).isEqualTo(1);
+
+        this.wheel.advance(15000);
+        assertThat(this.fired).containsExactly("near", "beyond");
+    }
+
+    @Test
+    public void canceledTasksNeverRun() {
+        final TimerWheel.Timeout timeout = this.wheel.schedule(() -> this.fired.add("canceled"), 100, 0);
+        this.wheel.schedule(timeout::cancel, 0, 0);
+        this.wheel.schedule(() -> this.fired.add("kept"), 100, 0);
+
+        timeout.cancel();
+        this.wheel.advance(300);
+
+        assertThat(this.fired).containsExactly("kept");
+        assertThat(this.wheel.size()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,69 @@
+package com.wizaord.boursycrypto.gdax.service.trade;
+
+import com.wizaord.boursycrypto.gdax.domain.E_TradingMode;
+import com.wizaord.boursycrypto.gdax.domain.snapshot.TradingSnapshot;
+import com.wizaord.boursycrypto.gdax.domain.trade.PositionLot;
+import com.wizaord.boursycrypto.gdax.service.AccountService;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reprise de l'etat du trader depuis un snapshot
+ */
+public class TradeServiceReconcileTest {
+
+    private final TradeService tradeService = new TradeService();
+    private final TradingMode tradingMode = new TradingMode();
+    private double coins;
+
+    @Before
+    public void initTradeService() {
+        ReflectionTestUtils.setField(this.tradeService, "tradeMode", this.tradingMode);
+        ReflectionTestUtils.setField(this.tradeService, "accountService", new AccountService() {
+            @Override
+            public Double getBtc() {
+                return coins;
+            }
+        });
+    }
+
+    @Test
+    public void lotsOfTheSnapshotAreRestoredWhenTheCoinsAreStillOwned() {
+        this.coins = 0.5;
+
+        this.tradeService.reconcile(this.snapshot());
+
+        assertThat(this.tradingMode.getTraderMode()).isEqualTo(E_TradingMode.VENTE);
+        assertThat(this.tradingMode.getState().getPositions().getLots()).extracting(PositionLot::getLotId).containsExactly("buy-order");
+    }
+
+    @Test
+    public void lotsOfTheSnapshotAreDroppedWhenNoCoinIsLeft() {
+        this.coins = 0;
+
+        this.tradeService.reconcile(this.snapshot());
+
+        assertThat(this.tradingMode.getTraderMode()).isEqualTo(E_TradingMode.ACHAT);
+        assertThat(this.tradingMode.getState().getPositions().isEmpty()).isTrue();
+    }
+
+    private TradingSnapshot snapshot() {
+        return TradingSnapshot.builder()
+                .productName("BTC-EUR")
+                .tradingMode(E_TradingMode.VENTE)
+                .lot(PositionLot.builder()
+                        .lotId("buy-order")
+                        .openedAt(new Date(1520000000000L))
+                        .entryPrice(new BigDecimal("8000"))
+                        .size(new BigDecimal("0.5"))
+                        .fee(BigDecimal.ZERO)
+                        .build())
+                .build();
+    }
+}